@@ -0,0 +1,91 @@
+package ru.nsu.benchmarks;
+
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanHandle;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@code getBean(String)} с заранее найденным {@link BeanHandle} для каждого scope.
+ * Уровень логирования - параметр, потому что при INFO {@code getBean} кладёт два события в журнал
+ * {@link ru.nsu.services.BeanEventLog} на каждый вызов, а {@link BeanHandle} для синглетона
+ * и потокового бина не пишет ничего.
+ * Для проверки отсутствия аллокаций запускайте с {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeanHandleBenchmark {
+
+    @Param({"INFO", "WARN"})
+    private String logLevel;
+
+    private BeanInstanceService beanInstanceService;
+
+    private BeanHandle<Object> singletonHandle;
+
+    private BeanHandle<Object> threadHandle;
+
+    private BeanHandle<Object> prototypeHandle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.toLevel(logLevel));
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        singletonHandle = beanInstanceService.getBeanHandle("mySingletonService");
+        threadHandle = beanInstanceService.getBeanHandle("myThreadScopeRepository");
+        prototypeHandle = beanInstanceService.getBeanHandle("myPrototypeRepository");
+    }
+
+    @Benchmark
+    public Object singletonGetBean() {
+        return beanInstanceService.getBean("mySingletonService");
+    }
+
+    @Benchmark
+    public Object singletonHandle() {
+        return singletonHandle.get();
+    }
+
+    @Benchmark
+    public Object threadGetBean() {
+        return beanInstanceService.getBean("myThreadScopeRepository");
+    }
+
+    @Benchmark
+    public Object threadHandle() {
+        return threadHandle.get();
+    }
+
+    @Benchmark
+    public Object prototypeGetBean() {
+        return beanInstanceService.getBean("myPrototypeRepository");
+    }
+
+    @Benchmark
+    public Object prototypeHandle() {
+        return prototypeHandle.get();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.nsu.benchmarks;
+
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время {@code getBean(String)} для каждого scope на бинах из {@code model.threads}:
+ * в одном потоке и при одновременных запросах из нескольких потоков ({@code contended*}).
+ * Бины и конфиг те же, что в {@code ThreadDataTest}, поэтому результаты можно сравнивать между версиями.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetBeanBenchmark {
+
+    private BeanInstanceService beanInstanceService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Без INFO журнал событий контейнера выключен и не перекрывает сам поиск бина
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+    }
+
+    @Benchmark
+    public Object singleton() {
+        return beanInstanceService.getBean("mySingletonService");
+    }
+
+    @Benchmark
+    public Object prototype() {
+        return beanInstanceService.getBean("myPrototypeService");
+    }
+
+    @Benchmark
+    public Object thread() {
+        return beanInstanceService.getBean("myThreadScopeRepository");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object contendedSingleton() {
+        return beanInstanceService.getBean("mySingletonService");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object contendedPrototype() {
+        return beanInstanceService.getBean("myPrototypeService");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object contendedThread() {
+        return beanInstanceService.getBean("myThreadScopeRepository");
+    }
+}
@@ -0,0 +1,114 @@
+package ru.nsu.benchmarks;
+
+import model.easy.MyService;
+import model.threads.MySingletonService;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.model.BeanDefinition;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.BeanInstantiator;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время создания инстанса бина через {@code createBeanInstance} для разных способов внедрения,
+ * время применения initParams и вызова {@code Provider.get()}.
+ * <ul>
+ *     <li>внедрение в поле - {@code myPrototypeService} из {@code model.threads};</li>
+ *     <li>Provider в конструкторе - {@code myServiceImplementation} из {@code model.easy};</li>
+ *     <li>параметр конструктора без Named - {@code mailSender} из {@code model.typed}.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectionBenchmark {
+
+    private BeanInstanceService threadsService;
+
+    private BeanDefinition fieldInjectedDefinition;
+
+    private BeanInstantiator initParamsInstantiator;
+
+    private MySingletonService initParamsTarget;
+
+    private BeanInstanceService easyService;
+
+    private BeanDefinition providerInjectedDefinition;
+
+    private MyService providerOwner;
+
+    private BeanInstanceService typedService;
+
+    private BeanDefinition constructorInjectedDefinition;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+
+        BeanContainer threadsContainer = createContainer("model.threads", "threadBeans.json");
+        threadsService = new BeanInstanceService(threadsContainer);
+        threadsService.instantiateAndRegisterBeans();
+        fieldInjectedDefinition = threadsContainer.getBeanDefinitions().get("myPrototypeService");
+        initParamsInstantiator = threadsContainer.getInstantiator(threadsContainer.getBeanDefinitions().get("mySingletonService"));
+        initParamsTarget = new MySingletonService();
+
+        BeanContainer easyContainer = createContainer("model.easy", "beans.json");
+        easyService = new BeanInstanceService(easyContainer);
+        easyService.instantiateAndRegisterBeans();
+        providerInjectedDefinition = easyContainer.getBeanDefinitions().get("myServiceImplementation");
+        providerOwner = easyService.getBean("myServiceImplementation");
+
+        BeanContainer typedContainer = createContainer("model.typed", "beansTyped.json");
+        typedService = new BeanInstanceService(typedContainer);
+        typedService.instantiateAndRegisterBeans();
+        constructorInjectedDefinition = typedContainer.getBeanDefinitions().get("mailSender");
+    }
+
+    private static BeanContainer createContainer(String packageName, String jsonConfig) throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses(packageName, jsonConfig);
+        return new BeanContainer(dependencyScanningConfig);
+    }
+
+    @Benchmark
+    public Object fieldInjection() {
+        return threadsService.createBeanInstance(fieldInjectedDefinition);
+    }
+
+    @Benchmark
+    public Object providerInjection() {
+        return easyService.createBeanInstance(providerInjectedDefinition);
+    }
+
+    @Benchmark
+    public Object constructorInjection() {
+        return typedService.createBeanInstance(constructorInjectedDefinition);
+    }
+
+    @Benchmark
+    public Object applyInitParams() throws Exception {
+        initParamsInstantiator.applyInitParams(initParamsTarget);
+        return initParamsTarget;
+    }
+
+    @Benchmark
+    public Object providerGet() {
+        return providerOwner.getMyRepository().get();
+    }
+}
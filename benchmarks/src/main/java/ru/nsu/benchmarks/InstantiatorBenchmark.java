@@ -0,0 +1,142 @@
+package ru.nsu.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.model.BeanDefinition;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstantiator;
+import ru.nsu.services.DependencyScanningConfig;
+
+import javax.inject.Named;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение стоимости создания одного инстанса бина через старый рефлексивный путь
+ * ({@code Class.forName}, {@code Constructor.newInstance}, {@code Field.set}, {@code Method.invoke})
+ * и через заранее связанный {@link BeanInstantiator}.
+ * Зависимости передаются готовыми, чтобы измерялась только работа с членами класса.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstantiatorBenchmark {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * Бин с внедряемым полем и сеттером из initParams.
+     */
+    private BeanDefinition fieldInjectedDefinition;
+
+    private BeanInstantiator fieldInjectedInstantiator;
+
+    /**
+     * Бин с сеттером из initParams и PostConstruct методом.
+     */
+    private BeanDefinition postConstructDefinition;
+
+    private BeanInstantiator postConstructInstantiator;
+
+    private Object dependency;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DependencyScanningConfig threadsConfig = new DependencyScanningConfig();
+        threadsConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer threadsContainer = new BeanContainer(threadsConfig);
+        fieldInjectedDefinition = threadsContainer.getBeanDefinitions().get("myPrototypeService");
+        fieldInjectedInstantiator = threadsContainer.getInstantiator(fieldInjectedDefinition);
+        dependency = new model.threads.MyPrototypeRepository("prototypeDataSource");
+
+        DependencyScanningConfig prePostConfig = new DependencyScanningConfig();
+        prePostConfig.scanForAnnotatedClasses("model.pre_post", "beans_pre_post.json");
+        BeanContainer prePostContainer = new BeanContainer(prePostConfig);
+        postConstructDefinition = prePostContainer.getBeanDefinitions().get("myRepositoryImpl");
+        postConstructInstantiator = prePostContainer.getInstantiator(postConstructDefinition);
+    }
+
+    @Benchmark
+    public Object reflectiveFieldInjection() throws Exception {
+        return reflectiveCreate(fieldInjectedDefinition, dependency);
+    }
+
+    @Benchmark
+    public Object instantiatorFieldInjection() throws Exception {
+        return instantiatorCreate(fieldInjectedInstantiator, dependency);
+    }
+
+    @Benchmark
+    public Object reflectivePostConstruct() throws Exception {
+        return reflectiveCreate(postConstructDefinition, dependency);
+    }
+
+    @Benchmark
+    public Object instantiatorPostConstruct() throws Exception {
+        return instantiatorCreate(postConstructInstantiator, dependency);
+    }
+
+    private static Object instantiatorCreate(BeanInstantiator instantiator, Object dependency) throws Exception {
+        Object instance = instantiator.newInstance(NO_ARGS);
+        for (BeanInstantiator.Injection injection : instantiator.getFieldInjections()) {
+            injection.inject(instance, dependency);
+        }
+        instantiator.applyInitParams(instance);
+        instantiator.invokePostConstruct(instance);
+        return instance;
+    }
+
+    /**
+     * Повторяет то, что {@code BeanInstanceService.createBeanInstance} делал для каждого инстанса до появления
+     * {@link BeanInstantiator}.
+     */
+    private static Object reflectiveCreate(BeanDefinition beanDefinition, Object dependency) throws Exception {
+        Class<?> beanClass = Class.forName(beanDefinition.getClassName());
+        Constructor<?> constructor = beanClass.getDeclaredConstructor();
+        Object instance = constructor.newInstance(NO_ARGS);
+        if (beanDefinition.getInjectedFields() != null) {
+            for (Field field : beanDefinition.getInjectedFields()) {
+                field.setAccessible(true);
+                Named namedAnnotation = field.getAnnotation(Named.class);
+                String actualName = (namedAnnotation != null ? namedAnnotation.value() : field.getName());
+                if (actualName != null) {
+                    field.set(instance, dependency);
+                }
+            }
+        }
+        for (Map.Entry<String, Object> entry : beanDefinition.getInitParams().entrySet()) {
+            Method setterMethod = findMethodByNameAndParameterType(beanClass, entry.getKey(), entry.getValue());
+            setterMethod.invoke(instance, entry.getValue());
+        }
+        Method postConstructMethod = beanDefinition.getPostConstructMethod();
+        if (postConstructMethod != null) {
+            postConstructMethod.setAccessible(true);
+            postConstructMethod.invoke(instance);
+        }
+        return instance;
+    }
+
+    private static Method findMethodByNameAndParameterType(Class<?> clazz, String methodName, Object value) throws NoSuchMethodException {
+        for (Method method : clazz.getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterTypes().length == 1 && method.getParameterTypes()[0].isAssignableFrom(value.getClass())) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(clazz.getName() + "." + methodName + "(...)");
+    }
+}
@@ -0,0 +1,74 @@
+package ru.nsu.benchmarks;
+
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@code getBean} при одновременных запросах из многих потоков.
+ * {@code locked*} повторяет обходной путь, который приходилось использовать, пока реестр контейнера
+ * был построен на обычных HashMap: каждый запрос бина проходил через один общий монитор.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RegistryContentionBenchmark {
+
+    private final Object externalLock = new Object();
+
+    private BeanInstanceService beanInstanceService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Без INFO журнал событий контейнера выключен и не перекрывает работу с реестром
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+    }
+
+    @Benchmark
+    public Object singletonLookup() {
+        return beanInstanceService.getBean("mySingletonService");
+    }
+
+    @Benchmark
+    public Object lockedSingletonLookup() {
+        synchronized (externalLock) {
+            return beanInstanceService.getBean("mySingletonService");
+        }
+    }
+
+    @Benchmark
+    public Object threadScopeLookup() {
+        return beanInstanceService.getBean("myThreadScopeRepository");
+    }
+
+    @Benchmark
+    public Object lockedThreadScopeLookup() {
+        synchronized (externalLock) {
+            return beanInstanceService.getBean("myThreadScopeRepository");
+        }
+    }
+}
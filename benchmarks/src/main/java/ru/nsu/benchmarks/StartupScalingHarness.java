@@ -0,0 +1,266 @@
+package ru.nsu.benchmarks;
+
+import org.apache.log4j.LogManager;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyResolver;
+import ru.nsu.services.DependencyScanningConfig;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Замер времени старта контейнера на синтетических графах бинов от тысячи до десятков тысяч бинов.
+ * Для каждого размера генерируются классы бинов и json конфигурация, классы компилируются в процессе
+ * через {@code javax.tools}, а затем отдельно замеряются фазы старта:
+ * <ul>
+ *     <li>{@code scan} - {@link DependencyScanningConfig#scanForAnnotatedClasses};</li>
+ *     <li>{@code container} - сборка {@link BeanContainer}: индексы, связывание и граф зависимостей;</li>
+ *     <li>{@code resolve} - повторный {@link DependencyResolver#resolveDependencies()} на готовых связанных бинах;</li>
+ *     <li>{@code instantiate} - {@link BeanInstanceService#instantiateAndRegisterBeans()}.</li>
+ * </ul>
+ * Каждый размер запускается в отдельной JVM, потому что контейнер регистрирует shutdown hook
+ * и не освобождается до конца процесса, а пиковое потребление кучи должно относиться к одному графу.
+ * <p>
+ * Граф состоит из {@code depth} слоёв, бин зависит от {@code fanOut} бинов предыдущего слоя.
+ * Prototype и потоковые бины зависят только от синглетонов, чтобы prototype цепочки не создавали
+ * экспоненциальное число инстансов. Пример запуска:
+ * {@code java -cp benchmarks/target/benchmarks.jar ru.nsu.benchmarks.StartupScalingHarness 1000 10000 50000}.
+ * Параметры графа задаются системными свойствами {@code harness.fanOut}, {@code harness.depth},
+ * {@code harness.prototypePercent}, {@code harness.threadPercent} и {@code harness.useBeanIndex}.
+ */
+public class StartupScalingHarness {
+
+    private static final String PACKAGE_PREFIX = "synthetic.g";
+
+    private static final String JSON_CONFIG = "synthetic.json";
+
+    private static final String SINGLE_RUN = "--single";
+
+    private final int fanOut = Integer.getInteger("harness.fanOut", 3);
+
+    private final int depth = Integer.getInteger("harness.depth", 10);
+
+    private final int prototypePercent = Integer.getInteger("harness.prototypePercent", 15);
+
+    private final int threadPercent = Integer.getInteger("harness.threadPercent", 5);
+
+    private final boolean useBeanIndex = Boolean.parseBoolean(System.getProperty("harness.useBeanIndex", "true"));
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals(SINGLE_RUN)) {
+            new StartupScalingHarness().runSingle(Integer.parseInt(args[1]));
+            return;
+        }
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()) {
+            sizes = List.of(1_000, 5_000, 10_000, 25_000, 50_000);
+        }
+        System.out.println("beans,compileMs,scanMs,containerMs,resolveMs,instantiateMs,peakHeapMb");
+        for (int size : sizes) {
+            System.out.println(runInChildJvm(size));
+        }
+    }
+
+    /**
+     * Запускаем замер одного размера в дочерней JVM с теми же classpath и системными свойствами харнесса.
+     *
+     * @param size число бинов.
+     * @return строка с результатами в формате csv.
+     */
+    private static String runInChildJvm(int size) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String jvmArgument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (jvmArgument.startsWith("-X") || jvmArgument.startsWith("-Dharness.")) {
+                command.add(jvmArgument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupScalingHarness.class.getName());
+        command.add(SINGLE_RUN);
+        command.add(String.valueOf(size));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(size + ",")) {
+                    result = line;
+                } else {
+                    System.err.println(line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || result == null) {
+            throw new IllegalStateException("Startup run for " + size + " beans failed with exit code " + exitCode);
+        }
+        return result;
+    }
+
+    private void runSingle(int size) throws Exception {
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        Path outputDirectory = Files.createTempDirectory("di-startup-" + size);
+        String packageName = PACKAGE_PREFIX + size;
+
+        long compileStart = System.nanoTime();
+        List<Path> sources = generateBeans(outputDirectory, packageName, size);
+        compile(outputDirectory, sources);
+        long compileNanos = System.nanoTime() - compileStart;
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{outputDirectory.toUri().toURL()},
+                StartupScalingHarness.class.getClassLoader())) {
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long scanStart = System.nanoTime();
+            DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+            dependencyScanningConfig.setClassLoader(classLoader);
+            dependencyScanningConfig.setUseBeanIndex(useBeanIndex);
+            dependencyScanningConfig.scanForAnnotatedClasses(packageName, JSON_CONFIG);
+            long containerStart = System.nanoTime();
+            BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+            long resolveStart = System.nanoTime();
+            new DependencyResolver(beanContainer.getInstantiators()).resolveDependencies();
+            long instantiateStart = System.nanoTime();
+            new BeanInstanceService(beanContainer).instantiateAndRegisterBeans();
+            long end = System.nanoTime();
+
+            if (beanContainer.getBeanDefinitions().size() != size) {
+                throw new IllegalStateException("Expected " + size + " beans, scanned " + beanContainer.getBeanDefinitions().size());
+            }
+            System.out.println(size + "," + millis(compileNanos) + "," + millis(containerStart - scanStart) + ","
+                    + millis(resolveStart - containerStart) + "," + millis(instantiateStart - resolveStart) + ","
+                    + millis(end - instantiateStart) + "," + peakHeapMegabytes());
+        } finally {
+            deleteRecursively(outputDirectory);
+        }
+    }
+
+    /**
+     * Генерируем классы бинов и json конфигурацию для них.
+     *
+     * @param outputDirectory папка, в которую пишутся исходники, классы и конфигурация.
+     * @param packageName     пакет сгенерированных бинов.
+     * @param size            число бинов.
+     * @return пути к исходникам.
+     */
+    private List<Path> generateBeans(Path outputDirectory, String packageName, int size) throws IOException {
+        Random random = new Random(size);
+        String[] scopes = new String[size];
+        for (int i = 0; i < size; i++) {
+            int roll = random.nextInt(100);
+            scopes[i] = roll < prototypePercent ? "prototype" : roll < prototypePercent + threadPercent ? "thread" : "singleton";
+        }
+
+        Path packageDirectory = outputDirectory.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(packageDirectory);
+        List<Path> sources = new ArrayList<>(size);
+        int layers = Math.max(1, Math.min(depth, size));
+        for (int i = 0; i < size; i++) {
+            int layer = (int) ((long) i * layers / size);
+            StringBuilder source = new StringBuilder();
+            source.append("package ").append(packageName).append(";\n\n")
+                    .append("@javax.inject.Named(\"bean").append(i).append("\")\n")
+                    .append("public class Bean").append(i).append(" {\n");
+            if (layer > 0) {
+                int layerStart = (int) (((long) (layer - 1) * size + layers - 1) / layers);
+                int layerEnd = (int) (((long) layer * size + layers - 1) / layers);
+                int fields = 0;
+                for (int attempt = 0; attempt < fanOut * 4 && fields < fanOut; attempt++) {
+                    int dependency = layerStart + random.nextInt(layerEnd - layerStart);
+                    if (!scopes[i].equals("singleton") && !scopes[dependency].equals("singleton")) {
+                        continue;
+                    }
+                    source.append("    @javax.inject.Inject\n")
+                            .append("    @javax.inject.Named(\"bean").append(dependency).append("\")\n")
+                            .append("    private Bean").append(dependency).append(" dependency").append(fields++).append(";\n");
+                }
+            }
+            source.append("}\n");
+            Path sourceFile = packageDirectory.resolve("Bean" + i + ".java");
+            Files.writeString(sourceFile, source);
+            sources.add(sourceFile);
+        }
+
+        StringBuilder json = new StringBuilder("{\n  \"beans\": [\n");
+        for (int i = 0; i < size; i++) {
+            json.append("    {\"name\": \"bean").append(i).append("\", \"scope\": \"").append(scopes[i]).append("\"}")
+                    .append(i + 1 < size ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        Path beansDirectory = outputDirectory.resolve("beans");
+        Files.createDirectories(beansDirectory);
+        Files.writeString(beansDirectory.resolve(JSON_CONFIG), json);
+        return sources;
+    }
+
+    /**
+     * Компилируем сгенерированные бины. Процессор аннотаций библиотеки лежит в classpath,
+     * поэтому вместе с классами создаётся и индекс бинов, если он не выключен.
+     */
+    private void compile(Path outputDirectory, List<Path> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Startup harness needs a JDK with javax.tools");
+        }
+        // Список исходников передаётся файлом, потому что десятки тысяч путей не помещаются в командную строку
+        Path sourceList = outputDirectory.resolve("sources.txt");
+        Files.write(sourceList, sources.stream().map(Path::toString).toList());
+        List<String> options = new ArrayList<>(List.of("-encoding", "UTF-8", "-nowarn",
+                "-classpath", System.getProperty("java.class.path"), "-d", outputDirectory.toString()));
+        if (!useBeanIndex) {
+            options.add("-proc:none");
+        }
+        options.add("@" + sourceList);
+        int result = compiler.run(null, null, null, options.toArray(new String[0]));
+        if (result != 0) {
+            throw new IllegalStateException("Failed to compile generated beans");
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static long peakHeapMegabytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak / (1024 * 1024);
+    }
+}
@@ -0,0 +1,143 @@
+package ru.nsu.benchmarks;
+
+import model.context.RequestAudit;
+import model.context.RequestState;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanContext;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+import ru.nsu.services.VirtualThreads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сравнение scope {@code thread} и {@code context} при модели "один виртуальный поток на задачу":
+ * за одну операцию запускается {@code tasks} потоков, и каждый получает бины {@code requestAudit} и {@code requestState}
+ * из {@code model.context}. Конфиги отличаются только scope, поэтому разница - это цена самого scope.
+ * <ul>
+ *     <li>{@code threadScope} - на каждый поток создаются свои инстансы. Каждый инстанс запоминается вместе со слабой ссылкой
+ *     на поток, а PreDestroy у него вызывает фоновый поток {@code thread-bean-reaper} уже после завершения потока,
+ *     поэтому в замер входит и цена этого учёта;</li>
+ *     <li>{@code contextPerTask} - каждый поток открывает свой контекст, инстансы тоже свои, но уничтожаются при закрытии;</li>
+ *     <li>{@code sharedContext} - задача-запрос открывает контекст и передаёт его {@value #TASKS_PER_CONTEXT} дочерним задачам,
+ *     которые переиспользуют одни инстансы.</li>
+ * </ul>
+ * Аллокации смотрим через {@code -prof gc}, причём {@code gc.alloc.rate.norm} не учитывает уже завершившиеся потоки,
+ * поэтому сравнивать лучше {@code gc.count} и {@code gc.time}. Виртуальные потоки запускаются через {@link VirtualThreads},
+ * поэтому на JDK без них каждая задача идёт в обычном потоке и {@code tasks} стоит уменьшить, например {@code -p tasks=1000}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadScopeBenchmark {
+
+    private static final int TASKS_PER_CONTEXT = 100;
+
+    @Param("100000")
+    private int tasks;
+
+    private BeanInstanceService threadScopeService;
+
+    private BeanInstanceService contextScopeService;
+
+    private final LongAdder sink = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        threadScopeService = createService("beansContextThreadScope.json");
+        contextScopeService = createService("beansContext.json");
+    }
+
+    private static BeanInstanceService createService(String jsonConfig) throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.context", jsonConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(new BeanContainer(dependencyScanningConfig));
+        beanInstanceService.instantiateAndRegisterBeans();
+        return beanInstanceService;
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearDestroyLog() {
+        // Тестовая модель запоминает каждый вызов PreDestroy, не даём этому журналу расти между итерациями
+        RequestState.DESTROYED.clear();
+    }
+
+    @Benchmark
+    public long threadScope() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            VirtualThreads.start(() -> {
+                handle(threadScopeService);
+                done.countDown();
+            });
+        }
+        done.await();
+        return sink.sum();
+    }
+
+    @Benchmark
+    public long contextPerTask() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            VirtualThreads.start(() -> {
+                try (BeanContext ignored = contextScopeService.openContext()) {
+                    handle(contextScopeService);
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        return sink.sum();
+    }
+
+    @Benchmark
+    public long sharedContext() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int start = 0; start < tasks; start += TASKS_PER_CONTEXT) {
+            int children = Math.min(TASKS_PER_CONTEXT, tasks - start);
+            VirtualThreads.start(() -> {
+                CountDownLatch childrenDone = new CountDownLatch(children);
+                try (BeanContext context = contextScopeService.openContext()) {
+                    Runnable child = context.wrap(() -> {
+                        handle(contextScopeService);
+                        childrenDone.countDown();
+                        done.countDown();
+                    });
+                    for (int i = 0; i < children; i++) {
+                        VirtualThreads.start(child);
+                    }
+                    childrenDone.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        done.await();
+        return sink.sum();
+    }
+
+    private void handle(BeanInstanceService beanInstanceService) {
+        RequestAudit audit = beanInstanceService.getBean("requestAudit");
+        sink.add(audit.getRequestState().getBuffer().length);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.nsu.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.io.Serial;
+
+/**
+ * Ошибка, возникающая, когда индекс бинов, созданный на этапе компиляции, не совпадает с классами в classpath.
+ */
+@Slf4j
+public class BeanIndexException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Выводим ошибку, связанную с устаревшим индексом бинов, и
+     * записываем информацию о ней в файл для логов.
+     * @param className имя класса из индекса.
+     * @param description подробное описание ошибки.
+     */
+    public BeanIndexException(String className, String description) {
+        super("Error with bean index for class '" + className + "'. " + description);
+        MDC.put("beanName", className);
+        log.error(description);
+        MDC.remove("beanName");
+    }
+}
@@ -0,0 +1,29 @@
+package ru.nsu.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.io.Serial;
+
+/**
+ * Ошибка, возникающая, когда для бина нельзя сгенерировать Java код контейнера без рефлексии.
+ */
+@Slf4j
+public class ContainerGenerationException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Выводим ошибку генерации контейнера с подробным описанием и
+     * записываем информацию о ней в файл для логов.
+     * @param beanName название бина для лучшего ориентира.
+     * @param description подробное описание ошибки.
+     */
+    public ContainerGenerationException(String beanName, String description) {
+        super("Can't generate container code for bean '" + beanName + "'. " + description);
+        MDC.put("beanName", beanName);
+        log.error(description);
+        MDC.remove("beanName");
+    }
+}
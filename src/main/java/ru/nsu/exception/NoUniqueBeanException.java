@@ -0,0 +1,29 @@
+package ru.nsu.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.io.Serial;
+
+/**
+ * Ошибка, возникающая, когда зависимость ищется по типу, а этому типу соответствует несколько бинов.
+ */
+@Slf4j
+public class NoUniqueBeanException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Конструктор для выброса этой ошибки.
+     *
+     * @param name        имя бина или тип, который связан с ошибкой.
+     * @param description подробное описание ошибки со списком подходящих бинов.
+     */
+    public NoUniqueBeanException(String name, String description) {
+        super("More than one bean matches '" + name + "'. Description = " + description);
+        MDC.put("beanName", name);
+        log.error("More than one bean matches type. " + description);
+        MDC.remove("beanName");
+    }
+}
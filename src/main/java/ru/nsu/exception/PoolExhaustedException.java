@@ -0,0 +1,30 @@
+package ru.nsu.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.io.Serial;
+
+/**
+ * Ошибка, возникающая, когда из пула бина не удалось получить инстанс:
+ * все инстансы выданы и ни один не вернулся за время ожидания, или пул уже закрыт.
+ */
+@Slf4j
+public class PoolExhaustedException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Конструктор для выброса этой ошибки.
+     *
+     * @param name        имя бина, пул которого исчерпан.
+     * @param description описание ошибки.
+     */
+    public PoolExhaustedException(String name, String description) {
+        super("Can't borrow bean '" + name + "' from pool. Description = " + description);
+        MDC.put("beanName", name);
+        log.error("Can't borrow bean from pool. " + description);
+        MDC.remove("beanName");
+    }
+}
@@ -0,0 +1,16 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Создание инстанса бина: конструктор, внедрение зависимостей и initParams, без PostConstruct.
+ */
+@Name("ru.nsu.BeanCreation")
+@Label("Bean Creation")
+@Description("Создание инстанса бина: конструктор, внедрение зависимостей и initParams, без PostConstruct.")
+@Threshold("1 ms")
+public class BeanCreationEvent extends BeanEvent {
+}
@@ -0,0 +1,37 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Общая часть событий JFR контейнера: имя и scope бина. Длительность события JFR записывает сам.
+ * События создаются на каждый вызов, но пока запись JFR выключена, {@link #shouldCommit()} возвращает false
+ * и поля не заполняются, а JIT убирает саму аллокацию события, поэтому события можно оставить в коде всегда.
+ */
+@Category({"DI Container"})
+@StackTrace(false)
+public abstract class BeanEvent extends Event {
+
+    @Label("Bean Name")
+    protected String beanName;
+
+    @Label("Scope")
+    protected String scope;
+
+    /**
+     * Завершаем событие и записываем его, если JFR включён и событие длиннее порога.
+     *
+     * @param beanName имя бина.
+     * @param scope    scope бина.
+     */
+    public void commit(String beanName, String scope) {
+        end();
+        if (shouldCommit()) {
+            this.beanName = beanName;
+            this.scope = scope;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Получение одной зависимости для внедрения в поле или параметр конструктора бина.
+ */
+@Name("ru.nsu.BeanInjection")
+@Label("Bean Injection")
+@Description("Получение одной зависимости для внедрения в поле или параметр конструктора бина.")
+@Threshold("1 ms")
+public class BeanInjectionEvent extends BeanEvent {
+
+    @Label("Dependency Name")
+    private String dependencyName;
+
+    /**
+     * Завершаем событие внедрения.
+     *
+     * @param beanName       имя бина, в который внедряется зависимость.
+     * @param scope          scope этого бина.
+     * @param dependencyName имя внедряемого бина.
+     */
+    public void commit(String beanName, String scope, String dependencyName) {
+        end();
+        if (shouldCommit()) {
+            this.beanName = beanName;
+            this.scope = scope;
+            this.dependencyName = dependencyName;
+            commit();
+        }
+    }
+}
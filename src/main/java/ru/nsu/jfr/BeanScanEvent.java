@@ -0,0 +1,16 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Регистрация модели бина при сканировании пакета или чтении индекса бинов.
+ */
+@Name("ru.nsu.BeanScan")
+@Label("Bean Scan")
+@Description("Регистрация модели бина при сканировании пакета или чтении индекса бинов.")
+@Threshold("0 ms")
+public class BeanScanEvent extends BeanEvent {
+}
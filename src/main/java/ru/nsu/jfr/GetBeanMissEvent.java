@@ -0,0 +1,41 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Запрос бина, который не удалось отдать из уже созданных инстансов: синглетон создавался во время запроса
+ * или бина с таким именем нет. Длительность события - время медленного пути.
+ */
+@Name("ru.nsu.GetBeanMiss")
+@Label("GetBean Miss")
+@Description("Запрос бина, для которого не было готового инстанса или модели.")
+@Threshold("0 ms")
+public class GetBeanMissEvent extends BeanEvent {
+
+    public static final String NOT_CREATED = "notCreated";
+
+    public static final String UNKNOWN_BEAN = "unknownBean";
+
+    @Label("Reason")
+    private String reason;
+
+    /**
+     * Завершаем событие промаха.
+     *
+     * @param beanName имя запрошенного бина.
+     * @param scope    scope бина или null, если бина нет.
+     * @param reason   {@link #NOT_CREATED} или {@link #UNKNOWN_BEAN}.
+     */
+    public void commit(String beanName, String scope, String reason) {
+        end();
+        if (shouldCommit()) {
+            this.beanName = beanName;
+            this.scope = scope;
+            this.reason = reason;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Вызов PostConstruct метода бина.
+ */
+@Name("ru.nsu.PostConstruct")
+@Label("PostConstruct")
+@Description("Вызов PostConstruct метода бина.")
+@Threshold("1 ms")
+public class PostConstructEvent extends BeanEvent {
+}
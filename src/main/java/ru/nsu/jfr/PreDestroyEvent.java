@@ -0,0 +1,16 @@
+package ru.nsu.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Вызов PreDestroy метода бина.
+ */
+@Name("ru.nsu.PreDestroy")
+@Label("PreDestroy")
+@Description("Вызов PreDestroy метода бина.")
+@Threshold("1 ms")
+public class PreDestroyEvent extends BeanEvent {
+}
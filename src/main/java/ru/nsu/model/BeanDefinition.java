@@ -32,4 +32,14 @@ public class BeanDefinition {
     private Method postConstructMethod;
 
     private Method preDestroyMethod;
+
+    /**
+     * Синглетон бин создаётся не при старте контейнера, а при первом запросе или внедрении.
+     */
+    private boolean lazy;
+
+    /**
+     * Настройки пула для бина со scope {@code pooled}, для остальных бинов null.
+     */
+    private PoolSettings pool;
 }
\ No newline at end of file
@@ -23,4 +23,10 @@ public class BeanDefinitionReader {
 
     @JsonProperty("constructorParams")
     private List<Object> constructorParams;
+
+    @JsonProperty("lazy")
+    private Boolean lazy;
+
+    @JsonProperty("pool")
+    private PoolSettings pool;
 }
@@ -0,0 +1,33 @@
+package ru.nsu.model;
+
+import lombok.Getter;
+
+/**
+ * Типы событий жизненного цикла бинов, которые записываются в журнал событий контейнера.
+ */
+@Getter
+public enum BeanEventType {
+
+    GET_BEAN_REQUESTED("Attempting to get bean by class name"),
+
+    GET_BEAN_RETRIEVED("Successfully retrieved bean"),
+
+    INSTANCE_CREATING("Trying to create bean instance"),
+
+    SINGLETON_REGISTERED("Registering singleton bean instance for class"),
+
+    THREAD_BEAN_REGISTERED("Registering thread-local bean instance"),
+
+    POST_CONSTRUCT_INVOKED("Successfully started PostConstruct method"),
+
+    PRE_DESTROY_INVOKED("Successfully invoked @PreDestroy method");
+
+    /**
+     * Сообщение, которое пишется в журнал для этого события.
+     */
+    private final String message;
+
+    BeanEventType(String message) {
+        this.message = message;
+    }
+}
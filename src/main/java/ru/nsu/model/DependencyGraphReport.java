@@ -0,0 +1,67 @@
+package ru.nsu.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчёт об анализе графа зависимостей бинов с учётом измеренного времени инициализации каждого бина.
+ */
+@Data
+public class DependencyGraphReport {
+
+    /**
+     * Время инициализации каждого бина: создание и PostConstruct.
+     */
+    private Map<String, Long> beanInitNanos = new LinkedHashMap<>();
+
+    /**
+     * Критический путь: самая долгая цепочка зависимостей, от первого создаваемого бина до последнего.
+     * Даже при неограниченном числе потоков старт не может быть быстрее этой цепочки.
+     */
+    private List<String> criticalPath = new ArrayList<>();
+
+    /**
+     * Суммарное время инициализации бинов критического пути.
+     */
+    private long criticalPathNanos;
+
+    /**
+     * Суммарное время инициализации всех бинов, то есть время последовательного старта.
+     */
+    private long totalInitNanos;
+
+    /**
+     * Число бинов на каждом уровне зависимостей, начиная с бинов без зависимостей.
+     */
+    private List<Integer> levelWidths = new ArrayList<>();
+
+    /**
+     * Число бинов, которые зависят от бина, по убыванию.
+     */
+    private Map<String, Integer> fanIn = new LinkedHashMap<>();
+
+    /**
+     * Число прямых зависимостей бина, по убыванию.
+     */
+    private Map<String, Integer> fanOut = new LinkedHashMap<>();
+
+    /**
+     * Наибольшее возможное ускорение параллельного старта по сравнению с последовательным.
+     *
+     * @return отношение суммарного времени к времени критического пути.
+     */
+    public double getMaxSpeedup() {
+        return criticalPathNanos == 0 ? 1.0 : (double) totalInitNanos / criticalPathNanos;
+    }
+
+    /**
+     * @return наибольшее число бинов одного уровня, то есть сколько потоков имеет смысл использовать при старте.
+     */
+    public int getMaxLevelWidth() {
+        return levelWidths.stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.nsu.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import ru.nsu.exception.WrongJsonException;
+
+/**
+ * Настройки пула бина со scope {@code pooled} из json конфигурации, например
+ * {@code "pool": {"min": 2, "max": 16, "idleTimeout": "30s", "maxWait": "5s", "resetMethod": "reset"}}.
+ * Время задаётся так же, как {@link java.time.Duration} в initParams: {@code "PT30S"}, {@code "500ms"}, {@code "30s"} или число миллисекунд.
+ */
+@Data
+public class PoolSettings {
+
+    /**
+     * Число инстансов, которые создаются при старте контейнера и не вытесняются по таймауту простоя.
+     */
+    @JsonProperty("min")
+    private int min = 0;
+
+    /**
+     * Максимальное число инстансов: свободных и выданных вместе.
+     */
+    @JsonProperty("max")
+    private int max = 8;
+
+    /**
+     * Время, после которого свободный инстанс сверх {@link #min} вытесняется, или null, если инстансы не вытесняются.
+     */
+    @JsonProperty("idleTimeout")
+    private Object idleTimeout;
+
+    /**
+     * Сколько ждать свободного инстанса, когда выданы все {@link #max} инстансов.
+     */
+    @JsonProperty("maxWait")
+    private Object maxWait = "30s";
+
+    /**
+     * Публичный метод без параметров, который вызывается при возврате инстанса в пул, чтобы сбросить его состояние.
+     */
+    @JsonProperty("resetMethod")
+    private String resetMethod;
+
+    /**
+     * Проверяем размеры пула: {@code 0 <= min <= max} и {@code max > 0}.
+     *
+     * @param beanName имя бина для сообщения об ошибке.
+     * @throws WrongJsonException если размеры пула некорректны.
+     */
+    public void validate(String beanName) {
+        if (max <= 0 || min < 0 || min > max) {
+            throw new WrongJsonException(beanName, ". Pool settings must satisfy 0 <= min <= max and max > 0, but min = "
+                    + min + ", max = " + max);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.nsu.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчёт о вызове PreDestroy методов при остановке контейнера.
+ */
+@Data
+public class ShutdownReport {
+
+    /**
+     * Бины, у которых уничтожение завершилось успешно.
+     */
+    private List<String> finishedBeans = new ArrayList<>();
+
+    /**
+     * Бины, которые не успели уничтожиться за свой таймаут или до общего дедлайна.
+     */
+    private List<String> timedOutBeans = new ArrayList<>();
+
+    /**
+     * Бины, у которых уничтожение закончилось ошибкой, и описание этой ошибки.
+     */
+    private Map<String, String> failedBeans = new LinkedHashMap<>();
+
+    /**
+     * Бины, инстансы которых так и не были созданы, поэтому уничтожать нечего.
+     */
+    private List<String> skippedBeans = new ArrayList<>();
+
+    /**
+     * Бины из {@link #timedOutBeans}, чей PreDestroy после прерывания так и не завершился к концу остановки.
+     */
+    private List<String> stillRunningBeans = new ArrayList<>();
+
+    /**
+     * Бины, которые не уничтожались, потому что зависящий от них бин всё ещё выполнял свой PreDestroy.
+     */
+    private List<String> heldBackBeans = new ArrayList<>();
+
+    /**
+     * Проверяем, что все бины успешно уничтожены.
+     *
+     * @return true, если нет бинов с ошибкой, таймаутом или отложенным уничтожением.
+     */
+    public boolean isSuccessful() {
+        return timedOutBeans.isEmpty() && failedBeans.isEmpty() && heldBackBeans.isEmpty();
+    }
+}
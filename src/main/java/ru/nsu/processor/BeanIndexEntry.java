@@ -0,0 +1,162 @@
+package ru.nsu.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Одна запись индекса бинов, который формируется на этапе компиляции {@link BeanIndexProcessor}.
+ * Запись описывает класс бина и все его точки внедрения: поля, поля-провайдеры,
+ * конструктор с аннотацией Inject и методы PostConstruct/PreDestroy.
+ * Класс намеренно написан без lombok, потому что он компилируется раньше основного кода.
+ */
+public final class BeanIndexEntry {
+
+    /**
+     * Расположение файла индекса внутри classpath.
+     */
+    public static final String INDEX_LOCATION = "META-INF/ru.nsu/beans.index";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String LIST_SEPARATOR = ",";
+
+    private final String className;
+
+    private final String name;
+
+    private final List<String> injectedFields;
+
+    private final List<String> injectedProviderFields;
+
+    private final List<String> constructorParameterTypes;
+
+    private final List<String> postConstructMethods;
+
+    private final List<String> preDestroyMethods;
+
+    /**
+     * Конструктор записи индекса.
+     *
+     * @param className                 бинарное имя класса бина.
+     * @param name                      значение аннотации Named или null, если её нет.
+     * @param injectedFields            имена полей, помеченных Inject.
+     * @param injectedProviderFields    имена полей-провайдеров, помеченных Inject.
+     * @param constructorParameterTypes типы параметров конструктора с Inject или null, если такого конструктора нет.
+     * @param postConstructMethods      имена методов PostConstruct без параметров.
+     * @param preDestroyMethods         имена методов PreDestroy без параметров.
+     */
+    public BeanIndexEntry(String className, String name, List<String> injectedFields,
+                          List<String> injectedProviderFields, List<String> constructorParameterTypes,
+                          List<String> postConstructMethods, List<String> preDestroyMethods) {
+        this.className = className;
+        this.name = name;
+        this.injectedFields = List.copyOf(injectedFields);
+        this.injectedProviderFields = List.copyOf(injectedProviderFields);
+        this.constructorParameterTypes = constructorParameterTypes == null ? null : List.copyOf(constructorParameterTypes);
+        this.postConstructMethods = List.copyOf(postConstructMethods);
+        this.preDestroyMethods = List.copyOf(preDestroyMethods);
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getInjectedFields() {
+        return injectedFields;
+    }
+
+    public List<String> getInjectedProviderFields() {
+        return injectedProviderFields;
+    }
+
+    public List<String> getConstructorParameterTypes() {
+        return constructorParameterTypes;
+    }
+
+    public List<String> getPostConstructMethods() {
+        return postConstructMethods;
+    }
+
+    public List<String> getPreDestroyMethods() {
+        return preDestroyMethods;
+    }
+
+    /**
+     * Проверяем, лежит ли класс записи в переданном пакете или в одном из его подпакетов.
+     *
+     * @param packageName имя пакета.
+     * @return true, если класс принадлежит пакету.
+     */
+    public boolean belongsTo(String packageName) {
+        return className.startsWith(packageName + ".");
+    }
+
+    /**
+     * Превращаем запись в одну строку файла индекса.
+     *
+     * @return строка индекса.
+     */
+    public String toLine() {
+        StringBuilder line = new StringBuilder(className);
+        line.append(SEPARATOR).append("name=").append(name == null ? "" : name);
+        line.append(SEPARATOR).append("fields=").append(String.join(LIST_SEPARATOR, injectedFields));
+        line.append(SEPARATOR).append("providers=").append(String.join(LIST_SEPARATOR, injectedProviderFields));
+        if (constructorParameterTypes != null) {
+            line.append(SEPARATOR).append("constructor=").append(String.join(LIST_SEPARATOR, constructorParameterTypes));
+        }
+        line.append(SEPARATOR).append("postConstruct=").append(String.join(LIST_SEPARATOR, postConstructMethods));
+        line.append(SEPARATOR).append("preDestroy=").append(String.join(LIST_SEPARATOR, preDestroyMethods));
+        return line.toString();
+    }
+
+    /**
+     * Читаем запись из строки файла индекса.
+     *
+     * @param line строка индекса.
+     * @return запись индекса.
+     * @throws IllegalArgumentException если строка не соответствует формату индекса.
+     */
+    public static BeanIndexEntry fromLine(String line) {
+        String[] parts = line.split(SEPARATOR);
+        if (parts.length == 0 || parts[0].isBlank()) {
+            throw new IllegalArgumentException("Wrong bean index line: " + line);
+        }
+        String name = null;
+        List<String> fields = Collections.emptyList();
+        List<String> providers = Collections.emptyList();
+        List<String> constructor = null;
+        List<String> postConstruct = Collections.emptyList();
+        List<String> preDestroy = Collections.emptyList();
+        for (int i = 1; i < parts.length; i++) {
+            int delimiter = parts[i].indexOf('=');
+            if (delimiter < 0) {
+                throw new IllegalArgumentException("Wrong bean index line: " + line);
+            }
+            String key = parts[i].substring(0, delimiter);
+            String value = parts[i].substring(delimiter + 1);
+            switch (key) {
+                case "name" -> name = value.isEmpty() ? null : value;
+                case "fields" -> fields = splitList(value);
+                case "providers" -> providers = splitList(value);
+                case "constructor" -> constructor = splitList(value);
+                case "postConstruct" -> postConstruct = splitList(value);
+                case "preDestroy" -> preDestroy = splitList(value);
+                default -> throw new IllegalArgumentException("Unknown bean index key '" + key + "' in line: " + line);
+            }
+        }
+        return new BeanIndexEntry(parts[0], name, fields, providers, constructor, postConstruct, preDestroy);
+    }
+
+    private static List<String> splitList(String value) {
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(Arrays.asList(value.split(LIST_SEPARATOR)));
+    }
+}
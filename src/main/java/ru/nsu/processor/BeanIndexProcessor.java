@@ -0,0 +1,276 @@
+package ru.nsu.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Процессор аннотаций, который на этапе компиляции собирает все классы с аннотациями Named и Inject
+ * и записывает их точки внедрения и методы PostConstruct/PreDestroy в файл {@link BeanIndexEntry#INDEX_LOCATION}.
+ * Благодаря этому индексу {@code DependencyScanningConfig} не сканирует весь пакет с помощью Reflections,
+ * а сразу получает список бинов.
+ * <p>
+ * При инкрементальной компиляции процессор видит только перекомпилированные классы, поэтому записи
+ * из уже существующего индекса сохраняются, если их класс не компилировался заново и всё ещё существует.
+ */
+// Процессор запускается на любой компиляции, чтобы убрать из индекса классы, с которых сняли аннотации
+@SupportedAnnotationTypes("*")
+public class BeanIndexProcessor extends AbstractProcessor {
+
+    static final String NAMED = "javax.inject.Named";
+
+    static final String INJECT = "javax.inject.Inject";
+
+    private static final String PROVIDER = "javax.inject.Provider";
+
+    private static final String POST_CONSTRUCT = "jakarta.annotation.PostConstruct";
+
+    private static final String PRE_DESTROY = "jakarta.annotation.PreDestroy";
+
+    private final Map<String, BeanIndexEntry> entries = new TreeMap<>();
+
+    /**
+     * Бинарные имена всех классов текущей компиляции, включая те, на которых больше нет аннотаций.
+     */
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement rootType : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collectCompiledTypes(rootType);
+        }
+        for (TypeElement annotation : annotations) {
+            if (!annotation.getQualifiedName().contentEquals(NAMED) && !annotation.getQualifiedName().contentEquals(INJECT)) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                TypeElement beanType = findBeanType(element);
+                if (beanType != null) {
+                    String className = processingEnv.getElementUtils().getBinaryName(beanType).toString();
+                    entries.computeIfAbsent(className, ignored -> createEntry(className, beanType));
+                }
+            }
+        }
+        if (roundEnv.processingOver()) {
+            // Индекс переписывается и без новых бинов, если из прошлого индекса нужно удалить записи
+            boolean hasPreviousIndex = mergePreviousIndex();
+            if (hasPreviousIndex || !entries.isEmpty()) {
+                writeIndex();
+            }
+        }
+        return false;
+    }
+
+    private void collectCompiledTypes(TypeElement type) {
+        compiledTypes.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collectCompiledTypes(nestedType);
+        }
+    }
+
+    /**
+     * Добавляем записи индекса, который остался от прошлой компиляции. Запись пропускается, если её класс
+     * скомпилирован сейчас (тогда запись уже пересоздана или аннотации удалены) или класса больше нет.
+     *
+     * @return true, если прошлый индекс был.
+     */
+    private boolean mergePreviousIndex() {
+        FileObject previousIndex;
+        try {
+            previousIndex = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", BeanIndexEntry.INDEX_LOCATION);
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+        try (Reader reader = previousIndex.openReader(true);
+             BufferedReader lines = new BufferedReader(reader)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                BeanIndexEntry entry = BeanIndexEntry.fromLine(line);
+                if (!entries.containsKey(entry.getClassName()) && !compiledTypes.contains(entry.getClassName())
+                        && processingEnv.getElementUtils().getTypeElement(entry.getClassName().replace('$', '.')) != null) {
+                    entries.put(entry.getClassName(), entry);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // Прошлого индекса нет, это первая компиляция
+            return false;
+        } catch (IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Previous bean index " + BeanIndexEntry.INDEX_LOCATION + " is broken and will be rewritten: " + e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Находим класс, которому принадлежит аннотированный элемент: сам класс, его поле, конструктор,
+     * метод или параметр конструктора.
+     *
+     * @param element аннотированный элемент.
+     * @return класс бина или null, если элемент принадлежит интерфейсу или аннотации.
+     */
+    private TypeElement findBeanType(Element element) {
+        Element current = element;
+        while (current != null && !current.getKind().isClass() && !current.getKind().isInterface()) {
+            current = current.getEnclosingElement();
+        }
+        if (current == null || current.getKind().isInterface()) {
+            return null;
+        }
+        return (TypeElement) current;
+    }
+
+    private BeanIndexEntry createEntry(String className, TypeElement beanType) {
+        TypeMirror providerType = erasure(PROVIDER);
+        List<String> injectedFields = new ArrayList<>();
+        List<String> injectedProviderFields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(beanType.getEnclosedElements())) {
+            if (hasAnnotation(field, INJECT)) {
+                TypeMirror fieldType = processingEnv.getTypeUtils().erasure(field.asType());
+                if (providerType != null && processingEnv.getTypeUtils().isAssignable(fieldType, providerType)) {
+                    injectedProviderFields.add(field.getSimpleName().toString());
+                } else {
+                    injectedFields.add(field.getSimpleName().toString());
+                }
+            }
+        }
+
+        List<String> constructorParameterTypes = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(beanType.getEnclosedElements())) {
+            if (hasAnnotation(constructor, INJECT)) {
+                constructorParameterTypes = new ArrayList<>();
+                for (VariableElement parameter : constructor.getParameters()) {
+                    constructorParameterTypes.add(runtimeName(processingEnv.getTypeUtils().erasure(parameter.asType())));
+                }
+                break;
+            }
+        }
+
+        List<String> postConstructMethods = new ArrayList<>();
+        List<String> preDestroyMethods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(beanType.getEnclosedElements())) {
+            if (!method.getParameters().isEmpty()) {
+                continue;
+            }
+            if (hasAnnotation(method, POST_CONSTRUCT)) {
+                postConstructMethods.add(method.getSimpleName().toString());
+            }
+            if (hasAnnotation(method, PRE_DESTROY)) {
+                preDestroyMethods.add(method.getSimpleName().toString());
+            }
+        }
+
+        return new BeanIndexEntry(className, namedValue(beanType), injectedFields, injectedProviderFields,
+                constructorParameterTypes, postConstructMethods, preDestroyMethods);
+    }
+
+    private String namedValue(TypeElement beanType) {
+        for (AnnotationMirror mirror : beanType.getAnnotationMirrors()) {
+            if (isAnnotation(mirror, NAMED)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+                    if (value.getKey().getSimpleName().contentEquals("value")) {
+                        return value.getValue().getValue().toString();
+                    }
+                }
+                return "";
+            }
+        }
+        return null;
+    }
+
+    private boolean hasAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (isAnnotation(mirror, annotationName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAnnotation(AnnotationMirror mirror, String annotationName) {
+        return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName);
+    }
+
+    private TypeMirror erasure(String typeName) {
+        TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(typeName);
+        return typeElement == null ? null : processingEnv.getTypeUtils().erasure(typeElement.asType());
+    }
+
+    /**
+     * Имя типа в том виде, в котором его понимает {@link Class#forName(String)}.
+     *
+     * @param type стёртый тип параметра.
+     * @return имя типа для рефлексии.
+     */
+    private String runtimeName(TypeMirror type) {
+        return switch (type.getKind()) {
+            case DECLARED -> processingEnv.getElementUtils()
+                    .getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+            case ARRAY -> "[" + descriptor(((ArrayType) type).getComponentType());
+            default -> type.toString();
+        };
+    }
+
+    private String descriptor(TypeMirror type) {
+        return switch (type.getKind()) {
+            case BOOLEAN -> "Z";
+            case BYTE -> "B";
+            case CHAR -> "C";
+            case SHORT -> "S";
+            case INT -> "I";
+            case LONG -> "J";
+            case FLOAT -> "F";
+            case DOUBLE -> "D";
+            case ARRAY -> "[" + descriptor(((ArrayType) type).getComponentType());
+            default -> "L" + runtimeName(processingEnv.getTypeUtils().erasure(type)) + ";";
+        };
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject index = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", BeanIndexEntry.INDEX_LOCATION);
+            try (Writer writer = index.openWriter()) {
+                for (BeanIndexEntry entry : entries.values()) {
+                    writer.write(entry.toLine());
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Can't write bean index " + BeanIndexEntry.INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package ru.nsu.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.nsu.exception.EmptyJsonException;
+import ru.nsu.exception.WrongJsonException;
+import ru.nsu.model.BeanDefinitionReader;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Загрузчик json конфигурации бинов. Конфигурация читается потоковым {@link JsonParser}:
+ * в памяти не строится дерево всего файла, а в модель превращается только один бин за раз.
+ * Бины складываются в отношение из имени в модель, поэтому поиск конфигурации бина при сканировании
+ * не перебирает весь список.
+ * <p>
+ * Конфигурацию можно разбить на несколько файлов: если путь указывает на папку, то читаются все
+ * {@code *.json} файлы в ней, а если путь содержит glob, например {@code fragments/*.json}, то все подходящие файлы.
+ * Файлы разбираются параллельно, а затем объединяются в порядке их путей. Если бин с одним именем описан
+ * дважды, то выбрасывается {@link WrongJsonException} с названиями обоих файлов.
+ */
+public class BeanConfigLoader {
+
+    /**
+     * Папка в ресурсах, в которой лежит конфигурация бинов.
+     */
+    public static final String CONFIG_ROOT = "beans/";
+
+    private static final String DEFAULT_GLOB = "*.json";
+
+    private final ObjectMapper objectMapper;
+
+    private final ClassLoader classLoader;
+
+    /**
+     * Конструктор загрузчика.
+     *
+     * @param objectMapper маппер, которым читается модель одного бина.
+     * @param classLoader  загрузчик, в ресурсах которого ищется конфигурация.
+     */
+    public BeanConfigLoader(ObjectMapper objectMapper, ClassLoader classLoader) {
+        this.objectMapper = objectMapper;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Читаем конфигурацию из ресурсов папки {@code beans}: один файл, папку с файлами или glob.
+     *
+     * @param location путь внутри папки {@code beans}, например {@code beans.json}, {@code fragments} или {@code fragments/*.json}.
+     * @return модели бинов из json по их именам в порядке файлов.
+     * @throws IOException ошибка, если конфигурации нет или её не удалось прочитать.
+     */
+    public Map<String, BeanDefinitionReader> load(String location) throws IOException {
+        return load(resolve(location));
+    }
+
+    /**
+     * Читаем все файлы конфигурации в папке, путь которых относительно папки подходит под glob.
+     *
+     * @param directory папка с файлами конфигурации.
+     * @param glob      glob, например {@code *.json} или {@code **}{@code /*.json}.
+     * @return объединённые модели бинов по их именам.
+     * @throws IOException ошибка чтения папки или файлов.
+     */
+    public Map<String, BeanDefinitionReader> loadFiles(Path directory, String glob) throws IOException {
+        return load(resolveFiles(directory, glob));
+    }
+
+    /**
+     * Находим файлы конфигурации в ресурсах папки {@code beans}.
+     *
+     * @param location путь внутри папки {@code beans}: файл, папка или glob.
+     * @return файлы конфигурации в порядке их путей.
+     * @throws IOException ошибка, если конфигурации нет.
+     */
+    public List<URL> resolve(String location) throws IOException {
+        int globStart = indexOfGlob(location);
+        String directory;
+        String glob;
+        if (globStart >= 0) {
+            int directoryEnd = location.lastIndexOf('/', globStart);
+            directory = directoryEnd >= 0 ? location.substring(0, directoryEnd) : "";
+            glob = location.substring(directoryEnd + 1);
+        } else {
+            URL resource = classLoader.getResource(CONFIG_ROOT + location);
+            if (resource == null) {
+                throw new FileNotFoundException("No bean configuration " + CONFIG_ROOT + location);
+            }
+            try (ResourcePath resourcePath = ResourcePath.open(resource)) {
+                if (resourcePath == null || !Files.isDirectory(resourcePath.path())) {
+                    return List.of(resource);
+                }
+            }
+            directory = location;
+            glob = DEFAULT_GLOB;
+        }
+        URL directoryResource = classLoader.getResource(CONFIG_ROOT + directory);
+        try (ResourcePath directoryPath = directoryResource != null ? ResourcePath.open(directoryResource) : null) {
+            if (directoryPath == null) {
+                throw new FileNotFoundException("No bean configuration directory " + CONFIG_ROOT + directory);
+            }
+            // URL файлов внутри jar читаются и после закрытия файловой системы jar
+            return resolveFiles(directoryPath.path(), glob);
+        }
+    }
+
+    /**
+     * Находим файлы в папке, путь которых относительно папки подходит под glob.
+     *
+     * @param directory папка с файлами конфигурации.
+     * @param glob      glob файлов.
+     * @return файлы конфигурации в порядке их путей.
+     * @throws IOException ошибка чтения папки или если подходящих файлов нет.
+     */
+    public List<URL> resolveFiles(Path directory, String glob) throws IOException {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        List<URL> fragments = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(directory.relativize(path)))
+                    .sorted()
+                    .toList()) {
+                fragments.add(path.toUri().toURL());
+            }
+        }
+        if (fragments.isEmpty()) {
+            throw new FileNotFoundException("No bean configuration files matching " + glob + " in " + directory);
+        }
+        return fragments;
+    }
+
+    /**
+     * Читаем и объединяем файлы конфигурации. Если файлов несколько, то они разбираются параллельно.
+     *
+     * @param fragments файлы конфигурации.
+     * @return объединённые модели бинов по их именам.
+     * @throws IOException ошибка чтения файлов.
+     */
+    public Map<String, BeanDefinitionReader> load(List<URL> fragments) throws IOException {
+        if (fragments.size() == 1) {
+            return parseFragment(fragments.get(0));
+        }
+        List<Map<String, BeanDefinitionReader>> parsedFragments;
+        try {
+            parsedFragments = fragments.parallelStream().map(this::parseFragment).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Map<String, BeanDefinitionReader> beans = new LinkedHashMap<>();
+        Map<String, String> beanSources = new LinkedHashMap<>();
+        for (int i = 0; i < fragments.size(); i++) {
+            String fragment = fileName(fragments.get(i));
+            for (Map.Entry<String, BeanDefinitionReader> entry : parsedFragments.get(i).entrySet()) {
+                String previousSource = beanSources.putIfAbsent(entry.getKey(), fragment);
+                if (previousSource != null) {
+                    throw new WrongJsonException(entry.getKey(), ". Duplicate bean definition in "
+                            + previousSource + " and " + fragment);
+                }
+                beans.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * Потоково разбираем один файл конфигурации вида {@code {"beans": [...]}}.
+     *
+     * @param input  содержимое файла.
+     * @param source название файла для сообщений об ошибках.
+     * @return модели бинов по их именам в порядке файла.
+     * @throws IOException ошибка чтения или синтаксиса json.
+     */
+    public Map<String, BeanDefinitionReader> parse(InputStream input, String source) throws IOException {
+        Map<String, BeanDefinitionReader> beans = new LinkedHashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new WrongJsonException(source, ". Bean configuration must be a json object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!fieldName.equals("beans")) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value != JsonToken.START_ARRAY) {
+                    throw new WrongJsonException(source, ". Field beans must be an array");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    BeanDefinitionReader bean = objectMapper.readValue(parser, BeanDefinitionReader.class);
+                    if (bean.getName() == null) {
+                        throw new EmptyJsonException("unknown", "No name field for this json in " + source);
+                    }
+                    if (beans.putIfAbsent(bean.getName(), bean) != null) {
+                        throw new WrongJsonException(bean.getName(), ". Duplicate bean definition in " + source);
+                    }
+                }
+            }
+        }
+        return beans;
+    }
+
+    private Map<String, BeanDefinitionReader> parseFragment(URL fragment) {
+        try (InputStream input = fragment.openStream()) {
+            return parse(input, fileName(fragment));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String fileName(URL fragment) {
+        String path = fragment.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static int indexOfGlob(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            if ("*?[{".indexOf(location.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Путь к ресурсу, чтобы можно было обойти папку: обычный файл или файл внутри jar.
+     * Для ресурса внутри jar открывается файловая система jar, которая закрывается вместе с путём,
+     * а если она уже открыта кем-то другим, то используется она и остаётся открытой.
+     *
+     * @param path       путь к ресурсу.
+     * @param fileSystem файловая система jar, открытая для этого пути, или null.
+     */
+    private record ResourcePath(Path path, FileSystem fileSystem) implements AutoCloseable {
+
+        /**
+         * @param resource ресурс.
+         * @return путь к ресурсу или null, если ресурс нельзя открыть как файловую систему.
+         */
+        private static ResourcePath open(URL resource) throws IOException {
+            URI uri;
+            try {
+                uri = resource.toURI();
+            } catch (URISyntaxException e) {
+                return null;
+            }
+            if (uri.getScheme().equals("file")) {
+                return new ResourcePath(Path.of(uri), null);
+            }
+            if (!uri.getScheme().equals("jar")) {
+                return null;
+            }
+            FileSystem fileSystem;
+            try {
+                fileSystem = FileSystems.newFileSystem(uri, Map.of());
+            } catch (FileSystemAlreadyExistsException e) {
+                // Файловая система jar уже открыта, её закрывает тот, кто открыл
+                return new ResourcePath(Path.of(uri), null);
+            }
+            return new ResourcePath(fileSystem.provider().getPath(uri), fileSystem);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileSystem != null) {
+                fileSystem.close();
+            }
+        }
+    }
+}
@@ -4,49 +4,126 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.MDC;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.exception.NoUniqueBeanException;
 import ru.nsu.model.BeanDefinition;
+import ru.nsu.model.BeanEventType;
+import ru.nsu.model.ShutdownReport;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
  * В этом классе мы храним все модели и инстансы бинов.
+ * Модели бинов и всё, что из них вычисляется, заполняются один раз в конструкторе и дальше только читаются,
+ * а инстансы хранятся в ConcurrentHashMap, поэтому контейнер можно использовать из многих потоков
+ * без внешней синхронизации: поиск бина не берёт блокировок, а ConcurrentHashMap безопасно публикует
+ * полностью созданные инстансы другим потокам.
  */
 @Data
 @NoArgsConstructor
 @Slf4j
 public class BeanContainer {
 
-    private Map<String, BeanDefinition> beanDefinitions = new HashMap<>();
+    private Map<String, BeanDefinition> beanDefinitions = Map.of();
 
-    private Map<String, Object> singletonInstances = new HashMap<>();
+    private Map<String, Object> singletonInstances = new ConcurrentHashMap<>();
 
     private List<String> orderedByDependenciesBeans = new ArrayList<>();
 
-    private Map<String, ThreadLocal<Object>> threadInstances = new HashMap<>();
+    /**
+     * Уровни зависимостей бинов: на нулевом уровне бины без зависимостей,
+     * бины одного уровня не зависят друг от друга.
+     */
+    private List<List<String>> dependencyLevels = new ArrayList<>();
+
+    /**
+     * Прямые зависимости каждого бина.
+     */
+    private Map<String, Set<String>> beanDependencies = new ConcurrentHashMap<>();
+
+    /**
+     * Инстансы потоковых бинов по именам бинов, вместе со слабыми ссылками на их потоки.
+     */
+    private Map<String, ThreadScopedInstances> threadInstances = new ConcurrentHashMap<>();
 
-    private Map<String, Object> customBean = new HashMap<>();
+    private Map<String, Object> customBean = new ConcurrentHashMap<>();
+
+    private Map<String, BeanInstantiator> instantiators = new ConcurrentHashMap<>();
+
+    /**
+     * Модели бинов по полному имени их класса.
+     */
+    private Map<String, List<BeanDefinition>> classNameIndex = Map.of();
+
+    /**
+     * Модели бинов по каждому типу, к которому приводится бин: сам класс, все его суперклассы и интерфейсы.
+     */
+    private Map<Class<?>, List<BeanDefinition>> typeIndex = Map.of();
 
     private DependencyScanningConfig dependencyScanningConfig;
 
+    private ShutdownHookService shutdownHookService;
+
+    /**
+     * Журнал событий бинов этого контейнера.
+     */
+    private BeanEventLog eventLog = new BeanEventLog();
+
+    /**
+     * Индексированное хранилище логов для поиска логов бина.
+     */
+    private BeanLogStore logStore = new BeanLogStore(Paths.get("logs"));
+
+    /**
+     * Метрики бинов этого контейнера.
+     */
+    private ContainerMetrics metrics = new ContainerMetrics(Map.of());
+
+    /**
+     * Профилировщик старта, полученный из конфига сканирования.
+     */
+    private BootstrapProfiler profiler = BootstrapProfiler.DISABLED;
+
+    /**
+     * Создавать ли все синглетон бины лениво, то есть при первом запросе, а не при старте контейнера.
+     */
+    private boolean lazyInitialization;
+
+    /**
+     * Мониторы для ленивого создания синглетон бинов, по одному на бин.
+     */
+    private Map<String, Object> singletonLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Пулы бинов со scope pooled по именам бинов.
+     */
+    private Map<String, BeanPool> pools = new ConcurrentHashMap<>();
+
     /**
      * Специальный тестовый метода для вызова PreDestroy аннотаций у бинов.
+     *
+     * @return отчёт об уничтожении бинов.
      */
-    public void testCleanup() {
+    public ShutdownReport testCleanup() {
         if (!"test".equals(System.getProperty("environment"))) {
             throw new IllegalStateException("This method is intended for testing purposes only.");
         }
-        new ShutdownHookService(this).cleanupBeansForTest();
+        return shutdownHookService.cleanupBeansForTest();
     }
 
 
@@ -57,18 +134,168 @@ public class BeanContainer {
      * На этой стадии также идёт проверка бинов на циклические зависимости
      * с помощью DependencyResolver, который представляет все связи бинов как граф,
      * а с помощью специального готово метода потом проверяет его на цикл.
+     * Перед этим строятся индексы бинов по классам и типам, а каждая модель бина связывается
+     * в {@link BeanInstantiator}, чтобы при создании инстансов не использовать медленную рефлексию
+     * и чтобы зависимости без Named находились по типу один раз.
+     * Если бины были восстановлены из снимка метаданных, то граф зависимостей берётся из снимка,
+     * а иначе построенный граф сохраняется в снимок для следующего запуска.
      *
      * @param dependencyScanningConfig конфиг сканирования.
      */
     public BeanContainer(DependencyScanningConfig dependencyScanningConfig) {
         this.dependencyScanningConfig = dependencyScanningConfig;
-        this.beanDefinitions = dependencyScanningConfig.getNameToBeanDefinitionMap();
-        DependencyResolver resolver = new DependencyResolver(beanDefinitions);
+        this.profiler = dependencyScanningConfig.getProfiler();
+        try (BootstrapProfiler.Span ignored = profiler.span("BeanContainer", "container", null)) {
+            this.beanDefinitions = Collections.unmodifiableMap(new HashMap<>(dependencyScanningConfig.getNameToBeanDefinitionMap()));
+            try (BootstrapProfiler.Span indexSpan = profiler.span("buildLookupIndexes", "container", null)) {
+                buildLookupIndexes();
+            }
+            this.metrics = new ContainerMetrics(beanDefinitions);
+            try (BootstrapProfiler.Span linkSpan = profiler.span("linkInstantiators", "container", null)) {
+                beanDefinitions.forEach((beanName, beanDefinition) ->
+                        instantiators.put(beanName, BeanInstantiator.link(beanDefinition, this::resolveDependencyName)));
+            }
+            checkPooledInjections();
 
-        this.orderedByDependenciesBeans = resolver.resolveDependencies();
+            MetadataSnapshotCache.Snapshot snapshot = dependencyScanningConfig.getRestoredSnapshot();
+            if (snapshot != null && snapshot.beanDependencies().keySet().equals(beanDefinitions.keySet())) {
+                // Граф из снимка уже был проверен на циклы при его сохранении
+                this.orderedByDependenciesBeans = new ArrayList<>(snapshot.orderedBeans());
+                this.dependencyLevels = new ArrayList<>(snapshot.dependencyLevels());
+                this.beanDependencies.putAll(snapshot.beanDependencies());
+            } else {
+                try (BootstrapProfiler.Span resolveSpan = profiler.span("resolveDependencies", "container", null)) {
+                    DependencyResolver resolver = new DependencyResolver(instantiators);
+                    this.orderedByDependenciesBeans = resolver.resolveDependencies();
+                    this.dependencyLevels = resolver.resolveDependencyLevels();
+                    beanDefinitions.keySet().forEach(beanName -> beanDependencies.put(beanName, resolver.getDependencies(beanName)));
+                }
+                dependencyScanningConfig.storeSnapshot(orderedByDependenciesBeans, dependencyLevels, beanDependencies);
+            }
+
+            this.shutdownHookService = new ShutdownHookService(this);
+        }
+    }
 
+    /**
+     * Проверяем, что pooled бины не внедряются в другие бины. Внедрённый инстанс берётся из пула и никогда
+     * в него не возвращается, поэтому каждый новый зависимый бин занимал бы ещё один инстанс, пока пул не кончится.
+     * Pooled бин нужно брать на время через {@link BeanInstanceService#leaseBean(String)}.
+     *
+     * @throws NoDependencyException если pooled бин внедряется в поле, Provider или параметр конструктора.
+     */
+    private void checkPooledInjections() {
+        instantiators.forEach((beanName, instantiator) -> {
+            List<String> dependencies = new ArrayList<>();
+            for (BeanInstantiator.ConstructorParameter parameter : instantiator.getConstructorParameters()) {
+                dependencies.add(parameter.dependencyName());
+            }
+            for (BeanInstantiator.Injection injection : instantiator.getFieldInjections()) {
+                dependencies.add(injection.dependencyName());
+            }
+            for (BeanInstantiator.Injection injection : instantiator.getProviderInjections()) {
+                dependencies.add(injection.dependencyName());
+            }
+            for (String dependency : dependencies) {
+                BeanDefinition dependencyDefinition = findBeanDefinition(dependency);
+                if (dependencyDefinition != null && dependencyDefinition.getScope().equals("pooled")) {
+                    throw new NoDependencyException(dependency, "Pooled bean can't be injected into bean " + beanName
+                            + ", because the injected instance would never return to the pool. Use leaseBean instead");
+                }
+            }
+        });
+    }
 
-        new ShutdownHookService(this);
+    /**
+     * Строим индексы моделей бинов по имени класса и по всем типам бина,
+     * чтобы поиск бина не требовал перебора всех моделей.
+     */
+    private void buildLookupIndexes() {
+        Map<String, List<BeanDefinition>> classNames = new HashMap<>();
+        Map<Class<?>, List<BeanDefinition>> types = new HashMap<>();
+        beanDefinitions.forEach((beanName, beanDefinition) -> {
+            Class<?> beanClass = BeanInstantiator.loadBeanClass(beanDefinition);
+            classNames.computeIfAbsent(beanDefinition.getClassName(), ignored -> new ArrayList<>()).add(beanDefinition);
+            if (!beanClass.getName().equals(beanDefinition.getClassName())) {
+                // Для вложенных классов каноническое имя из модели отличается от имени, которое возвращает getClass()
+                classNames.computeIfAbsent(beanClass.getName(), ignored -> new ArrayList<>()).add(beanDefinition);
+            }
+            for (Class<?> type : collectTypes(beanClass)) {
+                types.computeIfAbsent(type, ignored -> new ArrayList<>()).add(beanDefinition);
+            }
+        });
+        classNames.replaceAll((className, definitions) -> List.copyOf(definitions));
+        types.replaceAll((type, definitions) -> List.copyOf(definitions));
+        this.classNameIndex = Collections.unmodifiableMap(classNames);
+        this.typeIndex = Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Собираем класс бина, все его суперклассы, кроме Object, и все реализованные интерфейсы.
+     *
+     * @param beanClass класс бина.
+     * @return все типы, к которым приводится бин.
+     */
+    private static Set<Class<?>> collectTypes(Class<?> beanClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        Deque<Class<?>> queue = new ArrayDeque<>();
+        queue.add(beanClass);
+        while (!queue.isEmpty()) {
+            Class<?> type = queue.poll();
+            if (type == Object.class || !types.add(type)) {
+                continue;
+            }
+            if (type.getSuperclass() != null) {
+                queue.add(type.getSuperclass());
+            }
+            queue.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        return types;
+    }
+
+    /**
+     * Получаем имя бина для точки внедрения. Если есть аннотация Named, то берётся её значение.
+     * Иначе ищется бин по типу поля или параметра: если такой бин один, то внедряется он,
+     * если подходящих бинов несколько, то выбирается бин с именем поля, а если такого нет - выбрасывается ошибка.
+     * Если подходящих по типу бинов нет, то используется имя поля или имя типа, как и раньше.
+     *
+     * @param beanName     имя бина, в который идёт внедрение.
+     * @param type         тип поля или параметра.
+     * @param namedValue   значение аннотации Named или null.
+     * @param fallbackName имя поля или null для параметров конструктора.
+     * @return имя внедряемого бина.
+     */
+    public String resolveDependencyName(String beanName, Class<?> type, String namedValue, String fallbackName) {
+        if (namedValue != null) {
+            return namedValue;
+        }
+        List<BeanDefinition> candidates = getBeanDefinitionsOfType(type);
+        if (candidates.size() == 1) {
+            return candidates.get(0).getName();
+        }
+        if (fallbackName != null && (candidates.isEmpty() || beanDefinitions.containsKey(fallbackName))) {
+            return fallbackName;
+        }
+        if (candidates.isEmpty()) {
+            return type.getName();
+        }
+        throw new NoUniqueBeanException(beanName, "Dependency of type " + type.getName()
+                + " needs @Named, candidates: " + candidates.stream().map(BeanDefinition::getName).toList());
+    }
+
+    /**
+     * Ищем модель бина по его имени, а если такого имени нет, то по полному имени его класса.
+     *
+     * @param beanName название бина или название класса бина.
+     * @return найденная модель бина или null иначе.
+     */
+    public BeanDefinition findBeanDefinition(String beanName) {
+        BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+        if (beanDefinition != null) {
+            return beanDefinition;
+        }
+        List<BeanDefinition> definitions = classNameIndex.get(beanName);
+        return (definitions != null) ? definitions.get(0) : null;
     }
 
     /**
@@ -78,16 +305,85 @@ public class BeanContainer {
      * @return найденная модель бина или null иначе.
      */
     public BeanDefinition findPrototypeBeanDefinition(String beanName) {
-        for (var currentBean : beanDefinitions.values()) {
-            if (currentBean.getName().equals(beanName) || currentBean.getClassName().equals(beanName)) {
-                if (currentBean.getScope().equals("prototype")) {
-                    return currentBean;
-                }
+        BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+        if (beanDefinition != null && beanDefinition.getScope().equals("prototype")) {
+            return beanDefinition;
+        }
+        for (BeanDefinition currentBean : classNameIndex.getOrDefault(beanName, List.of())) {
+            if (currentBean.getScope().equals("prototype")) {
+                return currentBean;
             }
         }
         return null;
     }
 
+    /**
+     * Получаем модели всех бинов, которые можно привести к переданному типу.
+     *
+     * @param type класс или интерфейс.
+     * @return модели подходящих бинов или пустой список.
+     */
+    public List<BeanDefinition> getBeanDefinitionsOfType(Class<?> type) {
+        return typeIndex.getOrDefault(type, List.of());
+    }
+
+    /**
+     * Получаем скомпилированную форму бина, созданную при сборке контейнера.
+     *
+     * @param beanDefinition модель бина.
+     * @return связанный с моделью {@link BeanInstantiator}.
+     */
+    public BeanInstantiator getInstantiator(@NonNull BeanDefinition beanDefinition) {
+        return instantiators.get(beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName());
+    }
+
+    /**
+     * Проверяем, нужно ли создавать синглетон бин лениво: либо он сам помечен как lazy в json,
+     * либо ленивое создание включено для всего контейнера.
+     *
+     * @param beanDefinition модель бина.
+     * @return true, если бин создаётся при первом запросе.
+     */
+    public boolean isLazy(@NonNull BeanDefinition beanDefinition) {
+        return beanDefinition.getScope().equals("singleton") && (lazyInitialization || beanDefinition.isLazy());
+    }
+
+    /**
+     * Получаем монитор, под которым создаётся ленивый синглетон бин.
+     * У каждого бина свой монитор, поэтому независимые бины создаются параллельно.
+     *
+     * @param beanName имя бина.
+     * @return монитор бина.
+     */
+    public Object getSingletonLock(String beanName) {
+        return singletonLocks.computeIfAbsent(beanName, ignored -> new Object());
+    }
+
+    /**
+     * Получаем пул бина со scope pooled, создавая его при первом обращении.
+     * При возврате в пул вызывается метод сброса из настроек пула, а при вытеснении и закрытии пула - PreDestroy.
+     *
+     * @param beanDefinition модель бина.
+     * @param factory        создание нового инстанса бина вместе с PostConstruct.
+     * @return пул бина.
+     */
+    public BeanPool getPool(@NonNull BeanDefinition beanDefinition, Supplier<Object> factory) {
+        BeanPool pool = pools.get(beanDefinition.getName());
+        if (pool != null) {
+            return pool;
+        }
+        return pools.computeIfAbsent(beanDefinition.getName(), beanName -> {
+            BeanInstantiator instantiator = getInstantiator(beanDefinition);
+            return new BeanPool(beanName, beanDefinition.getPool(), factory, instance -> {
+                try {
+                    instantiator.invokePoolReset(instance);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to reset pooled bean " + beanName, e);
+                }
+            }, instance -> shutdownHookService.invokePreDestroy(instance, beanDefinition));
+        });
+    }
+
     /**
      * Получает экземпляр бина, связанного с текущим потоком, по его имени.
      * Этот метод предназначен для использования с бинами, имеющими область видимости "thread",
@@ -103,13 +399,25 @@ public class BeanContainer {
      */
     @SuppressWarnings("all")
     public <T> T getThreadLocalBean(String name) {
-        ThreadLocal<?> threadLocal = threadInstances.get(name);
-        if (threadLocal != null) {
-            return (T) threadLocal.get();
+        ThreadScopedInstances instances = threadInstances.get(name);
+        if (instances != null) {
+            return (T) instances.get();
         }
         return null;
     }
 
+    /**
+     * Получаем число живых инстансов потокового бина, то есть инстансов, у которых ещё не вызван PreDestroy.
+     * Инстанс уничтожается вскоре после завершения его потока, а оставшиеся - при остановке контейнера.
+     *
+     * @param name имя потокового бина.
+     * @return число живых инстансов или 0, если такой потоковый бин ещё не зарегистрирован.
+     */
+    public int getLiveThreadInstances(String name) {
+        ThreadScopedInstances instances = threadInstances.get(name);
+        return (instances != null) ? instances.getLiveInstances() : 0;
+    }
+
     /**
      * Проверяем, есть ли уже созданный экземпляр синглетон или потокового бина,
      * потому что у нас нет необходимости создать их еще раз.
@@ -128,51 +436,54 @@ public class BeanContainer {
      * @param beanInstance   инстанс бина.
      */
     public void registerSingletonBeanInstance(@NonNull BeanDefinition beanDefinition, Object beanInstance) {
-        MDC.put("beanName", (beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName()));
-        log.info("Registering singleton bean instance for class");
-        MDC.remove("beanName");
+        eventLog.record(BeanEventType.SINGLETON_REGISTERED, (beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName()));
         singletonInstances.put((beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName()), beanInstance);
     }
 
     /**
      * Регистрируем инстанс потокового бина и сохраняем его в контейнер.
+     * Если бин уже был зарегистрирован другим потоком, то остаётся первая регистрация,
+     * чтобы не потерять инстансы, уже созданные в других потоках.
+     * При завершении потока и при остановке контейнера у инстанса проверяются prototype поля и вызывается PreDestroy.
      *
      * @param beanDefinition модель бина, чтобы получить его известное имя.
-     * @param beanSupplier   инстанс потокового бина, обёрнутый в Supplier, чтобы он сохранился в определённый поток.
+     * @param beanSupplier   создание инстанса потокового бина вместе с PostConstruct, вызывается один раз в каждом потоке.
+     * @return инстансы потокового бина.
      */
-    public void registerThreadBeanInstance(@NonNull BeanDefinition beanDefinition, Supplier<?> beanSupplier) {
-        MDC.put("beanName", (beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName()));
-        log.info("Registering thread-local bean instance");
-        MDC.remove("beanName");
-        threadInstances.put((beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName()), ThreadLocal.withInitial(beanSupplier));
+    public ThreadScopedInstances registerThreadBeanInstance(@NonNull BeanDefinition beanDefinition, Supplier<?> beanSupplier) {
+        String beanName = (beanDefinition.getName() != null ? beanDefinition.getName() : beanDefinition.getClassName());
+        eventLog.record(BeanEventType.THREAD_BEAN_REGISTERED, beanName);
+        return threadInstances.computeIfAbsent(beanName, name -> new ThreadScopedInstances(name, beanSupplier, instance -> {
+            shutdownHookService.checkForPrototypeBeans(instance);
+            shutdownHookService.invokePreDestroy(instance, beanDefinition);
+        }, metrics.getBeanMetrics(name)));
     }
 
     /**
-     * Функция для получения логов бина по его имени из специального файла.
+     * Функция для получения логов бина по его имени из папки с логами.
+     * Строки ищутся по индексу {@link BeanLogStore}, а имя бина должно совпадать полностью.
      *
-     * @param beanClassName имя бина, для которого мы будем искать логи.
+     * @param beanName имя бина, для которого мы будем искать логи.
      * @return набор json логов.
-     * @throws IOException ошибка, на случай если файл с логами не был найден.
-     */
-    public List<String> getLogsForBean(String beanClassName) throws IOException {
-        String logDirPath = "logs";
-        List<String> logsForBean = new ArrayList<>();
-        try (Stream<Path> paths = Files.walk(Paths.get(logDirPath))) {
-            paths.filter(Files::isRegularFile).forEach(file -> {
-                try (Stream<String> stream = Files.newBufferedReader(file, StandardCharsets.UTF_8).lines()) {
-                    stream.forEach(line -> {
-                        if (line.contains(beanClassName)) {
-                            logsForBean.add(line);
-                        }
-                    });
-                } catch (IOException e) {
-                    MDC.put("beanName", ("all beans"));
-                    log.error("Can't find directory with logs");
-                    MDC.remove("beanName");
-                }
-            });
+     * @throws IOException ошибка чтения файлов с логами.
+     */
+    public List<String> getLogsForBean(String beanName) throws IOException {
+        try (Stream<String> logs = logStore.query(beanName, null, null)) {
+            return logs.toList();
         }
-        return logsForBean;
     }
-}
 
+    /**
+     * Получаем логи бина за интервал времени в виде ленивого потока, который не загружает все строки в память.
+     * Поток нужно закрыть после использования.
+     *
+     * @param beanName имя бина.
+     * @param from     начало интервала включительно или null.
+     * @param to       конец интервала не включительно или null.
+     * @return поток json логов.
+     * @throws IOException ошибка чтения файлов с логами.
+     */
+    public Stream<String> streamLogsForBean(String beanName, Instant from, Instant to) throws IOException {
+        return logStore.query(beanName, from, to);
+    }
+}
@@ -0,0 +1,190 @@
+package ru.nsu.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import ru.nsu.model.BeanDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Контекст для бинов со scope {@code context}, например один запрос, который обрабатывается
+ * на виртуальных потоках. В отличие от scope {@code thread}, инстансы привязаны не к потоку, а к контексту:
+ * все задачи, обёрнутые через {@link #wrap(Runnable)}, получают одни и те же инстансы на любом потоке,
+ * а при закрытии контекста у созданных инстансов вызывается PreDestroy в обратном порядке создания.
+ * <p>
+ * Текущий контекст хранится в одном общем ThreadLocal, а не в ThreadLocal на каждый бин, и снимается
+ * сразу после задачи, поэтому после завершения потока ничего не остаётся. Инстансы создаются под
+ * {@link ReentrantLock}, а не под монитором, чтобы создание бина не закрепляло виртуальный поток за несущим потоком.
+ * <pre>{@code
+ * try (BeanContext context = beanInstanceService.openContext()) {
+ *     RequestState state = beanInstanceService.getBean("requestState");
+ *     executor.submit(context.wrap(() -> handle(request))).get();
+ * }
+ * }</pre>
+ */
+@Slf4j
+public final class BeanContext implements AutoCloseable {
+
+    private static final ThreadLocal<BeanContext> CURRENT = new ThreadLocal<>();
+
+    private final BeanContainer beanContainer;
+
+    private final BeanContext previous;
+
+    private final Thread owner;
+
+    private final Map<String, Object> instances = new ConcurrentHashMap<>();
+
+    private final List<BeanDefinition> creationOrder = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean closed;
+
+    /**
+     * Открываем контекст и делаем его текущим в этом потоке.
+     *
+     * @param beanContainer контейнер, бины которого создаются в контексте.
+     */
+    BeanContext(BeanContainer beanContainer) {
+        this.beanContainer = beanContainer;
+        this.previous = CURRENT.get();
+        this.owner = Thread.currentThread();
+        CURRENT.set(this);
+    }
+
+    /**
+     * @return контекст, привязанный к текущему потоку, или null.
+     */
+    public static BeanContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Получаем инстанс бина в этом контексте, создавая его при первом запросе.
+     *
+     * @param beanDefinition модель бина.
+     * @param factory        создание инстанса вместе с PostConstruct.
+     * @return инстанс бина.
+     */
+    Object getOrCreate(BeanDefinition beanDefinition, Supplier<Object> factory) {
+        Object instance = instances.get(beanDefinition.getName());
+        if (instance != null) {
+            return instance;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Bean context is closed, can't create bean " + beanDefinition.getName());
+            }
+            instance = instances.get(beanDefinition.getName());
+            if (instance == null) {
+                instance = factory.get();
+                instances.put(beanDefinition.getName(), instance);
+                creationOrder.add(beanDefinition);
+            }
+            return instance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Оборачиваем задачу так, чтобы на время её выполнения в любом потоке текущим был этот контекст.
+     *
+     * @param task задача.
+     * @return обёрнутая задача.
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            BeanContext outer = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                task.run();
+            } finally {
+                restore(outer);
+            }
+        };
+    }
+
+    /**
+     * Оборачиваем задачу с результатом так, чтобы на время её выполнения текущим был этот контекст.
+     *
+     * @param task задача.
+     * @param <V>  тип результата.
+     * @return обёрнутая задача.
+     */
+    public <V> Callable<V> wrap(Callable<V> task) {
+        return () -> {
+            BeanContext outer = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.call();
+            } finally {
+                restore(outer);
+            }
+        };
+    }
+
+    private static void restore(BeanContext outer) {
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(outer);
+        }
+    }
+
+    /**
+     * @return число инстансов, созданных в этом контексте.
+     */
+    public int size() {
+        return instances.size();
+    }
+
+    /**
+     * @return true, если контекст закрыт.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Закрываем контекст: в открывшем его потоке текущим снова становится предыдущий контекст,
+     * а у созданных инстансов вызывается PreDestroy в обратном порядке создания.
+     * Закрывать контекст нужно после завершения всех задач, которые его используют.
+     */
+    @Override
+    public void close() {
+        List<BeanDefinition> destroyOrder;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            destroyOrder = new ArrayList<>(creationOrder);
+        } finally {
+            lock.unlock();
+        }
+        if (Thread.currentThread() == owner && CURRENT.get() == this) {
+            restore(previous);
+        }
+        for (int i = destroyOrder.size() - 1; i >= 0; i--) {
+            BeanDefinition beanDefinition = destroyOrder.get(i);
+            try {
+                beanContainer.getShutdownHookService().invokePreDestroy(instances.get(beanDefinition.getName()), beanDefinition);
+            } catch (RuntimeException e) {
+                MDC.put("beanName", beanDefinition.getName());
+                log.warn("Failed to destroy context bean", e);
+                MDC.remove("beanName");
+            }
+        }
+        instances.clear();
+    }
+}
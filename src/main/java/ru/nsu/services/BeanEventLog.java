@@ -0,0 +1,540 @@
+package ru.nsu.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import ru.nsu.model.BeanEventType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный журнал событий бинов, которым владеет контейнер.
+ * Потоки, работающие с бинами, только кладут событие в ограниченный кольцевой буфер без блокировок:
+ * в буфере хранятся лишь примитивы (время, тип события, номер бина и номер потока).
+ * Фоновый поток забирает события пачками, превращает их в JSON строки в формате остальных логов
+ * и записывает в файл одной операцией на пачку. На каждый файл работает один фоновый поток,
+ * даже если в него пишут журналы нескольких контейнеров, поэтому строки разных журналов не перемешиваются.
+ * Как и {@code RollingFileAppender} из log4j.properties, файл ротируется по размеру: при превышении
+ * {@link #DEFAULT_MAX_FILE_SIZE} он переименовывается в {@code bean_events.log.1}, старые копии сдвигаются,
+ * и хранится не больше {@link #DEFAULT_MAX_BACKUPS} копий. Поток останавливается, когда закрыт последний журнал его файла.
+ * Если буфер заполнен, событие отбрасывается, а счётчик отброшенных событий увеличивается,
+ * поэтому запись в журнал никогда не блокирует работу с бинами.
+ * Для каждого типа события можно задать частоту записи, а выключенный тип стоит одного чтения массива.
+ */
+@Slf4j
+public class BeanEventLog implements AutoCloseable {
+
+    /**
+     * Файл, в который по умолчанию пишутся события. Он лежит рядом с остальными логами,
+     * поэтому {@link BeanContainer#getLogsForBean(String)} находит и эти записи.
+     */
+    public static final Path DEFAULT_LOG_FILE = Paths.get("logs", "bean_events.log");
+
+    /**
+     * Размер файла, после которого он ротируется, как MaxFileSize в log4j.properties.
+     */
+    public static final long DEFAULT_MAX_FILE_SIZE = 10L * 1024 * 1024;
+
+    /**
+     * Сколько старых копий файла хранится, как MaxBackupIndex в log4j.properties.
+     */
+    public static final int DEFAULT_MAX_BACKUPS = 5;
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * Фоновые потоки записи по абсолютным путям файлов.
+     */
+    private static final Map<Path, EventFileWriter> WRITERS = new HashMap<>();
+
+    private static final int BATCH_SIZE = 256;
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS").withZone(ZoneId.systemDefault());
+
+    private final Path logFile;
+
+    private final long maxFileSize;
+
+    private final int maxBackups;
+
+    private final int capacity;
+
+    private final int mask;
+
+    /**
+     * Номер позиции, которую ожидает слот: производитель может писать в слот, если номер равен позиции,
+     * а фоновый поток может читать слот, если номер равен позиции + 1.
+     */
+    private final AtomicLongArray sequences;
+
+    private final long[] timestamps;
+
+    private final long[] threadIds;
+
+    private final int[] types;
+
+    private final int[] beanIds;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private final Map<String, Integer> beanIdsByName = new ConcurrentHashMap<>();
+
+    private final CopyOnWriteArrayList<String> beanNames = new CopyOnWriteArrayList<>();
+
+    /**
+     * Для каждого типа события: 0 - событие не пишется, 1 - пишется каждое событие,
+     * n - в среднем пишется одно событие из n. Массив заменяется целиком, поэтому читается без блокировок.
+     */
+    private volatile int[] sampling;
+
+    /**
+     * Позиция, до которой все события уже записаны в файл.
+     */
+    private volatile long writtenPosition;
+
+    /**
+     * Позиция, до которой события забраны фоновым потоком, меняется только им.
+     */
+    private long head;
+
+    private volatile boolean closed;
+
+    private volatile EventFileWriter fileWriter;
+
+    /**
+     * Журнал, который пишет в {@link #DEFAULT_LOG_FILE}.
+     */
+    public BeanEventLog() {
+        this(DEFAULT_LOG_FILE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Конструктор журнала событий.
+     * Если INFO уровень логирования выключен, то по умолчанию выключены и все события.
+     *
+     * @param logFile  файл, в который дописываются события.
+     * @param capacity размер кольцевого буфера, округляется вверх до степени двойки.
+     */
+    public BeanEventLog(Path logFile, int capacity) {
+        this(logFile, capacity, DEFAULT_MAX_FILE_SIZE, DEFAULT_MAX_BACKUPS);
+    }
+
+    /**
+     * Конструктор журнала событий с настройкой ротации. Если в этот файл уже пишет другой журнал,
+     * то действуют настройки ротации того журнала, который начал писать первым.
+     *
+     * @param logFile     файл, в который дописываются события.
+     * @param capacity    размер кольцевого буфера, округляется вверх до степени двойки.
+     * @param maxFileSize размер файла в байтах, после которого он ротируется.
+     * @param maxBackups  сколько старых копий файла хранить, 0 - старые события просто удаляются.
+     */
+    public BeanEventLog(Path logFile, int capacity, long maxFileSize, int maxBackups) {
+        if (maxFileSize <= 0 || maxBackups < 0) {
+            throw new IllegalArgumentException("Wrong rotation settings: maxFileSize " + maxFileSize + ", maxBackups " + maxBackups);
+        }
+        this.logFile = logFile;
+        this.maxFileSize = maxFileSize;
+        this.maxBackups = maxBackups;
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.timestamps = new long[this.capacity];
+        this.threadIds = new long[this.capacity];
+        this.types = new int[this.capacity];
+        this.beanIds = new int[this.capacity];
+        int[] defaultSampling = new int[BeanEventType.values().length];
+        Arrays.fill(defaultSampling, log.isInfoEnabled() ? 1 : 0);
+        this.sampling = defaultSampling;
+    }
+
+    /**
+     * Задаём частоту записи событий одного типа.
+     *
+     * @param type     тип события.
+     * @param everyNth 0, чтобы не писать событие, 1, чтобы писать каждое, n, чтобы писать в среднем одно из n.
+     */
+    public synchronized void setSampling(BeanEventType type, int everyNth) {
+        if (everyNth < 0) {
+            throw new IllegalArgumentException("Sampling rate can't be negative: " + everyNth);
+        }
+        int[] newSampling = sampling.clone();
+        newSampling[type.ordinal()] = everyNth;
+        this.sampling = newSampling;
+    }
+
+    /**
+     * Задаём одинаковую частоту записи для всех типов событий.
+     *
+     * @param everyNth 0, чтобы не писать события, 1, чтобы писать каждое, n, чтобы писать в среднем одно из n.
+     */
+    public synchronized void setSampling(int everyNth) {
+        for (BeanEventType type : BeanEventType.values()) {
+            setSampling(type, everyNth);
+        }
+    }
+
+    /**
+     * Проверяем, записывается ли хотя бы часть событий этого типа.
+     *
+     * @param type тип события.
+     * @return true, если событие не выключено.
+     */
+    public boolean isEnabled(BeanEventType type) {
+        return sampling[type.ordinal()] != 0;
+    }
+
+    /**
+     * Количество событий, которые не попали в журнал из-за переполнения буфера.
+     *
+     * @return число отброшенных событий.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Кладём событие в буфер. Метод не блокируется и не выделяет память, кроме первого события для нового бина.
+     *
+     * @param type     тип события.
+     * @param beanName имя бина.
+     */
+    public void record(BeanEventType type, String beanName) {
+        int everyNth = sampling[type.ordinal()];
+        if (everyNth == 0 || closed || (everyNth > 1 && ThreadLocalRandom.current().nextInt(everyNth) != 0)) {
+            return;
+        }
+        int beanId = beanId(beanName);
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // Фоновый поток ещё не освободил этот слот, то есть буфер заполнен
+                droppedEvents.increment();
+                return;
+            }
+            // Иначе слот уже занял другой поток, берём следующую позицию
+        }
+        timestamps[index] = System.currentTimeMillis();
+        threadIds[index] = Thread.currentThread().getId();
+        types[index] = type.ordinal();
+        beanIds[index] = beanId;
+        sequences.lazySet(index, position + 1);
+        if (fileWriter == null) {
+            startWriter();
+        }
+    }
+
+    /**
+     * Ждём, пока все уже положенные в буфер события будут записаны в файл.
+     *
+     * @param timeout максимальное время ожидания.
+     * @param unit    единица измерения времени.
+     * @return true, если все события записаны.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (writtenPosition < target) {
+            EventFileWriter writer = fileWriter;
+            if (writer == null || System.nanoTime() - deadline >= 0) {
+                return writtenPosition >= target;
+            }
+            LockSupport.unpark(writer.thread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Записываем оставшиеся события и отключаемся от фонового потока файла, а если это был последний журнал файла,
+     * то поток останавливается. Новые события после этого не принимаются.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush(5, TimeUnit.SECONDS);
+        synchronized (WRITERS) {
+            EventFileWriter writer = fileWriter;
+            if (writer != null) {
+                writer.logs.remove(this);
+                LockSupport.unpark(writer.thread);
+            }
+        }
+    }
+
+    private int beanId(String beanName) {
+        String name = (beanName != null) ? beanName : "unknown";
+        Integer id = beanIdsByName.get(name);
+        return (id != null) ? id : registerBeanName(name);
+    }
+
+    private synchronized int registerBeanName(String beanName) {
+        Integer id = beanIdsByName.get(beanName);
+        if (id == null) {
+            beanNames.add(beanName);
+            id = beanNames.size() - 1;
+            beanIdsByName.put(beanName, id);
+        }
+        return id;
+    }
+
+    private void startWriter() {
+        synchronized (WRITERS) {
+            if (fileWriter != null || closed) {
+                return;
+            }
+            Path path = logFile.toAbsolutePath().normalize();
+            EventFileWriter writer = WRITERS.get(path);
+            if (writer == null) {
+                writer = new EventFileWriter(path, maxFileSize, maxBackups);
+                WRITERS.put(path, writer);
+                writer.thread.start();
+            }
+            writer.logs.add(this);
+            fileWriter = writer;
+        }
+    }
+
+    /**
+     * Забираем из буфера следующую пачку событий. Вызывается только фоновым потоком файла.
+     *
+     * @param batch куда дописываются JSON строки событий.
+     * @return число забранных событий.
+     */
+    private int drain(StringBuilder batch) {
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            appendEvent(batch, index);
+            // Освобождаем слот для позиции на круг дальше
+            sequences.lazySet(index, head + capacity);
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    private void appendEvent(StringBuilder batch, int index) {
+        BeanEventType type = BeanEventType.values()[types[index]];
+        batch.append("{\"name\":\"");
+        appendEscaped(batch, beanNames.get(beanIds[index]));
+        batch.append("\",\"timestamp\":\"");
+        TIMESTAMP_FORMAT.formatTo(Instant.ofEpochMilli(timestamps[index]), batch);
+        batch.append("\",\"event\":\"").append(type.name())
+                .append("\",\"thread\":").append(threadIds[index])
+                .append(",\"message\":\"").append(type.getMessage()).append("\"}\n");
+    }
+
+    private static void appendEscaped(StringBuilder builder, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char symbol = value.charAt(i);
+            if (symbol == '"' || symbol == '\\') {
+                builder.append('\\');
+            }
+            builder.append(symbol);
+        }
+    }
+
+    /**
+     * Фоновый поток одного файла: забирает события всех журналов этого файла и дописывает их одной операцией на пачку.
+     */
+    private static final class EventFileWriter {
+
+        private final Path path;
+
+        private final long maxFileSize;
+
+        private final int maxBackups;
+
+        private final List<BeanEventLog> logs = new CopyOnWriteArrayList<>();
+
+        private final Thread thread;
+
+        private OutputStream output;
+
+        private long size;
+
+        private EventFileWriter(Path path, long maxFileSize, int maxBackups) {
+            this.path = path;
+            this.maxFileSize = maxFileSize;
+            this.maxBackups = maxBackups;
+            this.thread = new Thread(this::writeLoop, "bean-event-log");
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Основной цикл: забираем события пачками и дописываем их в файл, пока у файла есть журналы.
+         */
+        private void writeLoop() {
+            StringBuilder batch = new StringBuilder(BATCH_SIZE * 128);
+            try {
+                while (true) {
+                    List<BeanEventLog> drained = List.copyOf(logs);
+                    int count = 0;
+                    for (BeanEventLog eventLog : drained) {
+                        count += eventLog.drain(batch);
+                    }
+                    if (count > 0) {
+                        write(batch);
+                        batch.setLength(0);
+                        for (BeanEventLog eventLog : drained) {
+                            eventLog.writtenPosition = eventLog.head;
+                        }
+                    } else if (stopIfUnused()) {
+                        return;
+                    } else {
+                        LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+                    }
+                }
+            } finally {
+                closeOutput();
+            }
+        }
+
+        private boolean stopIfUnused() {
+            synchronized (WRITERS) {
+                if (!logs.isEmpty()) {
+                    return false;
+                }
+                WRITERS.remove(path);
+                return true;
+            }
+        }
+
+        private void write(CharSequence batch) {
+            byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                if (output == null) {
+                    open();
+                }
+                int offset = 0;
+                while (offset < bytes.length) {
+                    int end = fittingEnd(bytes, offset);
+                    if (end == offset && size > 0) {
+                        rotate();
+                        end = fittingEnd(bytes, offset);
+                    }
+                    if (end == offset) {
+                        // Строка длиннее максимального размера файла пишется в пустой файл целиком
+                        end = lineEnd(bytes, offset);
+                    }
+                    output.write(bytes, offset, end - offset);
+                    size += end - offset;
+                    offset = end;
+                }
+                output.flush();
+            } catch (IOException e) {
+                closeOutput();
+                MDC.put("beanName", "all beans");
+                log.error("Can't write bean events to " + path + ": " + e.getMessage());
+                MDC.remove("beanName");
+            }
+        }
+
+        /**
+         * Ищем конец последней строки пачки, которая ещё помещается в текущий файл.
+         *
+         * @return конец строки или {@code offset}, если не помещается ни одна строка.
+         */
+        private int fittingEnd(byte[] bytes, int offset) {
+            int end = offset;
+            int next = lineEnd(bytes, offset);
+            while (next > end && size + (next - offset) <= maxFileSize) {
+                end = next;
+                next = lineEnd(bytes, end);
+            }
+            return end;
+        }
+
+        private static int lineEnd(byte[] bytes, int offset) {
+            for (int i = offset; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return bytes.length;
+        }
+
+        private void open() throws IOException {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            output = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            size = Files.size(path);
+        }
+
+        /**
+         * Ротация как в RollingFileAppender: самая старая копия удаляется, остальные сдвигаются на один номер,
+         * а текущий файл становится копией с номером 1.
+         */
+        private void rotate() throws IOException {
+            closeOutput();
+            if (maxBackups == 0) {
+                Files.deleteIfExists(path);
+            } else {
+                Files.deleteIfExists(backup(maxBackups));
+                for (int i = maxBackups - 1; i >= 1; i--) {
+                    if (Files.exists(backup(i))) {
+                        Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(path, backup(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            open();
+        }
+
+        private Path backup(int index) {
+            return path.resolveSibling(path.getFileName() + "." + index);
+        }
+
+        private void closeOutput() {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                    // Файл всё равно больше не используется
+                }
+                output = null;
+            }
+        }
+    }
+}
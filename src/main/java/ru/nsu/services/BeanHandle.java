@@ -0,0 +1,30 @@
+package ru.nsu.services;
+
+import javax.inject.Provider;
+
+/**
+ * Заранее найденная ссылка на бин, которую выдаёт {@link BeanInstanceService#getBeanHandle(String)}.
+ * Имя, модель и scope бина ищутся один раз при создании ссылки, поэтому {@link #get()} сразу идёт
+ * в путь своего scope: для синглетона это чтение поля, для потокового бина - чтение его ThreadLocal,
+ * для prototype - вызов уже связанного {@link BeanInstantiator}.
+ * Для синглетона {@link #get()} не работает со строками, не пишет логи и не создаёт объектов.
+ *
+ * @param <T> тип бина.
+ */
+public interface BeanHandle<T> extends Provider<T> {
+
+    /**
+     * Имя бина, на который указывает ссылка.
+     *
+     * @return имя бина.
+     */
+    String getName();
+
+    /**
+     * Получаем инстанс бина по правилам его scope.
+     *
+     * @return инстанс бина.
+     */
+    @Override
+    T get();
+}
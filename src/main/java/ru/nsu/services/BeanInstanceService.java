@@ -1,20 +1,39 @@
 package ru.nsu.services;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import ru.nsu.exception.*;
+import ru.nsu.jfr.BeanCreationEvent;
+import ru.nsu.jfr.BeanInjectionEvent;
+import ru.nsu.jfr.GetBeanMissEvent;
+import ru.nsu.jfr.PostConstructEvent;
 import ru.nsu.model.BeanDefinition;
+import ru.nsu.model.BeanEventType;
 
-import javax.inject.Named;
 import javax.inject.Provider;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Этот класс отвечает за создание инстансов бинов и их дальнейшее сохранение в контейнер бинов.
@@ -25,6 +44,12 @@ public class BeanInstanceService {
 
     private final BeanContainer beanContainer;
 
+    /**
+     * Потоковые бины, о запросе которых из виртуального потока уже предупредили в логе.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<String> virtualThreadWarnings = ConcurrentHashMap.newKeySet();
+
     /**
      * Публичный конструктор сервиса создания бинов.
      *
@@ -48,24 +73,25 @@ public class BeanInstanceService {
      */
     @SuppressWarnings("all")
     public <T> T getBean(String name) {
-        MDC.put("beanName", name);
-        log.info("Attempting to get bean by class name");
-        MDC.remove("beanName");
-        BeanDefinition definition = null;
-        var allBeans = beanContainer.getBeanDefinitions();
-        definition = allBeans.get(name);
+        BeanEventLog eventLog = beanContainer.getEventLog();
+        eventLog.record(BeanEventType.GET_BEAN_REQUESTED, name);
+        BeanDefinition definition = beanContainer.findBeanDefinition(name);
         if (definition == null) {
-            for (var singleBean : allBeans.values()) {
-                if (singleBean.getClassName().equals(name) || singleBean.getName().equals(name)) {
-                    definition = singleBean;
-                    break;
-                }
-            }
+            GetBeanMissEvent missEvent = new GetBeanMissEvent();
+            missEvent.begin();
+            missEvent.commit(name, null, GetBeanMissEvent.UNKNOWN_BEAN);
+            throw new NoDependencyException(name, "No bean with such name or class name");
         }
+        beanMetrics(definition).recordGetBean();
         T result = switch (definition.getScope()) {
-            case "singleton" -> (T) beanContainer.getSingletonInstances().get(name);
+            case "singleton" -> (T) getSingleton(definition);
             case "prototype" -> (T) createBeanInstance(definition);
-            case "thread" -> beanContainer.getThreadLocalBean(name);
+            case "thread" -> {
+                warnIfVirtualThread(definition);
+                yield beanContainer.getThreadLocalBean(definition.getName());
+            }
+            case "pooled" -> (T) pool(definition).borrow();
+            case "context" -> (T) getContextBean(definition);
             default -> {
                 MDC.put("beanName", name);
                 log.warn("No such bean scope: " + definition.getScope());
@@ -76,54 +102,628 @@ public class BeanInstanceService {
         if (definition.getScope().equals("prototype")) {
             invokePostConstruct(result, definition);
         }
-        MDC.put("beanName", name);
-        log.info("Successfully retrieved bean");
-        MDC.remove("beanName");
+        eventLog.record(BeanEventType.GET_BEAN_RETRIEVED, name);
         return result;
     }
 
+    /**
+     * Открываем контекст для бинов со scope {@code context} и делаем его текущим в этом потоке.
+     * Дочерние задачи, в том числе на виртуальных потоках, получают те же инстансы,
+     * если обернуть их через {@link BeanContext#wrap(Runnable)}.
+     *
+     * @return открытый контекст, его нужно закрыть после завершения всех задач.
+     */
+    public BeanContext openContext() {
+        return new BeanContext(beanContainer);
+    }
+
+    /**
+     * Создаём фабрику потоков, которая в каждом новом потоке заранее создаёт переданные потоковые бины
+     * и их потоковые зависимости в порядке зависимостей, а при завершении потока уничтожает их в обратном порядке.
+     *
+     * @param beanNames имена потоковых бинов или полные имена их классов.
+     * @return фабрика потоков поверх {@link Executors#defaultThreadFactory()}.
+     */
+    public PrewarmingThreadFactory prewarmingThreadFactory(String... beanNames) {
+        return prewarmingThreadFactory(Executors.defaultThreadFactory(), beanNames);
+    }
+
+    /**
+     * Создаём фабрику потоков, которая в каждом потоке из {@code delegate} заранее создаёт переданные потоковые бины
+     * и их потоковые зависимости в порядке зависимостей, а при завершении потока уничтожает их в обратном порядке.
+     *
+     * @param delegate  фабрика, которая создаёт сами потоки, например чтобы задать их имена.
+     * @param beanNames имена потоковых бинов или полные имена их классов.
+     * @return фабрика потоков.
+     * @throws NoDependencyException    если такого бина нет.
+     * @throws IllegalArgumentException если бин не потоковый.
+     */
+    public PrewarmingThreadFactory prewarmingThreadFactory(ThreadFactory delegate, String... beanNames) {
+        List<BeanDefinition> creationOrder = threadBeanCreationOrder(beanNames);
+        // Инстансы бинов регистрируются сразу, чтобы каждый поток фабрики мог найти и уничтожить свои инстансы
+        List<ThreadScopedInstances> threadInstances = creationOrder.stream()
+                .map(definition -> beanContainer.registerThreadBeanInstance(definition, threadBeanFactory(definition)))
+                .toList();
+        return new PrewarmingThreadFactory(creationOrder, threadInstances, delegate);
+    }
+
+    /**
+     * Создаём пул из {@code threads} потоков, каждый из которых заранее создаёт переданные потоковые бины.
+     * Все потоки запускаются сразу, поэтому бины создаются до первой задачи, а после {@code shutdown()}
+     * у них вызывается PreDestroy, когда потоки завершаются, и {@code awaitTermination} дожидается этого.
+     *
+     * @param threads   число потоков.
+     * @param beanNames имена потоковых бинов или полные имена их классов.
+     * @return пул потоков.
+     */
+    public ExecutorService newPrewarmedThreadPool(int threads, String... beanNames) {
+        return prewarmingThreadFactory(beanNames).newThreadPool(threads);
+    }
+
+    /**
+     * Находим переданные потоковые бины вместе с их потоковыми зависимостями и сортируем в порядке создания.
+     * Зависимости других scope не добавляются, они создаются как обычно при внедрении.
+     *
+     * @param beanNames имена потоковых бинов или полные имена их классов.
+     * @return модели бинов: зависимости раньше зависимых бинов.
+     */
+    private List<BeanDefinition> threadBeanCreationOrder(String... beanNames) {
+        Set<String> selected = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String name : beanNames) {
+            BeanDefinition definition = beanContainer.findBeanDefinition(name);
+            if (definition == null) {
+                throw new NoDependencyException(name, "No bean with such name or class name");
+            }
+            if (!definition.getScope().equals("thread")) {
+                throw new IllegalArgumentException("Bean " + name + " has scope " + definition.getScope() + ", only thread beans can be prewarmed");
+            }
+            pending.push(definition.getName());
+        }
+        while (!pending.isEmpty()) {
+            String beanName = pending.pop();
+            if (selected.add(beanName)) {
+                for (String dependency : beanContainer.getBeanDependencies().getOrDefault(beanName, Set.of())) {
+                    BeanDefinition dependencyDefinition = beanContainer.getBeanDefinitions().get(dependency);
+                    if (dependencyDefinition != null && dependencyDefinition.getScope().equals("thread")) {
+                        pending.push(dependency);
+                    }
+                }
+            }
+        }
+        // В порядке из контейнера зависимые бины идут раньше своих зависимостей
+        List<String> order = beanContainer.getOrderedByDependenciesBeans();
+        return selected.stream()
+                .sorted(Comparator.comparingInt(order::indexOf).reversed())
+                .map(beanContainer.getBeanDefinitions()::get)
+                .toList();
+    }
+
+    /**
+     * Получаем инстанс бина со scope {@code context} из текущего контекста, создавая его вместе с PostConstruct.
+     *
+     * @param definition модель бина.
+     * @return инстанс бина.
+     * @throws NoDependencyException если в этом потоке нет открытого контекста.
+     */
+    private Object getContextBean(BeanDefinition definition) {
+        BeanContext context = BeanContext.current();
+        if (context == null) {
+            throw new NoDependencyException(definition.getName(),
+                    "Bean has scope context, but there is no open context in this thread. Use openContext() or BeanContext.wrap()");
+        }
+        return context.getOrCreate(definition, () -> {
+            Object instance = createBeanInstance(definition);
+            invokePostConstruct(instance, definition);
+            return instance;
+        });
+    }
+
+    /**
+     * На виртуальных потоках scope {@code thread} создаёт новый инстанс на каждый поток без переиспользования,
+     * поэтому один раз на бин предупреждаем, что лучше подойдёт scope {@code context} или {@code pooled}.
+     *
+     * @param definition модель потокового бина.
+     */
+    private void warnIfVirtualThread(BeanDefinition definition) {
+        if (VirtualThreads.isVirtual(Thread.currentThread()) && virtualThreadWarnings.add(definition.getName())) {
+            MDC.put("beanName", definition.getName());
+            log.warn("Thread scoped bean requested from a virtual thread, every virtual thread gets its own instance."
+                    + " Consider context or pooled scope");
+            MDC.remove("beanName");
+        }
+    }
+
+    /**
+     * Берём инстанс бина со scope {@code pooled} из его пула на время. Инстанс возвращается в пул
+     * при закрытии аренды, поэтому её удобно использовать в try-with-resources.
+     *
+     * @param name имя бина или полное имя его класса.
+     * @param <T>  ожидаемый тип бина.
+     * @return аренда инстанса.
+     * @throws NoDependencyException     если такого бина нет.
+     * @throws IllegalArgumentException  если бин не pooled.
+     * @throws ru.nsu.exception.PoolExhaustedException если все инстансы выданы и ни один не вернулся за время ожидания.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BeanLease<T> leaseBean(String name) {
+        BeanDefinition definition = pooledDefinition(name);
+        beanMetrics(definition).recordGetBean();
+        BeanPool pool = pool(definition);
+        return new BeanLease<>(pool, (T) pool.borrow());
+    }
+
+    /**
+     * Возвращаем в пул инстанс бина со scope {@code pooled}, полученный через {@link #getBean(String)}
+     * или внедрённый вручную. После возврата инстанс нельзя использовать.
+     *
+     * @param name     имя бина или полное имя его класса.
+     * @param instance инстанс бина.
+     * @throws IllegalArgumentException если инстанс не выдан пулом этого бина или уже возвращён.
+     */
+    public void releaseBean(String name, Object instance) {
+        pool(pooledDefinition(name)).release(instance);
+    }
+
+    private BeanDefinition pooledDefinition(String name) {
+        BeanDefinition definition = beanContainer.findBeanDefinition(name);
+        if (definition == null) {
+            throw new NoDependencyException(name, "No bean with such name or class name");
+        }
+        if (!definition.getScope().equals("pooled")) {
+            throw new IllegalArgumentException("Bean " + name + " has scope " + definition.getScope() + ", only pooled beans have a pool");
+        }
+        return definition;
+    }
+
+    /**
+     * Получаем пул бина. Новый инстанс для пула создаётся так же, как prototype бин, вместе с PostConstruct.
+     *
+     * @param definition модель бина со scope pooled.
+     * @return пул бина.
+     */
+    private BeanPool pool(BeanDefinition definition) {
+        return beanContainer.getPool(definition, () -> {
+            Object instance = createBeanInstance(definition);
+            invokePostConstruct(instance, definition);
+            return instance;
+        });
+    }
+
+    /**
+     * Получение бина по его типу: классу или интерфейсу, который он реализует.
+     * Подходящие бины берутся из индекса типов, построенного при создании контейнера.
+     *
+     * @param type тип бина.
+     * @param <T>  тип возвращаемого бина.
+     * @return инстанс единственного бина этого типа.
+     * @throws NoDependencyException    если бинов такого типа нет.
+     * @throws NoUniqueBeanException    если бинов такого типа несколько.
+     * @throws IllegalArgumentException если бин pooled: его инстанс нужно вернуть в пул, поэтому его берут через {@link #leaseBean(String)}.
+     */
+    public <T> T getBean(Class<T> type) {
+        List<BeanDefinition> candidates = beanContainer.getBeanDefinitionsOfType(type);
+        if (candidates.isEmpty()) {
+            throw new NoDependencyException(type.getName(), "No bean of this type");
+        }
+        if (candidates.size() > 1) {
+            throw new NoUniqueBeanException(type.getName(), "Use getBean(name) or getBeansOfType, candidates: "
+                    + candidates.stream().map(BeanDefinition::getName).toList());
+        }
+        BeanDefinition definition = candidates.get(0);
+        if (definition.getScope().equals("pooled")) {
+            throw new IllegalArgumentException("Bean " + definition.getName() + " of type " + type.getName()
+                    + " is pooled, use leaseBean(\"" + definition.getName() + "\") to borrow and return its instance");
+        }
+        return type.cast(getBean(definition.getName()));
+    }
+
+    /**
+     * Получение всех бинов, которые можно привести к переданному типу.
+     * Бины, которые ещё не созданы, создаются так же, как при вызове {@link #getBean(String)}.
+     * Бины pooled пропускаются, иначе каждый вызов молча забирал бы из их пулов по инстансу, который никто не вернёт.
+     *
+     * @param type тип бинов.
+     * @param <T>  тип возвращаемых бинов.
+     * @return отношение из имён бинов в их инстансы, пустое, если таких бинов нет.
+     */
+    public <T> Map<String, T> getBeansOfType(Class<T> type) {
+        Map<String, T> beans = new LinkedHashMap<>();
+        for (BeanDefinition beanDefinition : beanContainer.getBeanDefinitionsOfType(type)) {
+            if (beanDefinition.getScope().equals("pooled")) {
+                continue;
+            }
+            beans.put(beanDefinition.getName(), type.cast(getBean(beanDefinition.getName())));
+        }
+        return beans;
+    }
+
+    /**
+     * Получаем заранее найденную ссылку на бин. Поиск модели бина и разбор его scope происходят
+     * один раз здесь, а не при каждом вызове {@link BeanHandle#get()}.
+     *
+     * @param name имя бина или полное имя его класса.
+     * @param <T>  ожидаемый тип бина. Предостережение: тип не проверяется при выполнении,
+     *             поэтому неправильное использование может привести к {@code ClassCastException}.
+     * @return ссылка на бин.
+     */
+    public <T> BeanHandle<T> getBeanHandle(String name) {
+        BeanDefinition definition = beanContainer.findBeanDefinition(name);
+        if (definition == null) {
+            throw new NoDependencyException(name, "No bean with such name or class name");
+        }
+        return switch (definition.getScope()) {
+            case "singleton" -> new SingletonHandle<>(definition);
+            case "thread" -> new ThreadHandle<>(definition);
+            case "prototype" -> new PrototypeHandle<>(definition);
+            case "pooled" -> new PooledHandle<>(definition);
+            case "context" -> new ContextHandle<>(definition);
+            default -> throw new WrongJsonException(definition.getName(), ".No such bean scope: " + definition.getScope());
+        };
+    }
+
+    /**
+     * Получаем заранее найденную ссылку на единственный бин переданного типа.
+     *
+     * @param type тип бина.
+     * @param <T>  тип бина.
+     * @return ссылка на бин.
+     * @throws NoDependencyException если бинов такого типа нет.
+     * @throws NoUniqueBeanException если бинов такого типа несколько.
+     */
+    public <T> BeanHandle<T> getBeanHandle(Class<T> type) {
+        List<BeanDefinition> candidates = beanContainer.getBeanDefinitionsOfType(type);
+        if (candidates.isEmpty()) {
+            throw new NoDependencyException(type.getName(), "No bean of this type");
+        }
+        if (candidates.size() > 1) {
+            throw new NoUniqueBeanException(type.getName(), "Use getBeanHandle(name), candidates: "
+                    + candidates.stream().map(BeanDefinition::getName).toList());
+        }
+        return getBeanHandle(candidates.get(0).getName());
+    }
+
+    /**
+     * Ссылка на синглетон бин. После первого получения инстанс хранится в volatile поле.
+     */
+    private final class SingletonHandle<T> implements BeanHandle<T> {
+
+        private final BeanDefinition definition;
+
+        private final BeanMetrics metrics;
+
+        private volatile T instance;
+
+        private SingletonHandle(BeanDefinition definition) {
+            this.definition = definition;
+            this.metrics = beanMetrics(definition);
+        }
+
+        @Override
+        public String getName() {
+            return definition.getName();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            metrics.recordGetBean();
+            T current = instance;
+            if (current == null) {
+                current = (T) getSingleton(definition);
+                instance = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Ссылка на потоковый бин. Хранит инстансы потокового бина, как только бин зарегистрирован в контейнере.
+     */
+    private final class ThreadHandle<T> implements BeanHandle<T> {
+
+        private final BeanDefinition definition;
+
+        private final BeanMetrics metrics;
+
+        private volatile ThreadScopedInstances slot;
+
+        private ThreadHandle(BeanDefinition definition) {
+            this.definition = definition;
+            this.metrics = beanMetrics(definition);
+        }
+
+        @Override
+        public String getName() {
+            return definition.getName();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            ThreadScopedInstances current = slot;
+            if (current == null) {
+                current = beanContainer.getThreadInstances().get(definition.getName());
+                if (current == null) {
+                    // Бин еще не зарегистрирован, получаем его обычным способом, вызов учтётся там
+                    return getBean(definition.getName());
+                }
+                slot = current;
+            }
+            metrics.recordGetBean();
+            return (T) current.get();
+        }
+    }
+
+    /**
+     * Ссылка на prototype бин. Каждый вызов создаёт новый инстанс через связанный {@link BeanInstantiator}.
+     */
+    private final class PrototypeHandle<T> implements BeanHandle<T> {
+
+        private final BeanDefinition definition;
+
+        private final BeanMetrics metrics;
+
+        private PrototypeHandle(BeanDefinition definition) {
+            this.definition = definition;
+            this.metrics = beanMetrics(definition);
+        }
+
+        @Override
+        public String getName() {
+            return definition.getName();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            metrics.recordGetBean();
+            Object instance = createBeanInstance(definition);
+            invokePostConstruct(instance, definition);
+            return (T) instance;
+        }
+    }
+
+    /**
+     * Ссылка на pooled бин. Каждый вызов берёт инстанс из пула, который нужно вернуть через {@link #releaseBean(String, Object)}.
+     */
+    private final class PooledHandle<T> implements BeanHandle<T> {
+
+        private final BeanDefinition definition;
+
+        private final BeanMetrics metrics;
+
+        private final BeanPool pool;
+
+        private PooledHandle(BeanDefinition definition) {
+            this.definition = definition;
+            this.metrics = beanMetrics(definition);
+            this.pool = pool(definition);
+        }
+
+        @Override
+        public String getName() {
+            return definition.getName();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            metrics.recordGetBean();
+            return (T) pool.borrow();
+        }
+    }
+
+    /**
+     * Ссылка на бин со scope context. Каждый вызов берёт инстанс из текущего контекста.
+     */
+    private final class ContextHandle<T> implements BeanHandle<T> {
+
+        private final BeanDefinition definition;
+
+        private final BeanMetrics metrics;
+
+        private ContextHandle(BeanDefinition definition) {
+            this.definition = definition;
+            this.metrics = beanMetrics(definition);
+        }
+
+        @Override
+        public String getName() {
+            return definition.getName();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            metrics.recordGetBean();
+            return (T) getContextBean(definition);
+        }
+    }
+
+    /**
+     * Получение синглетон бина. Для уже созданного бина это одно чтение из ConcurrentHashMap без блокировок.
+     * Если бин ещё не создан (он ленивый, или его запросили во время старта контейнера из другого потока),
+     * то он создаётся под монитором этого бина: остальные потоки, запросившие тот же бин, ждут и получают
+     * уже готовый инстанс, поэтому конструктор и PostConstruct вызываются ровно один раз.
+     * Мониторы берутся в направлении от бина к его зависимостям, а циклов в графе зависимостей нет,
+     * поэтому одновременное создание зависимых бинов не приводит к deadlock.
+     *
+     * @param definition модель бина.
+     * @return инстанс бина.
+     */
+    private Object getSingleton(BeanDefinition definition) {
+        String beanName = (definition.getName() != null) ? definition.getName() : definition.getClassName();
+        var singletonInstances = beanContainer.getSingletonInstances();
+        Object instance = singletonInstances.get(beanName);
+        if (instance != null) {
+            return instance;
+        }
+        GetBeanMissEvent missEvent = new GetBeanMissEvent();
+        missEvent.begin();
+        try {
+            synchronized (beanContainer.getSingletonLock(beanName)) {
+                instance = singletonInstances.get(beanName);
+                if (instance == null) {
+                    instance = createBeanInstance(definition);
+                    invokePostConstruct(instance, definition);
+                    beanContainer.registerSingletonBeanInstance(definition, instance);
+                }
+                return instance;
+            }
+        } finally {
+            missEvent.commit(beanName, definition.getScope(), GetBeanMissEvent.NOT_CREATED);
+        }
+    }
+
     /**
      * Метод, который запускает DI цикл.
      * Получается список моделей отсортированных бинов из контейнера,
-     * а затем эти бины начинают от наибольших (те у кого больше всего зависимостей)
-     * до наименьших (те у кого вообще нет зависимостей) создаваться.
+     * а затем эти бины начинают от наименьших (те у кого вообще нет зависимостей)
+     * до наибольших (те у кого больше всего зависимостей) создаваться.
      */
     public void instantiateAndRegisterBeans() {
         var beanDefinitions = beanContainer.getBeanDefinitions();
-        var orderedBeanNames = beanContainer.getOrderedByDependenciesBeans();
+        List<String> orderedBeanNames = new ArrayList<>(beanContainer.getOrderedByDependenciesBeans());
 
         Collections.reverse(orderedBeanNames);
-        // Проходим по упорядоченному списку и создаем/регистрируем бины
-        orderedBeanNames.forEach(beanName -> {
-            BeanDefinition beanDefinition = beanDefinitions.get(beanName);
-            instantiateAndRegisterBean(beanDefinition);
-        });
+        try (BootstrapProfiler.Span ignored = beanContainer.getProfiler().span("instantiateAndRegisterBeans", "instantiate", null)) {
+            // Проходим по упорядоченному списку и создаем/регистрируем бины
+            orderedBeanNames.forEach(beanName -> {
+                BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+                instantiateAndRegisterBean(beanDefinition);
+            });
+        }
+    }
+
+    /**
+     * Параллельный вариант DI цикла. Каждый бин создаётся на переданном executor сразу,
+     * как только созданы все его зависимости, поэтому независимые бины с долгим созданием
+     * или PostConstruct работают одновременно, а время старта равно самому длинному пути в графе зависимостей.
+     * При первой же ошибке все ещё не начатые бины отменяются, метод дожидается уже запущенных
+     * и выбрасывает эту первую ошибку. Зависимости всех бинов проверяются до того, как первый бин отправлен на executor,
+     * поэтому ошибка в графе зависимостей не оставляет после себя работающих задач.
+     * Потоковые бины на executor только регистрируются, а их инстансы создаются в вызывающем потоке
+     * после всех остальных бинов, как и при последовательном старте.
+     *
+     * @param executor executor, на котором создаются бины.
+     * @throws NoDependencyException если зависимость бина не нашлась на предыдущих уровнях зависимостей.
+     */
+    public void instantiateAndRegisterBeans(Executor executor) {
+        try (BootstrapProfiler.Span instantiateSpan = beanContainer.getProfiler().span("instantiateAndRegisterBeans", "instantiate", null)) {
+            var beanDefinitions = beanContainer.getBeanDefinitions();
+            var beanDependencies = beanContainer.getBeanDependencies();
+            Map<String, CompletableFuture<Void>> beanFutures = new LinkedHashMap<>();
+            AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+            Set<String> scheduledBeans = new HashSet<>();
+            for (List<String> level : beanContainer.getDependencyLevels()) {
+                for (String beanName : level) {
+                    for (String dependency : beanDependencies.getOrDefault(beanName, Set.of())) {
+                        if (!scheduledBeans.contains(dependency)) {
+                            throw new NoDependencyException(dependency, "Dependency of bean " + beanName
+                                    + " is not on an earlier dependency level");
+                        }
+                    }
+                    scheduledBeans.add(beanName);
+                }
+            }
+
+            for (List<String> level : beanContainer.getDependencyLevels()) {
+                for (String beanName : level) {
+                    CompletableFuture<?>[] dependencyFutures = beanDependencies.getOrDefault(beanName, Set.of()).stream()
+                            .map(beanFutures::get)
+                            .toArray(CompletableFuture[]::new);
+                    BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+                    CompletableFuture<Void> beanFuture = CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+                        // После первой ошибки еще не начатые бины не создаются
+                        if (firstFailure.get() != null) {
+                            throw new CancellationException("Bean instantiation cancelled: " + beanName);
+                        }
+                        if (beanDefinition.getScope().equals("thread")) {
+                            beanContainer.registerThreadBeanInstance(beanDefinition, threadBeanFactory(beanDefinition));
+                        } else {
+                            instantiateAndRegisterBean(beanDefinition);
+                        }
+                    }, executor);
+                    beanFuture.whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            firstFailure.compareAndSet(null, unwrap(error));
+                        }
+                    });
+                    beanFutures.put(beanName, beanFuture);
+                }
+            }
+
+            try {
+                CompletableFuture.allOf(beanFutures.values().toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable failure = firstFailure.get() != null ? firstFailure.get() : unwrap(e);
+                if (failure instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                throw new ConstructorException("all beans", "Parallel instantiation failed. " + failure.getMessage());
+            }
+
+            // Инстанс стартового потока должен жить в вызывающем потоке, а не в потоке executor
+            for (List<String> level : beanContainer.getDependencyLevels()) {
+                for (String beanName : level) {
+                    if (beanDefinitions.get(beanName).getScope().equals("thread")) {
+                        beanContainer.getThreadLocalBean(beanName);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
     }
 
     /**
      * Создаём и сохраняем инстанс определённого бина, основываясь на его модели.
      * Этот метод запускаем с самого начала, вместе с запуском самого процесса DI, поэтому
      * тут не создаются инстансы бинов типа prototype, их сущность создаётся по мере необходимости,
-     * то есть когда они запрашиваются.
+     * то есть когда они запрашиваются, и бинов типа context, которые создаются в открытом контексте. Для pooled бина заранее создаются {@code min} инстансов его пула.
      *
      * @param beanDefinition модель бина.
      */
     private void instantiateAndRegisterBean(BeanDefinition beanDefinition) {
-            String beanName = (beanDefinition.getName() != null) ? beanDefinition.getName() : beanDefinition.getClassName();
-            String beanScope = beanDefinition.getScope();
-            if (beanScope.equals("prototype")){
-                return;
-            }
-            if (!beanContainer.containsBean(beanName)) {
-                Object beanInstance = createBeanInstance(beanDefinition);
-                invokePostConstruct(beanInstance, beanDefinition);
-                if (beanScope.equals("thread")) {
-                    beanContainer.registerThreadBeanInstance(beanDefinition, () -> createBeanInstance(beanDefinition));
-                } else if (beanScope.equals("singleton")) {
-                    beanContainer.registerSingletonBeanInstance(beanDefinition, beanInstance);
-                }
-            }
+        String beanName = (beanDefinition.getName() != null) ? beanDefinition.getName() : beanDefinition.getClassName();
+        String beanScope = beanDefinition.getScope();
+        if (beanScope.equals("prototype") || beanScope.equals("context") || beanContainer.isLazy(beanDefinition)) {
+            return;
         }
+        if (beanScope.equals("singleton")) {
+            getSingleton(beanDefinition);
+        } else if (beanScope.equals("pooled")) {
+            pool(beanDefinition).prefill();
+        } else if (beanScope.equals("thread") && !beanContainer.containsBean(beanName)) {
+            // Инстанс потока, запустившего контейнер, создаётся сразу и уничтожается при остановке
+            beanContainer.registerThreadBeanInstance(beanDefinition, threadBeanFactory(beanDefinition)).get();
+        }
+    }
+
+    /**
+     * Создание инстанса потокового бина в очередном потоке: так же, как prototype бин, вместе с PostConstruct.
+     *
+     * @param beanDefinition модель потокового бина.
+     * @return фабрика инстансов.
+     */
+    private Supplier<Object> threadBeanFactory(BeanDefinition beanDefinition) {
+        return () -> {
+            Object instance = createBeanInstance(beanDefinition);
+            invokePostConstruct(instance, beanDefinition);
+            return instance;
+        };
+    }
 
     /**
      * Вызов PostConstruct метода, привязанного к бину.
@@ -135,14 +735,16 @@ public class BeanInstanceService {
      * @param beanDefinition модель, описывающая бин
      */
     private void invokePostConstruct(Object beanInstance, BeanDefinition beanDefinition) {
-        Method postConstructMethod = beanDefinition.getPostConstructMethod();
-        if (postConstructMethod != null) {
-            try {
-                postConstructMethod.setAccessible(true);
-                postConstructMethod.invoke(beanInstance);
-                MDC.put("beanName", beanDefinition.getName());
-                log.info("Successfully started PostConstruct method");
-                MDC.remove("beanName");
+        BeanInstantiator instantiator = beanContainer.getInstantiator(beanDefinition);
+        if (instantiator.getPostConstructMethod() != null) {
+            PostConstructEvent postConstructEvent = new PostConstructEvent();
+            postConstructEvent.begin();
+            try (BootstrapProfiler.Span ignored = beanContainer.getProfiler().span("postConstruct", "bean", beanDefinition.getName())) {
+                long start = System.nanoTime();
+                instantiator.invokePostConstruct(beanInstance);
+                beanMetrics(beanDefinition).getPostConstruct().record(System.nanoTime() - start);
+                beanContainer.getEventLog().record(BeanEventType.POST_CONSTRUCT_INVOKED, beanDefinition.getName());
+                postConstructEvent.commit(beanDefinition.getName(), beanDefinition.getScope());
             } catch (Exception e) {
                 throw new PostConstructException(beanDefinition.getName(), "Failed to invoke PostConstruct method");
             }
@@ -151,9 +753,9 @@ public class BeanInstanceService {
 
     /**
      * Функция для создания самого инстанса бина, а затем его сохранения в контейнере.
-     * Происходит проверка на наличие всей необходимой информации в модели бина, иначе выбрасывается ошибка.
-     * Создаются и применяются конструкторы, запускается процесс установки обычных полей в классе
-     * или их inject, если это необходимо для бина.
+     * Все члены класса уже найдены заранее в {@link BeanInstantiator}, поэтому тут
+     * только получаются зависимости и вызываются готовые MethodHandle: конструктор,
+     * запись внедряемых полей и сеттеры из конфигурации.
      *
      * @param beanDefinition модель со всей информации о бине.
      * @return объект, представляющий бин.
@@ -161,66 +763,65 @@ public class BeanInstanceService {
     public Object createBeanInstance(BeanDefinition beanDefinition) {
         String beanName = (beanDefinition.getName() != null) ? beanDefinition.getName() : beanDefinition.getClassName();
 
-        MDC.put("beanName", beanName);
-        log.info("Trying to create bean instance");
-        MDC.remove("beanName");
-        try {
-            Class<?> beanClass = Class.forName(beanDefinition.getClassName());
-            Constructor<?> constructor = beanDefinition.getConstructor();
-            if (constructor == null || constructor.getParameters().length == 0) {
-                // Если конструктор не был задан, ищем конструктор по умолчанию
-                constructor = beanClass.getDeclaredConstructor();
-            }
-            Object[] constructorParams = resolveConstructorParameters(constructor);
-            Object instance = constructor.newInstance(constructorParams);
-
-            var injectedFields = beanDefinition.getInjectedFields();
-            var injectedProviderFields = beanDefinition.getInjectedProviderFields();
+        beanContainer.getEventLog().record(BeanEventType.INSTANCE_CREATING, beanName);
+        BeanCreationEvent creationEvent = new BeanCreationEvent();
+        creationEvent.begin();
+        long start = System.nanoTime();
+        try (BootstrapProfiler.Span ignored = beanContainer.getProfiler().span("createBeanInstance", "bean", beanName)) {
+            BeanInstantiator instantiator = beanContainer.getInstantiator(beanDefinition);
+            Object[] constructorParams = resolveConstructorParameters(beanDefinition, instantiator.getConstructorParameters());
+            Object instance = instantiator.newInstance(constructorParams);
 
             //Внедряем все поля-зависимости, если они есть
-            if (injectedFields != null && !injectedFields.isEmpty()) {
-                for (Field field : injectedFields) {
-                    field.setAccessible(true);
-                    Object fieldInstance = injectField(field);
-                    field.set(instance, fieldInstance);
-                }
+            for (BeanInstantiator.Injection injection : instantiator.getFieldInjections()) {
+                injection.inject(instance, injectDependency(beanDefinition, injection.dependencyName()));
             }
 
-
-            if (injectedProviderFields != null && !injectedProviderFields.isEmpty()) {
-                for (Field field : injectedProviderFields) {
-                    field.setAccessible(true);
-                    Object fieldInstance = injectField(field);
-                    Provider<?> providerField = () -> fieldInstance;
-                    field.set(instance, providerField);
-                }
+            for (BeanInstantiator.Injection injection : instantiator.getProviderInjections()) {
+                Object fieldInstance = injectDependency(beanDefinition, injection.dependencyName());
+                Provider<?> providerField = () -> fieldInstance;
+                injection.inject(instance, providerField);
             }
 
             // Дополнительная инициализация, если требуется
-            applyInitParams(instance, beanDefinition.getInitParams());
+            instantiator.applyInitParams(instance);
+            beanMetrics(beanDefinition).recordConstruction(System.nanoTime() - start);
             return instance;
         } catch (Exception e) {
             throw new ConstructorException(beanName, "Failed to create instance. " + e.getMessage());
+        } finally {
+            creationEvent.commit(beanName, beanDefinition.getScope());
         }
     }
 
     /**
-     * Код для внедрения полей-зависимостей, то есть полей,
-     * помеченных аннотацией Named и Inject
+     * Получаем метрики бина. Время создания бина включает получение его зависимостей.
      *
-     * @param field сущность поля.
+     * @param beanDefinition модель бина.
+     * @return метрики бина.
+     */
+    private BeanMetrics beanMetrics(BeanDefinition beanDefinition) {
+        return beanContainer.getMetrics().getBeanMetrics(
+                (beanDefinition.getName() != null) ? beanDefinition.getName() : beanDefinition.getClassName());
+    }
+
+    /**
+     * Код для внедрения зависимостей по имени бина, то есть полей,
+     * помеченных аннотацией Named и Inject, и параметров конструктора.
+     *
+     * @param ownerDefinition модель бина, в который внедряется зависимость.
+     * @param actualName      имя внедряемого бина.
      * @return созданный инстанс зависимости для дальнейшего внедрения.
      */
-    private Object injectField(Field field) {
-        field.setAccessible(true);
-        Named namedAnnotation = field.getAnnotation(Named.class);
-        String actualName = (namedAnnotation != null ? namedAnnotation.value() : field.getName());
+    private Object injectDependency(BeanDefinition ownerDefinition, String actualName) {
+        BeanInjectionEvent injectionEvent = new BeanInjectionEvent();
+        injectionEvent.begin();
         Object fieldInstance = getBean(actualName);
-        BeanDefinition newFieldBeanDefinition;
         if (fieldInstance == null) {
-            newFieldBeanDefinition = beanContainer.getBeanDefinitions().get(actualName);
+            BeanDefinition newFieldBeanDefinition = beanContainer.getBeanDefinitions().get(actualName);
             fieldInstance = createAndRegisterBeanDependency(newFieldBeanDefinition);
         }
+        injectionEvent.commit(ownerDefinition.getName(), ownerDefinition.getScope(), actualName);
         return fieldInstance;
     }
 
@@ -233,15 +834,16 @@ public class BeanInstanceService {
      * @return инстанс бина.
      */
     private Object createAndRegisterBeanDependency(BeanDefinition beanDefinition) {
+        if (beanDefinition.getScope().equals("singleton")) {
+            // Синглетон создаётся только под своим монитором, чтобы не появилось второго инстанса
+            return getSingleton(beanDefinition);
+        }
+        if (beanDefinition.getScope().equals("thread")) {
+            // Внедряется инстанс текущего потока, чтобы он тоже был уничтожен вместе с потоком
+            return beanContainer.registerThreadBeanInstance(beanDefinition, threadBeanFactory(beanDefinition)).get();
+        }
         Object beanInstance = createBeanInstance(beanDefinition);
         invokePostConstruct(beanInstance, beanDefinition);
-        switch (beanDefinition.getScope()) {
-            case "thread" ->
-                    beanContainer.registerThreadBeanInstance(beanDefinition, () -> createBeanInstance(beanDefinition));
-            case "singleton" -> beanContainer.registerSingletonBeanInstance(beanDefinition, beanInstance);
-            case "prototype" -> {
-            }
-        }
         if (beanInstance == null) {
             throw new NoDependencyException(beanDefinition.getName(), "Error in creating of dependency, can't create instance for this name.");
         }
@@ -250,96 +852,27 @@ public class BeanInstanceService {
     }
 
     /**
-     * Метод для поиска параметров переданного конструктора бина.
-     * Идёт дополнительная проверка на то, является ли параметр в конструкторе Provider,
-     * ищутся параметры в конструкторе по аннотации Named, а если необходимо в процессе
-     * создать другой бин, который еще не был зарегистрирован, то он создаётся и регистрируется.
+     * Метод для поиска параметров конструктора бина.
+     * Для параметров типа Provider передаётся провайдер, который получает бин при каждом вызове,
+     * а если необходимо в процессе создать другой бин, который еще не был зарегистрирован,
+     * то он создаётся и регистрируется.
      *
-     * @param constructor класс конструктора из библиотеки рефлексии.
+     * @param beanDefinition        модель бина, для которого создаются параметры.
+     * @param constructorParameters заранее связанные параметры конструктора.
      * @return созданный набор параметров конструктора.
      */
-    private Object[] resolveConstructorParameters(Constructor<?> constructor) {
-        Class<?>[] paramTypes = constructor.getParameterTypes();
-        Object[] params = new Object[paramTypes.length];
+    private Object[] resolveConstructorParameters(BeanDefinition beanDefinition, BeanInstantiator.ConstructorParameter[] constructorParameters) {
+        Object[] params = new Object[constructorParameters.length];
 
-        for (int i = 0; i < paramTypes.length; i++) {
-            if (Provider.class.isAssignableFrom(paramTypes[i])) {
-                // Получаем актуальный тип для Provider
-                Class<?> actualType = (Class<?>) ((ParameterizedType) constructor.getGenericParameterTypes()[i]).getActualTypeArguments()[0];
-                Provider<?> provider = () -> getBean(actualType.getName());
+        for (int i = 0; i < constructorParameters.length; i++) {
+            String actualName = constructorParameters[i].dependencyName();
+            if (constructorParameters[i].provider()) {
+                Provider<?> provider = () -> getBean(actualName);
                 params[i] = provider;
             } else {
-                // Пытаемся получить имя из аннотации @Named для параметра, если оно есть
-                Annotation[] annotations = constructor.getParameterAnnotations()[i];
-                String namedValue = null;
-                for (Annotation annotation : annotations) {
-                    if (annotation instanceof Named) {
-                        namedValue = ((Named) annotation).value();
-                        break;
-                    }
-                }
-                Object paramsResult;
-                String actualName;
-
-                // Определяем actualName в зависимости от того, задано ли namedValue.
-                actualName = (namedValue != null) ? namedValue : paramTypes[i].getName();
-
-                // Пытаемся получить bean с использованием actualName.
-                paramsResult = getBean(actualName);
-
-                // Если bean не найден, создаем его инстанс.
-                if (paramsResult == null) {
-                    BeanDefinition beanDefinition = beanContainer.getBeanDefinitions().get(actualName);
-                    paramsResult = createAndRegisterBeanDependency(beanDefinition);
-                }
-
-                params[i] = paramsResult;
+                params[i] = injectDependency(beanDefinition, actualName);
             }
         }
         return params;
     }
-
-
-    /**
-     * Установка параметров (полей) в инстанс бина.
-     *
-     * @param instance   уже готовый, созданный инстанс бина
-     * @param initParams параметры бина, полученные из конфигурации.
-     */
-    private void applyInitParams(Object instance, Map<String, Object> initParams) {
-        if (initParams == null || initParams.isEmpty()) {
-            return;
-        }
-        for (Map.Entry<String, Object> entry : initParams.entrySet()) {
-            try {
-                String methodName = entry.getKey();
-                Object value = entry.getValue();
-                Method setterMethod = findMethodByNameAndParameterType(instance.getClass(), methodName, value);
-                setterMethod.invoke(instance, value);
-            } catch (Exception e) {
-                throw new SetterException(entry.getKey(), instance.getClass().getName());
-            }
-        }
-    }
-
-    /**
-     * Поиск метода для установки параметров определённого типа в инстанс бина.
-     *
-     * @param clazz      класс, параметры готова мы ищем.
-     * @param methodName название метода.
-     * @param value      значение параметра.
-     * @return сущность метод из рефлексии.
-     * @throws NoSuchMethodException ошибка, в случае когда метод не был найден.
-     */
-    private Method findMethodByNameAndParameterType(Class<?> clazz, String methodName, Object value) throws NoSuchMethodException {
-        for (Method method : clazz.getMethods()) {
-            if (method.getName().equals(methodName) && method.getParameterTypes().length == 1 && method.getParameterTypes()[0].isAssignableFrom(value.getClass())) {
-                return method;
-            }
-        }
-        MDC.put("beanName", clazz.getName());
-        log.error("No such method: " + methodName);
-        MDC.remove("beanName");
-        throw new NoSuchMethodException(clazz.getName() + "." + methodName + "(...)");
-    }
 }
@@ -0,0 +1,469 @@
+package ru.nsu.services;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import ru.nsu.exception.ConstructorException;
+import ru.nsu.exception.SetterException;
+import ru.nsu.model.BeanDefinition;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Скомпилированная форма модели бина. Создаётся один раз при сборке контейнера
+ * и содержит MethodHandle для конструктора, всех внедряемых полей, сеттеров из initParams
+ * и методов PostConstruct/PreDestroy, а также заранее вычисленные имена зависимостей.
+ * Благодаря этому при создании каждого инстанса не нужно заново искать класс,
+ * вызывать {@code setAccessible} и ходить через {@link Method#invoke}.
+ * Имена зависимостей без аннотации Named вычисляются по их типу через {@link DependencyNameResolver},
+ * и эти же имена используются для построения графа зависимостей.
+ */
+@Getter
+@Slf4j
+public final class BeanInstantiator {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType LIFECYCLE_TYPE = MethodType.methodType(void.class, Object.class);
+
+    /**
+     * {@link InitParamConverter#convert(Object, Type)} для изменяемых значений initParams,
+     * которые преобразуются заново при каждом вызове сеттера.
+     */
+    private static final MethodHandle CONVERT_INIT_PARAM = findConvertInitParam();
+
+    private final BeanDefinition beanDefinition;
+
+    private final Class<?> beanClass;
+
+    private final MethodHandle constructor;
+
+    /**
+     * Параметры конструктора в порядке их объявления.
+     */
+    private final ConstructorParameter[] constructorParameters;
+
+    private final Injection[] fieldInjections;
+
+    private final Injection[] providerInjections;
+
+    /**
+     * Сеттеры из initParams с уже привязанными преобразованными значениями.
+     */
+    private final MethodHandle[] initParamSetters;
+
+    /**
+     * Значения initParams, преобразованные в типы параметров сеттеров.
+     */
+    private final Object[] initParamValues;
+
+    private final MethodHandle postConstructMethod;
+
+    private final MethodHandle preDestroyMethod;
+
+    /**
+     * Метод сброса состояния инстанса из настроек пула или null, если он не задан.
+     */
+    private final MethodHandle poolResetMethod;
+
+    /**
+     * Имена всех бинов, которые внедряются в этот бин через поля и конструктор.
+     */
+    private final Set<String> dependencyNames;
+
+    /**
+     * Способ получить имя бина для точки внедрения.
+     */
+    @FunctionalInterface
+    public interface DependencyNameResolver {
+
+        /**
+         * Получаем имя бина, который нужно внедрить.
+         *
+         * @param beanName     имя бина, в который идёт внедрение.
+         * @param type         тип поля или параметра, для Provider - тип, который он возвращает.
+         * @param namedValue   значение аннотации Named или null, если её нет.
+         * @param fallbackName имя поля или null для параметра конструктора.
+         * @return имя внедряемого бина.
+         */
+        String resolve(String beanName, Class<?> type, String namedValue, String fallbackName);
+    }
+
+    /**
+     * Параметр конструктора бина.
+     *
+     * @param dependencyName имя бина, который передаётся в этот параметр.
+     * @param provider       true, если параметр является Provider и бин нужно получать лениво.
+     */
+    public record ConstructorParameter(String dependencyName, boolean provider) {
+    }
+
+    /**
+     * Сеттер из initParams вместе со значением, уже преобразованным в тип его параметра.
+     *
+     * @param method сеттер.
+     * @param value  преобразованное значение.
+     */
+    record InitParamSetter(Method method, Object value) {
+    }
+
+    /**
+     * Внедряемое поле бина.
+     *
+     * @param setter         MethodHandle для записи значения в поле.
+     * @param dependencyName имя бина, который нужно внедрить.
+     */
+    public record Injection(MethodHandle setter, String dependencyName) {
+
+        /**
+         * Записываем зависимость в поле инстанса.
+         *
+         * @param instance инстанс бина.
+         * @param value    внедряемое значение.
+         */
+        public void inject(Object instance, Object value) throws Exception {
+            try {
+                setter.invokeExact(instance, value);
+            } catch (Throwable e) {
+                throw asException(e);
+            }
+        }
+    }
+
+    private BeanInstantiator(BeanDefinition beanDefinition, Class<?> beanClass, MethodHandle constructor,
+                             ConstructorParameter[] constructorParameters, Injection[] fieldInjections,
+                             Injection[] providerInjections, MethodHandle[] initParamSetters, Object[] initParamValues,
+                             MethodHandle postConstructMethod, MethodHandle preDestroyMethod,
+                             MethodHandle poolResetMethod) {
+        this.beanDefinition = beanDefinition;
+        this.beanClass = beanClass;
+        this.constructor = constructor;
+        this.constructorParameters = constructorParameters;
+        this.fieldInjections = fieldInjections;
+        this.providerInjections = providerInjections;
+        this.initParamSetters = initParamSetters;
+        this.initParamValues = initParamValues;
+        this.postConstructMethod = postConstructMethod;
+        this.preDestroyMethod = preDestroyMethod;
+        this.poolResetMethod = poolResetMethod;
+        Set<String> names = new LinkedHashSet<>();
+        for (ConstructorParameter parameter : constructorParameters) {
+            names.add(parameter.dependencyName());
+        }
+        for (Injection injection : fieldInjections) {
+            names.add(injection.dependencyName());
+        }
+        for (Injection injection : providerInjections) {
+            names.add(injection.dependencyName());
+        }
+        this.dependencyNames = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Получаем класс бина по его модели.
+     *
+     * @param beanDefinition модель бина.
+     * @return класс бина.
+     */
+    public static Class<?> loadBeanClass(BeanDefinition beanDefinition) {
+        if (beanDefinition.getConstructor() != null) {
+            return beanDefinition.getConstructor().getDeclaringClass();
+        }
+        try {
+            return Class.forName(beanDefinition.getClassName());
+        } catch (ClassNotFoundException e) {
+            String beanName = (beanDefinition.getName() != null) ? beanDefinition.getName() : beanDefinition.getClassName();
+            throw new ConstructorException(beanName, "Failed to link bean. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Связываем модель бина: находим все нужные члены класса и превращаем их в MethodHandle.
+     *
+     * @param beanDefinition модель бина.
+     * @param nameResolver   способ получить имя внедряемого бина по типу точки внедрения.
+     * @return скомпилированная форма бина.
+     */
+    public static BeanInstantiator link(BeanDefinition beanDefinition, DependencyNameResolver nameResolver) {
+        String beanName = (beanDefinition.getName() != null) ? beanDefinition.getName() : beanDefinition.getClassName();
+        try {
+            Constructor<?> selectedConstructor = beanDefinition.getConstructor();
+            Class<?> beanClass = loadBeanClass(beanDefinition);
+            if (selectedConstructor == null || selectedConstructor.getParameterCount() == 0) {
+                // Если конструктор не был задан, ищем конструктор по умолчанию
+                selectedConstructor = beanClass.getDeclaredConstructor();
+            }
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(beanClass, MethodHandles.lookup());
+
+            MethodHandle constructorHandle = lookup.unreflectConstructor(selectedConstructor)
+                    .asType(MethodType.genericMethodType(selectedConstructor.getParameterCount()))
+                    .asSpreader(Object[].class, selectedConstructor.getParameterCount());
+
+            MethodHandle[] initParamSetters = new MethodHandle[0];
+            Object[] initParamValues = new Object[0];
+            Map<String, Object> initParams = beanDefinition.getInitParams();
+            if (initParams != null && !initParams.isEmpty()) {
+                initParamSetters = new MethodHandle[initParams.size()];
+                initParamValues = new Object[initParams.size()];
+                int i = 0;
+                for (Map.Entry<String, Object> entry : initParams.entrySet()) {
+                    initParamValues[i] = linkInitParam(lookup, beanClass, entry.getKey(), entry.getValue(), initParamSetters, i);
+                    i++;
+                }
+            }
+
+            return new BeanInstantiator(beanDefinition, beanClass, constructorHandle,
+                    linkConstructorParameters(beanName, selectedConstructor, nameResolver),
+                    linkFields(beanName, lookup, beanDefinition.getInjectedFields(), false, nameResolver),
+                    linkFields(beanName, lookup, beanDefinition.getInjectedProviderFields(), true, nameResolver),
+                    initParamSetters, initParamValues,
+                    linkLifecycleMethod(lookup, beanDefinition.getPostConstructMethod()),
+                    linkLifecycleMethod(lookup, beanDefinition.getPreDestroyMethod()),
+                    linkPoolResetMethod(lookup, beanClass, beanDefinition));
+        } catch (ReflectiveOperationException e) {
+            throw new ConstructorException(beanName, "Failed to link bean. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Создаём новый инстанс бина через конструктор.
+     *
+     * @param constructorParams уже полученные параметры конструктора.
+     * @return новый инстанс бина.
+     */
+    public Object newInstance(Object[] constructorParams) throws Exception {
+        try {
+            return (Object) constructor.invokeExact(constructorParams);
+        } catch (Throwable e) {
+            throw asException(e);
+        }
+    }
+
+    /**
+     * Устанавливаем значения из initParams через заранее найденные сеттеры.
+     *
+     * @param instance инстанс бина.
+     */
+    public void applyInitParams(Object instance) throws Exception {
+        try {
+            for (int i = 0; i < initParamSetters.length; i++) {
+                initParamSetters[i].invokeExact(instance);
+            }
+        } catch (Throwable e) {
+            throw asException(e);
+        }
+    }
+
+    /**
+     * Вызываем PostConstruct метод, если он есть.
+     *
+     * @param instance инстанс бина.
+     */
+    public void invokePostConstruct(Object instance) throws Exception {
+        invokeLifecycleMethod(postConstructMethod, instance);
+    }
+
+    /**
+     * Вызываем PreDestroy метод, если он есть.
+     *
+     * @param instance инстанс бина.
+     */
+    public void invokePreDestroy(Object instance) throws Exception {
+        invokeLifecycleMethod(preDestroyMethod, instance);
+    }
+
+    /**
+     * Вызываем метод сброса состояния инстанса перед его возвратом в пул, если он задан.
+     *
+     * @param instance инстанс бина.
+     */
+    public void invokePoolReset(Object instance) throws Exception {
+        invokeLifecycleMethod(poolResetMethod, instance);
+    }
+
+    private static void invokeLifecycleMethod(MethodHandle method, Object instance) throws Exception {
+        if (method == null) {
+            return;
+        }
+        try {
+            method.invokeExact(instance);
+        } catch (Throwable e) {
+            throw asException(e);
+        }
+    }
+
+    /**
+     * Вычисляем имена бинов для параметров конструктора: значение Named, если оно есть,
+     * а иначе имя единственного бина подходящего типа. Для Provider берётся тип, который он возвращает.
+     *
+     * @param beanName     имя связываемого бина.
+     * @param constructor  выбранный конструктор.
+     * @param nameResolver способ получить имя бина по типу.
+     * @return описание параметров.
+     */
+    private static ConstructorParameter[] linkConstructorParameters(String beanName, Constructor<?> constructor,
+                                                                    DependencyNameResolver nameResolver) {
+        Class<?>[] paramTypes = constructor.getParameterTypes();
+        Type[] genericTypes = constructor.getGenericParameterTypes();
+        Annotation[][] parameterAnnotations = constructor.getParameterAnnotations();
+        ConstructorParameter[] parameters = new ConstructorParameter[paramTypes.length];
+        for (int i = 0; i < paramTypes.length; i++) {
+            String namedValue = null;
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Named) {
+                    namedValue = ((Named) annotation).value();
+                    break;
+                }
+            }
+            boolean provider = Provider.class.isAssignableFrom(paramTypes[i]);
+            // Для Provider внедряется бин того типа, который он возвращает
+            Class<?> dependencyType = provider ? providedType(genericTypes[i]) : paramTypes[i];
+            parameters[i] = new ConstructorParameter(nameResolver.resolve(beanName, dependencyType, namedValue, null), provider);
+        }
+        return parameters;
+    }
+
+    private static Injection[] linkFields(String beanName, MethodHandles.Lookup lookup, List<Field> fields,
+                                          boolean provider, DependencyNameResolver nameResolver) throws IllegalAccessException {
+        if (fields == null || fields.isEmpty()) {
+            return new Injection[0];
+        }
+        Injection[] injections = new Injection[fields.size()];
+        for (int i = 0; i < injections.length; i++) {
+            Field field = fields.get(i);
+            // Без этого нельзя получить сеттер для final поля
+            field.setAccessible(true);
+            Named namedAnnotation = field.getAnnotation(Named.class);
+            Class<?> dependencyType = provider ? providedType(field.getGenericType()) : field.getType();
+            String actualName = nameResolver.resolve(beanName, dependencyType,
+                    namedAnnotation != null ? namedAnnotation.value() : null, field.getName());
+            injections[i] = new Injection(lookup.unreflectSetter(field).asType(SETTER_TYPE), actualName);
+        }
+        return injections;
+    }
+
+    /**
+     * Тип, который возвращает Provider, или Object, если Provider объявлен без параметра.
+     */
+    private static Class<?> providedType(Type providerType) {
+        if (providerType instanceof ParameterizedType parameterizedType
+                && parameterizedType.getActualTypeArguments()[0] instanceof Class<?> actualType) {
+            return actualType;
+        }
+        return Object.class;
+    }
+
+    private static MethodHandle linkPoolResetMethod(MethodHandles.Lookup lookup, Class<?> beanClass,
+                                                    BeanDefinition beanDefinition) throws ReflectiveOperationException {
+        if (beanDefinition.getPool() == null || beanDefinition.getPool().getResetMethod() == null) {
+            return null;
+        }
+        return linkLifecycleMethod(lookup, beanClass.getMethod(beanDefinition.getPool().getResetMethod()));
+    }
+
+    private static MethodHandle linkLifecycleMethod(MethodHandles.Lookup lookup, Method method) throws IllegalAccessException {
+        if (method == null) {
+            return null;
+        }
+        return lookup.unreflect(method).asType(LIFECYCLE_TYPE);
+    }
+
+    /**
+     * Связываем сеттер из initParams, найденный через {@link #findInitParamSetter(Class, String, Object)}.
+     * Значение привязывается к MethodHandle сеттера, поэтому примитивы хранятся без упаковки,
+     * а при создании инстанса остаётся только вызвать сеттер.
+     * Изменяемые значения, например массивы или {@code ArrayList}, нельзя разделять между инстансами,
+     * поэтому к сеттеру привязывается их преобразование из json, и каждый инстанс получает свою копию.
+     *
+     * @param lookup           lookup с доступом к классу бина.
+     * @param beanClass        класс бина.
+     * @param setterName       название сеттера из initParams.
+     * @param value            значение из json.
+     * @param initParamSetters массив, в который записывается сеттер с привязанным значением.
+     * @param index            позиция параметра в массиве.
+     * @return преобразованное значение.
+     */
+    private static Object linkInitParam(MethodHandles.Lookup lookup, Class<?> beanClass, String setterName, Object value,
+                                        MethodHandle[] initParamSetters, int index) throws IllegalAccessException {
+        InitParamSetter initParamSetter = findInitParamSetter(beanClass, setterName, value);
+        Method setterMethod = initParamSetter.method();
+        Type parameterType = setterMethod.getGenericParameterTypes()[0];
+        if (InitParamConverter.isMutable(value, parameterType)) {
+            MethodHandle freshValue = MethodHandles.insertArguments(CONVERT_INIT_PARAM, 0, value, parameterType);
+            initParamSetters[index] = MethodHandles.collectArguments(lookup.unreflect(setterMethod).asType(SETTER_TYPE), 1, freshValue);
+        } else {
+            initParamSetters[index] = MethodHandles.insertArguments(lookup.unreflect(setterMethod), 1, initParamSetter.value())
+                    .asType(LIFECYCLE_TYPE);
+        }
+        return initParamSetter.value();
+    }
+
+    /**
+     * Находим публичный сеттер для параметра из initParams и преобразуем значение из json в тип его параметра.
+     * Сначала пробуются сеттеры, которые принимают значение как есть, затем сеттеры, в тип которых значение
+     * можно преобразовать через {@link InitParamConverter}. Этот же выбор использует {@link ContainerSourceGenerator}.
+     *
+     * @param beanClass  класс бина.
+     * @param setterName название сеттера из initParams.
+     * @param value      значение из json.
+     * @return сеттер и преобразованное значение.
+     * @throws SetterException ошибка, если подходящего сеттера нет.
+     */
+    static InitParamSetter findInitParamSetter(Class<?> beanClass, String setterName, Object value) {
+        List<Method> candidates = new ArrayList<>();
+        for (Method method : beanClass.getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1) {
+                candidates.add(method);
+            }
+        }
+        // Сеттеры, которые принимают значение из json без преобразования, проверяются первыми
+        candidates.sort(Comparator.comparing(method -> !InitParamConverter.isDirectlyAssignable(value, method.getParameterTypes()[0])));
+
+        String conversionError = "no such method";
+        for (Method setterMethod : candidates) {
+            try {
+                return new InitParamSetter(setterMethod, InitParamConverter.convert(value, setterMethod.getGenericParameterTypes()[0]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                conversionError = e.getMessage();
+            }
+        }
+        MDC.put("beanName", beanClass.getName());
+        log.error("Can't apply init param " + setterName + ": " + conversionError);
+        MDC.remove("beanName");
+        throw new SetterException(setterName, beanClass.getName() + ". " + conversionError);
+    }
+
+    private static MethodHandle findConvertInitParam() {
+        try {
+            return MethodHandles.lookup().findStatic(InitParamConverter.class, "convert",
+                    MethodType.methodType(Object.class, Object.class, Type.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Failed to find init param converter", e);
+        }
+    }
+
+    private static Exception asException(Throwable throwable) {
+        if (throwable instanceof Error error) {
+            throw error;
+        }
+        return (Exception) throwable;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.nsu.services;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Инстанс бина со scope {@code pooled}, взятый из пула на время. Удобно использовать в try-with-resources:
+ * при закрытии инстанс возвращается в пул, повторное закрытие ничего не делает.
+ * <pre>{@code
+ * try (BeanLease<Parser> lease = beanInstanceService.leaseBean("parser")) {
+ *     lease.get().parse(input);
+ * }
+ * }</pre>
+ *
+ * @param <T> тип бина.
+ */
+public final class BeanLease<T> implements AutoCloseable {
+
+    private final BeanPool pool;
+
+    private final T instance;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    BeanLease(BeanPool pool, T instance) {
+        this.pool = pool;
+        this.instance = instance;
+    }
+
+    /**
+     * @return взятый из пула инстанс.
+     * @throws IllegalStateException если инстанс уже возвращён в пул.
+     */
+    public T get() {
+        if (released.get()) {
+            throw new IllegalStateException("Pooled bean " + pool.getBeanName() + " has already been returned to the pool");
+        }
+        return instance;
+    }
+
+    /**
+     * Возвращаем инстанс в пул.
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(instance);
+        }
+    }
+}
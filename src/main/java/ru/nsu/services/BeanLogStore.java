@@ -0,0 +1,373 @@
+package ru.nsu.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Хранилище логов бинов с индексом по имени бина.
+ * Для каждого файла в папке логов хранятся смещения строк каждого бина и время записи этих строк.
+ * Индекс строится постепенно: при каждом запросе дочитываются только новые байты файлов,
+ * причём файлы читаются через отображение в память кусками по {@value #SEGMENT_SIZE} байт.
+ * Файлы различаются по их идентификатору в файловой системе, поэтому переименование файла
+ * при ротации логов не требует заново строить его индекс.
+ * Результат запроса - ленивый поток строк, который читает строки из файлов только при обходе.
+ */
+public class BeanLogStore {
+
+    private static final int SEGMENT_SIZE = 16 << 20;
+
+    private static final byte[] NAME_FIELD = "\"name\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] TIMESTAMP_FIELD = "\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Формат времени ISO8601 из log4j.properties.
+     */
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+
+    private final Path logDirectory;
+
+    private final Map<Object, IndexedFile> files = new HashMap<>();
+
+    /**
+     * Конструктор хранилища.
+     *
+     * @param logDirectory папка, в которой лежат файлы логов.
+     */
+    public BeanLogStore(Path logDirectory) {
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * Получаем все строки логов бина с точным совпадением имени.
+     * Поток нужно закрыть после использования, например через try-with-resources.
+     *
+     * @param beanName имя бина.
+     * @param from     начало интервала времени включительно или null.
+     * @param to       конец интервала времени не включительно или null.
+     * @return ленивый поток строк логов, отсортированный по файлам от старых записей к новым.
+     * @throws IOException ошибка чтения папки с логами.
+     */
+    public Stream<String> query(String beanName, Instant from, Instant to) throws IOException {
+        long fromMillis = (from != null) ? from.toEpochMilli() : Long.MIN_VALUE;
+        long toMillis = (to != null) ? to.toEpochMilli() : Long.MAX_VALUE;
+        List<FileEntries> matches = new ArrayList<>();
+        synchronized (this) {
+            refresh();
+            for (IndexedFile indexedFile : files.values()) {
+                Entries entries = indexedFile.entriesByName.get(beanName);
+                if (entries != null) {
+                    matches.add(entries.snapshot(indexedFile.path));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingLong(FileEntries::firstTimestamp));
+        return matches.stream().flatMap(fileEntries -> fileEntries.lines(fromMillis, toMillis));
+    }
+
+    /**
+     * Дочитываем в индекс новые строки всех файлов логов, а индексы удалённых файлов забываем.
+     *
+     * @throws IOException ошибка чтения папки или файлов логов.
+     */
+    public synchronized void refresh() throws IOException {
+        if (!Files.isDirectory(logDirectory)) {
+            files.clear();
+            return;
+        }
+        Set<Object> existingFiles = new HashSet<>();
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(logDirectory)) {
+            paths = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path path : paths) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // Файл удалили во время ротации логов
+                continue;
+            }
+            Object key = (attributes.fileKey() != null) ? attributes.fileKey() : path.toAbsolutePath();
+            existingFiles.add(key);
+            IndexedFile indexedFile = files.computeIfAbsent(key, ignored -> new IndexedFile());
+            indexedFile.path = path;
+            if (attributes.size() < indexedFile.indexedLength) {
+                // Файл перезаписан с начала
+                indexedFile.entriesByName.clear();
+                indexedFile.indexedLength = 0;
+            }
+            if (attributes.size() > indexedFile.indexedLength) {
+                indexFile(indexedFile, attributes.size());
+            }
+        }
+        files.keySet().retainAll(existingFiles);
+    }
+
+    /**
+     * Индексируем байты файла от уже проиндексированной длины до конца последней полной строки.
+     */
+    private void indexFile(IndexedFile indexedFile, long fileSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexedFile.path, StandardOpenOption.READ)) {
+            long position = indexedFile.indexedLength;
+            while (position < fileSize) {
+                int size = (int) Math.min(SEGMENT_SIZE, fileSize - position);
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                int lineStart = 0;
+                for (int i = 0; i < size; i++) {
+                    if (segment.get(i) == '\n') {
+                        indexLine(indexedFile, segment, lineStart, i, position + lineStart);
+                        lineStart = i + 1;
+                    }
+                }
+                if (lineStart == 0) {
+                    if (size < SEGMENT_SIZE) {
+                        // Последняя строка ещё дописывается, проиндексируем её в следующий раз
+                        break;
+                    }
+                    // Строка длиннее сегмента не может быть строкой лога бина, пропускаем сегмент
+                    lineStart = size;
+                }
+                position += lineStart;
+            }
+            indexedFile.indexedLength = position;
+        }
+    }
+
+    private void indexLine(IndexedFile indexedFile, MappedByteBuffer segment, int start, int end, long offset) {
+        int lineEnd = (end > start && segment.get(end - 1) == '\r') ? end - 1 : end;
+        String name = readField(segment, start, lineEnd, NAME_FIELD);
+        if (name == null) {
+            return;
+        }
+        String timestamp = readField(segment, start, lineEnd, TIMESTAMP_FIELD);
+        indexedFile.entriesByName.computeIfAbsent(name, ignored -> new Entries())
+                .add(offset, lineEnd - start, parseTimestamp(timestamp));
+    }
+
+    /**
+     * Читаем строковое значение поля JSON строки лога.
+     *
+     * @return значение поля или null, если поля нет.
+     */
+    private static String readField(MappedByteBuffer segment, int start, int end, byte[] field) {
+        int valueStart = indexOf(segment, start, end, field);
+        if (valueStart < 0) {
+            return null;
+        }
+        valueStart += field.length;
+        byte[] bytes = new byte[end - valueStart];
+        int length = 0;
+        for (int i = valueStart; i < end; i++) {
+            byte current = segment.get(i);
+            if (current == '\\' && i + 1 < end) {
+                bytes[length++] = segment.get(++i);
+            } else if (current == '"') {
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            } else {
+                bytes[length++] = current;
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(MappedByteBuffer segment, int start, int end, byte[] pattern) {
+        outer:
+        for (int i = start; i <= end - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (segment.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static long parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return LocalDateTime.parse(timestamp, TIMESTAMP_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Проиндексированный файл логов.
+     */
+    private static final class IndexedFile {
+
+        private Path path;
+
+        private long indexedLength;
+
+        private final Map<String, Entries> entriesByName = new HashMap<>();
+    }
+
+    /**
+     * Строки одного бина в одном файле: смещение, длина и время каждой строки в примитивных массивах.
+     */
+    private static final class Entries {
+
+        private long[] offsets = new long[8];
+
+        private int[] lengths = new int[8];
+
+        private long[] timestamps = new long[8];
+
+        private int size;
+
+        private void add(long offset, int length, long timestamp) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            timestamps[size] = timestamp;
+            size++;
+        }
+
+        /**
+         * Массивы только дописываются, поэтому для снимка достаточно запомнить ссылки и текущий размер.
+         */
+        private FileEntries snapshot(Path path) {
+            return new FileEntries(path, offsets, lengths, timestamps, size);
+        }
+    }
+
+    /**
+     * Снимок строк одного бина в одном файле, по которому строится ленивый поток строк.
+     */
+    private record FileEntries(Path path, long[] offsets, int[] lengths, long[] timestamps, int size) {
+
+        private long firstTimestamp() {
+            return timestamps[0];
+        }
+
+        private Stream<String> lines(long fromMillis, long toMillis) {
+            LineIterator iterator = new LineIterator(this, fromMillis, toMillis);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+        }
+    }
+
+    /**
+     * Итератор по строкам одного файла. Файл открывается при первом обращении,
+     * а строки читаются из отображённого в память сегмента, который сдвигается по мере обхода.
+     */
+    private static final class LineIterator implements Iterator<String> {
+
+        private final FileEntries entries;
+
+        private final long fromMillis;
+
+        private final long toMillis;
+
+        private FileChannel channel;
+
+        private MappedByteBuffer segment;
+
+        private long segmentStart;
+
+        private int segmentSize;
+
+        private int next = -1;
+
+        private LineIterator(FileEntries entries, long fromMillis, long toMillis) {
+            this.entries = entries;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next < 0) {
+                next = 0;
+                advance();
+            }
+            return next < entries.size();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = readLine(entries.offsets()[next], entries.lengths()[next]);
+            next++;
+            advance();
+            return line;
+        }
+
+        private void advance() {
+            while (next < entries.size()) {
+                long timestamp = entries.timestamps()[next];
+                boolean inRange = (fromMillis == Long.MIN_VALUE || timestamp >= fromMillis)
+                        && (toMillis == Long.MAX_VALUE || (timestamp != Long.MIN_VALUE && timestamp < toMillis));
+                if (inRange) {
+                    return;
+                }
+                next++;
+            }
+        }
+
+        private String readLine(long offset, int length) {
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(entries.path(), StandardOpenOption.READ);
+                }
+                if (segment == null || offset < segmentStart || offset + length > segmentStart + segmentSize) {
+                    segmentStart = offset;
+                    segmentSize = (int) Math.min(Math.max(SEGMENT_SIZE, length), channel.size() - offset);
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentSize);
+                }
+                byte[] bytes = new byte[length];
+                segment.get((int) (offset - segmentStart), bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void close() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
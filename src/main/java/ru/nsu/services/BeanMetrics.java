@@ -0,0 +1,149 @@
+package ru.nsu.services;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики одного бина: счётчики вызовов и гистограммы длительностей создания и методов жизненного цикла.
+ */
+public final class BeanMetrics implements BeanMetricsMXBean {
+
+    @Getter
+    private final String beanName;
+
+    @Getter
+    private final String scope;
+
+    private final LongAdder getBeanCalls = new LongAdder();
+
+    private final LongAdder prototypeCreations = new LongAdder();
+
+    private final LongAdder threadInstanceCreations = new LongAdder();
+
+    private final LongAdder liveThreadInstances = new LongAdder();
+
+    @Getter
+    private final LatencyHistogram construction = new LatencyHistogram();
+
+    @Getter
+    private final LatencyHistogram postConstruct = new LatencyHistogram();
+
+    @Getter
+    private final LatencyHistogram preDestroy = new LatencyHistogram();
+
+    public BeanMetrics(String beanName, String scope) {
+        this.beanName = beanName;
+        this.scope = scope;
+    }
+
+    void recordGetBean() {
+        getBeanCalls.increment();
+    }
+
+    /**
+     * Записываем создание инстанса: длительность и, для prototype и потоковых бинов, счётчик созданных инстансов.
+     */
+    void recordConstruction(long nanos) {
+        construction.record(nanos);
+        if (scope.equals("prototype")) {
+            prototypeCreations.increment();
+        } else if (scope.equals("thread")) {
+            threadInstanceCreations.increment();
+        }
+    }
+
+    @Override
+    public long getGetBeanCalls() {
+        return getBeanCalls.sum();
+    }
+
+    @Override
+    public long getPrototypeCreations() {
+        return prototypeCreations.sum();
+    }
+
+    /**
+     * Записываем, что инстанс потокового бина привязан к потоку.
+     */
+    void recordThreadInstanceTracked() {
+        liveThreadInstances.increment();
+    }
+
+    /**
+     * Записываем, что у инстанса потокового бина вызван PreDestroy после завершения его потока или при остановке.
+     */
+    void recordThreadInstanceDestroyed() {
+        liveThreadInstances.decrement();
+    }
+
+    @Override
+    public long getThreadInstanceCreations() {
+        return threadInstanceCreations.sum();
+    }
+
+    @Override
+    public long getLiveThreadInstances() {
+        return liveThreadInstances.sum();
+    }
+
+    @Override
+    public long getConstructionCount() {
+        return construction.getCount();
+    }
+
+    @Override
+    public double getConstructionMeanNanos() {
+        return construction.getMeanNanos();
+    }
+
+    @Override
+    public long getConstructionP99Nanos() {
+        return construction.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getConstructionMaxNanos() {
+        return construction.getMaxNanos();
+    }
+
+    @Override
+    public long getPostConstructCount() {
+        return postConstruct.getCount();
+    }
+
+    @Override
+    public double getPostConstructMeanNanos() {
+        return postConstruct.getMeanNanos();
+    }
+
+    @Override
+    public long getPostConstructP99Nanos() {
+        return postConstruct.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getPostConstructMaxNanos() {
+        return postConstruct.getMaxNanos();
+    }
+
+    @Override
+    public long getPreDestroyCount() {
+        return preDestroy.getCount();
+    }
+
+    @Override
+    public double getPreDestroyMeanNanos() {
+        return preDestroy.getMeanNanos();
+    }
+
+    @Override
+    public long getPreDestroyP99Nanos() {
+        return preDestroy.getPercentileNanos(99);
+    }
+
+    @Override
+    public long getPreDestroyMaxNanos() {
+        return preDestroy.getMaxNanos();
+    }
+}
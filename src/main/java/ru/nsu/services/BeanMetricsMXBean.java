@@ -0,0 +1,43 @@
+package ru.nsu.services;
+
+/**
+ * Метрики одного бина, доступные через JMX.
+ */
+public interface BeanMetricsMXBean {
+
+    String getBeanName();
+
+    String getScope();
+
+    long getGetBeanCalls();
+
+    long getPrototypeCreations();
+
+    long getThreadInstanceCreations();
+
+    long getLiveThreadInstances();
+
+    long getConstructionCount();
+
+    double getConstructionMeanNanos();
+
+    long getConstructionP99Nanos();
+
+    long getConstructionMaxNanos();
+
+    long getPostConstructCount();
+
+    double getPostConstructMeanNanos();
+
+    long getPostConstructP99Nanos();
+
+    long getPostConstructMaxNanos();
+
+    long getPreDestroyCount();
+
+    double getPreDestroyMeanNanos();
+
+    long getPreDestroyP99Nanos();
+
+    long getPreDestroyMaxNanos();
+}
@@ -0,0 +1,336 @@
+package ru.nsu.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import ru.nsu.exception.PoolExhaustedException;
+import ru.nsu.model.PoolSettings;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Пул инстансов бина со scope {@code pooled}. Дорогие в создании бины (парсеры, буферы, форматтеры)
+ * не создаются заново при каждом запросе, а выдаются из пула и возвращаются в него.
+ * <p>
+ * Свободные инстансы хранятся в неблокирующей {@link ConcurrentLinkedDeque} в порядке LIFO, чтобы чаще выдавались
+ * недавно использованные и ещё прогретые инстансы, а число выданных инстансов ограничено {@link Semaphore},
+ * у которого быстрый путь - одна CAS операция. Всего живых инстансов не больше {@code max}.
+ * При возврате вызывается метод сброса из настроек пула, а если он упал, то инстанс уничтожается.
+ * Выданные инстансы запоминаются по ссылке, поэтому вернуть можно только выданный этим пулом инстанс и только один раз.
+ * Свободные инстансы сверх {@code min}, которые простаивают дольше {@code idleTimeout}, вытесняются общим фоновым потоком,
+ * и у них вызывается PreDestroy. При закрытии пула PreDestroy вызывается у всех свободных инстансов,
+ * а выданные уничтожаются при возврате.
+ */
+@Slf4j
+public class BeanPool {
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bean-pool-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final long MIN_EVICTION_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String beanName;
+
+    private final Supplier<Object> factory;
+
+    private final Consumer<Object> resetter;
+
+    private final Consumer<Object> destroyer;
+
+    private final int min;
+
+    private final int max;
+
+    private final long idleTimeoutNanos;
+
+    private final long maxWaitNanos;
+
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedDeque<IdleInstance> idleInstances = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Выданные и ещё не возвращённые инстансы, сравниваются по ссылке.
+     */
+    private final Set<BorrowedInstance> borrowedInstances = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final AtomicInteger liveCount = new AtomicInteger();
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder evictedCount = new LongAdder();
+
+    private final ScheduledFuture<?> evictionTask;
+
+    private volatile boolean closed;
+
+    /**
+     * Конструктор пула.
+     *
+     * @param beanName  имя бина.
+     * @param settings  настройки пула из json.
+     * @param factory   создание нового инстанса вместе с внедрением зависимостей и PostConstruct.
+     * @param resetter  сброс состояния инстанса при возврате в пул.
+     * @param destroyer уничтожение инстанса, то есть вызов его PreDestroy.
+     * @throws ru.nsu.exception.WrongJsonException если размеры пула некорректны.
+     */
+    public BeanPool(String beanName, PoolSettings settings, Supplier<Object> factory,
+                    Consumer<Object> resetter, Consumer<Object> destroyer) {
+        settings.validate(beanName);
+        this.beanName = beanName;
+        this.factory = factory;
+        this.resetter = resetter;
+        this.destroyer = destroyer;
+        this.min = settings.getMin();
+        this.max = settings.getMax();
+        this.idleTimeoutNanos = toNanos(settings.getIdleTimeout());
+        this.maxWaitNanos = toNanos(settings.getMaxWait());
+        this.permits = new Semaphore(max);
+        if (idleTimeoutNanos > 0) {
+            long period = Math.max(idleTimeoutNanos / 2, MIN_EVICTION_PERIOD_NANOS);
+            this.evictionTask = EVICTOR.scheduleAtFixedRate(this::evictIdleInstances, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.evictionTask = null;
+        }
+    }
+
+    private static long toNanos(Object duration) {
+        if (duration == null) {
+            return 0;
+        }
+        return ((Duration) InitParamConverter.convert(duration, Duration.class)).toNanos();
+    }
+
+    /**
+     * Заранее создаём {@code min} свободных инстансов, вызывается при старте контейнера.
+     */
+    public void prefill() {
+        while (!closed && liveCount.get() < min) {
+            Object instance = factory.get();
+            liveCount.incrementAndGet();
+            createdCount.increment();
+            idleInstances.offerLast(new IdleInstance(instance, System.nanoTime()));
+            idleCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Берём инстанс из пула: свободный, а если свободных нет - новый. Если выданы все {@code max} инстансов,
+     * то ждём возврата не дольше {@code maxWait}. Инстанс нужно вернуть через {@link #release(Object)}.
+     *
+     * @return инстанс бина.
+     * @throws PoolExhaustedException если инстанс не вернули за время ожидания или пул закрыт.
+     */
+    public Object borrow() {
+        if (closed) {
+            throw new PoolExhaustedException(beanName, "Pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw new PoolExhaustedException(beanName, "All " + max + " instances are in use after waiting "
+                        + Duration.ofNanos(maxWaitNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PoolExhaustedException(beanName, "Interrupted while waiting for a free instance");
+        }
+        try {
+            borrowCount.increment();
+            Object instance;
+            IdleInstance idleInstance = idleInstances.pollFirst();
+            if (idleInstance != null) {
+                idleCount.decrementAndGet();
+                instance = idleInstance.instance();
+            } else {
+                instance = factory.get();
+                liveCount.incrementAndGet();
+                createdCount.increment();
+            }
+            borrowedInstances.add(new BorrowedInstance(instance));
+            return instance;
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращаем инстанс в пул. Перед этим вызывается метод сброса, а если пул уже закрыт
+     * или сброс упал, то инстанс уничтожается.
+     *
+     * @param instance инстанс, полученный из {@link #borrow()}.
+     * @throws IllegalArgumentException если инстанс не выдан этим пулом или уже возвращён.
+     */
+    public void release(Object instance) {
+        if (!borrowedInstances.remove(new BorrowedInstance(instance))) {
+            throw new IllegalArgumentException("Instance wasn't borrowed from pool of bean " + beanName + " or has already been returned");
+        }
+        try {
+            if (closed) {
+                destroy(instance);
+                return;
+            }
+            try {
+                resetter.accept(instance);
+            } catch (RuntimeException e) {
+                MDC.put("beanName", beanName);
+                log.warn("Failed to reset pooled instance, destroying it", e);
+                MDC.remove("beanName");
+                destroy(instance);
+                return;
+            }
+            idleInstances.offerFirst(new IdleInstance(instance, System.nanoTime()));
+            idleCount.incrementAndGet();
+            if (closed) {
+                // Пул закрыли во время возврата, свободные инстансы уничтожает последний, кто их видит
+                destroyIdleInstances();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Вытесняем свободные инстансы сверх {@code min}, которые простаивают дольше {@code idleTimeout}.
+     * Самые давно возвращённые инстансы лежат в конце очереди.
+     */
+    void evictIdleInstances() {
+        long now = System.nanoTime();
+        while (!closed && idleCount.get() > min) {
+            IdleInstance oldest = idleInstances.peekLast();
+            if (oldest == null || now - oldest.returnedAt() < idleTimeoutNanos) {
+                return;
+            }
+            // Инстанс могли выдать между peekLast и удалением, тогда просто смотрим следующий
+            if (idleInstances.removeLastOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                evictedCount.increment();
+                destroy(oldest.instance());
+            }
+        }
+    }
+
+    /**
+     * Закрываем пул: останавливаем вытеснение и уничтожаем все свободные инстансы.
+     * Выданные инстансы уничтожаются, когда их вернут.
+     */
+    public void close() {
+        closed = true;
+        if (evictionTask != null) {
+            evictionTask.cancel(false);
+        }
+        destroyIdleInstances();
+    }
+
+    private void destroyIdleInstances() {
+        IdleInstance idleInstance;
+        while ((idleInstance = idleInstances.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(idleInstance.instance());
+        }
+    }
+
+    private void destroy(Object instance) {
+        liveCount.decrementAndGet();
+        try {
+            destroyer.accept(instance);
+        } catch (RuntimeException e) {
+            MDC.put("beanName", beanName);
+            log.warn("Failed to destroy pooled instance", e);
+            MDC.remove("beanName");
+        }
+    }
+
+    /**
+     * @return имя бина.
+     */
+    public String getBeanName() {
+        return beanName;
+    }
+
+    /**
+     * @return число живых инстансов: свободных и выданных.
+     */
+    public int getLiveInstances() {
+        return liveCount.get();
+    }
+
+    /**
+     * @return число свободных инстансов.
+     */
+    public int getIdleInstances() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return число выданных и ещё не возвращённых инстансов.
+     */
+    public int getBorrowedInstances() {
+        return max - permits.availablePermits();
+    }
+
+    /**
+     * @return сколько раз инстанс был выдан из пула.
+     */
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return сколько инстансов было создано за всё время.
+     */
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    /**
+     * @return сколько свободных инстансов было вытеснено по таймауту простоя.
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+
+    /**
+     * @return true, если пул закрыт.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private record IdleInstance(Object instance, long returnedAt) {
+    }
+
+    /**
+     * Выданный инстанс, который сравнивается по ссылке, а не через equals бина.
+     */
+    private record BorrowedInstance(Object instance) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BorrowedInstance borrowed && borrowed.instance == instance;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(instance);
+        }
+    }
+}
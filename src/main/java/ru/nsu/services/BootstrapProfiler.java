@@ -0,0 +1,216 @@
+package ru.nsu.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Профилировщик старта контейнера. Записывает вложенные интервалы времени (spans) с идентификатором потока
+ * во время сканирования, сборки контейнера и создания бинов и сохраняет их в формате trace event JSON,
+ * который открывается в {@code chrome://tracing} и в Perfetto.
+ * <p>
+ * Профилировщик включается явно: его нужно передать в {@link DependencyScanningConfig#setProfiler(BootstrapProfiler)}
+ * до сканирования, контейнер и сервис создания бинов берут его оттуда. По умолчанию используется
+ * {@link #DISABLED}, который ничего не записывает и не создаёт объектов.
+ * Вложенность интервалов в просмотрщике определяется по их времени в одном потоке.
+ */
+public class BootstrapProfiler {
+
+    /**
+     * Выключенный профилировщик, который используется по умолчанию.
+     */
+    public static final BootstrapProfiler DISABLED = new BootstrapProfiler(false, 0);
+
+    private static final int DEFAULT_MAX_EVENTS = 1_000_000;
+
+    private static final Span NOOP_SPAN = new Span(null, null, null, null, 0);
+
+    private final long startNanos = System.nanoTime();
+
+    private final int maxEvents;
+
+    private final Queue<TraceEvent> events = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger eventCount = new AtomicInteger();
+
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    /**
+     * Создаём включенный профилировщик, который хранит не больше миллиона интервалов.
+     */
+    public BootstrapProfiler() {
+        this(true, DEFAULT_MAX_EVENTS);
+    }
+
+    /**
+     * Создаём профилировщик.
+     *
+     * @param recording записывать ли интервалы сразу после создания.
+     * @param maxEvents максимальное число интервалов, остальные отбрасываются, чтобы память не росла без ограничений.
+     */
+    public BootstrapProfiler(boolean recording, int maxEvents) {
+        this.recording = recording;
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * @return true, если профилировщик сейчас записывает интервалы.
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Останавливаем запись, например после окончания старта, чтобы не записывать каждый запрос prototype бина.
+     */
+    public void stop() {
+        recording = false;
+    }
+
+    /**
+     * Начинаем интервал. Интервал записывается при вызове {@link Span#close()}, поэтому его удобно
+     * использовать в try-with-resources.
+     *
+     * @param name     название фазы.
+     * @param category категория фазы, например {@code scan}, {@code container} или {@code bean}.
+     * @param beanName имя бина или null, если интервал не относится к одному бину.
+     * @return интервал, а если запись выключена - общий пустой интервал.
+     */
+    public Span span(String name, String category, String beanName) {
+        if (!recording) {
+            return NOOP_SPAN;
+        }
+        return new Span(this, name, category, beanName, System.nanoTime());
+    }
+
+    /**
+     * @return записанные интервалы в порядке их завершения.
+     */
+    public List<TraceEvent> getEvents() {
+        return List.copyOf(events);
+    }
+
+    private void record(Span span, long endNanos) {
+        if (eventCount.incrementAndGet() > maxEvents) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        threadNames.putIfAbsent(thread.getId(), thread.getName());
+        events.add(new TraceEvent(span.name, span.category, span.beanName, thread.getId(),
+                (span.startNanos - startNanos) / 1000.0, (endNanos - span.startNanos) / 1000.0));
+    }
+
+    /**
+     * Сохраняем интервалы в файл в формате Chrome trace event JSON: каждый интервал - событие типа {@code X}
+     * с временем начала и длительностью в микросекундах, а имена потоков - события типа {@code M}.
+     *
+     * @param traceFile файл, в который записывается трасса.
+     * @throws IOException ошибка записи файла.
+     */
+    public void writeChromeTrace(Path traceFile) throws IOException {
+        long pid = ProcessHandle.current().pid();
+        List<Map<String, Object>> traceEvents = new ArrayList<>();
+        threadNames.forEach((threadId, threadName) -> {
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("name", "thread_name");
+            metadata.put("ph", "M");
+            metadata.put("pid", pid);
+            metadata.put("tid", threadId);
+            metadata.put("args", Map.of("name", threadName));
+            traceEvents.add(metadata);
+        });
+        for (TraceEvent event : events) {
+            Map<String, Object> traceEvent = new LinkedHashMap<>();
+            traceEvent.put("name", event.getName());
+            traceEvent.put("cat", event.getCategory());
+            traceEvent.put("ph", "X");
+            traceEvent.put("ts", event.getStartMicros());
+            traceEvent.put("dur", event.getDurationMicros());
+            traceEvent.put("pid", pid);
+            traceEvent.put("tid", event.getThreadId());
+            if (event.getBeanName() != null) {
+                traceEvent.put("args", Map.of("bean", event.getBeanName()));
+            }
+            traceEvents.add(traceEvent);
+        }
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", traceEvents);
+        trace.put("displayTimeUnit", "ms");
+        if (traceFile.getParent() != null) {
+            Files.createDirectories(traceFile.getParent());
+        }
+        new ObjectMapper().writeValue(traceFile.toFile(), trace);
+    }
+
+    /**
+     * Открытый интервал времени.
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final BootstrapProfiler profiler;
+
+        private final String name;
+
+        private final String category;
+
+        private final String beanName;
+
+        private final long startNanos;
+
+        private Span(BootstrapProfiler profiler, String name, String category, String beanName, long startNanos) {
+            this.profiler = profiler;
+            this.name = name;
+            this.category = category;
+            this.beanName = beanName;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (profiler != null) {
+                profiler.record(this, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Записанный интервал.
+     */
+    @Getter
+    public static final class TraceEvent {
+
+        private final String name;
+
+        private final String category;
+
+        private final String beanName;
+
+        private final long threadId;
+
+        private final double startMicros;
+
+        private final double durationMicros;
+
+        private TraceEvent(String name, String category, String beanName, long threadId, double startMicros, double durationMicros) {
+            this.name = name;
+            this.category = category;
+            this.beanName = beanName;
+            this.threadId = threadId;
+            this.startMicros = startMicros;
+            this.durationMicros = durationMicros;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.nsu.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.nsu.model.BeanDefinition;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Реестр метрик бинов контейнера.
+ * Метрики всех бинов создаются один раз при сборке контейнера, поэтому при записи нет ни аллокаций,
+ * ни изменения общей структуры: только поиск в неизменяемой мапе и инкремент {@link java.util.concurrent.atomic.LongAdder}.
+ * Метрики можно читать напрямую через {@link #getBeanMetrics(String)} или зарегистрировать как MBean
+ * в платформенном MBeanServer через {@link #registerMBeans()}.
+ */
+@Slf4j
+public class ContainerMetrics implements ContainerMetricsMXBean {
+
+    public static final String JMX_DOMAIN = "ru.nsu";
+
+    private static final AtomicInteger CONTAINER_IDS = new AtomicInteger();
+
+    private final String containerId = String.valueOf(CONTAINER_IDS.incrementAndGet());
+
+    private final Map<String, BeanMetrics> beanMetrics;
+
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * Создаём метрики для каждого бина контейнера.
+     *
+     * @param beanDefinitions отношение из названий бинов в их модели.
+     */
+    public ContainerMetrics(Map<String, BeanDefinition> beanDefinitions) {
+        Map<String, BeanMetrics> metrics = new HashMap<>();
+        beanDefinitions.forEach((beanName, beanDefinition) ->
+                metrics.put(beanName, new BeanMetrics(beanName, beanDefinition.getScope())));
+        this.beanMetrics = Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Получаем метрики бина.
+     *
+     * @param beanName имя бина.
+     * @return метрики бина или null, если такого бина нет.
+     */
+    public BeanMetrics getBeanMetrics(String beanName) {
+        return beanMetrics.get(beanName);
+    }
+
+    /**
+     * @return метрики всех бинов по их именам.
+     */
+    public Map<String, BeanMetrics> getAllBeanMetrics() {
+        return beanMetrics;
+    }
+
+    @Override
+    public long getSingletonGetBeanCalls() {
+        return sumGetBeanCalls("singleton");
+    }
+
+    @Override
+    public long getPrototypeGetBeanCalls() {
+        return sumGetBeanCalls("prototype");
+    }
+
+    @Override
+    public long getThreadGetBeanCalls() {
+        return sumGetBeanCalls("thread");
+    }
+
+    @Override
+    public long getPrototypeCreations() {
+        return beanMetrics.values().stream().mapToLong(BeanMetrics::getPrototypeCreations).sum();
+    }
+
+    @Override
+    public long getThreadInstanceCreations() {
+        return beanMetrics.values().stream().mapToLong(BeanMetrics::getThreadInstanceCreations).sum();
+    }
+
+    @Override
+    public long getLiveThreadInstances() {
+        return beanMetrics.values().stream().mapToLong(BeanMetrics::getLiveThreadInstances).sum();
+    }
+
+    private long sumGetBeanCalls(String scope) {
+        return beanMetrics.values().stream()
+                .filter(metrics -> metrics.getScope().equals(scope))
+                .mapToLong(BeanMetrics::getGetBeanCalls)
+                .sum();
+    }
+
+    /**
+     * Имя MBean с общими метриками этого контейнера.
+     *
+     * @return имя вида {@code ru.nsu:type=ContainerMetrics,container=1}.
+     */
+    public ObjectName getContainerObjectName() {
+        return objectName("type=ContainerMetrics,container=" + containerId);
+    }
+
+    /**
+     * Имя MBean с метриками бина.
+     *
+     * @param beanName имя бина.
+     * @return имя вида {@code ru.nsu:type=BeanMetrics,container=1,name="bean"}.
+     */
+    public ObjectName getBeanObjectName(String beanName) {
+        return objectName("type=BeanMetrics,container=" + containerId + ",name=" + ObjectName.quote(beanName));
+    }
+
+    /**
+     * Регистрируем MBean контейнера и MBean каждого бина в платформенном MBeanServer.
+     * Повторный вызов ничего не делает.
+     */
+    public synchronized void registerMBeans() {
+        if (!registeredNames.isEmpty()) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, getContainerObjectName());
+            registeredNames.add(getContainerObjectName());
+            for (BeanMetrics metrics : beanMetrics.values()) {
+                ObjectName name = getBeanObjectName(metrics.getBeanName());
+                server.registerMBean(metrics, name);
+                registeredNames.add(name);
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new IllegalStateException("Failed to register bean metrics MBeans", e);
+        }
+    }
+
+    /**
+     * Удаляем все MBean этого контейнера из платформенного MBeanServer.
+     */
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.warn("Failed to unregister MBean " + name);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private static ObjectName objectName(String properties) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Wrong MBean name: " + properties, e);
+        }
+    }
+}
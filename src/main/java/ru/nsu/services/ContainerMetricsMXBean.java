@@ -0,0 +1,19 @@
+package ru.nsu.services;
+
+/**
+ * Общие метрики контейнера, доступные через JMX.
+ */
+public interface ContainerMetricsMXBean {
+
+    long getSingletonGetBeanCalls();
+
+    long getPrototypeGetBeanCalls();
+
+    long getThreadGetBeanCalls();
+
+    long getPrototypeCreations();
+
+    long getThreadInstanceCreations();
+
+    long getLiveThreadInstances();
+}
@@ -0,0 +1,544 @@
+package ru.nsu.services;
+
+import ru.nsu.exception.ContainerGenerationException;
+import ru.nsu.exception.SetterException;
+import ru.nsu.model.BeanDefinition;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Генератор Java кода готового контейнера по уже просканированным моделям бинов.
+ * Сгенерированный класс создаёт бины обычными вызовами {@code new}, сеттеров и методов жизненного цикла
+ * в порядке, который вычисляет {@link DependencyResolver}, а для каждого бина содержит типизированный метод доступа.
+ * Синглетоны хранятся в final полях, поэтому их получение - это простое чтение поля,
+ * а при старте такого контейнера не нужны ни рефлексия, ни чтение JSON конфигурации.
+ * Ленивые синглетоны ({@link BeanContainer#isLazy(BeanDefinition)}) хранятся в volatile полях
+ * и создаются при первом вызове метода доступа под double-checked блокировкой.
+ * Поддерживаются scope {@code singleton}, {@code prototype} и {@code thread}, для остальных выбрасывается
+ * {@link ContainerGenerationException} со списком поддерживаемых scope. Потоковые бины хранятся в ThreadLocal,
+ * и отслеживать их инстансы, как это делает {@link ThreadScopedInstances}, некому, поэтому потоковый бин
+ * с PreDestroy методом тоже отклоняется, иначе PreDestroy у него никогда бы не вызвался.
+ */
+public class ContainerSourceGenerator {
+
+    private static final String INDENT = "    ";
+
+    /**
+     * Scope, для которых генерируется код. Остальные scope требуют сервисов контейнера на рефлексии.
+     */
+    private static final List<String> SUPPORTED_SCOPES = List.of("singleton", "prototype", "thread");
+
+    private final BeanContainer beanContainer;
+
+    private final Map<String, BeanDefinition> beanDefinitions;
+
+    private final Map<String, String> identifiers = new HashMap<>();
+
+    /**
+     * Нужен ли сгенерированному классу метод {@code mapOf} для initParams типа Map.
+     */
+    private boolean usesMapOf;
+
+    /**
+     * Конструктор генератора.
+     *
+     * @param beanContainer контейнер с моделями бинов и связанными {@link BeanInstantiator}.
+     */
+    public ContainerSourceGenerator(BeanContainer beanContainer) {
+        this.beanContainer = beanContainer;
+        this.beanDefinitions = beanContainer.getBeanDefinitions();
+    }
+
+    /**
+     * Генерируем исходный код контейнера и записываем его в папку с исходниками
+     * в соответствии с именем пакета.
+     *
+     * @param sourceRoot  корневая папка исходного кода.
+     * @param packageName пакет сгенерированного класса.
+     * @param className   простое имя сгенерированного класса.
+     * @return путь к записанному файлу.
+     * @throws IOException ошибка записи файла.
+     */
+    public Path writeTo(Path sourceRoot, String packageName, String className) throws IOException {
+        Path packageDirectory = sourceRoot.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(packageDirectory);
+        Path sourceFile = packageDirectory.resolve(className + ".java");
+        Files.writeString(sourceFile, generate(packageName, className), StandardCharsets.UTF_8);
+        return sourceFile;
+    }
+
+    /**
+     * Генерируем исходный код контейнера.
+     *
+     * @param packageName пакет сгенерированного класса.
+     * @param className   простое имя сгенерированного класса.
+     * @return исходный код класса.
+     */
+    public String generate(String packageName, String className) {
+        // Порядок от зависимых бинов к их зависимостям, создавать нужно в обратном порядке
+        List<String> destroyOrder = beanContainer.getOrderedByDependenciesBeans();
+        List<String> creationOrder = new ArrayList<>(destroyOrder);
+        Collections.reverse(creationOrder);
+
+        StringBuilder source = new StringBuilder();
+        if (packageName != null && !packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Контейнер бинов, сгенерированный {@link ").append(getClass().getName()).append("}.\n")
+                .append(" * Не редактируйте этот файл вручную, он будет перезаписан при следующей генерации.\n")
+                .append(" */\n")
+                .append("public final class ").append(className).append(" implements AutoCloseable {\n");
+
+        for (String beanName : creationOrder) {
+            BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+            String type = beanType(beanDefinition);
+            switch (beanDefinition.getScope()) {
+                case "singleton" -> source.append('\n').append(INDENT)
+                        .append(beanContainer.isLazy(beanDefinition) ? "private volatile " : "private final ").append(type)
+                        .append(' ').append(fieldName(beanName)).append(";\n");
+                case "thread" -> {
+                    if (beanDefinition.getPreDestroyMethod() != null) {
+                        throw new ContainerGenerationException(beanName, "Thread scoped bean with PreDestroy method is not supported"
+                                + " by generated containers, its PreDestroy would never be called");
+                    }
+                    source.append('\n').append(INDENT).append("private final ThreadLocal<").append(type)
+                            .append("> ").append(fieldName(beanName)).append(" = ThreadLocal.withInitial(this::")
+                            .append(createMethodName(beanName)).append(");\n");
+                }
+                case "prototype" -> {
+                }
+                // Выдача и возврат инстансов пула требуют BeanPool, а контекст - BeanContext,
+                // которых в сгенерированном коде нет
+                case "pooled", "context" -> throw unsupportedScope(beanDefinition);
+                default -> throw new ContainerGenerationException(beanName, "Unknown bean scope " + beanDefinition.getScope());
+            }
+        }
+
+        source.append('\n').append(INDENT).append("public ").append(className).append("() {\n");
+        for (String beanName : creationOrder) {
+            BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+            if (beanDefinition.getScope().equals("singleton") && !beanContainer.isLazy(beanDefinition)) {
+                source.append(INDENT).append(INDENT).append("this.").append(fieldName(beanName)).append(" = ")
+                        .append(createMethodName(beanName)).append("();\n");
+            }
+        }
+        source.append(INDENT).append("}\n");
+
+        for (String beanName : creationOrder) {
+            appendAccessor(source, beanDefinitions.get(beanName));
+        }
+        for (String beanName : creationOrder) {
+            appendCreateMethod(source, beanDefinitions.get(beanName));
+        }
+
+        source.append('\n').append(INDENT).append("/**\n")
+                .append(INDENT).append(" * Вызывает PreDestroy методы созданных синглетон бинов, начиная с зависимых бинов.\n")
+                .append(INDENT).append(" */\n")
+                .append(INDENT).append("@Override\n")
+                .append(INDENT).append("public void close() {\n");
+        for (String beanName : destroyOrder) {
+            BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+            if (beanDefinition.getScope().equals("singleton") && beanDefinition.getPreDestroyMethod() != null) {
+                Method preDestroyMethod = accessibleMethod(beanDefinition, beanDefinition.getPreDestroyMethod());
+                String statementIndent = INDENT + INDENT;
+                if (beanContainer.isLazy(beanDefinition)) {
+                    // Ленивый бин, который ни разу не запросили, не создан
+                    source.append(statementIndent).append("if (").append(fieldName(beanName)).append(" != null) {\n");
+                    statementIndent += INDENT;
+                }
+                appendLifecycleCall(source, statementIndent, fieldName(beanName), preDestroyMethod, beanName);
+                if (beanContainer.isLazy(beanDefinition)) {
+                    source.append(INDENT).append(INDENT).append("}\n");
+                }
+            }
+        }
+        source.append(INDENT).append("}\n");
+
+        source.append('\n').append(INDENT).append("private static <T> javax.inject.Provider<T> providerOf(T instance) {\n")
+                .append(INDENT).append(INDENT).append("return () -> instance;\n")
+                .append(INDENT).append("}\n");
+        if (usesMapOf) {
+            source.append('\n').append(INDENT).append("@SuppressWarnings(\"unchecked\")\n")
+                    .append(INDENT).append("private static <K, V> java.util.Map<K, V> mapOf(Object... entries) {\n")
+                    .append(INDENT).append(INDENT).append("java.util.Map<K, V> map = new java.util.LinkedHashMap<>();\n")
+                    .append(INDENT).append(INDENT).append("for (int i = 0; i < entries.length; i += 2) {\n")
+                    .append(INDENT).append(INDENT).append(INDENT).append("map.put((K) entries[i], (V) entries[i + 1]);\n")
+                    .append(INDENT).append(INDENT).append("}\n")
+                    .append(INDENT).append(INDENT).append("return map;\n")
+                    .append(INDENT).append("}\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static ContainerGenerationException unsupportedScope(BeanDefinition beanDefinition) {
+        return new ContainerGenerationException(beanDefinition.getName(), "Scope " + beanDefinition.getScope()
+                + " is not supported by generated containers, supported scopes: " + String.join(", ", SUPPORTED_SCOPES));
+    }
+
+    private void appendAccessor(StringBuilder source, BeanDefinition beanDefinition) {
+        String beanName = beanDefinition.getName();
+        String type = beanType(beanDefinition);
+        source.append('\n').append(INDENT).append("public ").append(type).append(' ')
+                .append(accessorName(beanName)).append("() {\n");
+        if (beanContainer.isLazy(beanDefinition)) {
+            appendLazyAccessorBody(source, type, beanName);
+            return;
+        }
+        source.append(INDENT).append(INDENT).append("return ");
+        switch (beanDefinition.getScope()) {
+            case "singleton" -> source.append(fieldName(beanName));
+            case "thread" -> source.append(fieldName(beanName)).append(".get()");
+            default -> source.append(createMethodName(beanName)).append("()");
+        }
+        source.append(";\n").append(INDENT).append("}\n");
+    }
+
+    /**
+     * Тело метода доступа к ленивому синглетону: поле читается без блокировки, а бин создаётся под монитором контейнера
+     * только если поле ещё пустое. Монитор реентерабельный, поэтому ленивый бин может зависеть от другого ленивого бина.
+     */
+    private void appendLazyAccessorBody(StringBuilder source, String type, String beanName) {
+        String field = fieldName(beanName);
+        String indent = INDENT + INDENT;
+        source.append(indent).append(type).append(" bean = ").append(field).append(";\n")
+                .append(indent).append("if (bean == null) {\n")
+                .append(indent).append(INDENT).append("synchronized (this) {\n")
+                .append(indent).append(INDENT).append(INDENT).append("bean = ").append(field).append(";\n")
+                .append(indent).append(INDENT).append(INDENT).append("if (bean == null) {\n")
+                .append(indent).append(INDENT).append(INDENT).append(INDENT).append("bean = ")
+                .append(createMethodName(beanName)).append("();\n")
+                .append(indent).append(INDENT).append(INDENT).append(INDENT).append(field).append(" = bean;\n")
+                .append(indent).append(INDENT).append(INDENT).append("}\n")
+                .append(indent).append(INDENT).append("}\n")
+                .append(indent).append("}\n")
+                .append(indent).append("return bean;\n")
+                .append(INDENT).append("}\n");
+    }
+
+    /**
+     * Генерируем метод создания одного инстанса бина: конструктор, внедрение полей,
+     * сеттеры из initParams и PostConstruct метод.
+     */
+    private void appendCreateMethod(StringBuilder source, BeanDefinition beanDefinition) {
+        String beanName = beanDefinition.getName();
+        BeanInstantiator instantiator = beanContainer.getInstantiator(beanDefinition);
+        Class<?> beanClass = instantiator.getBeanClass();
+        String type = beanType(beanDefinition);
+        String statementIndent = INDENT + INDENT;
+
+        Constructor<?> constructor = beanDefinition.getConstructor();
+        if (constructor == null || constructor.getParameterCount() == 0) {
+            try {
+                constructor = beanClass.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new ContainerGenerationException(beanName, "No constructor at all");
+            }
+        }
+        if (!Modifier.isPublic(constructor.getModifiers())) {
+            throw new ContainerGenerationException(beanName, "Constructor must be public");
+        }
+
+        List<String> arguments = new ArrayList<>();
+        for (BeanInstantiator.ConstructorParameter parameter : instantiator.getConstructorParameters()) {
+            BeanDefinition dependency = findDependency(beanName, parameter.dependencyName());
+            arguments.add(parameter.provider()
+                    ? "this::" + accessorName(dependency.getName())
+                    : accessorName(dependency.getName()) + "()");
+        }
+
+        source.append('\n').append(INDENT).append("private ").append(type).append(' ')
+                .append(createMethodName(beanName)).append("() {\n")
+                .append(statementIndent).append(type).append(" bean = new ").append(type).append('(')
+                .append(String.join(", ", arguments)).append(");\n");
+
+        appendFieldInjections(source, beanDefinition, beanDefinition.getInjectedFields(), false);
+        appendFieldInjections(source, beanDefinition, beanDefinition.getInjectedProviderFields(), true);
+
+        Map<String, Object> initParams = beanDefinition.getInitParams();
+        if (initParams != null) {
+            for (Map.Entry<String, Object> entry : initParams.entrySet()) {
+                // Тот же сеттер и то же преобразованное значение, что и у контейнера на рефлексии
+                BeanInstantiator.InitParamSetter initParamSetter;
+                try {
+                    initParamSetter = BeanInstantiator.findInitParamSetter(beanClass, entry.getKey(), entry.getValue());
+                } catch (SetterException e) {
+                    throw new ContainerGenerationException(beanName, "No public setter " + entry.getKey() + " for value " + entry.getValue());
+                }
+                source.append(statementIndent).append("bean.").append(initParamSetter.method().getName()).append('(')
+                        .append(literal(beanName, initParamSetter.value())).append(");\n");
+            }
+        }
+
+        if (beanDefinition.getPostConstructMethod() != null) {
+            Method postConstructMethod = accessibleMethod(beanDefinition, beanDefinition.getPostConstructMethod());
+            appendLifecycleCall(source, statementIndent, "bean", postConstructMethod, beanName);
+        }
+        source.append(statementIndent).append("return bean;\n").append(INDENT).append("}\n");
+    }
+
+    private void appendFieldInjections(StringBuilder source, BeanDefinition beanDefinition, List<Field> fields, boolean provider) {
+        if (fields == null) {
+            return;
+        }
+        BeanInstantiator.Injection[] injections = provider
+                ? beanContainer.getInstantiator(beanDefinition).getProviderInjections()
+                : beanContainer.getInstantiator(beanDefinition).getFieldInjections();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            BeanDefinition dependency = findDependency(beanDefinition.getName(), injections[i].dependencyName());
+            String value = accessorName(dependency.getName()) + "()";
+            if (provider) {
+                value = "providerOf(" + value + ")";
+            }
+            source.append(INDENT).append(INDENT).append("bean.");
+            if (Modifier.isPublic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+                source.append(field.getName()).append(" = ").append(value).append(";\n");
+            } else {
+                Method setter = findFieldSetter(field);
+                if (setter == null) {
+                    throw new ContainerGenerationException(beanDefinition.getName(),
+                            "Injected field '" + field.getName() + "' needs to be public or to have a public setter");
+                }
+                source.append(setter.getName()).append('(').append(value).append(");\n");
+            }
+        }
+    }
+
+    private BeanDefinition findDependency(String beanName, String dependencyName) {
+        BeanDefinition dependency = beanContainer.findBeanDefinition(dependencyName);
+        if (dependency == null) {
+            throw new ContainerGenerationException(beanName, "No bean for dependency " + dependencyName);
+        }
+        return dependency;
+    }
+
+    /**
+     * Генерируем вызов метода жизненного цикла. Проверяемые исключения метода оборачиваются в IllegalStateException,
+     * иначе сгенерированный код не скомпилируется.
+     */
+    private void appendLifecycleCall(StringBuilder source, String indent, String target, Method method, String beanName) {
+        String call = target + "." + method.getName() + "();\n";
+        boolean throwsChecked = false;
+        for (Class<?> exceptionType : method.getExceptionTypes()) {
+            if (!RuntimeException.class.isAssignableFrom(exceptionType) && !Error.class.isAssignableFrom(exceptionType)) {
+                throwsChecked = true;
+            }
+        }
+        if (!throwsChecked) {
+            source.append(indent).append(call);
+            return;
+        }
+        source.append(indent).append("try {\n")
+                .append(indent).append(INDENT).append(call)
+                .append(indent).append("} catch (Exception e) {\n")
+                .append(indent).append(INDENT).append("throw new IllegalStateException(")
+                .append(literal(beanName, "Lifecycle method " + method.getName() + " of bean " + beanName + " failed")).append(", e);\n")
+                .append(indent).append("}\n");
+    }
+
+    private Method accessibleMethod(BeanDefinition beanDefinition, Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) {
+            throw new ContainerGenerationException(beanDefinition.getName(), "Lifecycle method '" + method.getName() + "' must be public");
+        }
+        return method;
+    }
+
+    private static Method findFieldSetter(Field field) {
+        String setterName = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        for (Method method : field.getDeclaringClass().getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1
+                    && method.getParameterTypes()[0].isAssignableFrom(field.getType())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Превращаем значение initParams, уже преобразованное {@link InitParamConverter}, в выражение Java.
+     * Выражение вычисляется при каждом создании бина, поэтому массивы и изменяемые коллекции у каждого инстанса свои,
+     * а неизменяемые коллекции создаются так же, как их создаёт {@link InitParamConverter}.
+     */
+    private String literal(String beanName, Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String string) {
+            StringBuilder literal = new StringBuilder("\"");
+            for (char symbol : string.toCharArray()) {
+                appendEscaped(literal, symbol, '"');
+            }
+            return literal.append('"').toString();
+        }
+        if (value instanceof Character symbol) {
+            StringBuilder literal = new StringBuilder("'");
+            appendEscaped(literal, symbol, '\'');
+            return literal.append('\'').toString();
+        }
+        if (value instanceof Integer || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Long) {
+            return value + "L";
+        }
+        if (value instanceof Short || value instanceof Byte) {
+            return "(" + (value instanceof Short ? "short" : "byte") + ") " + value;
+        }
+        if (value instanceof Double number && Double.isFinite(number)) {
+            return value + "d";
+        }
+        if (value instanceof Float number && Float.isFinite(number)) {
+            return value + "f";
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return "new " + value.getClass().getName() + "(\"" + value + "\")";
+        }
+        if (value instanceof Duration duration) {
+            return "java.time.Duration.ofSeconds(" + duration.getSeconds() + "L, " + duration.getNano() + ")";
+        }
+        if (value instanceof Enum<?> constant) {
+            Class<?> enumType = constant.getDeclaringClass();
+            if (!Modifier.isPublic(enumType.getModifiers()) || enumType.getCanonicalName() == null) {
+                throw new ContainerGenerationException(beanName, "Enum " + enumType.getName() + " of init param must be public");
+            }
+            return enumType.getCanonicalName() + "." + constant.name();
+        }
+        if (value.getClass().isArray()) {
+            List<String> elements = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                elements.add(literal(beanName, Array.get(value, i)));
+            }
+            return "new " + value.getClass().getComponentType().getCanonicalName() + "[]{" + String.join(", ", elements) + "}";
+        }
+        if (value instanceof Collection<?> collection) {
+            List<String> elements = new ArrayList<>();
+            for (Object element : collection) {
+                elements.add(literal(beanName, element));
+            }
+            String values = "java.util.Arrays.asList(" + String.join(", ", elements) + ")";
+            return collectionLiteral(beanName, collection, values);
+        }
+        if (value instanceof Map<?, ?> map) {
+            List<String> entries = new ArrayList<>();
+            map.forEach((key, mapValue) -> entries.add(literal(beanName, key) + ", " + literal(beanName, mapValue)));
+            usesMapOf = true;
+            String values = "mapOf(" + String.join(", ", entries) + ")";
+            if (isPublicConcrete(map.getClass())) {
+                return "new " + map.getClass().getCanonicalName() + "<>(" + values + ")";
+            }
+            return "java.util.Collections.unmodifiableMap(" + values + ")";
+        }
+        throw new ContainerGenerationException(beanName, "Unsupported init param value " + value);
+    }
+
+    private static void appendEscaped(StringBuilder literal, char symbol, char quote) {
+        switch (symbol) {
+            case '\\' -> literal.append("\\\\");
+            case '\n' -> literal.append("\\n");
+            case '\r' -> literal.append("\\r");
+            case '\t' -> literal.append("\\t");
+            default -> {
+                if (symbol == quote) {
+                    literal.append('\\');
+                }
+                literal.append(symbol);
+            }
+        }
+    }
+
+    /**
+     * Коллекция конкретного класса создаётся через его конструктор копирования,
+     * а неизменяемая коллекция - той же обёрткой {@link Collections}, что и в {@link InitParamConverter}.
+     */
+    private static String collectionLiteral(String beanName, Collection<?> collection, String values) {
+        Class<?> collectionType = collection.getClass();
+        if (isPublicConcrete(collectionType)) {
+            try {
+                collectionType.getConstructor(Collection.class);
+            } catch (NoSuchMethodException e) {
+                throw new ContainerGenerationException(beanName, "Collection " + collectionType.getName()
+                        + " of init param needs a public copy constructor");
+            }
+            return "new " + collectionType.getCanonicalName() + "<>(" + values + ")";
+        }
+        if (collection instanceof NavigableSet<?>) {
+            return "java.util.Collections.unmodifiableNavigableSet(new java.util.TreeSet<>(" + values + "))";
+        }
+        if (collection instanceof SortedSet<?>) {
+            return "java.util.Collections.unmodifiableSortedSet(new java.util.TreeSet<>(" + values + "))";
+        }
+        if (collection instanceof Set<?>) {
+            return "java.util.Collections.unmodifiableSet(new java.util.LinkedHashSet<>(" + values + "))";
+        }
+        return "java.util.Collections.unmodifiableList(" + values + ")";
+    }
+
+    private static boolean isPublicConcrete(Class<?> type) {
+        return Modifier.isPublic(type.getModifiers()) && !Modifier.isAbstract(type.getModifiers()) && type.getCanonicalName() != null;
+    }
+
+    private String beanType(BeanDefinition beanDefinition) {
+        Class<?> beanClass = beanContainer.getInstantiator(beanDefinition).getBeanClass();
+        if (!Modifier.isPublic(beanClass.getModifiers()) || beanClass.getCanonicalName() == null) {
+            throw new ContainerGenerationException(beanDefinition.getName(), "Bean class must be public");
+        }
+        return beanClass.getCanonicalName();
+    }
+
+    private String fieldName(String beanName) {
+        String identifier = identifier(beanName);
+        return Character.toLowerCase(identifier.charAt(0)) + identifier.substring(1);
+    }
+
+    private String accessorName(String beanName) {
+        return "get" + identifier(beanName);
+    }
+
+    private String createMethodName(String beanName) {
+        return "create" + identifier(beanName);
+    }
+
+    /**
+     * Превращаем имя бина в уникальный идентификатор Java, начинающийся с заглавной буквы.
+     */
+    private String identifier(String beanName) {
+        return identifiers.computeIfAbsent(beanName, name -> {
+            StringBuilder identifier = new StringBuilder();
+            for (char symbol : name.toCharArray()) {
+                identifier.append(Character.isJavaIdentifierPart(symbol) ? symbol : '_');
+            }
+            if (identifier.length() == 0 || !Character.isJavaIdentifierStart(identifier.charAt(0))) {
+                identifier.insert(0, '_');
+            }
+            identifier.setCharAt(0, Character.toUpperCase(identifier.charAt(0)));
+            String candidate = identifier.toString();
+            int suffix = 1;
+            while (identifiers.containsValue(candidate)) {
+                candidate = identifier.toString() + suffix++;
+            }
+            return candidate;
+        });
+    }
+}
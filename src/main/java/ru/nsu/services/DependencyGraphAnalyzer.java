@@ -0,0 +1,222 @@
+package ru.nsu.services;
+
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import ru.nsu.model.DependencyGraphReport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Анализ графа зависимостей из {@link DependencyResolver} вместе с измеренным временем инициализации бинов.
+ * Показывает критический путь, ширину каждого уровня, наибольшее ускорение от параллельного старта
+ * и бины с наибольшим числом зависимых бинов и зависимостей, то есть те, ускорение которых даст больше всего.
+ * Отчёт можно выгрузить в DOT для Graphviz и в HTML.
+ */
+public class DependencyGraphAnalyzer {
+
+    private final DependencyResolver resolver;
+
+    private final Map<String, Long> beanInitNanos;
+
+    /**
+     * Конструктор анализатора.
+     *
+     * @param resolver      резолвер зависимостей, по графу которого идёт анализ.
+     * @param beanInitNanos время инициализации бинов в наносекундах, бины без измерений считаются мгновенными.
+     */
+    public DependencyGraphAnalyzer(DependencyResolver resolver, Map<String, Long> beanInitNanos) {
+        this.resolver = resolver;
+        this.beanInitNanos = beanInitNanos;
+    }
+
+    /**
+     * Создаём анализатор по контейнеру, время инициализации берётся из его метрик:
+     * среднее время создания бина плюс среднее время его PostConstruct.
+     *
+     * @param beanContainer контейнер, бины которого уже созданы.
+     * @return анализатор графа контейнера.
+     */
+    public static DependencyGraphAnalyzer of(BeanContainer beanContainer) {
+        Map<String, Long> initNanos = new HashMap<>();
+        beanContainer.getMetrics().getAllBeanMetrics().forEach((beanName, metrics) ->
+                initNanos.put(beanName, Math.round(metrics.getConstructionMeanNanos() + metrics.getPostConstructMeanNanos())));
+        return new DependencyGraphAnalyzer(new DependencyResolver(beanContainer.getInstantiators()), initNanos);
+    }
+
+    /**
+     * Анализируем граф.
+     *
+     * @return отчёт с критическим путём, уровнями и бинами с наибольшим числом связей.
+     */
+    public DependencyGraphReport analyze() {
+        DefaultDirectedGraph<String, DefaultEdge> graph = resolver.getGraph();
+        DependencyGraphReport report = new DependencyGraphReport();
+
+        // Идём от зависимостей к зависимым бинам и считаем самое позднее окончание инициализации каждого бина
+        List<String> creationOrder = new ArrayList<>(resolver.resolveDependencies());
+        Collections.reverse(creationOrder);
+        Map<String, Long> finishNanos = new HashMap<>();
+        Map<String, String> slowestDependency = new HashMap<>();
+        long totalNanos = 0;
+        String lastBean = null;
+        for (String beanName : creationOrder) {
+            // Бин начинает инициализироваться, когда закончилась самая поздняя из его зависимостей
+            long start = 0;
+            for (String dependency : resolver.getDependencies(beanName)) {
+                if (!slowestDependency.containsKey(beanName) || finishNanos.get(dependency) > start) {
+                    start = finishNanos.get(dependency);
+                    slowestDependency.put(beanName, dependency);
+                }
+            }
+            long initNanos = initNanos(beanName);
+            totalNanos += initNanos;
+            finishNanos.put(beanName, start + initNanos);
+            report.getBeanInitNanos().put(beanName, initNanos);
+            if (lastBean == null || finishNanos.get(beanName) > finishNanos.get(lastBean)) {
+                lastBean = beanName;
+            }
+        }
+
+        List<String> criticalPath = new ArrayList<>();
+        for (String beanName = lastBean; beanName != null; beanName = slowestDependency.get(beanName)) {
+            criticalPath.add(beanName);
+        }
+        Collections.reverse(criticalPath);
+        report.setCriticalPath(criticalPath);
+        report.setCriticalPathNanos(lastBean == null ? 0 : finishNanos.get(lastBean));
+        report.setTotalInitNanos(totalNanos);
+
+        for (List<String> level : resolver.resolveDependencyLevels()) {
+            report.getLevelWidths().add(level.size());
+        }
+        report.setFanIn(sortedDegrees(graph, graph::inDegreeOf));
+        report.setFanOut(sortedDegrees(graph, graph::outDegreeOf));
+        return report;
+    }
+
+    private long initNanos(String beanName) {
+        Long nanos = beanInitNanos.get(beanName);
+        return nanos != null ? Math.max(0, nanos) : 0;
+    }
+
+    private static Map<String, Integer> sortedDegrees(DefaultDirectedGraph<String, DefaultEdge> graph, ToIntFunction<String> degree) {
+        Map<String, Integer> degrees = new LinkedHashMap<>();
+        graph.vertexSet().stream()
+                .sorted(Comparator.comparingInt(degree).reversed().thenComparing(Comparator.naturalOrder()))
+                .forEach(beanName -> degrees.put(beanName, degree.applyAsInt(beanName)));
+        return degrees;
+    }
+
+    /**
+     * Выгружаем граф в формате DOT. Ребро идёт от бина к его зависимости, в подписи бина указано время его
+     * инициализации, а бины и рёбра критического пути выделены красным.
+     *
+     * @return описание графа для Graphviz.
+     */
+    public String toDot() {
+        DependencyGraphReport report = analyze();
+        DefaultDirectedGraph<String, DefaultEdge> graph = resolver.getGraph();
+        Set<String> criticalBeans = new HashSet<>(report.getCriticalPath());
+        Set<String> criticalEdges = new HashSet<>();
+        for (int i = 1; i < report.getCriticalPath().size(); i++) {
+            criticalEdges.add(report.getCriticalPath().get(i) + "->" + report.getCriticalPath().get(i - 1));
+        }
+
+        StringBuilder dot = new StringBuilder("digraph beans {\n    rankdir=BT;\n    node [shape=box];\n");
+        for (String beanName : report.getBeanInitNanos().keySet()) {
+            dot.append("    \"").append(beanName).append("\" [label=\"").append(beanName).append("\\n")
+                    .append(formatMillis(report.getBeanInitNanos().get(beanName))).append("\"");
+            if (criticalBeans.contains(beanName)) {
+                dot.append(", color=red, style=bold");
+            }
+            dot.append("];\n");
+        }
+        for (DefaultEdge edge : graph.edgeSet()) {
+            String source = graph.getEdgeSource(edge);
+            String target = graph.getEdgeTarget(edge);
+            dot.append("    \"").append(source).append("\" -> \"").append(target).append("\"");
+            if (criticalEdges.contains(source + "->" + target)) {
+                dot.append(" [color=red, penwidth=2]");
+            }
+            dot.append(";\n");
+        }
+        return dot.append("}\n").toString();
+    }
+
+    /**
+     * Выгружаем отчёт в виде HTML страницы: сводка, критический путь, ширина уровней,
+     * бины с наибольшим числом связей и время инициализации всех бинов.
+     *
+     * @return HTML страница.
+     */
+    public String toHtml() {
+        DependencyGraphReport report = analyze();
+        StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html>\n<head><meta charset=\"UTF-8\"><title>Bean dependency graph</title></head>\n<body>\n");
+        html.append("<h1>Bean dependency graph</h1>\n<ul>\n")
+                .append("<li>Beans: ").append(report.getBeanInitNanos().size()).append("</li>\n")
+                .append("<li>Sequential init time: ").append(formatMillis(report.getTotalInitNanos())).append("</li>\n")
+                .append("<li>Critical path time: ").append(formatMillis(report.getCriticalPathNanos())).append("</li>\n")
+                .append("<li>Max parallel speedup: ").append(String.format(Locale.ROOT, "%.2f", report.getMaxSpeedup())).append("x</li>\n")
+                .append("<li>Max level width: ").append(report.getMaxLevelWidth()).append("</li>\n</ul>\n");
+
+        html.append("<h2>Critical path</h2>\n<ol>\n");
+        for (String beanName : report.getCriticalPath()) {
+            html.append("<li>").append(escape(beanName)).append(" - ")
+                    .append(formatMillis(report.getBeanInitNanos().get(beanName))).append("</li>\n");
+        }
+        html.append("</ol>\n<h2>Level widths</h2>\n<table border=\"1\">\n<tr><th>Level</th><th>Beans</th></tr>\n");
+        for (int level = 0; level < report.getLevelWidths().size(); level++) {
+            html.append("<tr><td>").append(level).append("</td><td>").append(report.getLevelWidths().get(level)).append("</td></tr>\n");
+        }
+        html.append("</table>\n<h2>Beans</h2>\n<table border=\"1\">\n<tr><th>Bean</th><th>Init time</th><th>Fan-in</th><th>Fan-out</th></tr>\n");
+        report.getBeanInitNanos().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> html.append("<tr><td>").append(escape(entry.getKey())).append("</td><td>")
+                        .append(formatMillis(entry.getValue())).append("</td><td>")
+                        .append(report.getFanIn().get(entry.getKey())).append("</td><td>")
+                        .append(report.getFanOut().get(entry.getKey())).append("</td></tr>\n"));
+        html.append("</table>\n<h2>Graphviz</h2>\n<pre>").append(escape(toDot())).append("</pre>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Сохраняем граф в DOT файл.
+     *
+     * @param dotFile путь к файлу.
+     * @throws IOException ошибка записи файла.
+     */
+    public void writeDot(Path dotFile) throws IOException {
+        Files.writeString(dotFile, toDot());
+    }
+
+    /**
+     * Сохраняем отчёт в HTML файл.
+     *
+     * @param htmlFile путь к файлу.
+     * @throws IOException ошибка записи файла.
+     */
+    public void writeHtml(Path htmlFile) throws IOException {
+        Files.writeString(htmlFile, toHtml());
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
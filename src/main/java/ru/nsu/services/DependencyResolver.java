@@ -4,32 +4,33 @@ import org.jgrapht.alg.cycle.CycleDetector;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.traverse.TopologicalOrderIterator;
-import ru.nsu.model.BeanDefinition;
 
-import javax.inject.Inject;
-import javax.inject.Named;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Класс, созданный для сортировки бинов по количеству зависимостей
  * и для проверки всех бинов на циклические зависимости.
+ * Зависимости бина берутся из его {@link BeanInstantiator}, поэтому граф строится по тем же именам,
+ * по которым бины потом внедряются.
  */
 public class DependencyResolver {
 
-    private final Map<String, BeanDefinition> beanDefinitions;
+    private final Map<String, BeanInstantiator> instantiators;
+
+    private DefaultDirectedGraph<String, DefaultEdge> graph;
 
     /**
      * Конструктор класса.
      *
-     * @param beanDefinitions отношение из названий бинов в их модели.
+     * @param instantiators отношение из названий бинов в их связанные модели.
      */
-    public DependencyResolver(Map<String, BeanDefinition> beanDefinitions) {
-        this.beanDefinitions = beanDefinitions;
+    public DependencyResolver(Map<String, BeanInstantiator> instantiators) {
+        this.instantiators = instantiators;
     }
 
     /**
@@ -40,22 +41,10 @@ public class DependencyResolver {
      * @return отсортированный список названий бинов.
      */
     public List<String> resolveDependencies() {
-        // Создание направленного графа
-        DefaultDirectedGraph<String, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
-
-        // Добавление вершин (бинов) в граф
-        beanDefinitions.keySet().forEach(graph::addVertex);
-
-        // Добавление рёбер на основе зависимостей
-        beanDefinitions.forEach((beanName, beanDefinition) -> addDependenciesToGraph(beanName, beanDefinition, graph));
-
-        CycleDetector<String, DefaultEdge> cycleDetector = new CycleDetector<>(graph);
-        if (cycleDetector.detectCycles()){
-            throw new RuntimeException("Detected cyclic dependencies among beans");
-        }
+        DefaultDirectedGraph<String, DefaultEdge> dependencyGraph = getGraph();
 
         // Топологическая сортировка
-        TopologicalOrderIterator<String, DefaultEdge> orderIterator = new TopologicalOrderIterator<>(graph);
+        TopologicalOrderIterator<String, DefaultEdge> orderIterator = new TopologicalOrderIterator<>(dependencyGraph);
         List<String> sortedBeans = new ArrayList<>();
         orderIterator.forEachRemaining(sortedBeans::add);
 
@@ -63,45 +52,76 @@ public class DependencyResolver {
     }
 
     /**
-     * Добавляет к текущему графу новую зависимость (ребро) из переданной модели.
-     * Сначала проверяются внедряемые поля, затем внедряемый поля-провайдеры,
-     * а затем и параметры конструктора, если через них проходит внедрение зависимостей.
+     * Разбиваем бины на уровни зависимостей. На нулевом уровне находятся бины без зависимостей,
+     * а бин уровня k зависит только от бинов с уровнями меньше k, поэтому все бины одного уровня
+     * можно создавать одновременно.
      *
-     * @param beanName имя бина.
-     * @param beanDefinition модель бина.
-     * @param graph исследуемый граф.
+     * @return список уровней, начиная с бинов без зависимостей.
      */
-    private void addDependenciesToGraph(String beanName, BeanDefinition beanDefinition, DefaultDirectedGraph<String, DefaultEdge> graph) {
-        // Исследуем injectedFields
-        if (beanDefinition.getInjectedFields() != null) {
-            for (Field field : beanDefinition.getInjectedFields()) {
-                Named namedAnnotation = field.getAnnotation(Named.class);
-                if (namedAnnotation != null && graph.containsVertex(namedAnnotation.value())) {
-                    graph.addEdge(beanName, namedAnnotation.value());
-                }
+    public List<List<String>> resolveDependencyLevels() {
+        List<String> sortedBeans = resolveDependencies();
+        Map<String, Integer> levels = new HashMap<>();
+        List<List<String>> dependencyLevels = new ArrayList<>();
+        // Идём от зависимостей к зависимым бинам, чтобы уровни зависимостей уже были посчитаны
+        for (int i = sortedBeans.size() - 1; i >= 0; i--) {
+            String beanName = sortedBeans.get(i);
+            int level = 0;
+            for (String dependency : getDependencies(beanName)) {
+                level = Math.max(level, levels.get(dependency) + 1);
+            }
+            levels.put(beanName, level);
+            if (dependencyLevels.size() == level) {
+                dependencyLevels.add(new ArrayList<>());
             }
+            dependencyLevels.get(level).add(beanName);
         }
+        return dependencyLevels;
+    }
 
-        // Исследуем injectedProviderFields
-        if (beanDefinition.getInjectedProviderFields() != null) {
-            for (Field field : beanDefinition.getInjectedProviderFields()) {
-                Named namedAnnotation = field.getAnnotation(Named.class);
-                if (namedAnnotation != null && graph.containsVertex(namedAnnotation.value())) {
-                    graph.addEdge(beanName, namedAnnotation.value());
-                }
-            }
+    /**
+     * Получаем прямые зависимости бина, то есть бины, которые должны быть созданы раньше него.
+     *
+     * @param beanName имя бина.
+     * @return имена бинов-зависимостей.
+     */
+    public Set<String> getDependencies(String beanName) {
+        DefaultDirectedGraph<String, DefaultEdge> dependencyGraph = getGraph();
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (DefaultEdge edge : dependencyGraph.outgoingEdgesOf(beanName)) {
+            dependencies.add(dependencyGraph.getEdgeTarget(edge));
         }
+        return dependencies;
+    }
 
-        // Внутри addDependenciesToGraph
-        Constructor<?> constructor = beanDefinition.getConstructor();
-        if (constructor != null && constructor.isAnnotationPresent(Inject.class)) {
-            for (Parameter parameter : constructor.getParameters()) {
-                Named named = parameter.getAnnotation(Named.class);
-                String depName = (named != null) ? named.value() : parameter.getType().getSimpleName();
-                if (graph.containsVertex(depName)) {
-                    graph.addEdge(beanName, depName);
+    /**
+     * Граф зависимостей бинов, ребро идёт от бина к его зависимости.
+     * Граф строится один раз и сразу проверяется на наличие цикла.
+     *
+     * @return граф зависимостей.
+     */
+    public DefaultDirectedGraph<String, DefaultEdge> getGraph() {
+        if (graph == null) {
+            // Создание направленного графа
+            DefaultDirectedGraph<String, DefaultEdge> dependencyGraph = new DefaultDirectedGraph<>(DefaultEdge.class);
+
+            // Добавление вершин (бинов) в граф
+            instantiators.keySet().forEach(dependencyGraph::addVertex);
+
+            // Добавление рёбер на основе зависимостей
+            instantiators.forEach((beanName, instantiator) -> {
+                for (String dependencyName : instantiator.getDependencyNames()) {
+                    if (dependencyGraph.containsVertex(dependencyName)) {
+                        dependencyGraph.addEdge(beanName, dependencyName);
+                    }
                 }
+            });
+
+            CycleDetector<String, DefaultEdge> cycleDetector = new CycleDetector<>(dependencyGraph);
+            if (cycleDetector.detectCycles()) {
+                throw new RuntimeException("Detected cyclic dependencies among beans");
             }
+            graph = dependencyGraph;
         }
+        return graph;
     }
 }
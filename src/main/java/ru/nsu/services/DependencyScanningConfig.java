@@ -3,27 +3,37 @@ package ru.nsu.services;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.reflections.Reflections;
 import org.reflections.scanners.SubTypesScanner;
 import org.reflections.scanners.TypeAnnotationsScanner;
+import ru.nsu.exception.BeanIndexException;
 import ru.nsu.exception.ClazzException;
 import ru.nsu.exception.ConstructorException;
 import ru.nsu.exception.EmptyJsonException;
 import ru.nsu.exception.WrongJsonException;
+import ru.nsu.jfr.BeanScanEvent;
 import ru.nsu.model.BeanDefinition;
 import ru.nsu.model.BeanDefinitionReader;
-import ru.nsu.model.BeanDefinitionsWrapper;
+import ru.nsu.model.PoolSettings;
+import ru.nsu.processor.BeanIndexEntry;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -46,88 +56,458 @@ public class DependencyScanningConfig {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private List<BeanDefinitionReader> beansFromJson;
+    /**
+     * Модели бинов из json конфигурации по их именам.
+     */
+    private Map<String, BeanDefinitionReader> beansFromJson = Map.of();
+
+    /**
+     * Использовать ли индекс бинов, созданный процессором аннотаций, вместо сканирования пакета через Reflections.
+     */
+    private boolean useBeanIndex = true;
+
+    /**
+     * Загрузчик, через который ищутся классы бинов, индекс бинов и json конфигурация.
+     * Его нужно заменить, если бины загружаются отдельным загрузчиком, например скомпилированы во время работы.
+     */
+    private ClassLoader classLoader = DependencyScanningConfig.class.getClassLoader();
+
+    /**
+     * Профилировщик старта, по умолчанию выключен. Контейнер, созданный по этому конфигу, использует его же.
+     */
+    private BootstrapProfiler profiler = BootstrapProfiler.DISABLED;
+
+    /**
+     * Папка со снимками метаданных бинов между запусками, по умолчанию null и снимки не используются.
+     * Если папка задана, то сканирование с тем же classpath и той же конфигурацией загружает снимок
+     * вместо сканирования, а контейнер берёт из него граф зависимостей (см. {@link MetadataSnapshotCache}).
+     * Папка не должна лежать внутри classpath, иначе каждый записанный снимок меняет отпечаток.
+     */
+    private Path snapshotDirectory;
+
+    /**
+     * Снимок, из которого были восстановлены бины, или null, если бины были просканированы.
+     */
+    @Setter(AccessLevel.NONE)
+    private MetadataSnapshotCache.Snapshot restoredSnapshot;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private MetadataSnapshotCache pendingSnapshotCache;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private MetadataSnapshotCache.Mode pendingSnapshotMode;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int scanCount;
 
     /**
      * Мы сканируем классы в определённом пакете, с помощью рефлексию смотрим все аннотации в этих классах.
+     * Если в classpath есть индекс бинов, созданный {@link ru.nsu.processor.BeanIndexProcessor} при компиляции,
+     * то классы берутся из него, а Reflections используется только когда индекса для пакета нет.
      * В первую очередь смотрим на аннотации Named, Inject и на интерфейс Provider.
      * А затем мы сопоставляем эту информацию с конфигурации из json бинов.
      * Если получаются какие-то несоответствия или информация не полная, то будет выброшена специальная ошибка.
+     * Если задана {@link #snapshotDirectory} и для этого classpath и этой конфигурации уже есть снимок,
+     * то бины регистрируются по снимку без сканирования пакета.
      *
      * @param scanningDirectory директория, в которой мы будем изучать классы с помощью reflection.
-     * @param jsonConfig        файл из папки resources/beans в котором находится json конфигурация бинов.
+     * @param jsonConfig        файл из папки resources/beans в котором находится json конфигурация бинов,
+     *                          папка внутри resources/beans или glob, например {@code fragments/*.json}.
      * @throws IOException ошибка, возникающая, если директории, переданные в функции не были найдены.
      */
     public void scanForAnnotatedClasses(String scanningDirectory, String jsonConfig) throws IOException {
-        Reflections reflections = new Reflections(scanningDirectory,
-                new SubTypesScanner(false),
-                new TypeAnnotationsScanner());
+        try (BootstrapProfiler.Span ignored = profiler.span("scanForAnnotatedClasses", "scan", null)) {
+            BeanConfigLoader configLoader = new BeanConfigLoader(objectMapper, classLoader);
+            scanAnnotatedPackage(scanningDirectory, configLoader, configLoader.resolve(jsonConfig));
+        }
+    }
+
+    /**
+     * То же сканирование, но json конфигурация читается из файлов на диске, например из папки,
+     * в которую разные команды складывают свои части конфигурации.
+     *
+     * @param scanningDirectory директория, в которой мы будем изучать классы с помощью reflection.
+     * @param configDirectory   папка с файлами конфигурации.
+     * @param glob              glob файлов относительно папки, например {@code *.json}.
+     * @throws IOException ошибка чтения конфигурации.
+     */
+    public void scanForAnnotatedClasses(String scanningDirectory, Path configDirectory, String glob) throws IOException {
+        try (BootstrapProfiler.Span ignored = profiler.span("scanForAnnotatedClasses", "scan", null)) {
+            BeanConfigLoader configLoader = new BeanConfigLoader(objectMapper, classLoader);
+            scanAnnotatedPackage(scanningDirectory, configLoader, configLoader.resolveFiles(configDirectory, glob));
+        }
+    }
+
+    /**
+     * Регистрируем бины пакета по снимку метаданных, а если его нет - читаем конфигурацию и сканируем пакет.
+     *
+     * @param scanningDirectory сканируемый пакет.
+     * @param configLoader      загрузчик конфигурации.
+     * @param configSources     файлы json конфигурации.
+     * @throws IOException ошибка чтения конфигурации или индекса бинов.
+     */
+    private void scanAnnotatedPackage(String scanningDirectory, BeanConfigLoader configLoader,
+                                      List<URL> configSources) throws IOException {
+        MetadataSnapshotCache.Snapshot snapshot = loadSnapshot(MetadataSnapshotCache.Mode.ANNOTATED, scanningDirectory, configSources);
+        if (snapshot != null) {
+            for (MetadataSnapshotCache.SnapshotBean snapshotBean : snapshot.beans()) {
+                if (snapshotBean.indexEntry() != null) {
+                    try (BootstrapProfiler.Span beanSpan = profiler.span("registerSnapshotBean", "scan", snapshotBean.indexEntry().getClassName())) {
+                        registerIndexedBean(snapshotBean.indexEntry());
+                    }
+                }
+            }
+            return;
+        }
+        try (BootstrapProfiler.Span readSpan = profiler.span("readBeanDefinitions", "scan", null)) {
+            this.beansFromJson = configLoader.load(configSources);
+        }
+        scanPackage(scanningDirectory);
+    }
+
+    /**
+     * Ищем снимок метаданных для этого сканирования. Если снимок найден, то конфигурация бинов берётся из него,
+     * а если нет - запоминаем, куда контейнер должен сохранить снимок после построения графа зависимостей.
+     * Снимок используется, только если конфиг сканируется один раз: граф нескольких сканирований в один снимок не сохраняется.
+     *
+     * @param mode          способ поиска бинов.
+     * @param scanKey       параметры сканирования, которые входят в отпечаток.
+     * @param configSources файлы json конфигурации.
+     * @return снимок или null, если бины нужно сканировать.
+     * @throws IOException ошибка чтения конфигурации или classpath при подсчёте отпечатка.
+     */
+    private MetadataSnapshotCache.Snapshot loadSnapshot(MetadataSnapshotCache.Mode mode, String scanKey,
+                                                        List<URL> configSources) throws IOException {
+        this.restoredSnapshot = null;
+        this.pendingSnapshotCache = null;
+        if (snapshotDirectory == null || ++scanCount > 1) {
+            return null;
+        }
+        try (BootstrapProfiler.Span snapshotSpan = profiler.span("loadMetadataSnapshot", "scan", null)) {
+            String fingerprint = MetadataSnapshotCache.fingerprint(classLoader, mode + ":" + scanKey + ":" + useBeanIndex, configSources);
+            MetadataSnapshotCache snapshotCache = new MetadataSnapshotCache(snapshotDirectory, fingerprint, objectMapper);
+            MetadataSnapshotCache.Snapshot snapshot = snapshotCache.load();
+            if (snapshot == null || snapshot.mode() != mode) {
+                this.pendingSnapshotCache = snapshotCache;
+                this.pendingSnapshotMode = mode;
+                return null;
+            }
+            Map<String, BeanDefinitionReader> snapshotReaders = new LinkedHashMap<>();
+            snapshot.beans().forEach(snapshotBean -> snapshotReaders.put(snapshotBean.reader().getName(), snapshotBean.reader()));
+            this.beansFromJson = snapshotReaders;
+            this.restoredSnapshot = snapshot;
+            log.info("Loaded bean metadata from snapshot {}", snapshotCache.getSnapshotFile());
+            return snapshot;
+        }
+    }
 
+    /**
+     * Сохраняем снимок метаданных, если при сканировании его не нашлось. Вызывается контейнером
+     * после того, как граф зависимостей построен и проверен на циклы. Ошибка записи не мешает старту.
+     *
+     * @param orderedBeans     порядок создания бинов.
+     * @param dependencyLevels уровни графа зависимостей.
+     * @param beanDependencies зависимости каждого бина.
+     */
+    void storeSnapshot(List<String> orderedBeans, List<List<String>> dependencyLevels, Map<String, Set<String>> beanDependencies) {
+        MetadataSnapshotCache snapshotCache = pendingSnapshotCache;
+        if (snapshotCache == null) {
+            return;
+        }
+        this.pendingSnapshotCache = null;
+        List<MetadataSnapshotCache.SnapshotBean> snapshotBeans = new ArrayList<>();
+        for (BeanDefinitionReader beanReader : beansFromJson.values()) {
+            BeanDefinition beanDefinition = nameToBeanDefinitionMap.get(beanReader.getName());
+            BeanIndexEntry indexEntry = (pendingSnapshotMode == MetadataSnapshotCache.Mode.ANNOTATED && beanDefinition != null)
+                    ? toIndexEntry(beanDefinition) : null;
+            snapshotBeans.add(new MetadataSnapshotCache.SnapshotBean(indexEntry, beanReader));
+        }
+        try {
+            snapshotCache.store(new MetadataSnapshotCache.Snapshot(pendingSnapshotMode, snapshotBeans,
+                    orderedBeans, dependencyLevels, beanDependencies));
+        } catch (IOException e) {
+            log.warn("Failed to write metadata snapshot {}", snapshotCache.getSnapshotFile(), e);
+        }
+    }
+
+    /**
+     * Превращаем модель просканированного бина в запись индекса бинов, по которой её можно восстановить.
+     *
+     * @param beanDefinition модель бина с выбранным конструктором.
+     * @return запись индекса.
+     */
+    private static BeanIndexEntry toIndexEntry(BeanDefinition beanDefinition) {
+        Constructor<?> constructor = beanDefinition.getConstructor();
+        List<String> constructorParameterTypes = constructor.isAnnotationPresent(Inject.class)
+                ? Arrays.stream(constructor.getParameterTypes()).map(Class::getName).toList()
+                : null;
+        return new BeanIndexEntry(constructor.getDeclaringClass().getName(), beanDefinition.getName(),
+                fieldNames(beanDefinition.getInjectedFields()), fieldNames(beanDefinition.getInjectedProviderFields()),
+                constructorParameterTypes, methodNames(beanDefinition.getPostConstructMethod()),
+                methodNames(beanDefinition.getPreDestroyMethod()));
+    }
 
-        this.beansFromJson = readBeanDefinitions(jsonConfig).getBeans();
+    private static List<String> fieldNames(List<Field> fields) {
+        return fields == null ? List.of() : fields.stream().map(Field::getName).toList();
+    }
 
-        Set<Class<?>> allClasses = reflections.getSubTypesOf(Object.class);
+    private static List<String> methodNames(Method method) {
+        return method == null ? List.of() : List.of(method.getName());
+    }
+
+    /**
+     * Ищем классы бинов в пакете, через индекс бинов или Reflections, и сопоставляем их с уже прочитанной конфигурацией.
+     *
+     * @param scanningDirectory сканируемый пакет.
+     * @throws IOException ошибка чтения индекса бинов.
+     */
+    private void scanPackage(String scanningDirectory) throws IOException {
+        List<BeanIndexEntry> indexedBeans;
+        try (BootstrapProfiler.Span indexSpan = profiler.span("readBeanIndex", "scan", null)) {
+            indexedBeans = useBeanIndex ? readBeanIndex(scanningDirectory) : Collections.emptyList();
+        }
+        if (!indexedBeans.isEmpty()) {
+            for (BeanIndexEntry indexEntry : indexedBeans) {
+                BeanScanEvent scanEvent = new BeanScanEvent();
+                scanEvent.begin();
+                try (BootstrapProfiler.Span beanSpan = profiler.span("registerIndexedBean", "scan", indexEntry.getClassName())) {
+                    registerIndexedBean(indexEntry);
+                }
+                commitScanEvent(scanEvent, indexEntry.getName());
+            }
+            return;
+        }
+
+        Set<Class<?>> allClasses;
+        try (BootstrapProfiler.Span reflectionsSpan = profiler.span("reflectionsScan", "scan", null)) {
+            Reflections reflections = new Reflections(scanningDirectory, classLoader,
+                    new SubTypesScanner(false),
+                    new TypeAnnotationsScanner());
+
+            allClasses = reflections.getSubTypesOf(Object.class);
+        }
 
         for (Class<?> clazz : allClasses) {
             if (!clazz.isInterface() && isAvailableForInjection(clazz)) {
-                BeanDefinition beanDefinition = new BeanDefinition();
-                String namedAnnotationValue = Optional.ofNullable(clazz.getAnnotation(Named.class))
-                        .map(Named::value)
-                        .orElseThrow(() -> new ClazzException(clazz.getCanonicalName()));
-
-                BeanDefinitionReader beanDefinitionReader = Optional.ofNullable(findBeanInJson(namedAnnotationValue))
-                        .orElseThrow(() -> new WrongJsonException(namedAnnotationValue, ". No configuration for bean with name."));
-
-                List<Field> injectedFields = new ArrayList<>();
-                List<Field> injectedProviderFields = new ArrayList<>();
-                analyzeClassFields(clazz, injectedFields, injectedProviderFields);
-
-                Constructor<?> selectedConstructor = null;
-                boolean isConstructorFound = false;
-
-                // Проверяем, есть ли конструктор с аннотацией inject
-                for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
-                    if (constructor.isAnnotationPresent(Inject.class)) {
-                        selectedConstructor = constructor;
-                        isConstructorFound = true;
-                        break;
-                    }
+                BeanScanEvent scanEvent = new BeanScanEvent();
+                scanEvent.begin();
+                try (BootstrapProfiler.Span beanSpan = profiler.span("registerScannedBean", "scan", clazz.getName())) {
+                    registerScannedBean(clazz);
                 }
+                commitScanEvent(scanEvent, clazz.getAnnotation(Named.class).value());
+            }
+        }
+    }
 
-                // Если конструктор с @Inject не найден, используем конструктор по умолчанию, если он есть.
-                if (!isConstructorFound) {
-                    try {
-                        selectedConstructor = clazz.getDeclaredConstructor();
-                    } catch (NoSuchMethodException e) {
-                        throw new ConstructorException(clazz.getCanonicalName(), "No constructor at all");
-                    }
-                }
+    /**
+     * Записываем событие JFR о регистрации бина, если запись включена.
+     *
+     * @param scanEvent начатое событие.
+     * @param beanName  имя зарегистрированного бина.
+     */
+    private void commitScanEvent(BeanScanEvent scanEvent, String beanName) {
+        BeanDefinition beanDefinition = nameToBeanDefinitionMap.get(beanName);
+        scanEvent.commit(beanName, (beanDefinition != null) ? beanDefinition.getScope() : null);
+    }
 
-                // Если были найдены поля класса, участвующие в инъекции и при этом есть конструктор с инъекцией, то выбрасывается ошибка
-                if ((!injectedFields.isEmpty() && isConstructorFound) || (!injectedProviderFields.isEmpty() && isConstructorFound)) {
-                    throw new ConstructorException(clazz.getCanonicalName(), "Only one type of injection is available: fields or constructors");
-                }
-                beanDefinition.setClassName(clazz.getCanonicalName());
-                beanDefinition.setName(namedAnnotationValue);
-                beanDefinition.setScope(beanDefinitionReader.getScope());
-                beanDefinition.setInjectedFields(injectedFields.isEmpty() ? null : injectedFields);
-                beanDefinition.setInjectedProviderFields(injectedProviderFields.isEmpty() ? null : injectedProviderFields);
-                beanDefinition.setConstructor(selectedConstructor);
-                beanDefinition.setInitParams(beanDefinitionReader.getInitParams());
-                findConstructMethods(clazz, beanDefinition);
-
-                this.nameToBeanDefinitionMap.put(namedAnnotationValue, beanDefinition);
-                switch (beanDefinitionReader.getScope()) {
-                    case "prototype" -> {
-                    }
-                    case "singleton" -> singletonScopes.put(namedAnnotationValue, beanDefinition);
-                    case "thread" -> threadScopes.put(namedAnnotationValue, beanDefinition);
-                    default -> throw new WrongJsonException(namedAnnotationValue, "Unknown bean scope " + beanDefinition.getScope());
+    /**
+     * Изучаем класс, найденный с помощью Reflections: ищем поля для внедрения, конструктор с Inject
+     * и методы PostConstruct/PreDestroy, а затем регистрируем модель бина.
+     *
+     * @param clazz класс бина.
+     */
+    private void registerScannedBean(Class<?> clazz) {
+        List<Field> injectedFields = new ArrayList<>();
+        List<Field> injectedProviderFields = new ArrayList<>();
+        analyzeClassFields(clazz, injectedFields, injectedProviderFields);
+
+        Constructor<?> injectConstructor = null;
+        // Проверяем, есть ли конструктор с аннотацией inject
+        for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(Inject.class)) {
+                injectConstructor = constructor;
+                break;
+            }
+        }
+
+        BeanDefinition beanDefinition = createBeanDefinition(clazz, injectedFields, injectedProviderFields, injectConstructor);
+        findConstructMethods(clazz, beanDefinition);
+        registerBeanDefinition(beanDefinition);
+    }
+
+    /**
+     * Регистрируем бин по записи из индекса, созданного процессором аннотаций на этапе компиляции.
+     * Здесь не нужно проходить по всем полям, конструкторам и методам класса:
+     * все точки внедрения уже известны по именам.
+     *
+     * @param indexEntry запись индекса бинов.
+     */
+    private void registerIndexedBean(BeanIndexEntry indexEntry) {
+        String className = indexEntry.getClassName();
+        try {
+            Class<?> clazz = Class.forName(className, false, classLoader);
+
+            List<Field> injectedFields = new ArrayList<>();
+            for (String fieldName : indexEntry.getInjectedFields()) {
+                injectedFields.add(clazz.getDeclaredField(fieldName));
+            }
+            List<Field> injectedProviderFields = new ArrayList<>();
+            for (String fieldName : indexEntry.getInjectedProviderFields()) {
+                injectedProviderFields.add(clazz.getDeclaredField(fieldName));
+            }
+
+            Constructor<?> injectConstructor = null;
+            if (indexEntry.getConstructorParameterTypes() != null) {
+                List<String> parameterTypeNames = indexEntry.getConstructorParameterTypes();
+                Class<?>[] parameterTypes = new Class<?>[parameterTypeNames.size()];
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    parameterTypes[i] = loadType(parameterTypeNames.get(i));
                 }
+                injectConstructor = clazz.getDeclaredConstructor(parameterTypes);
+            }
+
+            BeanDefinition beanDefinition = createBeanDefinition(clazz, injectedFields, injectedProviderFields, injectConstructor);
+            beanDefinition.setPostConstructMethod(findIndexedMethod(clazz, indexEntry.getPostConstructMethods(), "@PostConstruct"));
+            beanDefinition.setPreDestroyMethod(findIndexedMethod(clazz, indexEntry.getPreDestroyMethods(), "@PreDestroy"));
+            registerBeanDefinition(beanDefinition);
+        } catch (ClassNotFoundException | NoSuchFieldException | NoSuchMethodException e) {
+            throw new BeanIndexException(className, "Bean index is out of date: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Получаем метод жизненного цикла по списку имён из индекса бинов.
+     *
+     * @param clazz          класс бина.
+     * @param methodNames    имена методов с аннотацией.
+     * @param annotationName название аннотации для сообщения об ошибке.
+     * @return найденный метод или null, если таких методов нет.
+     * @throws NoSuchMethodException ошибка, если метода из индекса нет в классе.
+     */
+    private Method findIndexedMethod(Class<?> clazz, List<String> methodNames, String annotationName) throws NoSuchMethodException {
+        if (methodNames.isEmpty()) {
+            return null;
+        }
+        if (methodNames.size() > 1) {
+            throw new IllegalStateException(annotationName + " annotation found on multiple methods in " + clazz.getName());
+        }
+        return clazz.getDeclaredMethod(methodNames.get(0));
+    }
+
+    /**
+     * Создаём модель бина из найденных точек внедрения и сопоставляем её с JSON конфигурацией.
+     * Если получаются какие-то несоответствия или информация не полная, то будет выброшена специальная ошибка.
+     *
+     * @param clazz                  класс бина.
+     * @param injectedFields         поля, участвующие во внедрении.
+     * @param injectedProviderFields поля провайдера, участвующие во внедрении.
+     * @param injectConstructor      конструктор с аннотацией Inject или null, если его нет.
+     * @return модель бина без методов PostConstruct и PreDestroy.
+     */
+    private BeanDefinition createBeanDefinition(Class<?> clazz, List<Field> injectedFields,
+                                                List<Field> injectedProviderFields, Constructor<?> injectConstructor) {
+        BeanDefinition beanDefinition = new BeanDefinition();
+        String namedAnnotationValue = Optional.ofNullable(clazz.getAnnotation(Named.class))
+                .map(Named::value)
+                .orElseThrow(() -> new ClazzException(clazz.getCanonicalName()));
+
+        BeanDefinitionReader beanDefinitionReader = Optional.ofNullable(findBeanInJson(namedAnnotationValue))
+                .orElseThrow(() -> new WrongJsonException(namedAnnotationValue, ". No configuration for bean with name."));
+
+        Constructor<?> selectedConstructor = injectConstructor;
+        boolean isConstructorFound = injectConstructor != null;
+
+        // Если конструктор с @Inject не найден, используем конструктор по умолчанию, если он есть.
+        if (!isConstructorFound) {
+            try {
+                selectedConstructor = clazz.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new ConstructorException(clazz.getCanonicalName(), "No constructor at all");
+            }
+        }
+
+        // Если были найдены поля класса, участвующие в инъекции и при этом есть конструктор с инъекцией, то выбрасывается ошибка
+        if ((!injectedFields.isEmpty() && isConstructorFound) || (!injectedProviderFields.isEmpty() && isConstructorFound)) {
+            throw new ConstructorException(clazz.getCanonicalName(), "Only one type of injection is available: fields or constructors");
+        }
+        beanDefinition.setClassName(clazz.getCanonicalName());
+        beanDefinition.setName(namedAnnotationValue);
+        beanDefinition.setScope(beanDefinitionReader.getScope());
+        beanDefinition.setInjectedFields(injectedFields.isEmpty() ? null : injectedFields);
+        beanDefinition.setInjectedProviderFields(injectedProviderFields.isEmpty() ? null : injectedProviderFields);
+        beanDefinition.setConstructor(selectedConstructor);
+        beanDefinition.setInitParams(beanDefinitionReader.getInitParams());
+        beanDefinition.setLazy(Boolean.TRUE.equals(beanDefinitionReader.getLazy()));
+        beanDefinition.setPool(beanDefinitionReader.getPool());
+        return beanDefinition;
+    }
+
+    /**
+     * Сохраняем готовую модель бина в общий список и в список бинов её scope.
+     *
+     * @param beanDefinition модель бина.
+     */
+    private void registerBeanDefinition(BeanDefinition beanDefinition) {
+        String beanName = beanDefinition.getName();
+        this.nameToBeanDefinitionMap.put(beanName, beanDefinition);
+        switch (beanDefinition.getScope()) {
+            case "prototype", "context" -> {
             }
+            case "pooled" -> checkPoolSettings(beanDefinition);
+            case "singleton" -> singletonScopes.put(beanName, beanDefinition);
+            case "thread" -> threadScopes.put(beanName, beanDefinition);
+            default -> throw new WrongJsonException(beanName, "Unknown bean scope " + beanDefinition.getScope());
         }
     }
 
+    /**
+     * Читаем все индексы бинов из classpath и оставляем только те записи,
+     * которые относятся к сканируемому пакету.
+     *
+     * @param scanningDirectory сканируемый пакет.
+     * @return записи индекса или пустой список, если индекса нет.
+     * @throws IOException ошибка чтения файла индекса.
+     */
+    private List<BeanIndexEntry> readBeanIndex(String scanningDirectory) throws IOException {
+        List<BeanIndexEntry> indexedBeans = new ArrayList<>();
+        Enumeration<URL> indexes = classLoader.getResources(BeanIndexEntry.INDEX_LOCATION);
+        while (indexes.hasMoreElements()) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                reader.lines()
+                        .filter(line -> !line.isBlank())
+                        .map(BeanIndexEntry::fromLine)
+                        .filter(indexEntry -> indexEntry.belongsTo(scanningDirectory))
+                        .forEach(indexedBeans::add);
+            }
+        }
+        return indexedBeans;
+    }
+
+    /**
+     * Загружаем тип параметра конструктора по имени из индекса, учитывая примитивные типы.
+     *
+     * @param typeName имя типа.
+     * @return класс типа.
+     * @throws ClassNotFoundException ошибка, если такого класса нет.
+     */
+    private Class<?> loadType(String typeName) throws ClassNotFoundException {
+        return switch (typeName) {
+            case "boolean" -> boolean.class;
+            case "byte" -> byte.class;
+            case "char" -> char.class;
+            case "short" -> short.class;
+            case "int" -> int.class;
+            case "long" -> long.class;
+            case "float" -> float.class;
+            case "double" -> double.class;
+            default -> Class.forName(typeName, false, classLoader);
+        };
+    }
+
     /**
      * Поиск метода для создания конструктора. Его логика вынесена для упрощения.
      *
@@ -181,19 +561,6 @@ public class DependencyScanningConfig {
     }
 
 
-    /**
-     * Считываем json конфигурацию бинов и получаем их модель.
-     *
-     * @param jsonConfigPath путь, в котором находится конфигурация бинов.
-     * @return список из моделей бинов.
-     * @throws IOException ошибка, на случай если файла конфигурации не существует.
-     */
-    private BeanDefinitionsWrapper readBeanDefinitions(String jsonConfigPath) throws IOException {
-        String fullPath = "beans/" + jsonConfigPath;
-        InputStream jsonInput = this.getClass().getClassLoader().getResourceAsStream(fullPath);
-        return objectMapper.readValue(jsonInput, BeanDefinitionsWrapper.class);
-    }
-
     /**
      * Создаём сущности бинов, основываясь только на json конфигурации файлов,
      * то есть мы не ищем с помощью рефлексии аннотации в определённых пакетах,
@@ -204,41 +571,69 @@ public class DependencyScanningConfig {
      * @throws IOException            ошибка, если файла с конфигурацией не существует.
      */
     public void scanForJsonOnlyConfig(String jsonConfigPath) throws ClassNotFoundException, IOException {
-        this.beansFromJson = readBeanDefinitions(jsonConfigPath).getBeans();
-        for (BeanDefinitionReader currentBean : beansFromJson) {
-            if (currentBean.getName() == null) {
-                throw new EmptyJsonException("unknown", "No name field for this json");
-            }
-            if (currentBean.getScope() == null) {
-                throw new EmptyJsonException(currentBean.getName(), "No scope field for this bean in json");
-            }
-            if (currentBean.getClassName() == null) {
-                throw new EmptyJsonException(currentBean.getName(), "No className field for this bean in json");
+        BeanConfigLoader configLoader = new BeanConfigLoader(objectMapper, classLoader);
+        List<URL> configSources = configLoader.resolve(jsonConfigPath);
+        if (loadSnapshot(MetadataSnapshotCache.Mode.JSON_ONLY, jsonConfigPath, configSources) == null) {
+            try (BootstrapProfiler.Span readSpan = profiler.span("readBeanDefinitions", "scan", null)) {
+                this.beansFromJson = configLoader.load(configSources);
             }
-            String scope = currentBean.getScope();
-            String beanName = currentBean.getName();
-            BeanDefinition beanDefinition = new BeanDefinition();
-            beanDefinition.setScope(scope);
-            beanDefinition.setName(beanName);
-            beanDefinition.setClassName(currentBean.getClassName());
-            beanDefinition.setInitParams(currentBean.getInitParams());
-
-            if (currentBean.getConstructorParams() != null && !currentBean.getConstructorParams().isEmpty()) {
-                List<String> paramTypeNames = currentBean.getConstructorParams().stream()
-                        .map(Object::toString)
-                        .collect(Collectors.toList());
-                Constructor<?> constructor = findAndSetConstructor(currentBean.getClassName(), paramTypeNames);
-                beanDefinition.setConstructor(constructor);
-            }
-            switch (scope) {
-                case "singleton" -> singletonScopes.put(beanName, beanDefinition);
-                case "prototype" -> {
-                }
-                case "thread" -> threadScopes.put(beanName, beanDefinition);
-                default -> throw new WrongJsonException(beanName, "Unknown bean scope.");
+        }
+        for (BeanDefinitionReader currentBean : beansFromJson.values()) {
+            registerJsonOnlyBean(currentBean);
+        }
+    }
+
+    /**
+     * Создаём модель бина только по его json конфигурации.
+     *
+     * @param currentBean json конфигурация бина.
+     * @throws ClassNotFoundException ошибка, если указанный в конфигурации класс не существует.
+     */
+    private void registerJsonOnlyBean(BeanDefinitionReader currentBean) throws ClassNotFoundException {
+        if (currentBean.getScope() == null) {
+            throw new EmptyJsonException(currentBean.getName(), "No scope field for this bean in json");
+        }
+        if (currentBean.getClassName() == null) {
+            throw new EmptyJsonException(currentBean.getName(), "No className field for this bean in json");
+        }
+        String scope = currentBean.getScope();
+        String beanName = currentBean.getName();
+        BeanDefinition beanDefinition = new BeanDefinition();
+        beanDefinition.setScope(scope);
+        beanDefinition.setName(beanName);
+        beanDefinition.setClassName(currentBean.getClassName());
+        beanDefinition.setInitParams(currentBean.getInitParams());
+        beanDefinition.setLazy(Boolean.TRUE.equals(currentBean.getLazy()));
+        beanDefinition.setPool(currentBean.getPool());
+
+        if (currentBean.getConstructorParams() != null && !currentBean.getConstructorParams().isEmpty()) {
+            List<String> paramTypeNames = currentBean.getConstructorParams().stream()
+                    .map(Object::toString)
+                    .collect(Collectors.toList());
+            Constructor<?> constructor = findAndSetConstructor(currentBean.getClassName(), paramTypeNames);
+            beanDefinition.setConstructor(constructor);
+        }
+        switch (scope) {
+            case "singleton" -> singletonScopes.put(beanName, beanDefinition);
+            case "prototype", "context" -> {
             }
-            nameToBeanDefinitionMap.put(beanName, beanDefinition);
+            case "pooled" -> checkPoolSettings(beanDefinition);
+            case "thread" -> threadScopes.put(beanName, beanDefinition);
+            default -> throw new WrongJsonException(beanName, "Unknown bean scope.");
+        }
+        nameToBeanDefinitionMap.put(beanName, beanDefinition);
+    }
+
+    /**
+     * Проверяем настройки пула бина со scope {@code pooled}. Если настроек в json нет, то используются настройки по умолчанию.
+     *
+     * @param beanDefinition модель бина.
+     */
+    private void checkPoolSettings(BeanDefinition beanDefinition) {
+        if (beanDefinition.getPool() == null) {
+            beanDefinition.setPool(new PoolSettings());
         }
+        beanDefinition.getPool().validate(beanDefinition.getName());
     }
 
     /**
@@ -252,14 +647,14 @@ public class DependencyScanningConfig {
      * @throws ClassNotFoundException ошибка, когда по переданному className не был найден класс в проекте.
      */
     private Constructor<?> findAndSetConstructor(String className, List<String> paramTypeNames) throws ClassNotFoundException {
-        Class<?> clazz = Class.forName(className);
+        Class<?> clazz = Class.forName(className, false, classLoader);
         List<Class<?>> paramClasses = new ArrayList<>();
 
         for (String paramName : paramTypeNames) {
             if (paramName.startsWith("Provider<") && paramName.endsWith(">")) {
                 paramClasses.add(javax.inject.Provider.class);
             } else {
-                paramClasses.add(Class.forName(paramName));
+                paramClasses.add(Class.forName(paramName, false, classLoader));
             }
         }
 
@@ -299,11 +694,6 @@ public class DependencyScanningConfig {
      * @return найденная сущность бина.
      */
     private BeanDefinitionReader findBeanInJson(String namedAnnotationValue) {
-        for (BeanDefinitionReader currentBeanJson : beansFromJson) {
-            if (namedAnnotationValue.equals(currentBeanJson.getName())) {
-                return currentBeanJson;
-            }
-        }
-        return null;
+        return beansFromJson.get(namedAnnotationValue);
     }
 }
@@ -0,0 +1,306 @@
+package ru.nsu.services;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Преобразование значений initParams из json в тип параметра сеттера. Вызывается один раз при связывании
+ * {@link BeanInstantiator}, поэтому при создании инстансов значения уже имеют нужный тип.
+ * <p>
+ * Поддерживаются примитивы и их обёртки из чисел и строк (например {@code "587"} в {@code int}),
+ * {@link BigDecimal} и {@link BigInteger}, строки из чисел и boolean, enum по имени константы без учёта регистра,
+ * {@link Duration} из ISO-8601 ({@code "PT30S"}), из короткой записи ({@code "500ms"}, {@code "30s"}, {@code "5m"},
+ * {@code "2h"}, {@code "1d"}) или из числа миллисекунд, а также массивы, коллекции и отношения,
+ * элементы которых преобразуются по их generic типу. Коллекции и отношения интерфейсных типов возвращаются
+ * неизменяемыми, потому что одно значение используется для всех инстансов бина. Массивы и коллекции конкретных
+ * классов, например {@code ArrayList}, изменяемы, поэтому для них {@link #isMutable(Object, Type)} возвращает true,
+ * и такое значение преобразуется заново для каждого инстанса.
+ */
+final class InitParamConverter {
+
+    private static final Pattern SHORT_DURATION = Pattern.compile("(-?\\d+)\\s*(ns|us|ms|s|m|h|d)");
+
+    private InitParamConverter() {
+    }
+
+    /**
+     * Преобразуем значение из json в тип параметра.
+     *
+     * @param value      значение из json: строка, число, boolean, список, отношение или null.
+     * @param targetType generic тип параметра сеттера.
+     * @return значение нужного типа, для примитивов - значение обёртки.
+     * @throws IllegalArgumentException ошибка, если значение нельзя преобразовать в этот тип.
+     */
+    static Object convert(Object value, Type targetType) {
+        Class<?> rawType = rawType(targetType);
+        if (value == null) {
+            if (rawType.isPrimitive()) {
+                throw new IllegalArgumentException("null can't be converted to " + rawType.getName());
+            }
+            return null;
+        }
+        Class<?> boxedType = rawType.isPrimitive() ? MethodType.methodType(rawType).wrap().returnType() : rawType;
+        if (boxedType.isArray()) {
+            return convertArray(value, componentType(targetType));
+        }
+        if (Collection.class.isAssignableFrom(boxedType)) {
+            return convertCollection(value, boxedType, typeArgument(targetType, 0));
+        }
+        if (Map.class.isAssignableFrom(boxedType)) {
+            return convertMap(value, boxedType, typeArgument(targetType, 0), typeArgument(targetType, 1));
+        }
+        if (boxedType.isInstance(value)) {
+            return value;
+        }
+        if (boxedType == String.class && (value instanceof Number || value instanceof Boolean || value instanceof Character)) {
+            return value.toString();
+        }
+        if (Number.class.isAssignableFrom(boxedType)) {
+            return convertNumber(value, boxedType);
+        }
+        if (boxedType == Boolean.class && value instanceof String string) {
+            if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+                return Boolean.parseBoolean(string);
+            }
+        }
+        if (boxedType == Character.class && value instanceof String string && string.length() == 1) {
+            return string.charAt(0);
+        }
+        if (boxedType.isEnum() && value instanceof String string) {
+            return convertEnum(string, boxedType);
+        }
+        if (boxedType == Duration.class) {
+            return convertDuration(value);
+        }
+        throw new IllegalArgumentException("Can't convert " + value.getClass().getSimpleName() + " value " + value
+                + " to " + targetType.getTypeName());
+    }
+
+    /**
+     * Проверяем, подходит ли значение из json для параметра без преобразования.
+     *
+     * @param value      значение из json.
+     * @param targetType тип параметра сеттера.
+     * @return true, если значение можно передать как есть, с учётом распаковки примитивов.
+     */
+    static boolean isDirectlyAssignable(Object value, Class<?> targetType) {
+        if (value == null) {
+            return !targetType.isPrimitive();
+        }
+        Class<?> boxedType = targetType.isPrimitive() ? MethodType.methodType(targetType).wrap().returnType() : targetType;
+        return boxedType.isInstance(value);
+    }
+
+    /**
+     * Проверяем, может ли инстанс бина изменить преобразованное значение: это массивы, коллекции и отношения
+     * конкретных классов, неизменяемые коллекции с такими элементами, а также списки и отношения из json,
+     * которые передаются как есть в параметр более общего типа, например {@code Object}.
+     * Такое значение нельзя разделять между инстансами.
+     *
+     * @param value      значение из json.
+     * @param targetType generic тип параметра сеттера.
+     * @return true, если значение нужно преобразовывать заново для каждого инстанса.
+     */
+    static boolean isMutable(Object value, Type targetType) {
+        if (value == null) {
+            return false;
+        }
+        Class<?> rawType = rawType(targetType);
+        if (rawType.isArray()) {
+            return true;
+        }
+        if (Collection.class.isAssignableFrom(rawType)) {
+            Collection<?> values = value instanceof Collection<?> collection ? collection : List.of(value);
+            Type elementType = typeArgument(targetType, 0);
+            return !rawType.isInterface() || values.stream().anyMatch(element -> isMutable(element, elementType));
+        }
+        if (Map.class.isAssignableFrom(rawType) && value instanceof Map<?, ?> map) {
+            Type keyType = typeArgument(targetType, 0);
+            Type valueType = typeArgument(targetType, 1);
+            return !rawType.isInterface() || map.entrySet().stream()
+                    .anyMatch(entry -> isMutable(entry.getKey(), keyType) || isMutable(entry.getValue(), valueType));
+        }
+        return value instanceof Collection<?> || value instanceof Map<?, ?>;
+    }
+
+    private static Object convertNumber(Object value, Class<?> numberType) {
+        BigDecimal decimal;
+        try {
+            if (value instanceof String string) {
+                decimal = new BigDecimal(string.trim());
+            } else if (value instanceof Number number) {
+                decimal = new BigDecimal(number.toString());
+            } else {
+                throw new IllegalArgumentException("Can't convert " + value.getClass().getSimpleName() + " to " + numberType.getSimpleName());
+            }
+            if (numberType == Integer.class) {
+                return decimal.intValueExact();
+            } else if (numberType == Long.class) {
+                return decimal.longValueExact();
+            } else if (numberType == Short.class) {
+                return decimal.shortValueExact();
+            } else if (numberType == Byte.class) {
+                return decimal.byteValueExact();
+            } else if (numberType == Double.class) {
+                return decimal.doubleValue();
+            } else if (numberType == Float.class) {
+                return decimal.floatValue();
+            } else if (numberType == BigInteger.class) {
+                return decimal.toBigIntegerExact();
+            } else if (numberType == BigDecimal.class) {
+                return decimal;
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Value " + value + " doesn't fit into " + numberType.getSimpleName(), e);
+        }
+        throw new IllegalArgumentException("Unsupported number type " + numberType.getName());
+    }
+
+    private static Object convertEnum(String value, Class<?> enumType) {
+        String normalized = value.trim().replace('-', '_');
+        for (Object constant : enumType.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equalsIgnoreCase(normalized)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No constant " + value + " in enum " + enumType.getName());
+    }
+
+    private static Duration convertDuration(Object value) {
+        if (value instanceof Number number) {
+            return Duration.ofMillis(new BigDecimal(number.toString()).longValueExact());
+        }
+        if (!(value instanceof String string)) {
+            throw new IllegalArgumentException("Can't convert " + value.getClass().getSimpleName() + " to Duration");
+        }
+        String trimmed = string.trim();
+        Matcher matcher = SHORT_DURATION.matcher(trimmed.toLowerCase(Locale.ROOT));
+        if (matcher.matches()) {
+            long amount = Long.parseLong(matcher.group(1));
+            return switch (matcher.group(2)) {
+                case "ns" -> Duration.ofNanos(amount);
+                case "us" -> Duration.ofNanos(Math.multiplyExact(amount, 1000L));
+                case "ms" -> Duration.ofMillis(amount);
+                case "s" -> Duration.ofSeconds(amount);
+                case "m" -> Duration.ofMinutes(amount);
+                case "h" -> Duration.ofHours(amount);
+                default -> Duration.ofDays(amount);
+            };
+        }
+        return Duration.parse(trimmed);
+    }
+
+    private static Object convertArray(Object value, Type componentType) {
+        List<?> values = value instanceof Collection<?> collection ? new ArrayList<>(collection) : List.of(value);
+        Object array = Array.newInstance(rawType(componentType), values.size());
+        for (int i = 0; i < values.size(); i++) {
+            Array.set(array, i, convert(values.get(i), componentType));
+        }
+        return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object convertCollection(Object value, Class<?> collectionType, Type elementType) {
+        Collection<?> values = value instanceof Collection<?> collection ? collection : List.of(value);
+        Collection<Object> converted;
+        if (collectionType.isAssignableFrom(ArrayList.class)) {
+            converted = new ArrayList<>(values.size());
+        } else if (collectionType.isAssignableFrom(LinkedHashSet.class)) {
+            converted = new LinkedHashSet<>();
+        } else if (collectionType.isAssignableFrom(TreeSet.class)) {
+            converted = new TreeSet<>();
+        } else if (!collectionType.isInterface() && !Modifier.isAbstract(collectionType.getModifiers())) {
+            try {
+                converted = (Collection<Object>) collectionType.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Can't create collection " + collectionType.getName(), e);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported collection type " + collectionType.getName());
+        }
+        for (Object element : values) {
+            converted.add(convert(element, elementType));
+        }
+        if (!collectionType.isInterface()) {
+            return converted;
+        }
+        if (converted instanceof NavigableSet<Object> navigableSet) {
+            return Collections.unmodifiableNavigableSet(navigableSet);
+        }
+        if (converted instanceof SortedSet<Object> sortedSet) {
+            return Collections.unmodifiableSortedSet(sortedSet);
+        }
+        if (converted instanceof Set<Object> set) {
+            return Collections.unmodifiableSet(set);
+        }
+        return Collections.unmodifiableList((List<Object>) converted);
+    }
+
+    private static Object convertMap(Object value, Class<?> mapType, Type keyType, Type valueType) {
+        if (!(value instanceof Map<?, ?> map)) {
+            throw new IllegalArgumentException("Can't convert " + value.getClass().getSimpleName() + " to " + mapType.getName());
+        }
+        if (!mapType.isAssignableFrom(LinkedHashMap.class)) {
+            throw new IllegalArgumentException("Unsupported map type " + mapType.getName());
+        }
+        Map<Object, Object> converted = new LinkedHashMap<>();
+        map.forEach((key, mapValue) -> converted.put(convert(key, keyType), convert(mapValue, valueType)));
+        return mapType.isInterface() ? Collections.unmodifiableMap(converted) : converted;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        }
+        if (type instanceof ParameterizedType parameterizedType) {
+            return (Class<?>) parameterizedType.getRawType();
+        }
+        if (type instanceof GenericArrayType arrayType) {
+            return rawType(arrayType.getGenericComponentType()).arrayType();
+        }
+        if (type instanceof WildcardType wildcardType) {
+            return rawType(wildcardType.getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable<?> typeVariable) {
+            return rawType(typeVariable.getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    private static Type componentType(Type arrayType) {
+        if (arrayType instanceof GenericArrayType genericArrayType) {
+            return genericArrayType.getGenericComponentType();
+        }
+        return rawType(arrayType).getComponentType();
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType parameterizedType) {
+            return parameterizedType.getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.nsu.services;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма длительностей с фиксированным размером памяти.
+ * Длительности раскладываются по корзинам степеней двойки наносекунд, поэтому точность процентилей -
+ * в пределах двух раз, а память не растёт с числом измерений.
+ * Каждая корзина - {@link LongAdder}, поэтому запись из многих потоков не приводит к конкуренции за одну ячейку.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Корзина i содержит длительности в интервале [2^(i-1), 2^i) наносекунд, последняя корзина - всё, что больше.
+     * 2^40 наносекунд - это примерно 18 минут.
+     */
+    private static final int BUCKETS = 41;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Записываем одно измерение.
+     *
+     * @param nanos длительность в наносекундах.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long currentCount = count.sum();
+        return currentCount == 0 ? 0 : (double) totalNanos.sum() / currentCount;
+    }
+
+    /**
+     * Оценка процентиля сверху: верхняя граница корзины, в которую попадает процентиль.
+     *
+     * @param percentile процентиль от 0 до 100.
+     * @return длительность в наносекундах или 0, если измерений нет.
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return (i == BUCKETS - 1) ? getMaxNanos() : Math.min((1L << i) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
@@ -0,0 +1,337 @@
+package ru.nsu.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import ru.nsu.model.BeanDefinitionReader;
+import ru.nsu.processor.BeanIndexEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Кэш полностью разобранных метаданных бинов между запусками приложения.
+ * После первого старта в файл сохраняются модели бинов в виде записей индекса бинов (поля и конструктор для внедрения,
+ * методы PostConstruct и PreDestroy), их json конфигурация, порядок создания бинов, уровни и зависимости графа.
+ * При следующем старте с тем же отпечатком вместо сканирования пакета и разбора json
+ * классы бинов загружаются по именам из файла, а граф зависимостей не строится заново.
+ * <p>
+ * Отпечаток - SHA-256 от элементов classpath (имя, размер и время изменения файлов, а для папок и всех файлов в них),
+ * содержимого файлов конфигурации и параметров сканирования. Любое изменение классов или конфигурации меняет отпечаток,
+ * поэтому устаревший снимок просто не находится, а после сохранения нового снимка удаляется. Повреждённый или несовместимый файл
+ * тоже считается отсутствующим.
+ */
+@Slf4j
+public class MetadataSnapshotCache {
+
+    private static final int MAGIC = 0x44494D53;
+
+    private static final int VERSION = 1;
+
+    private static final String FILE_PREFIX = "beans-";
+
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    private final Path snapshotFile;
+
+    private final String fingerprint;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Конструктор кэша для одного отпечатка.
+     *
+     * @param snapshotDirectory папка, в которой хранятся снимки.
+     * @param fingerprint       отпечаток classpath и конфигурации.
+     * @param objectMapper      маппер, которым сохраняется json конфигурация бинов.
+     */
+    public MetadataSnapshotCache(Path snapshotDirectory, String fingerprint, ObjectMapper objectMapper) {
+        this.snapshotFile = snapshotDirectory.resolve(FILE_PREFIX + fingerprint + FILE_SUFFIX);
+        this.fingerprint = fingerprint;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return файл снимка для этого отпечатка.
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Считаем отпечаток запуска.
+     *
+     * @param classLoader   загрузчик классов бинов: кроме {@code java.class.path} учитываются url всех
+     *                      {@link URLClassLoader} в его цепочке.
+     * @param scanKey       параметры сканирования, например режим и сканируемый пакет.
+     * @param configSources файлы json конфигурации.
+     * @return отпечаток в шестнадцатеричном виде.
+     * @throws IOException ошибка чтения конфигурации или элементов classpath.
+     */
+    public static String fingerprint(ClassLoader classLoader, String scanKey, List<URL> configSources) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, "version:" + VERSION);
+        update(digest, "scan:" + scanKey);
+        for (Path classpathEntry : classpathEntries(classLoader)) {
+            updateWithPath(digest, classpathEntry);
+        }
+        for (URL configSource : configSources) {
+            update(digest, "config:" + configSource);
+            try (InputStream input = configSource.openStream()) {
+                digest.update(input.readAllBytes());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Загружаем снимок, если он есть.
+     *
+     * @return снимок или null, если файла нет или его не удалось прочитать.
+     */
+    public Snapshot load() {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !readString(input).equals(fingerprint)) {
+                log.warn("Metadata snapshot {} has unexpected format, scanning again", snapshotFile);
+                return null;
+            }
+            Mode mode = Mode.values()[input.readByte()];
+            int beanCount = input.readInt();
+            List<SnapshotBean> beans = new ArrayList<>(beanCount);
+            for (int i = 0; i < beanCount; i++) {
+                BeanIndexEntry indexEntry = input.readBoolean() ? BeanIndexEntry.fromLine(readString(input)) : null;
+                byte[] readerBytes = new byte[input.readInt()];
+                input.readFully(readerBytes);
+                beans.add(new SnapshotBean(indexEntry, objectMapper.readValue(readerBytes, BeanDefinitionReader.class)));
+            }
+            List<String> orderedBeans = readStrings(input);
+            int levelCount = input.readInt();
+            List<List<String>> dependencyLevels = new ArrayList<>(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                dependencyLevels.add(readStrings(input));
+            }
+            int dependencyCount = input.readInt();
+            Map<String, Set<String>> beanDependencies = new LinkedHashMap<>();
+            for (int i = 0; i < dependencyCount; i++) {
+                beanDependencies.put(readString(input), new LinkedHashSet<>(readStrings(input)));
+            }
+            return new Snapshot(mode, beans, orderedBeans, dependencyLevels, beanDependencies);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read metadata snapshot {}, scanning again", snapshotFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняем снимок. Файл сначала пишется во временный файл и затем переименовывается,
+     * поэтому параллельно стартующие процессы не прочитают недописанный снимок.
+     * После этого снимки с другими отпечатками в той же папке удаляются.
+     *
+     * @param snapshot снимок.
+     * @throws IOException ошибка записи файла.
+     */
+    public void store(Snapshot snapshot) throws IOException {
+        Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+        Path temporaryFile = Files.createTempFile(snapshotFile.toAbsolutePath().getParent(), FILE_PREFIX, ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                writeString(output, fingerprint);
+                output.writeByte(snapshot.mode().ordinal());
+                output.writeInt(snapshot.beans().size());
+                for (SnapshotBean bean : snapshot.beans()) {
+                    output.writeBoolean(bean.indexEntry() != null);
+                    if (bean.indexEntry() != null) {
+                        writeString(output, bean.indexEntry().toLine());
+                    }
+                    byte[] readerBytes = objectMapper.writeValueAsBytes(bean.reader());
+                    output.writeInt(readerBytes.length);
+                    output.write(readerBytes);
+                }
+                writeStrings(output, snapshot.orderedBeans());
+                output.writeInt(snapshot.dependencyLevels().size());
+                for (List<String> level : snapshot.dependencyLevels()) {
+                    writeStrings(output, level);
+                }
+                output.writeInt(snapshot.beanDependencies().size());
+                for (Map.Entry<String, Set<String>> entry : snapshot.beanDependencies().entrySet()) {
+                    writeString(output, entry.getKey());
+                    writeStrings(output, entry.getValue());
+                }
+            }
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        deleteOutdatedSnapshots();
+    }
+
+    /**
+     * Удаляем снимки с другими отпечатками, чтобы при каждом изменении classpath или конфигурации
+     * в папке не копились файлы, которые больше никогда не прочитаются. Ошибка удаления не мешает старту.
+     */
+    private void deleteOutdatedSnapshots() {
+        try (Stream<Path> files = Files.list(snapshotFile.toAbsolutePath().getParent())) {
+            for (Path file : files.toList()) {
+                String fileName = file.getFileName().toString();
+                if (fileName.startsWith(FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX)
+                        && !fileName.equals(snapshotFile.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Failed to delete outdated metadata snapshots near {}", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Собираем элементы classpath без повторов и в стабильном порядке.
+     */
+    private static Set<Path> classpathEntries(ClassLoader classLoader) {
+        Set<Path> entries = new LinkedHashSet<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!entry.isBlank()) {
+                entries.add(Path.of(entry).toAbsolutePath().normalize());
+            }
+        }
+        for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+            if (current instanceof URLClassLoader urlClassLoader) {
+                for (URL url : urlClassLoader.getURLs()) {
+                    try {
+                        if (url.getProtocol().equals("file")) {
+                            entries.add(Path.of(url.toURI()).toAbsolutePath().normalize());
+                        }
+                    } catch (URISyntaxException | IllegalArgumentException e) {
+                        log.debug("Skipping classpath entry {} in metadata snapshot fingerprint", url);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Добавляем в отпечаток элемент classpath: для jar его размер и время изменения,
+     * а для папки - относительные пути, размеры и время изменения всех файлов в ней.
+     */
+    private static void updateWithPath(MessageDigest digest, Path classpathEntry) throws IOException {
+        update(digest, "classpath:" + classpathEntry);
+        if (Files.isRegularFile(classpathEntry)) {
+            update(digest, Files.size(classpathEntry) + ":" + Files.getLastModifiedTime(classpathEntry).toMillis());
+        } else if (Files.isDirectory(classpathEntry)) {
+            Set<String> files = new TreeSet<>();
+            try (Stream<Path> paths = Files.walk(classpathEntry)) {
+                for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                    files.add(classpathEntry.relativize(path) + ":" + Files.size(path) + ":"
+                            + Files.getLastModifiedTime(path).toMillis());
+                }
+            }
+            files.forEach(file -> update(digest, file));
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream output, Iterable<String> values) throws IOException {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        output.writeInt(list.size());
+        for (String value : list) {
+            writeString(output, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(input));
+        }
+        return values;
+    }
+
+    /**
+     * Способ, которым были найдены бины снимка.
+     */
+    public enum Mode {
+        /**
+         * Бины из пакета с аннотациями, сопоставленные с json конфигурацией.
+         */
+        ANNOTATED,
+        /**
+         * Бины только из json конфигурации.
+         */
+        JSON_ONLY
+    }
+
+    /**
+     * Снимок метаданных.
+     *
+     * @param mode             способ, которым были найдены бины.
+     * @param beans            бины в порядке регистрации.
+     * @param orderedBeans     порядок создания бинов.
+     * @param dependencyLevels уровни графа зависимостей.
+     * @param beanDependencies зависимости каждого бина.
+     */
+    public record Snapshot(Mode mode, List<SnapshotBean> beans, List<String> orderedBeans,
+                           List<List<String>> dependencyLevels, Map<String, Set<String>> beanDependencies) {
+    }
+
+    /**
+     * Бин в снимке.
+     *
+     * @param indexEntry точки внедрения и методы жизненного цикла бина или null для бинов только из json.
+     * @param reader     json конфигурация бина.
+     */
+    public record SnapshotBean(BeanIndexEntry indexEntry, BeanDefinitionReader reader) {
+    }
+}
@@ -0,0 +1,158 @@
+package ru.nsu.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import ru.nsu.model.BeanDefinition;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фабрика потоков, которая заранее создаёт выбранные потоковые бины в каждом новом потоке.
+ * Бины создаются в порядке зависимостей до того, как поток возьмёт первую задачу, поэтому первые задачи
+ * на новом потоке пула не платят за конструктор и PostConstruct. Когда поток завершается, у этих бинов
+ * вызывается PreDestroy в обратном порядке, не дожидаясь фонового потока {@code thread-bean-reaper}.
+ * Если создать бин заранее не удалось, ошибка пишется в лог, а поток всё равно выполняет задачу
+ * и получает бины обычным ленивым созданием, иначе рабочий поток пула умер бы, не взяв ни одной задачи.
+ * <pre>{@code
+ * ExecutorService executor = Executors.newFixedThreadPool(8,
+ *         beanInstanceService.prewarmingThreadFactory("requestParser", "connection"));
+ * }</pre>
+ */
+@Slf4j
+public class PrewarmingThreadFactory implements ThreadFactory {
+
+    private final List<BeanDefinition> creationOrder;
+
+    /**
+     * Инстансы бинов в том же порядке, что и {@link #creationOrder}.
+     */
+    private final List<ThreadScopedInstances> threadInstances;
+
+    private final ThreadFactory delegate;
+
+    /**
+     * Запущенные потоки этой фабрики, которые ещё не закончили уничтожать свои бины.
+     */
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Конструктор фабрики.
+     *
+     * @param creationOrder   потоковые бины в порядке создания: зависимости раньше зависимых бинов.
+     * @param threadInstances инстансы этих бинов в том же порядке.
+     * @param delegate        фабрика, которая создаёт сами потоки.
+     */
+    PrewarmingThreadFactory(List<BeanDefinition> creationOrder, List<ThreadScopedInstances> threadInstances, ThreadFactory delegate) {
+        if (creationOrder.size() != threadInstances.size()) {
+            throw new IllegalArgumentException("Every prewarmed bean needs its thread scoped instances");
+        }
+        this.creationOrder = List.copyOf(creationOrder);
+        this.threadInstances = List.copyOf(threadInstances);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        return delegate.newThread(() -> {
+            // Поток, который создали, но так и не запустили, не должен оставаться в списке
+            workers.add(Thread.currentThread());
+            try {
+                prewarm();
+                runnable.run();
+            } finally {
+                try {
+                    destroy(threadInstances.size());
+                } finally {
+                    workers.remove(Thread.currentThread());
+                }
+            }
+        });
+    }
+
+    /**
+     * Создаём пул из {@code threads} потоков этой фабрики и сразу запускаем их, чтобы бины создались до первой задачи.
+     * Рабочий поток {@link ThreadPoolExecutor} уничтожает бины уже после того, как пул считается завершённым,
+     * поэтому {@code awaitTermination} этого пула дополнительно ждёт, пока его потоки вызовут PreDestroy.
+     *
+     * @param threads число потоков.
+     * @return пул потоков.
+     */
+    ThreadPoolExecutor newThreadPool(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), this) {
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                long deadline = System.nanoTime() + unit.toNanos(timeout);
+                return super.awaitTermination(timeout, unit) && awaitWorkers(deadline);
+            }
+        };
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    /**
+     * Ждём, пока все потоки фабрики уничтожат свои бины и завершатся.
+     *
+     * @param deadline дедлайн по {@link System#nanoTime()}.
+     * @return true, если все потоки завершились до дедлайна.
+     */
+    private boolean awaitWorkers(long deadline) throws InterruptedException {
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return workers.isEmpty();
+            }
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+        }
+        return workers.isEmpty();
+    }
+
+    /**
+     * @return имена создаваемых бинов в порядке создания.
+     */
+    public List<String> getBeanNames() {
+        return creationOrder.stream().map(BeanDefinition::getName).toList();
+    }
+
+    /**
+     * Создаём бины в текущем потоке. Если бин не создался, уже созданные бины уничтожаются,
+     * чтобы поток начал работу в том же состоянии, что и поток без заранее созданных бинов.
+     */
+    private void prewarm() {
+        int created = 0;
+        try {
+            for (ThreadScopedInstances instances : threadInstances) {
+                instances.get();
+                created++;
+            }
+        } catch (RuntimeException e) {
+            MDC.put("beanName", creationOrder.get(created).getName());
+            log.warn("Failed to prewarm thread scoped instance, beans will be created on first request", e);
+            MDC.remove("beanName");
+            destroy(created);
+        }
+    }
+
+    /**
+     * Уничтожаем инстансы текущего потока в обратном порядке. Ошибка одного бина не мешает уничтожить остальные.
+     *
+     * @param created сколько бинов из начала списка нужно уничтожить, у бинов без инстанса в этом потоке ничего не вызывается.
+     */
+    private void destroy(int created) {
+        for (int i = created - 1; i >= 0; i--) {
+            try {
+                threadInstances.get(i).destroyCurrent();
+            } catch (RuntimeException e) {
+                MDC.put("beanName", creationOrder.get(i).getName());
+                log.warn("Failed to destroy prewarmed thread scoped instance", e);
+                MDC.remove("beanName");
+            }
+        }
+    }
+}
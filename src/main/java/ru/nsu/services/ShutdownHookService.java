@@ -1,23 +1,58 @@
 package ru.nsu.services;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
-import ru.nsu.exception.NoDependencyException;
 import ru.nsu.exception.PreDestroyException;
+import ru.nsu.jfr.PreDestroyEvent;
 import ru.nsu.model.BeanDefinition;
+import ru.nsu.model.BeanEventType;
+import ru.nsu.model.ShutdownReport;
 
 import javax.inject.Provider;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.Collections;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Сервис, отвечающий за вызов PreDestroy методов, если он имеется, у всех бинов.
+ * Независимые друг от друга бины уничтожаются параллельно, а вся остановка ограничена общим дедлайном
+ * и таймаутом на каждый бин, чтобы один медленный PreDestroy не задерживал остальные бины.
  */
 @Slf4j
+@Getter
+@Setter
 public class ShutdownHookService {
+
+    private static final Runnable SKIPPED = () -> {
+    };
+
     private final BeanContainer beanContainer;
 
+    /**
+     * Общее время, за которое должны уничтожиться все бины.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Максимальное время работы PreDestroy одного бина.
+     */
+    private Duration beanTimeout = Duration.ofSeconds(10);
+
     /**
      * Конструктор данного класса.
      *
@@ -33,42 +68,208 @@ public class ShutdownHookService {
      * Метод для вызова искусственного тестового уничтожения бинов
      * и проверки обработки PreDestroy аннотации. Этот метод вызывает приватный метод уничтожения,
      * чтобы не нарушить логику DI цикла жизни.
+     *
+     * @return отчёт об уничтожении бинов.
      */
-    public void cleanupBeansForTest() {
-        cleanupBeans();
+    public ShutdownReport cleanupBeansForTest() {
+        return cleanupBeans();
     }
 
+    /**
+     * Уничтожение бинов с настроенными в сервисе таймаутами, которое запускается при остановке программы.
+     * После уничтожения журнал событий контейнера закрывается, чтобы остановить его фоновый поток записи.
+     *
+     * @return отчёт об уничтожении бинов.
+     */
+    private ShutdownReport cleanupBeans() {
+        ShutdownReport report = cleanupBeans(shutdownTimeout, beanTimeout);
+        MDC.put("beanName", "all beans");
+        log.info("Shutdown finished: {} finished, {} timed out, {} failed, {} skipped",
+                report.getFinishedBeans().size(), report.getTimedOutBeans().size(),
+                report.getFailedBeans().size(), report.getSkippedBeans().size());
+        MDC.remove("beanName");
+        beanContainer.getEventLog().close();
+        return report;
+    }
 
     /**
      * Метод, который вызывает срабатывание PreDestroy аннотации.
-     * Сначала метод проходится по всем синглетон бинам в текущем DI контейнере,
-     * затем внутри каждого из них проходится по полям и смотрит, является ли это поле prototype бином,
-     * а если оно является и у него есть PreDestroy метод, то он вызывается и у этого бина.
-     * Потом аналогичные действия происходят и для бинов типа thread.
+     * Бины уничтожаются по уровням зависимостей в обратном порядке: сначала те, от которых никто не зависит.
+     * Все бины одного уровня уничтожаются параллельно. Для каждого синглетон или потокового бина
+     * сначала проверяются его поля, и если поле является prototype бином с PreDestroy методом,
+     * то он вызывается и у этого бина, а потом вызывается PreDestroy самого бина.
+     * Ошибка или таймаут одного бина не прерывает уничтожение остальных, а попадает в отчёт.
+     * Поток не успевшего PreDestroy прерывается, но метод может не реагировать на прерывание, поэтому
+     * зависимости такого бина уничтожаются только после того, как его PreDestroy действительно завершится.
+     * Если он не завершился за таймаут бина, то зависимости не уничтожаются и попадают в отчёт как отложенные.
+     *
+     * @param timeout     общий дедлайн для уничтожения всех бинов.
+     * @param beanTimeout максимальное время уничтожения одного бина.
+     * @return отчёт о том, какие бины уничтожены, не успели или упали с ошибкой.
      */
-    private void cleanupBeans() {
-        var beanDefinitions = beanContainer.getOrderedByDependenciesBeans();
+    public ShutdownReport cleanupBeans(Duration timeout, Duration beanTimeout) {
+        ShutdownReport report = new ShutdownReport();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Map<String, CountDownLatch> runningBeans = new HashMap<>();
         var singletonInstances = beanContainer.getSingletonInstances();
-        Collections.reverse(beanDefinitions);
-        for (var currentBeanName : beanDefinitions) {
-            BeanDefinition beanDefinition = beanContainer.getBeanDefinitions().get(currentBeanName);
-            Object beanInstance = null;
-            if (beanDefinition == null) {
-                throw new RuntimeException("Почему-то такого бина нет");
+        var dependencyLevels = beanContainer.getDependencyLevels();
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "bean-shutdown");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int level = dependencyLevels.size() - 1; level >= 0; level--) {
+                long levelStart = System.nanoTime();
+                long beanDeadline = levelStart + beanTimeout.toNanos();
+                long levelDeadline = (beanDeadline - deadline < 0) ? beanDeadline : deadline;
+                Map<String, Future<?>> destroyingBeans = new LinkedHashMap<>();
+                for (String currentBeanName : dependencyLevels.get(level)) {
+                    BeanDefinition beanDefinition = beanContainer.getBeanDefinitions().get(currentBeanName);
+                    Runnable destroyAction = destroyAction(beanDefinition, singletonInstances);
+                    if (destroyAction == null) {
+                        continue;
+                    }
+                    if (destroyAction == SKIPPED) {
+                        report.getSkippedBeans().add(currentBeanName);
+                    } else if (System.nanoTime() - deadline >= 0) {
+                        report.getTimedOutBeans().add(currentBeanName);
+                    } else if (!awaitRunningDependents(currentBeanName, runningBeans, levelDeadline)) {
+                        report.getHeldBackBeans().add(currentBeanName);
+                        MDC.put("beanName", currentBeanName);
+                        log.warn("PreDestroy skipped, a dependent bean is still running its PreDestroy");
+                        MDC.remove("beanName");
+                    } else {
+                        CountDownLatch finished = new CountDownLatch(1);
+                        runningBeans.put(currentBeanName, finished);
+                        destroyingBeans.put(currentBeanName, executor.submit(() -> {
+                            try {
+                                destroyAction.run();
+                            } finally {
+                                finished.countDown();
+                            }
+                        }));
+                    }
+                }
+                destroyingBeans.forEach((beanName, future) -> awaitDestroy(beanName, future, levelDeadline, report));
             }
-            if (beanDefinition.getScope().equals("singleton")) {
-                beanInstance = singletonInstances.get(currentBeanName);
-            } else if (beanDefinition.getScope().equals("thread")) {
-                beanInstance = beanContainer.getThreadLocalBean(currentBeanName);
-            } else if (beanDefinition.getScope().equals("prototype")) {
-                continue;
+        } finally {
+            executor.shutdownNow();
+        }
+        runningBeans.forEach((beanName, finished) -> {
+            if (finished.getCount() > 0) {
+                report.getStillRunningBeans().add(beanName);
+            }
+        });
+        beanContainer.getEventLog().flush(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        return report;
+    }
+
+    /**
+     * Получаем действие уничтожения бина в зависимости от его scope. Для синглетон бина
+     * проверяются его prototype поля и вызывается PreDestroy, для потокового бина то же самое делается
+     * с инстансами всех ещё живых потоков, а пул бина со scope pooled закрывается,
+     * и PreDestroy вызывается у всех его свободных инстансов.
+     *
+     * @param beanDefinition     модель бина.
+     * @param singletonInstances созданные синглетон бины.
+     * @return действие уничтожения, {@link #SKIPPED}, если бин ещё не создан, или null для prototype бинов.
+     */
+    private Runnable destroyAction(BeanDefinition beanDefinition, Map<String, Object> singletonInstances) {
+        String beanName = beanDefinition.getName();
+        Object beanInstance;
+        switch (beanDefinition.getScope()) {
+            case "singleton" -> beanInstance = singletonInstances.get(beanName);
+            case "thread" -> {
+                ThreadScopedInstances instances = beanContainer.getThreadInstances().get(beanName);
+                return (instances != null && instances.getLiveInstances() > 0) ? instances::destroyAll : SKIPPED;
+            }
+            case "pooled" -> {
+                BeanPool pool = beanContainer.getPools().get(beanName);
+                return (pool != null) ? pool::close : SKIPPED;
             }
-            if (beanInstance == null) {
-                throw new NoDependencyException(currentBeanName, "Error in shutdownHookService, can't found bean instance with this name.");
+            default -> {
+                return null;
             }
+        }
+        if (beanInstance == null) {
+            return SKIPPED;
+        }
+        return () -> {
             checkForPrototypeBeans(beanInstance);
             invokePreDestroy(beanInstance, beanDefinition);
+        };
+    }
 
+    /**
+     * Ждём, пока закончат PreDestroy все уже запущенные бины, которые прямо или через другие бины зависят от этого бина.
+     * Это нужно только для бинов, чей PreDestroy не успел за таймаут и не завершился после прерывания.
+     *
+     * @param beanName     имя бина, который собираемся уничтожить.
+     * @param runningBeans запущенные уничтожения бинов и признак их завершения.
+     * @param deadline     до какого момента ждём.
+     * @return true, если все зависимые бины закончили уничтожение.
+     */
+    private boolean awaitRunningDependents(String beanName, Map<String, CountDownLatch> runningBeans, long deadline) {
+        for (Map.Entry<String, CountDownLatch> running : runningBeans.entrySet()) {
+            if (running.getValue().getCount() == 0 || !dependsOn(running.getKey(), beanName)) {
+                continue;
+            }
+            try {
+                if (!running.getValue().await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяем, зависит ли бин от другого бина прямо или через свои зависимости.
+     *
+     * @param beanName       имя зависимого бина.
+     * @param dependencyName имя возможной зависимости.
+     * @return true, если зависит.
+     */
+    private boolean dependsOn(String beanName, String dependencyName) {
+        var beanDependencies = beanContainer.getBeanDependencies();
+        Deque<String> pending = new ArrayDeque<>(beanDependencies.getOrDefault(beanName, Set.of()));
+        Set<String> visited = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String current = pending.pop();
+            if (current.equals(dependencyName)) {
+                return true;
+            }
+            if (visited.add(current)) {
+                pending.addAll(beanDependencies.getOrDefault(current, Set.of()));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ждём окончания уничтожения одного бина и записываем результат в отчёт.
+     * Если бин не успел до дедлайна, то поток с его PreDestroy прерывается.
+     */
+    private void awaitDestroy(String beanName, Future<?> future, long deadline, ShutdownReport report) {
+        try {
+            future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            report.getFinishedBeans().add(beanName);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            report.getTimedOutBeans().add(beanName);
+            MDC.put("beanName", beanName);
+            log.warn("PreDestroy method timed out");
+            MDC.remove("beanName");
+        } catch (ExecutionException e) {
+            report.getFailedBeans().put(beanName, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            report.getTimedOutBeans().add(beanName);
         }
     }
 
@@ -101,15 +302,19 @@ public class ShutdownHookService {
      * @param beanInstance   сам инстанс бина.
      * @param beanDefinition модель бина для получения PreDestroy метода из рефлексии.
      */
-    private void invokePreDestroy(Object beanInstance, BeanDefinition beanDefinition) {
+    void invokePreDestroy(Object beanInstance, BeanDefinition beanDefinition) {
         if (beanDefinition.getPreDestroyMethod() != null) {
+            PreDestroyEvent preDestroyEvent = new PreDestroyEvent();
+            preDestroyEvent.begin();
             try {
-                Method preDestroyMethod = beanDefinition.getPreDestroyMethod();
-                preDestroyMethod.setAccessible(true);
-                preDestroyMethod.invoke(beanInstance);
-                MDC.put("beanName", beanDefinition.getName());
-                log.info("Successfully invoked @PreDestroy method with name '{}'.", preDestroyMethod.getName());
-                MDC.remove("beanName");
+                long start = System.nanoTime();
+                beanContainer.getInstantiator(beanDefinition).invokePreDestroy(beanInstance);
+                BeanMetrics metrics = beanContainer.getMetrics().getBeanMetrics(beanDefinition.getName());
+                if (metrics != null) {
+                    metrics.getPreDestroy().record(System.nanoTime() - start);
+                }
+                preDestroyEvent.commit(beanDefinition.getName(), beanDefinition.getScope());
+                beanContainer.getEventLog().record(BeanEventType.PRE_DESTROY_INVOKED, beanDefinition.getName());
             } catch (Exception e) {
                 throw new PreDestroyException(beanDefinition.getName(), "Exception with invoking of PreDestroy method");
             }
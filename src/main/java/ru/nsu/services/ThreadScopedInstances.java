@@ -0,0 +1,232 @@
+package ru.nsu.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Инстансы одного бина со scope {@code thread}. Как и раньше, инстанс текущего потока лежит в ThreadLocal,
+ * поэтому получение уже созданного инстанса - одно чтение ThreadLocal. Но кроме этого каждый инстанс
+ * запоминается вместе со слабой ссылкой на поток-владелец, поэтому контейнер знает все живые инстансы:
+ * <ul>
+ *     <li>когда поток завершился, общий фоновый поток {@code thread-bean-reaper} вызывает у его инстанса PreDestroy.
+ *     Завершившийся поток замечается либо через {@link ReferenceQueue}, когда объект потока собран GC,
+ *     либо периодической проверкой {@link Thread#isAlive()}, если на объект потока ещё кто-то ссылается;</li>
+ *     <li>при остановке контейнера PreDestroy вызывается у инстансов всех ещё живых потоков, а не у нового инстанса,
+ *     созданного в потоке shutdown hook.</li>
+ * </ul>
+ * Инстанс не должен сам ссылаться на свой поток, иначе слабая ссылка не очистится и останется только проверка isAlive.
+ */
+@Slf4j
+public class ThreadScopedInstances {
+
+    private static final ReferenceQueue<Thread> TERMINATED_THREADS = new ReferenceQueue<>();
+
+    private static final long SWEEP_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Потоковые бины всех контейнеров для периодической проверки. Ссылки слабые, чтобы не удерживать контейнеры, которые больше не используются.
+     */
+    private static final Set<ThreadScopedInstances> ALL_SCOPES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        Thread reaper = new Thread(ThreadScopedInstances::reapLoop, "thread-bean-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private final String beanName;
+
+    private final Supplier<?> factory;
+
+    private final Consumer<Object> destroyer;
+
+    private final BeanMetrics metrics;
+
+    private final ThreadLocal<Instance> current = new ThreadLocal<>();
+
+    private final Set<Instance> liveInstances = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Конструктор инстансов потокового бина.
+     *
+     * @param beanName  имя бина.
+     * @param factory   создание нового инстанса вместе с PostConstruct.
+     * @param destroyer уничтожение инстанса, то есть вызов его PreDestroy.
+     * @param metrics   метрики бина или null.
+     */
+    public ThreadScopedInstances(String beanName, Supplier<?> factory, Consumer<Object> destroyer, BeanMetrics metrics) {
+        this.beanName = beanName;
+        this.factory = factory;
+        this.destroyer = destroyer;
+        this.metrics = metrics;
+        ALL_SCOPES.add(this);
+    }
+
+    /**
+     * Получаем инстанс бина для текущего потока, создавая его при первом запросе
+     * или если прошлый инстанс потока уже уничтожен при остановке контейнера.
+     *
+     * @return инстанс бина текущего потока.
+     */
+    public Object get() {
+        Instance instance = current.get();
+        if (instance != null && !instance.destroyed.get()) {
+            return instance.value;
+        }
+        instance = new Instance(this, Thread.currentThread(), factory.get());
+        current.set(instance);
+        liveInstances.add(instance);
+        if (metrics != null) {
+            metrics.recordThreadInstanceTracked();
+        }
+        return instance.value;
+    }
+
+    /**
+     * @return число инстансов, чьи потоки ещё не завершились или ещё не были замечены завершившимися.
+     */
+    public int getLiveInstances() {
+        return liveInstances.size();
+    }
+
+    /**
+     * Вызываем PreDestroy у инстансов всех потоков, которые уже завершились.
+     *
+     * @return число уничтоженных инстансов.
+     */
+    public int reapTerminatedThreads() {
+        int reaped = 0;
+        for (Instance instance : liveInstances) {
+            Thread owner = instance.get();
+            if ((owner == null || !owner.isAlive()) && instance.destroyQuietly()) {
+                reaped++;
+            }
+        }
+        return reaped;
+    }
+
+    /**
+     * Вызываем PreDestroy у инстансов всех потоков, вызывается при остановке контейнера.
+     * Если после этого поток снова запросит бин, то для него создастся новый инстанс.
+     * Ошибка PreDestroy одного инстанса не мешает уничтожить остальные и выбрасывается в конце, чтобы попасть в отчёт остановки.
+     */
+    public void destroyAll() {
+        RuntimeException failure = null;
+        for (Instance instance : liveInstances) {
+            try {
+                instance.destroy();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Вызываем PreDestroy у инстанса текущего потока, если он есть, например когда рабочий поток пула завершается.
+     * Если поток снова запросит бин, то для него создастся новый инстанс.
+     *
+     * @return true, если инстанс был и уничтожен этим вызовом.
+     */
+    public boolean destroyCurrent() {
+        Instance instance = current.get();
+        current.remove();
+        return instance != null && instance.destroy();
+    }
+
+    private static void reapLoop() {
+        long nextSweep = System.nanoTime() + SWEEP_PERIOD_NANOS;
+        while (true) {
+            try {
+                Reference<? extends Thread> reference = TERMINATED_THREADS.remove(TimeUnit.NANOSECONDS.toMillis(SWEEP_PERIOD_NANOS));
+                if (reference != null) {
+                    ((Instance) reference).destroyQuietly();
+                }
+                if (System.nanoTime() - nextSweep >= 0) {
+                    List<ThreadScopedInstances> scopes;
+                    synchronized (ALL_SCOPES) {
+                        scopes = new ArrayList<>(ALL_SCOPES);
+                    }
+                    scopes.forEach(ThreadScopedInstances::reapTerminatedThreads);
+                    nextSweep = System.nanoTime() + SWEEP_PERIOD_NANOS;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to reap thread scoped beans", e);
+            }
+        }
+    }
+
+    /**
+     * Инстанс бина вместе со слабой ссылкой на поток-владелец.
+     */
+    private static final class Instance extends WeakReference<Thread> {
+
+        private final ThreadScopedInstances scope;
+
+        private final Object value;
+
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        private Instance(ThreadScopedInstances scope, Thread owner, Object value) {
+            super(owner, TERMINATED_THREADS);
+            this.scope = scope;
+            this.value = value;
+        }
+
+        /**
+         * Уничтожаем инстанс ровно один раз, даже если его одновременно заметили reaper и остановка контейнера.
+         *
+         * @return true, если инстанс уничтожен этим вызовом.
+         */
+        private boolean destroy() {
+            if (!destroyed.compareAndSet(false, true)) {
+                return false;
+            }
+            scope.liveInstances.remove(this);
+            clear();
+            if (scope.metrics != null) {
+                scope.metrics.recordThreadInstanceDestroyed();
+            }
+            scope.destroyer.accept(value);
+            return true;
+        }
+
+        /**
+         * Уничтожаем инстанс завершившегося потока, ошибку PreDestroy только пишем в лог.
+         *
+         * @return true, если инстанс уничтожен этим вызовом.
+         */
+        private boolean destroyQuietly() {
+            try {
+                return destroy();
+            } catch (RuntimeException e) {
+                MDC.put("beanName", scope.beanName);
+                log.warn("Failed to destroy thread scoped instance", e);
+                MDC.remove("beanName");
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.nsu.services;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Работа с виртуальными потоками без зависимости от версии JDK: библиотека собирается под JDK 18,
+ * где виртуальных потоков нет, поэтому методы {@code Thread.isVirtual()} и {@code Thread.startVirtualThread(Runnable)}
+ * находятся через MethodHandle один раз при загрузке класса. На JDK 19 и 20 виртуальные потоки - preview API,
+ * и без {@code --enable-preview} метод есть, но выбрасывает UnsupportedOperationException, поэтому при загрузке класса
+ * запускается пробный виртуальный поток. На JDK без виртуальных потоков все потоки считаются платформенными,
+ * а вместо виртуального потока запускается обычный.
+ */
+public final class VirtualThreads {
+
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    private static final MethodHandle START_VIRTUAL_THREAD = findStartVirtualThread();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle findStartVirtualThread() {
+        MethodHandle startVirtualThread;
+        try {
+            startVirtualThread = MethodHandles.publicLookup().findStatic(Thread.class, "startVirtualThread",
+                    MethodType.methodType(Thread.class, Runnable.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+        try {
+            // Не лямбда этого класса: её тело ждало бы окончания инициализации класса, а мы ждём поток
+            Runnable probe = Thread::yield;
+            Thread probeThread = (Thread) startVirtualThread.invokeExact(probe);
+            probeThread.join();
+            return startVirtualThread;
+        } catch (UnsupportedOperationException e) {
+            // Preview API на JDK 19 и 20 без --enable-preview
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return startVirtualThread;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true, если JDK поддерживает виртуальные потоки.
+     */
+    public static boolean isSupported() {
+        return START_VIRTUAL_THREAD != null;
+    }
+
+    /**
+     * Проверяем, является ли поток виртуальным.
+     *
+     * @param thread поток.
+     * @return true для виртуального потока, на JDK без виртуальных потоков всегда false.
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * Запускаем задачу в новом виртуальном потоке, а если JDK их не поддерживает - в новом платформенном потоке.
+     *
+     * @param task задача.
+     * @return запущенный поток.
+     */
+    public static Thread start(Runnable task) {
+        if (START_VIRTUAL_THREAD == null) {
+            Thread thread = new Thread(task);
+            thread.start();
+            return thread;
+        }
+        try {
+            return (Thread) START_VIRTUAL_THREAD.invokeExact(task);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to start virtual thread", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package model.context;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@Named("requestAudit")
+public class RequestAudit {
+
+    @Inject
+    @Named("requestState")
+    private RequestState requestState;
+
+    @PreDestroy
+    public void close() {
+        RequestState.DESTROYED.add("requestAudit");
+    }
+}
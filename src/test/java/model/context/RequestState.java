@@ -0,0 +1,34 @@
+package model.context;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Named;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("requestState")
+public class RequestState {
+
+    public static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+    public static final Queue<String> DESTROYED = new ConcurrentLinkedQueue<>();
+
+    private final byte[] buffer = new byte[4096];
+
+    private boolean initialized;
+
+    @PostConstruct
+    public void init() {
+        initialized = true;
+        CONSTRUCTED.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void close() {
+        DESTROYED.add("requestState");
+    }
+}
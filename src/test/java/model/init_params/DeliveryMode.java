@@ -0,0 +1,6 @@
+package model.init_params;
+
+public enum DeliveryMode {
+    IMMEDIATE,
+    BATCHED
+}
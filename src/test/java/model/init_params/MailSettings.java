@@ -0,0 +1,46 @@
+package model.init_params;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+public class MailSettings {
+
+    private String host;
+
+    private int port;
+
+    private long maxMessageSize;
+
+    private boolean tls;
+
+    private double retryFactor;
+
+    private char separator;
+
+    private DeliveryMode deliveryMode;
+
+    private Duration timeout;
+
+    private Duration idleTimeout;
+
+    private List<Duration> retryDelays;
+
+    private Set<Integer> allowedPorts;
+
+    private Map<String, Integer> priorities;
+
+    private int[] weights;
+
+    private ArrayList<String> recipients;
+
+    private HashMap<String, String> headers;
+}
@@ -0,0 +1,14 @@
+package model.lazy;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("eagerService")
+public class EagerService {
+
+    private String name;
+}
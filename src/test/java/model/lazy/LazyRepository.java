@@ -0,0 +1,29 @@
+package model.lazy;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+
+import javax.inject.Named;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("lazyRepository")
+public class LazyRepository {
+
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    public static final AtomicInteger POST_CONSTRUCTED = new AtomicInteger();
+
+    private String dataSource;
+
+    public LazyRepository() {
+        CREATED.incrementAndGet();
+    }
+
+    @PostConstruct
+    public void connect() throws InterruptedException {
+        // Медленное подключение, чтобы потоки точно успели одновременно запросить бин
+        Thread.sleep(50);
+        POST_CONSTRUCTED.incrementAndGet();
+    }
+}
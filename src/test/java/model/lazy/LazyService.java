@@ -0,0 +1,23 @@
+package model.lazy;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("lazyService")
+public class LazyService {
+
+    public static final AtomicInteger POST_CONSTRUCTED = new AtomicInteger();
+
+    @Inject
+    private LazyRepository lazyRepository;
+
+    @PostConstruct
+    public void init() {
+        POST_CONSTRUCTED.incrementAndGet();
+    }
+}
@@ -0,0 +1,28 @@
+package model.parallel;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@NoArgsConstructor
+@Named("cacheWarmer")
+public class CacheWarmer {
+
+    /**
+     * Оба медленных бина ждут друг друга в PostConstruct, поэтому создаться они могут только одновременно.
+     */
+    public static final CyclicBarrier WARM_UP_BARRIER = new CyclicBarrier(2);
+
+    private boolean warmedUp;
+
+    @PostConstruct
+    public void warmUp() throws Exception {
+        WARM_UP_BARRIER.await(5, TimeUnit.SECONDS);
+        this.warmedUp = true;
+    }
+}
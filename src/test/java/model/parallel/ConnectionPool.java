@@ -0,0 +1,24 @@
+package model.parallel;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@NoArgsConstructor
+@Named("connectionPool")
+public class ConnectionPool {
+
+    private String url;
+
+    private boolean connected;
+
+    @PostConstruct
+    public void connect() throws Exception {
+        CacheWarmer.WARM_UP_BARRIER.await(5, TimeUnit.SECONDS);
+        this.connected = true;
+    }
+}
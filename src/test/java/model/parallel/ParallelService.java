@@ -0,0 +1,21 @@
+package model.parallel;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("parallelService")
+public class ParallelService {
+
+    @Inject
+    @Named("cacheWarmer")
+    private CacheWarmer cacheWarmer;
+
+    @Inject
+    @Named("connectionPool")
+    private ConnectionPool connectionPool;
+}
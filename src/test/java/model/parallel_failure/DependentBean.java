@@ -0,0 +1,17 @@
+package model.parallel_failure;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("dependentBean")
+public class DependentBean {
+
+    @Inject
+    @Named("failingBean")
+    private FailingBean failingBean;
+}
@@ -0,0 +1,16 @@
+package model.parallel_failure;
+
+import jakarta.annotation.PostConstruct;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@NoArgsConstructor
+@Named("failingBean")
+public class FailingBean {
+
+    @PostConstruct
+    public void init() {
+        throw new IllegalStateException("Can't warm up");
+    }
+}
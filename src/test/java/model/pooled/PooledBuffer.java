@@ -0,0 +1,21 @@
+package model.pooled;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Named;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("pooledBuffer")
+public class PooledBuffer {
+
+    public static final AtomicInteger DESTROYED = new AtomicInteger();
+
+    private final byte[] bytes = new byte[1024];
+
+    @PreDestroy
+    public void release() {
+        DESTROYED.incrementAndGet();
+    }
+}
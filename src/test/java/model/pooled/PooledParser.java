@@ -0,0 +1,38 @@
+package model.pooled;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Named;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("pooledParser")
+public class PooledParser {
+
+    public static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+    public static final AtomicInteger DESTROYED = new AtomicInteger();
+
+    public static final AtomicInteger RESETS = new AtomicInteger();
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    private int maxLength;
+
+    @PostConstruct
+    public void init() {
+        CONSTRUCTED.incrementAndGet();
+    }
+
+    public void reset() {
+        buffer.setLength(0);
+        RESETS.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void close() {
+        DESTROYED.incrementAndGet();
+    }
+}
@@ -0,0 +1,19 @@
+package model.pooled_injection;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+
+import javax.inject.Named;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("pooledFormatter")
+public class PooledFormatter {
+
+    public static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        CONSTRUCTED.incrementAndGet();
+    }
+}
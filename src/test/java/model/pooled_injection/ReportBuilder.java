@@ -0,0 +1,15 @@
+package model.pooled_injection;
+
+import lombok.Data;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@Named("reportBuilder")
+public class ReportBuilder {
+
+    @Inject
+    @Named("pooledFormatter")
+    private PooledFormatter pooledFormatter;
+}
@@ -0,0 +1,16 @@
+package model.shutdown;
+
+import jakarta.annotation.PreDestroy;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@NoArgsConstructor
+@Named("failingDestroyBean")
+public class FailingDestroyBean {
+
+    @PreDestroy
+    public void close() {
+        throw new IllegalStateException("Can't close connection");
+    }
+}
@@ -0,0 +1,22 @@
+package model.shutdown;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@NoArgsConstructor
+@Named("metricsStore")
+public class MetricsStore {
+
+    private volatile boolean flushed;
+
+    @PreDestroy
+    public void flush() throws Exception {
+        SessionStore.FLUSH_BARRIER.await(5, TimeUnit.SECONDS);
+        this.flushed = true;
+    }
+}
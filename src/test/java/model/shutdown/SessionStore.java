@@ -0,0 +1,28 @@
+package model.shutdown;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+@Data
+@NoArgsConstructor
+@Named("sessionStore")
+public class SessionStore {
+
+    /**
+     * Оба хранилища ждут друг друга в PreDestroy, поэтому уничтожиться они могут только одновременно.
+     */
+    public static final CyclicBarrier FLUSH_BARRIER = new CyclicBarrier(2);
+
+    private volatile boolean flushed;
+
+    @PreDestroy
+    public void flush() throws Exception {
+        FLUSH_BARRIER.await(5, TimeUnit.SECONDS);
+        this.flushed = true;
+    }
+}
@@ -0,0 +1,24 @@
+package model.shutdown;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("slowDestroyBean")
+public class SlowDestroyBean {
+
+    private volatile boolean interrupted;
+
+    @PreDestroy
+    public void close() {
+        try {
+            Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+            this.interrupted = true;
+        }
+    }
+}
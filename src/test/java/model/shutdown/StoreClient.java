@@ -0,0 +1,30 @@
+package model.shutdown;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("storeClient")
+public class StoreClient {
+
+    @Inject
+    private SessionStore sessionStore;
+
+    @Inject
+    private MetricsStore metricsStore;
+
+    /**
+     * true, если в момент уничтожения клиента его зависимости ещё не были уничтожены.
+     */
+    private volatile boolean closedBeforeStores;
+
+    @PreDestroy
+    public void close() {
+        this.closedBeforeStores = !sessionStore.isFlushed() && !metricsStore.isFlushed();
+    }
+}
@@ -0,0 +1,37 @@
+package model.shutdown_stubborn;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("stubbornClient")
+public class StubbornClient {
+
+    /**
+     * Сколько PreDestroy работает, не реагируя на прерывание.
+     */
+    public static volatile long closeMillis;
+
+    @Inject
+    private StubbornResource stubbornResource;
+
+    private volatile boolean closed;
+
+    @PreDestroy
+    public void close() {
+        long deadline = System.nanoTime() + closeMillis * 1_000_000;
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ignored) {
+                // Прерывание игнорируется, как в плохо написанном PreDestroy
+            }
+        }
+        closed = true;
+    }
+}
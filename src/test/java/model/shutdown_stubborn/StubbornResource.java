@@ -0,0 +1,20 @@
+package model.shutdown_stubborn;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("stubbornResource")
+public class StubbornResource {
+
+    private volatile boolean destroyed;
+
+    @PreDestroy
+    public void close() {
+        destroyed = true;
+    }
+}
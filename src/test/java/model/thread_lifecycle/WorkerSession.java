@@ -0,0 +1,35 @@
+package model.thread_lifecycle;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Named;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Data
+@Named("workerSession")
+public class WorkerSession {
+
+    public static final AtomicInteger CONSTRUCTED = new AtomicInteger();
+
+    public static final AtomicInteger DESTROYED = new AtomicInteger();
+
+    private final byte[] buffer = new byte[1024];
+
+    private boolean initialized;
+
+    private boolean closed;
+
+    @PostConstruct
+    public void init() {
+        initialized = true;
+        CONSTRUCTED.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        DESTROYED.incrementAndGet();
+    }
+}
@@ -0,0 +1,27 @@
+package model.thread_warmup;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@Named("warmConnection")
+public class WarmConnection {
+
+    @Inject
+    @Named("warmSession")
+    private WarmSession warmSession;
+
+    @PostConstruct
+    public void init() {
+        WarmSession.EVENTS.add(Thread.currentThread().getName() + ":init:warmConnection");
+    }
+
+    @PreDestroy
+    public void close() {
+        WarmSession.EVENTS.add(Thread.currentThread().getName() + ":destroy:warmConnection");
+    }
+}
@@ -0,0 +1,20 @@
+package model.thread_warmup;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+
+import javax.inject.Named;
+
+@Data
+@Named("warmFailing")
+public class WarmFailing {
+
+    public static volatile boolean fail;
+
+    @PostConstruct
+    public void init() {
+        if (fail) {
+            throw new IllegalStateException("Prewarm failure");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package model.thread_warmup;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Data
+@Named("warmSession")
+public class WarmSession {
+
+    public static final Queue<String> EVENTS = new ConcurrentLinkedQueue<>();
+
+    @Inject
+    @Named("warmSettings")
+    private WarmSettings warmSettings;
+
+    @PostConstruct
+    public void init() {
+        EVENTS.add(Thread.currentThread().getName() + ":init:warmSession");
+    }
+
+    @PreDestroy
+    public void close() {
+        EVENTS.add(Thread.currentThread().getName() + ":destroy:warmSession");
+    }
+}
@@ -0,0 +1,12 @@
+package model.thread_warmup;
+
+import lombok.Data;
+
+import javax.inject.Named;
+
+@Data
+@Named("warmSettings")
+public class WarmSettings {
+
+    private int timeoutMillis = 100;
+}
@@ -0,0 +1,6 @@
+package model.typed;
+
+public interface MailGateway {
+
+    String send(String message);
+}
@@ -0,0 +1,18 @@
+package model.typed;
+
+import lombok.Getter;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Getter
+@Named("mailSender")
+public class MailSender {
+
+    private final MailGateway gateway;
+
+    @Inject
+    public MailSender(MailGateway gateway) {
+        this.gateway = gateway;
+    }
+}
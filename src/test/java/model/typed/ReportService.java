@@ -0,0 +1,16 @@
+package model.typed;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("reportService")
+public class ReportService {
+
+    @Inject
+    private MailSender sender;
+}
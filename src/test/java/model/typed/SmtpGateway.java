@@ -0,0 +1,15 @@
+package model.typed;
+
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@NoArgsConstructor
+@Named("smtpGateway")
+public class SmtpGateway implements MailGateway {
+
+    @Override
+    public String send(String message) {
+        return "smtp: " + message;
+    }
+}
@@ -0,0 +1,16 @@
+package model.typed_ambiguous;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Data
+@NoArgsConstructor
+@Named("alertService")
+public class AlertService {
+
+    @Inject
+    private Channel channel;
+}
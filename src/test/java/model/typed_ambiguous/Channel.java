@@ -0,0 +1,4 @@
+package model.typed_ambiguous;
+
+public interface Channel {
+}
@@ -0,0 +1,10 @@
+package model.typed_ambiguous;
+
+import lombok.NoArgsConstructor;
+
+import javax.inject.Named;
+
+@NoArgsConstructor
+@Named("smsChannel")
+public class SmsChannel implements Channel {
+}
@@ -0,0 +1,165 @@
+package tests;
+
+import model.init_params.MailSettings;
+import model.lazy.LazyRepository;
+import model.lazy.LazyService;
+import model.threads.MySingletonService;
+import model.threads.MyThreadScopeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.exception.ContainerGenerationException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.ContainerSourceGenerator;
+import ru.nsu.services.DependencyScanningConfig;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка генерации Java кода контейнера: сгенерированный класс должен компилироваться
+ * и создавать бины с теми же scope и параметрами, что и обычный контейнер.
+ */
+public class AotContainerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGeneratedContainer() throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+
+        Path sourceFile = new ContainerSourceGenerator(beanContainer).writeTo(tempDir, "generated", "ThreadsContainer");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-proc:none", "-encoding", "UTF-8", "-classpath", System.getProperty("java.class.path"),
+                "-d", tempDir.toString(), sourceFile.toString());
+        assertEquals(0, result, "Сгенерированный контейнер должен компилироваться");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{tempDir.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> containerClass = classLoader.loadClass("generated.ThreadsContainer");
+            Object container = containerClass.getConstructor().newInstance();
+
+            MySingletonService firstService = (MySingletonService) containerClass.getMethod("getMySingletonService").invoke(container);
+            MySingletonService secondService = (MySingletonService) containerClass.getMethod("getMySingletonService").invoke(container);
+            Object firstPrototype = containerClass.getMethod("getMyPrototypeRepository").invoke(container);
+            Object secondPrototype = containerClass.getMethod("getMyPrototypeRepository").invoke(container);
+            MyThreadScopeRepository threadBean = (MyThreadScopeRepository) containerClass.getMethod("getMyThreadScopeRepository").invoke(container);
+
+            assertSame(firstService, secondService, "Синглетон в сгенерированном контейнере создаётся один раз");
+            assertSame(firstService.getMySingletonRepository(), containerClass.getMethod("getMySingletonRepository").invoke(container));
+            assertNotSame(firstPrototype, secondPrototype, "Прототайп бины создаются при каждом запросе");
+            assertEquals("singletonValue", firstService.getSomeSingletonProperty());
+            assertEquals(1, firstService.getSomeIntValue());
+            assertEquals("threadSpecificData", threadBean.getThreadLocalData());
+        }
+    }
+
+    @Test
+    public void testGeneratedContainerConvertsInitParams() throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForJsonOnlyConfig("beansInitParams.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        MailSettings expected = new BeanInstanceService(beanContainer).getBean("mailSettings");
+
+        try (URLClassLoader classLoader = compile(new ContainerSourceGenerator(beanContainer).writeTo(tempDir, "generated", "MailContainer"))) {
+            Object container = classLoader.loadClass("generated.MailContainer").getConstructor().newInstance();
+            MailSettings first = (MailSettings) container.getClass().getMethod("getMailSettings").invoke(container);
+            MailSettings second = (MailSettings) container.getClass().getMethod("getMailSettings").invoke(container);
+
+            assertEquals(expected, first, "Сгенерированный контейнер преобразует initParams так же, как контейнер на рефлексии");
+            assertThrows(UnsupportedOperationException.class, () -> first.getRetryDelays().add(null));
+            first.getWeights()[0] = 100;
+            first.getRecipients().add("dev@example.com");
+            assertArrayEquals(new int[]{3, 2, 1}, second.getWeights(), "Изменяемые значения у каждого инстанса свои");
+            assertEquals(expected.getRecipients(), second.getRecipients());
+        }
+    }
+
+    @Test
+    public void testLazySingletonIsCreatedOnFirstRequest() throws Exception {
+        LazyRepository.CREATED.set(0);
+        LazyService.POST_CONSTRUCTED.set(0);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.lazy", "beansLazy.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+
+        try (URLClassLoader classLoader = compile(new ContainerSourceGenerator(beanContainer).writeTo(tempDir, "generated", "LazyContainer"))) {
+            Object container = classLoader.loadClass("generated.LazyContainer").getConstructor().newInstance();
+            assertEquals(0, LazyRepository.CREATED.get(), "Ленивый синглетон не создаётся в конструкторе контейнера");
+
+            LazyService first = (LazyService) container.getClass().getMethod("getLazyService").invoke(container);
+            LazyService second = (LazyService) container.getClass().getMethod("getLazyService").invoke(container);
+            assertSame(first, second);
+            assertSame(first.getLazyRepository(), container.getClass().getMethod("getLazyRepository").invoke(container));
+            assertEquals("lazyDataSource", first.getLazyRepository().getDataSource());
+            assertEquals(1, LazyRepository.CREATED.get());
+            assertEquals(1, LazyService.POST_CONSTRUCTED.get());
+            ((AutoCloseable) container).close();
+        }
+    }
+
+    @Test
+    public void testPooledScopeIsRejected() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.pooled", "beansPooled.json");
+        ContainerSourceGenerator generator = new ContainerSourceGenerator(new BeanContainer(dependencyScanningConfig));
+
+        ContainerGenerationException exception = assertThrows(ContainerGenerationException.class,
+                () -> generator.generate("generated", "PooledContainer"));
+        assertTrue(exception.getMessage().contains("Scope pooled is not supported"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("singleton, prototype, thread"), "В сообщении перечислены поддерживаемые scope");
+    }
+
+    @Test
+    public void testContextScopeIsRejected() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.context", "beansContext.json");
+        ContainerSourceGenerator generator = new ContainerSourceGenerator(new BeanContainer(dependencyScanningConfig));
+
+        ContainerGenerationException exception = assertThrows(ContainerGenerationException.class,
+                () -> generator.generate("generated", "ContextContainer"));
+        assertTrue(exception.getMessage().contains("Scope context is not supported"), exception.getMessage());
+        assertTrue(exception.getMessage().contains("singleton, prototype, thread"));
+    }
+
+    @Test
+    public void testThreadBeanWithPreDestroyIsRejected() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.thread_lifecycle", "beansThreadLifecycle.json");
+        ContainerSourceGenerator generator = new ContainerSourceGenerator(new BeanContainer(dependencyScanningConfig));
+
+        ContainerGenerationException exception = assertThrows(ContainerGenerationException.class,
+                () -> generator.generate("generated", "ThreadLifecycleContainer"));
+        assertTrue(exception.getMessage().contains("PreDestroy"), exception.getMessage());
+    }
+
+    @Test
+    public void testGeneratedSourceUsesProviders() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.easy", "beans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+
+        String source = new ContainerSourceGenerator(beanContainer).generate("generated", "EasyContainer");
+
+        assertTrue(source.contains("new model.easy.MyService(this::getMyRepositoryImpl)"),
+                "Provider в конструкторе должен превращаться в ссылку на метод доступа");
+        assertFalse(source.contains("java.lang.reflect"), "Сгенерированный код не должен использовать рефлексию");
+    }
+
+    private URLClassLoader compile(Path sourceFile) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-proc:none", "-encoding", "UTF-8", "-classpath", System.getProperty("java.class.path"),
+                "-d", tempDir.toString(), sourceFile.toString());
+        assertEquals(0, result, "Сгенерированный контейнер должен компилироваться");
+        return new URLClassLoader(new URL[]{tempDir.toUri().toURL()}, getClass().getClassLoader());
+    }
+}
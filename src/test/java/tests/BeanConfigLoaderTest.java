@@ -0,0 +1,132 @@
+package tests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.threads.MySingletonService;
+import model.threads.MyThreadScopeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.exception.WrongJsonException;
+import ru.nsu.model.BeanDefinitionReader;
+import ru.nsu.services.BeanConfigLoader;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка потокового загрузчика json конфигурации: конфигурация может быть разбита на несколько файлов,
+ * которые объединяются по именам бинов, а повторное описание бина приводит к ошибке.
+ */
+public class BeanConfigLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFragmentsDirectoryMatchesSingleFile() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "fragments");
+
+        DependencyScanningConfig singleFileConfig = new DependencyScanningConfig();
+        singleFileConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        assertEquals(singleFileConfig.getBeansFromJson(), dependencyScanningConfig.getBeansFromJson(),
+                "Части конфигурации объединяются в ту же конфигурацию, что и один файл");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        MySingletonService singletonService = beanInstanceService.getBean("mySingletonService");
+        assertEquals("singletonValue", singletonService.getSomeSingletonProperty());
+        MyThreadScopeRepository threadBean = beanInstanceService.getBean("myThreadScopeRepository");
+        assertEquals("threadSpecificData", threadBean.getThreadLocalData());
+    }
+
+    @Test
+    public void testGlobSelectsFragments() throws IOException {
+        BeanConfigLoader loader = new BeanConfigLoader(new ObjectMapper(), getClass().getClassLoader());
+
+        Map<String, BeanDefinitionReader> services = loader.load("fragments/*-services.json");
+
+        assertEquals(List.of("mySingletonService", "myPrototypeService"), List.copyOf(services.keySet()),
+                "Бины идут в порядке файла");
+        assertEquals("prototype", services.get("myPrototypeService").getScope());
+    }
+
+    @Test
+    public void testDuplicateNamesAreReported() {
+        BeanConfigLoader loader = new BeanConfigLoader(new ObjectMapper(), getClass().getClassLoader());
+
+        WrongJsonException exception = assertThrows(WrongJsonException.class, () -> loader.load("fragments_duplicate"));
+        assertTrue(exception.getMessage().contains("mySingletonService"));
+        assertTrue(exception.getMessage().contains("first.json") && exception.getMessage().contains("second.json"),
+                "В ошибке указаны оба файла с этим бином");
+
+        String duplicateInOneFile = "{\"beans\": [{\"name\": \"a\", \"scope\": \"singleton\"}, {\"name\": \"a\", \"scope\": \"thread\"}]}";
+        assertThrows(WrongJsonException.class, () -> loader.parse(
+                new ByteArrayInputStream(duplicateInOneFile.getBytes(StandardCharsets.UTF_8)), "inline.json"));
+    }
+
+    @Test
+    public void testConfigDirectoryOnDisk() throws IOException {
+        Path teamDirectory = tempDir.resolve("team-a");
+        Files.createDirectories(teamDirectory);
+        for (String fragment : List.of("threads-repositories.json", "threads-services.json")) {
+            try (var input = getClass().getClassLoader().getResourceAsStream("beans/fragments/" + fragment)) {
+                Files.copy(input, (fragment.contains("services") ? tempDir : teamDirectory).resolve(fragment));
+            }
+        }
+        Files.writeString(tempDir.resolve("notes.txt"), "not a config");
+
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", tempDir, "**.json");
+
+        assertEquals(5, dependencyScanningConfig.getNameToBeanDefinitionMap().size(),
+                "Читаются json файлы во всех вложенных папках");
+    }
+
+    @Test
+    public void testConfigDirectoryInJarCanBeLoadedTwice() throws IOException {
+        Path jar = tempDir.resolve("config.jar");
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (String directory : List.of("beans/", "beans/packaged/")) {
+                output.putNextEntry(new JarEntry(directory));
+                output.closeEntry();
+            }
+            for (String fragment : List.of("threads-repositories.json", "threads-services.json")) {
+                output.putNextEntry(new JarEntry("beans/packaged/" + fragment));
+                try (InputStream input = getClass().getClassLoader().getResourceAsStream("beans/fragments/" + fragment)) {
+                    input.transferTo(output);
+                }
+                output.closeEntry();
+            }
+        }
+
+        try (URLClassLoader jarClassLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            BeanConfigLoader loader = new BeanConfigLoader(new ObjectMapper(), jarClassLoader);
+            Map<String, BeanDefinitionReader> first = loader.load("packaged");
+            Map<String, BeanDefinitionReader> second = loader.load("packaged/*.json");
+
+            assertEquals(5, first.size());
+            assertEquals(first.keySet(), second.keySet(), "Повторная загрузка из jar читает те же бины");
+            assertThrows(FileSystemNotFoundException.class,
+                    () -> FileSystems.getFileSystem(URI.create("jar:" + jar.toUri())), "Файловая система jar закрыта после загрузки");
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.model.BeanEventType;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanEventLog;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка асинхронного журнала событий бинов: события из многих потоков записываются пачками
+ * в виде JSON строк, а выключенные типы событий не попадают в файл. Файл ротируется по размеру,
+ * а журналы нескольких контейнеров пишут в один файл через один фоновый поток.
+ */
+public class BeanEventLogTest {
+
+    private static final int THREADS = 8;
+
+    private static final int EVENTS_PER_THREAD = 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEventsFromManyThreadsAreWritten() throws Exception {
+        Path logFile = tempDir.resolve("events.log");
+        try (BeanEventLog eventLog = new BeanEventLog(logFile, 1 << 16)) {
+            eventLog.setSampling(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String beanName = "bean\"" + i;
+                Thread thread = new Thread(() -> {
+                    for (int j = 0; j < EVENTS_PER_THREAD; j++) {
+                        eventLog.record(BeanEventType.GET_BEAN_REQUESTED, beanName);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(eventLog.flush(10, TimeUnit.SECONDS));
+
+            List<String> lines = Files.readAllLines(logFile, StandardCharsets.UTF_8);
+            assertEquals(THREADS * EVENTS_PER_THREAD, lines.size() + eventLog.getDroppedEvents(),
+                    "Каждое событие либо записано, либо учтено как отброшенное");
+            assertEquals(0, eventLog.getDroppedEvents(), "Буфера хватает на все события");
+            assertTrue(lines.get(0).matches("\\{\"name\":\"bean\\\\\"\\d\",\"timestamp\":\"[^\"]+\","
+                    + "\"event\":\"GET_BEAN_REQUESTED\",\"thread\":\\d+,\"message\":\"Attempting to get bean by class name\"}"),
+                    lines.get(0));
+        }
+    }
+
+    @Test
+    public void testSamplingPerEventType() throws Exception {
+        Path logFile = tempDir.resolve("sampled.log");
+        try (BeanEventLog eventLog = new BeanEventLog(logFile, 1024)) {
+            eventLog.setSampling(1);
+            eventLog.setSampling(BeanEventType.GET_BEAN_REQUESTED, 0);
+            for (int i = 0; i < 100; i++) {
+                eventLog.record(BeanEventType.GET_BEAN_REQUESTED, "skipped");
+                eventLog.record(BeanEventType.GET_BEAN_RETRIEVED, "kept");
+            }
+            assertFalse(eventLog.isEnabled(BeanEventType.GET_BEAN_REQUESTED));
+            assertTrue(eventLog.flush(10, TimeUnit.SECONDS));
+
+            List<String> lines = Files.readAllLines(logFile, StandardCharsets.UTF_8);
+            assertEquals(100, lines.size());
+            assertTrue(lines.stream().allMatch(line -> line.contains("\"event\":\"GET_BEAN_RETRIEVED\"")));
+        }
+    }
+
+    @Test
+    public void testContainerWritesLifecycleEvents() throws Exception {
+        Path logFile = tempDir.resolve("container.log");
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.pre_post", "beans_pre_post.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanEventLog eventLog = new BeanEventLog(logFile, 1024);
+        eventLog.setSampling(1);
+        beanContainer.setEventLog(eventLog);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        beanInstanceService.getBean("myServiceImplementation");
+        assertTrue(eventLog.flush(10, TimeUnit.SECONDS));
+
+        String events = Files.readString(logFile, StandardCharsets.UTF_8);
+        assertTrue(events.contains("\"name\":\"myServiceImplementation\"") && events.contains("\"event\":\"SINGLETON_REGISTERED\""));
+        assertTrue(events.contains("\"event\":\"POST_CONSTRUCT_INVOKED\""));
+        assertTrue(events.contains("\"event\":\"GET_BEAN_RETRIEVED\""));
+        eventLog.close();
+    }
+
+    @Test
+    public void testFileIsRotatedBySize() throws Exception {
+        Path logFile = tempDir.resolve("rotated.log");
+        try (BeanEventLog eventLog = new BeanEventLog(logFile, 1024, 4096, 2)) {
+            eventLog.setSampling(1);
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 50; i++) {
+                    eventLog.record(BeanEventType.GET_BEAN_RETRIEVED, "rotatedBean");
+                }
+                assertTrue(eventLog.flush(10, TimeUnit.SECONDS));
+            }
+        }
+        assertTrue(Files.exists(tempDir.resolve("rotated.log.1")));
+        assertTrue(Files.exists(tempDir.resolve("rotated.log.2")));
+        assertFalse(Files.exists(tempDir.resolve("rotated.log.3")), "Хранится не больше двух старых копий");
+        for (String name : List.of("rotated.log", "rotated.log.1", "rotated.log.2")) {
+            Path file = tempDir.resolve(name);
+            assertTrue(Files.size(file) <= 4096, name);
+            assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                    .allMatch(line -> line.startsWith("{\"name\":\"rotatedBean\"") && line.endsWith("}")), name);
+        }
+    }
+
+    @Test
+    public void testLogsOfOneFileShareWriter() throws Exception {
+        Path logFile = tempDir.resolve("shared.log");
+        BeanEventLog first = new BeanEventLog(logFile, 1 << 14);
+        BeanEventLog second = new BeanEventLog(logFile, 1 << 14);
+        first.setSampling(1);
+        second.setSampling(1);
+        Thread firstThread = new Thread(() -> {
+            for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                first.record(BeanEventType.GET_BEAN_REQUESTED, "firstBean");
+            }
+        });
+        Thread secondThread = new Thread(() -> {
+            for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                second.record(BeanEventType.GET_BEAN_RETRIEVED, "secondBean");
+            }
+        });
+        firstThread.start();
+        secondThread.start();
+        firstThread.join();
+        secondThread.join();
+        first.close();
+        second.close();
+
+        List<String> lines = Files.readAllLines(logFile, StandardCharsets.UTF_8);
+        assertEquals(2 * EVENTS_PER_THREAD, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.matches("\\{\"name\":\"(firstBean|secondBean)\".*}")),
+                "Строки разных журналов не перемешиваются");
+    }
+
+    @Test
+    public void testWriterStopsAfterContainerShutdown() throws Exception {
+        Path logFile = tempDir.resolve("shutdown.log");
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.pre_post", "beans_pre_post.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanEventLog eventLog = new BeanEventLog(logFile, 1024);
+        eventLog.setSampling(1);
+        beanContainer.setEventLog(eventLog);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        beanContainer.getShutdownHookService().cleanupBeansForTest();
+
+        String events = Files.readString(logFile, StandardCharsets.UTF_8);
+        assertTrue(events.contains("\"event\":\"PRE_DESTROY_INVOKED\""));
+        eventLog.record(BeanEventType.GET_BEAN_REQUESTED, "afterShutdown");
+        assertTrue(eventLog.flush(1, TimeUnit.SECONDS));
+        assertFalse(Files.readString(logFile, StandardCharsets.UTF_8).contains("afterShutdown"), "Закрытый журнал не принимает события");
+    }
+}
@@ -0,0 +1,68 @@
+package tests;
+
+import model.threads.MyPrototypeService;
+import model.threads.MySingletonService;
+import model.threads.MyThreadScopeRepository;
+import org.junit.jupiter.api.Test;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanHandle;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка заранее найденных ссылок на бины: они должны возвращать те же инстансы,
+ * что и {@code getBean}, по правилам scope бина.
+ */
+public class BeanHandleTest {
+
+    @Test
+    public void testHandlesFollowBeanScopes() throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        BeanHandle<MySingletonService> singletonHandle = beanInstanceService.getBeanHandle("mySingletonService");
+        assertEquals("mySingletonService", singletonHandle.getName());
+        assertSame(beanInstanceService.getBean("mySingletonService"), singletonHandle.get());
+        assertSame(singletonHandle.get(), beanInstanceService.getBeanHandle(MySingletonService.class).get());
+
+        BeanHandle<MyPrototypeService> prototypeHandle = beanInstanceService.getBeanHandle("myPrototypeService");
+        MyPrototypeService firstPrototype = prototypeHandle.get();
+        assertNotSame(firstPrototype, prototypeHandle.get(), "Каждый вызов создаёт новый prototype бин");
+        assertEquals("prototypeValue", firstPrototype.getSomePrototypeProperty());
+
+        BeanHandle<MyThreadScopeRepository> threadHandle = beanInstanceService.getBeanHandle("myThreadScopeRepository");
+        MyThreadScopeRepository mainThreadBean = threadHandle.get();
+        assertSame(beanInstanceService.getBean("myThreadScopeRepository"), mainThreadBean);
+        AtomicReference<Object> otherThreadBean = new AtomicReference<>();
+        Thread thread = new Thread(() -> otherThreadBean.set(threadHandle.get()));
+        thread.start();
+        thread.join();
+        assertNotNull(otherThreadBean.get());
+        assertNotSame(mainThreadBean, otherThreadBean.get(), "В другом потоке свой инстанс потокового бина");
+    }
+
+    @Test
+    public void testHandleForLazySingleton() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanContainer.setLazyInitialization(true);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+
+        BeanHandle<MySingletonService> handle = beanInstanceService.getBeanHandle("mySingletonService");
+        assertFalse(beanContainer.containsBean("mySingletonService"), "Ссылка не создаёт ленивый бин заранее");
+        MySingletonService service = handle.get();
+        assertSame(service, handle.get());
+        assertSame(service, beanInstanceService.getBean("mySingletonService"));
+    }
+}
@@ -0,0 +1,113 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.model.BeanDefinition;
+import ru.nsu.processor.BeanIndexEntry;
+import ru.nsu.processor.BeanIndexProcessor;
+import ru.nsu.services.DependencyScanningConfig;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка индекса бинов, который создаётся процессором аннотаций при компиляции тестовых моделей.
+ * Модели бинов, полученные из индекса, должны совпадать с моделями, полученными сканированием через Reflections.
+ */
+public class BeanIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testIndexIsGenerated() {
+        assertNotNull(getClass().getClassLoader().getResource(BeanIndexEntry.INDEX_LOCATION),
+                "Процессор аннотаций должен создать индекс бинов для тестовых моделей");
+    }
+
+    @Test
+    public void testIndexLineFormat() {
+        String line = "model.easy.MyService\tname=myServiceImplementation\tfields=\tproviders=\t"
+                + "constructor=javax.inject.Provider\tpostConstruct=\tpreDestroy=";
+        BeanIndexEntry entry = BeanIndexEntry.fromLine(line);
+
+        assertEquals("myServiceImplementation", entry.getName());
+        assertEquals(1, entry.getConstructorParameterTypes().size());
+        assertTrue(entry.belongsTo("model.easy"));
+        assertFalse(entry.belongsTo("model.eas"));
+        assertEquals(line, entry.toLine());
+    }
+
+    @Test
+    public void testIndexMatchesReflections() throws IOException {
+        assertSameDefinitions("model.threads", "threadBeans.json");
+        assertSameDefinitions("model.pre_post", "beans_pre_post.json");
+        assertSameDefinitions("model.interfaces", "beansInterface.json");
+    }
+
+    @Test
+    public void testIncrementalCompilationKeepsIndexedBeans() throws IOException {
+        Path sources = Files.createDirectories(tempDir.resolve("src/incremental"));
+        Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        Path alpha = writeBean(sources, "Alpha", true);
+        Path beta = writeBean(sources, "Beta", true);
+        compileWithIndex(classes, alpha, beta);
+        assertEquals(List.of("incremental.Alpha", "incremental.Beta"), indexedClasses(classes));
+
+        compileWithIndex(classes, writeBean(sources, "Gamma", true));
+        assertEquals(List.of("incremental.Alpha", "incremental.Beta", "incremental.Gamma"), indexedClasses(classes),
+                "Бины, которые не перекомпилировались, остаются в индексе");
+
+        Files.delete(classes.resolve("incremental/Beta.class"));
+        compileWithIndex(classes, writeBean(sources, "Alpha", false));
+        assertEquals(List.of("incremental.Gamma"), indexedClasses(classes),
+                "Удалённый класс и класс без аннотаций пропадают из индекса");
+    }
+
+    private static Path writeBean(Path sources, String className, boolean named) throws IOException {
+        String annotation = named ? "@javax.inject.Named(\"" + className.toLowerCase() + "\")\n" : "";
+        return Files.writeString(sources.resolve(className + ".java"),
+                "package incremental;\n\n" + annotation + "public class " + className + " {\n}\n");
+    }
+
+    private static void compileWithIndex(Path classes, Path... sourceFiles) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(List.of("-processor", BeanIndexProcessor.class.getName(),
+                "-classpath", classes + File.pathSeparator + System.getProperty("java.class.path"), "-d", classes.toString()));
+        for (Path sourceFile : sourceFiles) {
+            arguments.add(sourceFile.toString());
+        }
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(String[]::new)));
+    }
+
+    private static List<String> indexedClasses(Path classes) throws IOException {
+        return Files.readAllLines(classes.resolve(BeanIndexEntry.INDEX_LOCATION)).stream()
+                .filter(line -> !line.isBlank())
+                .map(line -> BeanIndexEntry.fromLine(line).getClassName())
+                .toList();
+    }
+
+    private void assertSameDefinitions(String scanningDirectory, String jsonConfig) throws IOException {
+        DependencyScanningConfig indexedConfig = new DependencyScanningConfig();
+        indexedConfig.scanForAnnotatedClasses(scanningDirectory, jsonConfig);
+
+        DependencyScanningConfig scannedConfig = new DependencyScanningConfig();
+        scannedConfig.setUseBeanIndex(false);
+        scannedConfig.scanForAnnotatedClasses(scanningDirectory, jsonConfig);
+
+        Map<String, BeanDefinition> indexed = indexedConfig.getNameToBeanDefinitionMap();
+        Map<String, BeanDefinition> scanned = scannedConfig.getNameToBeanDefinitionMap();
+        assertEquals(scanned.keySet(), indexed.keySet(), "Индекс должен находить те же бины, что и Reflections");
+        scanned.forEach((name, definition) -> assertEquals(definition, indexed.get(name),
+                "Модель бина " + name + " из индекса должна совпадать с моделью из Reflections"));
+    }
+}
@@ -0,0 +1,106 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.services.BeanLogStore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка поиска логов бина по индексу: точное совпадение имени, фильтр по времени,
+ * дочитывание новых строк и переименование файла при ротации логов.
+ */
+public class BeanLogStoreTest {
+
+    @TempDir
+    Path logDirectory;
+
+    @Test
+    public void testExactNameAndTimeRange() throws IOException {
+        Path logFile = logDirectory.resolve("beans_actions.log");
+        Files.write(logFile, List.of(
+                line("myService", "2024-03-01 10:00:00,000", "first"),
+                line("myServiceImpl", "2024-03-01 10:00:01,000", "other bean"),
+                line("myService", "2024-03-01 11:00:00,000", "second"),
+                "not a json line",
+                line("myService", "2024-03-01 12:00:00,000", "third")), StandardCharsets.UTF_8);
+
+        BeanLogStore logStore = new BeanLogStore(logDirectory);
+        assertEquals(List.of("first", "second", "third"), messages(logStore.query("myService", null, null)),
+                "Строки бина с похожим именем не попадают в результат");
+        assertEquals(List.of("other bean"), messages(logStore.query("myServiceImpl", null, null)));
+        assertEquals(List.of("second"), messages(logStore.query("myService",
+                instant("2024-03-01 10:30:00"), instant("2024-03-01 12:00:00"))),
+                "Начало интервала включается, а конец нет");
+        assertTrue(messages(logStore.query("unknownBean", null, null)).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalIndexAndRotation() throws IOException {
+        Path logFile = logDirectory.resolve("beans_actions.log");
+        Files.write(logFile, List.of(line("myService", "2024-03-01 10:00:00,000", "first")), StandardCharsets.UTF_8);
+        BeanLogStore logStore = new BeanLogStore(logDirectory);
+        assertEquals(List.of("first"), messages(logStore.query("myService", null, null)));
+
+        // Недописанная строка не индексируется, пока не появится перевод строки
+        Files.writeString(logFile, line("myService", "2024-03-01 10:00:01,000", "second"), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        assertEquals(List.of("first"), messages(logStore.query("myService", null, null)));
+        Files.writeString(logFile, "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals(List.of("first", "second"), messages(logStore.query("myService", null, null)));
+
+        // Ротация: старый файл переименовывается, а новые строки пишутся в новый файл
+        Files.move(logFile, logDirectory.resolve("beans_actions.log.1"));
+        Files.write(logFile, List.of(line("myService", "2024-03-01 10:00:02,000", "third")), StandardCharsets.UTF_8);
+        assertEquals(List.of("first", "second", "third"), messages(logStore.query("myService", null, null)));
+
+        Files.delete(logDirectory.resolve("beans_actions.log.1"));
+        assertEquals(List.of("third"), messages(logStore.query("myService", null, null)));
+    }
+
+    @Test
+    public void testStreamIsLazy() throws IOException {
+        Path logFile = logDirectory.resolve("beans_actions.log");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            lines.add(line("myService", "2024-03-01 10:00:00,000", "message " + i));
+        }
+        Files.write(logFile, lines, StandardCharsets.UTF_8);
+
+        BeanLogStore logStore = new BeanLogStore(logDirectory);
+        try (Stream<String> logs = logStore.query("myService", null, null)) {
+            assertEquals(List.of("message 0", "message 1"), logs.limit(2).map(BeanLogStoreTest::message).toList());
+        }
+    }
+
+    private static String line(String beanName, String timestamp, String message) {
+        return "{\"name\":\"" + beanName + "\",\"timestamp\":\"" + timestamp + "\",\"message\":\"" + message + "\"}";
+    }
+
+    private static Instant instant(String dateTime) {
+        return LocalDateTime.parse(dateTime.replace(' ', 'T')).atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static List<String> messages(Stream<String> logs) {
+        try (logs) {
+            return logs.map(BeanLogStoreTest::message).toList();
+        }
+    }
+
+    private static String message(String line) {
+        int start = line.indexOf("\"message\":\"") + "\"message\":\"".length();
+        return line.substring(start, line.lastIndexOf('"'));
+    }
+}
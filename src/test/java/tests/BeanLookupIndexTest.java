@@ -0,0 +1,64 @@
+package tests;
+
+import model.interfaces.EmailService;
+import model.interfaces.IMessageService;
+import model.interfaces.NotificationManager;
+import model.threads.MyPrototypeRepository;
+import model.threads.MySingletonRepository;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.model.BeanDefinition;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка индексов контейнера: бин находится по имени, по полному имени класса
+ * и по любому своему суперклассу или интерфейсу.
+ */
+public class BeanLookupIndexTest {
+
+    @Test
+    public void testLookupByClassName() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        assertSame(beanContainer.getBeanDefinitions().get("mySingletonRepository"),
+                beanContainer.findBeanDefinition(MySingletonRepository.class.getName()));
+        assertSame(beanInstanceService.getBean("mySingletonRepository"),
+                beanInstanceService.getBean(MySingletonRepository.class.getName()),
+                "Синглетон по имени класса возвращает тот же инстанс, что и по имени бина");
+        assertEquals("myPrototypeRepository",
+                beanContainer.findPrototypeBeanDefinition(MyPrototypeRepository.class.getName()).getName());
+        assertNull(beanContainer.findPrototypeBeanDefinition(MySingletonRepository.class.getName()),
+                "Синглетон не является prototype бином");
+        assertThrows(NoDependencyException.class, () -> beanInstanceService.getBean("unknownBean"));
+    }
+
+    @Test
+    public void testLookupByAssignableType() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.interfaces", "beansInterface.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+
+        Set<String> messageServices = beanContainer.getBeanDefinitionsOfType(IMessageService.class).stream()
+                .map(BeanDefinition::getName)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("EmailService", "SmsService"), messageServices, "Интерфейс реализуют два бина");
+        assertEquals("EmailService", beanContainer.getBeanDefinitionsOfType(EmailService.class).get(0).getName());
+        assertEquals(1, beanContainer.getBeanDefinitionsOfType(NotificationManager.class).size());
+        assertTrue(beanContainer.getBeanDefinitionsOfType(Object.class).isEmpty(), "Object не индексируется");
+        assertTrue(beanContainer.getBeanDefinitionsOfType(Runnable.class).isEmpty());
+    }
+}
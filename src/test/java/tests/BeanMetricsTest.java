@@ -0,0 +1,108 @@
+package tests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.BeanMetrics;
+import ru.nsu.services.ContainerMetrics;
+import ru.nsu.services.DependencyScanningConfig;
+import ru.nsu.services.LatencyHistogram;
+
+import javax.management.MBeanServer;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка метрик бинов: счётчики вызовов getBean по scope, созданных инстансов
+ * и длительностей создания и методов жизненного цикла, а также их доступность через JMX.
+ */
+public class BeanMetricsTest {
+
+    @Test
+    public void testScopeCounters() throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        ContainerMetrics metrics = beanContainer.getMetrics();
+        long singletonCalls = metrics.getSingletonGetBeanCalls();
+        long prototypesBefore = metrics.getBeanMetrics("myPrototypeRepository").getPrototypeCreations();
+
+        for (int i = 0; i < 5; i++) {
+            beanInstanceService.getBean("mySingletonService");
+            beanInstanceService.getBean("myPrototypeRepository");
+        }
+        beanInstanceService.getBeanHandle("mySingletonService").get();
+
+        Thread thread = new Thread(() -> beanInstanceService.getBean("myThreadScopeRepository"));
+        thread.start();
+        thread.join();
+
+        assertEquals(singletonCalls + 6, metrics.getSingletonGetBeanCalls(), "Учитываются вызовы getBean и ссылок на бин");
+        assertEquals(6, metrics.getBeanMetrics("mySingletonService").getGetBeanCalls());
+        assertEquals(prototypesBefore + 5, metrics.getBeanMetrics("myPrototypeRepository").getPrototypeCreations(),
+                "Каждый вызов getBean создаёт prototype бин");
+        assertTrue(metrics.getBeanMetrics("myThreadScopeRepository").getThreadInstanceCreations() >= 2,
+                "Инстанс потокового бина создаётся при старте и в новом потоке");
+        assertEquals(1, metrics.getBeanMetrics("mySingletonService").getConstructionCount(),
+                "Синглетон создаётся один раз");
+        assertEquals(0, metrics.getBeanMetrics("mySingletonService").getPrototypeCreations());
+    }
+
+    @Test
+    public void testLifecycleTimingsOverJmx() throws Exception {
+        System.setProperty("environment", "test");
+
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.pre_post", "beans_pre_post.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        beanContainer.testCleanup();
+
+        ContainerMetrics metrics = beanContainer.getMetrics();
+        BeanMetrics serviceMetrics = metrics.getBeanMetrics("myServiceImplementation");
+        assertEquals(1, serviceMetrics.getPostConstructCount());
+        assertEquals(1, serviceMetrics.getPreDestroyCount());
+        assertTrue(serviceMetrics.getConstructionMaxNanos() > 0);
+
+        metrics.registerMBeans();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(metrics.getBeanObjectName("myServiceImplementation"), "PreDestroyCount"));
+            assertEquals("singleton", server.getAttribute(metrics.getBeanObjectName("myServiceImplementation"), "Scope"));
+            assertEquals(metrics.getPrototypeCreations(),
+                    server.getAttribute(metrics.getContainerObjectName(), "PrototypeCreations"));
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics.getContainerObjectName()));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        long median = histogram.getPercentileNanos(50);
+        assertTrue(median >= 1_000 && median < 2_048, "Процентиль оценивается сверху в пределах двух раз");
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        System.clearProperty("environment");
+    }
+}
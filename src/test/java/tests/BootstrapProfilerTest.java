@@ -0,0 +1,87 @@
+package tests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.parallel.CacheWarmer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.BootstrapProfiler;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка профилировщика старта: фазы сканирования, сборки контейнера и создания бинов
+ * записываются с потоком, в котором они выполнялись, и сохраняются в формате Chrome trace.
+ */
+public class BootstrapProfilerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testStartupSpansAreRecorded() throws IOException {
+        CacheWarmer.WARM_UP_BARRIER.reset();
+        BootstrapProfiler profiler = new BootstrapProfiler();
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.setProfiler(profiler);
+        dependencyScanningConfig.scanForAnnotatedClasses("model.parallel", "beansParallel.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            beanInstanceService.instantiateAndRegisterBeans(executor);
+        } finally {
+            executor.shutdown();
+        }
+        profiler.stop();
+        int recordedEvents = profiler.getEvents().size();
+        beanInstanceService.getBean("parallelService");
+        assertEquals(recordedEvents, profiler.getEvents().size(), "После остановки интервалы не записываются");
+
+        List<String> phases = profiler.getEvents().stream().map(BootstrapProfiler.TraceEvent::getName).toList();
+        assertTrue(phases.containsAll(List.of("scanForAnnotatedClasses", "readBeanDefinitions", "BeanContainer",
+                "buildLookupIndexes", "linkInstantiators", "resolveDependencies", "instantiateAndRegisterBeans",
+                "createBeanInstance", "postConstruct")), "Записаны все фазы старта: " + phases);
+
+        Map<String, Long> creationThreads = profiler.getEvents().stream()
+                .filter(event -> event.getName().equals("createBeanInstance"))
+                .collect(Collectors.toMap(BootstrapProfiler.TraceEvent::getBeanName, BootstrapProfiler.TraceEvent::getThreadId));
+        assertNotEquals(creationThreads.get("cacheWarmer"), creationThreads.get("connectionPool"),
+                "Независимые бины создавались в разных потоках");
+
+        Path traceFile = tempDir.resolve("startup-trace.json");
+        profiler.writeChromeTrace(traceFile);
+        JsonNode trace = new ObjectMapper().readTree(traceFile.toFile());
+        long completeEvents = 0;
+        for (JsonNode event : trace.get("traceEvents")) {
+            if (event.get("ph").asText().equals("X")) {
+                completeEvents++;
+                assertTrue(event.has("ts") && event.has("dur") && event.has("tid"));
+            }
+        }
+        assertEquals(recordedEvents, completeEvents);
+    }
+
+    @Test
+    public void testProfilerIsDisabledByDefault() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        new BeanInstanceService(beanContainer).instantiateAndRegisterBeans();
+
+        assertSame(BootstrapProfiler.DISABLED, beanContainer.getProfiler());
+        assertTrue(BootstrapProfiler.DISABLED.getEvents().isEmpty());
+    }
+}
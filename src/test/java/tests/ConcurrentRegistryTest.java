@@ -0,0 +1,77 @@
+package tests;
+
+import model.lazy.LazyRepository;
+import model.lazy.LazyService;
+import org.junit.jupiter.api.Test;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка работы контейнера из многих потоков без внешней синхронизации:
+ * запросы бинов во время старта контейнера не должны приводить к повторному созданию синглетонов.
+ */
+public class ConcurrentRegistryTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    public void testGetBeanDuringBootstrapDoesNotDuplicateSingletons() throws Exception {
+        LazyRepository.CREATED.set(0);
+        LazyRepository.POST_CONSTRUCTED.set(0);
+        LazyService.POST_CONSTRUCTED.set(0);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.lazy", "beansConcurrentRegistry.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                String beanName = i % 2 == 0 ? "lazyService" : "lazyRepository";
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return beanInstanceService.getBean(beanName);
+                }));
+            }
+            start.countDown();
+            beanInstanceService.instantiateAndRegisterBeans();
+
+            LazyService lazyService = beanInstanceService.getBean("lazyService");
+            for (Future<Object> future : futures) {
+                Object bean = future.get(10, TimeUnit.SECONDS);
+                assertSame(bean instanceof LazyService ? lazyService : lazyService.getLazyRepository(), bean,
+                        "Все потоки получают уже зарегистрированный инстанс");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, LazyRepository.CREATED.get(), "Синглетон не должен создаваться повторно");
+        assertEquals(1, LazyRepository.POST_CONSTRUCTED.get());
+        assertEquals(1, LazyService.POST_CONSTRUCTED.get());
+    }
+
+    @Test
+    public void testBeanDefinitionsAreReadOnly() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.lazy", "beansConcurrentRegistry.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+
+        assertThrows(UnsupportedOperationException.class, () -> beanContainer.getBeanDefinitions().remove("lazyService"),
+                "Модели бинов заполняются один раз и дальше только читаются");
+    }
+}
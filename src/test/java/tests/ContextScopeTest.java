@@ -0,0 +1,112 @@
+package tests;
+
+import model.context.RequestAudit;
+import model.context.RequestState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanContext;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+import ru.nsu.services.VirtualThreads;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка scope context: инстансы привязаны к открытому контексту, а не к потоку,
+ * передаются дочерним задачам на других потоках и уничтожаются при закрытии контекста.
+ */
+public class ContextScopeTest {
+
+    private BeanInstanceService beanInstanceService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        RequestState.CONSTRUCTED.set(0);
+        RequestState.DESTROYED.clear();
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.context", "beansContext.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+    }
+
+    @Test
+    public void testInstancesSharedInsideContext() {
+        assertEquals(0, RequestState.CONSTRUCTED.get(), "Бины context не создаются при старте");
+        try (BeanContext ignored = beanInstanceService.openContext()) {
+            RequestState state = beanInstanceService.getBean("requestState");
+            RequestAudit audit = beanInstanceService.getBean("requestAudit");
+            assertTrue(state.isInitialized(), "PostConstruct вызван");
+            assertSame(state, audit.getRequestState(), "Зависимость берётся из того же контекста");
+            assertSame(state, beanInstanceService.getBeanHandle("requestState").get());
+        }
+        assertEquals(1, RequestState.CONSTRUCTED.get());
+        assertNull(BeanContext.current(), "После закрытия контекст снят с потока");
+    }
+
+    @Test
+    public void testContextsAreIsolated() {
+        RequestState first;
+        try (BeanContext ignored = beanInstanceService.openContext()) {
+            first = beanInstanceService.getBean("requestState");
+        }
+        try (BeanContext ignored = beanInstanceService.openContext()) {
+            assertNotSame(first, beanInstanceService.getBean("requestState"));
+        }
+        assertThrows(NoDependencyException.class, () -> beanInstanceService.getBean("requestState"),
+                "Без открытого контекста бин получить нельзя");
+    }
+
+    @Test
+    public void testWrappedTasksShareContextAcrossThreads() throws Exception {
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (BeanContext context = beanInstanceService.openContext()) {
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                threads.add(VirtualThreads.start(context.wrap(() -> {
+                    seen.add(beanInstanceService.getBean("requestState"));
+                })));
+            }
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            Object fromPool = executor.submit(context.wrap(() -> beanInstanceService.<RequestState>getBean("requestState")))
+                    .get(10, TimeUnit.SECONDS);
+            seen.add(fromPool);
+            assertNull(executor.submit(BeanContext::current).get(10, TimeUnit.SECONDS),
+                    "После обёрнутой задачи контекст снят с потока пула");
+            assertEquals(1, seen.size(), "Все дочерние задачи получили один инстанс");
+            assertEquals(1, context.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, RequestState.CONSTRUCTED.get());
+    }
+
+    @Test
+    public void testCloseDestroysInReverseCreationOrder() {
+        BeanContext context = beanInstanceService.openContext();
+        beanInstanceService.getBean("requestAudit");
+        context.close();
+        context.close();
+        assertEquals(List.of("requestAudit", "requestState"), new ArrayList<>(RequestState.DESTROYED),
+                "PreDestroy вызывается один раз в обратном порядке создания");
+        assertTrue(context.isClosed());
+        assertThrows(IllegalStateException.class, () -> context.wrap(() -> {
+                    beanInstanceService.getBean("requestState");
+                }).run(),
+                "В закрытом контексте новые инстансы не создаются");
+    }
+}
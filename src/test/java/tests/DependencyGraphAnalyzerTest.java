@@ -0,0 +1,83 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.model.DependencyGraphReport;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyGraphAnalyzer;
+import ru.nsu.services.DependencyResolver;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка анализа графа зависимостей: критический путь, ширина уровней,
+ * возможное ускорение параллельного старта и выгрузка в DOT и HTML.
+ */
+public class DependencyGraphAnalyzerTest {
+
+    private static final long MILLISECOND = 1_000_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCriticalPathAndSpeedup() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+
+        DependencyGraphAnalyzer analyzer = new DependencyGraphAnalyzer(new DependencyResolver(beanContainer.getInstantiators()), Map.of(
+                "mySingletonService", 10 * MILLISECOND,
+                "mySingletonRepository", 30 * MILLISECOND,
+                "myPrototypeRepository", 5 * MILLISECOND,
+                "myThreadScopeRepository", MILLISECOND,
+                "myPrototypeService", 2 * MILLISECOND));
+        DependencyGraphReport report = analyzer.analyze();
+
+        assertEquals(List.of("mySingletonRepository", "mySingletonService"), report.getCriticalPath(),
+                "Самая долгая цепочка идёт через самый медленный репозиторий");
+        assertEquals(40 * MILLISECOND, report.getCriticalPathNanos());
+        assertEquals(48 * MILLISECOND, report.getTotalInitNanos());
+        assertEquals(1.2, report.getMaxSpeedup(), 1e-9);
+        assertEquals(List.of(3, 2), report.getLevelWidths());
+        assertEquals(3, report.getMaxLevelWidth());
+        assertEquals("myPrototypeRepository", report.getFanIn().keySet().iterator().next(),
+                "От prototype репозитория зависят оба сервиса");
+        assertEquals(2, report.getFanIn().get("myPrototypeRepository"));
+        assertEquals(3, report.getFanOut().get("mySingletonService"));
+
+        String dot = analyzer.toDot();
+        assertTrue(dot.contains("\"mySingletonService\" -> \"mySingletonRepository\" [color=red, penwidth=2];"));
+        assertTrue(dot.contains("\"myPrototypeService\" -> \"myPrototypeRepository\";"));
+        assertTrue(dot.contains("30.000 ms"));
+    }
+
+    @Test
+    public void testReportFromContainerMetrics() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        new BeanInstanceService(beanContainer).instantiateAndRegisterBeans();
+
+        DependencyGraphAnalyzer analyzer = DependencyGraphAnalyzer.of(beanContainer);
+        DependencyGraphReport report = analyzer.analyze();
+        assertTrue(report.getBeanInitNanos().get("mySingletonService") > 0, "Время берётся из метрик контейнера");
+        assertTrue(report.getCriticalPathNanos() <= report.getTotalInitNanos());
+        assertEquals(beanContainer.getBeanDefinitions().size(), report.getBeanInitNanos().size());
+
+        Path htmlFile = tempDir.resolve("graph.html");
+        analyzer.writeHtml(htmlFile);
+        String html = Files.readString(htmlFile);
+        assertTrue(html.contains("Critical path") && html.contains("mySingletonService"));
+        analyzer.writeDot(tempDir.resolve("graph.dot"));
+        assertTrue(Files.readString(tempDir.resolve("graph.dot")).startsWith("digraph beans {"));
+    }
+}
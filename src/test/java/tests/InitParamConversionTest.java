@@ -0,0 +1,94 @@
+package tests;
+
+import model.init_params.DeliveryMode;
+import model.init_params.MailSettings;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.SetterException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.BeanInstantiator;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка преобразования initParams из json в типы параметров сеттеров:
+ * примитивы из строк и чисел, enum, Duration, коллекции и массивы.
+ */
+public class InitParamConversionTest {
+
+    @Test
+    public void testInitParamsConvertedToSetterTypes() throws IOException, ClassNotFoundException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForJsonOnlyConfig("beansInitParams.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        MailSettings mailSettings = beanInstanceService.getBean("mailSettings");
+        assertEquals("587", mailSettings.getHost());
+        assertEquals(587, mailSettings.getPort(), "Строка из json преобразуется в int");
+        assertEquals(10_485_760L, mailSettings.getMaxMessageSize());
+        assertTrue(mailSettings.isTls());
+        assertEquals(2.0, mailSettings.getRetryFactor());
+        assertEquals(';', mailSettings.getSeparator());
+        assertEquals(DeliveryMode.BATCHED, mailSettings.getDeliveryMode(), "Enum находится без учёта регистра");
+        assertEquals(Duration.ofSeconds(30), mailSettings.getTimeout());
+        assertEquals(Duration.ofMinutes(5), mailSettings.getIdleTimeout());
+        assertEquals(List.of(Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofSeconds(5)), mailSettings.getRetryDelays());
+        assertEquals(Set.of(25, 465, 587), mailSettings.getAllowedPorts());
+        assertEquals(Map.of("alerts", 1, "digest", 10), mailSettings.getPriorities());
+        assertArrayEquals(new int[]{3, 2, 1}, mailSettings.getWeights());
+        assertThrows(UnsupportedOperationException.class, () -> mailSettings.getRetryDelays().add(Duration.ZERO),
+                "Одно значение используется для всех инстансов, поэтому коллекция неизменяемая");
+    }
+
+    @Test
+    public void testValuesConvertedOnceAtLinkTime() throws IOException, ClassNotFoundException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForJsonOnlyConfig("beansInitParams.json");
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstantiator instantiator = beanContainer.getInstantiator(beanContainer.getBeanDefinitions().get("mailSettings"));
+
+        assertTrue(List.of(instantiator.getInitParamValues()).contains(587), "Значения преобразуются при связывании");
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        MailSettings first = beanInstanceService.getBean("mailSettings");
+        MailSettings second = beanInstanceService.getBean("mailSettings");
+        assertNotSame(first, second);
+        assertSame(first.getTimeout(), second.getTimeout(), "Prototype инстансы получают уже преобразованное значение");
+    }
+
+    @Test
+    public void testMutableValuesAreNotShared() throws IOException, ClassNotFoundException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForJsonOnlyConfig("beansInitParams.json");
+        BeanInstanceService beanInstanceService = new BeanInstanceService(new BeanContainer(dependencyScanningConfig));
+
+        MailSettings first = beanInstanceService.getBean("mailSettings");
+        first.getWeights()[0] = 100;
+        first.getRecipients().add("dev@example.com");
+        first.getHeaders().put("X-Debug", "true");
+        MailSettings second = beanInstanceService.getBean("mailSettings");
+
+        assertArrayEquals(new int[]{3, 2, 1}, second.getWeights(), "Каждый инстанс получает свой массив");
+        assertEquals(List.of("ops@example.com"), second.getRecipients());
+        assertEquals(Map.of("X-Priority", "1"), second.getHeaders());
+        assertNotSame(first.getRecipients(), second.getRecipients());
+        assertSame(first.getRetryDelays(), second.getRetryDelays(), "Неизменяемая коллекция по-прежнему общая");
+    }
+
+    @Test
+    public void testUnconvertibleValueFailsOnLink() throws IOException, ClassNotFoundException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForJsonOnlyConfig("beansInitParamsWrongType.json");
+
+        SetterException exception = assertThrows(SetterException.class, () -> new BeanContainer(dependencyScanningConfig));
+        assertTrue(exception.getMessage().contains("setPort"));
+    }
+}
@@ -0,0 +1,78 @@
+package tests;
+
+import model.pre_post.MyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка событий JFR контейнера: при включенной записи события сканирования, создания, внедрения,
+ * PostConstruct, PreDestroy и промахов getBean содержат имя и scope бина.
+ */
+public class JfrEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testContainerEventsAreRecorded() throws Exception {
+        System.setProperty("environment", "test");
+        Path recordingFile = tempDir.resolve("container.jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String eventName : List.of("ru.nsu.BeanScan", "ru.nsu.BeanCreation", "ru.nsu.BeanInjection",
+                    "ru.nsu.PostConstruct", "ru.nsu.PreDestroy", "ru.nsu.GetBeanMiss")) {
+                recording.enable(eventName).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+            dependencyScanningConfig.scanForAnnotatedClasses("model.pre_post", "beans_pre_post.json");
+            BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+            BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+            beanInstanceService.instantiateAndRegisterBeans();
+            MyService myService = beanInstanceService.getBean("myServiceImplementation");
+            assertNotNull(myService);
+            assertThrows(NoDependencyException.class, () -> beanInstanceService.getBean("noSuchBean"));
+            beanContainer.testCleanup();
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        assertTrue(hasEvent(events, "ru.nsu.BeanScan", "myServiceImplementation", "singleton"));
+        assertTrue(hasEvent(events, "ru.nsu.BeanCreation", "myRepositoryImpl", "prototype"));
+        assertTrue(hasEvent(events, "ru.nsu.PostConstruct", "myServiceImplementation", "singleton"));
+        assertTrue(hasEvent(events, "ru.nsu.PreDestroy", "myServiceImplementation", "singleton"));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("ru.nsu.BeanInjection")
+                && "myRepositoryImpl".equals(event.getString("dependencyName"))));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("ru.nsu.GetBeanMiss")
+                && "noSuchBean".equals(event.getString("beanName")) && "unknownBean".equals(event.getString("reason"))));
+    }
+
+    private static boolean hasEvent(List<RecordedEvent> events, String eventName, String beanName, String scope) {
+        return events.stream().anyMatch(event -> event.getEventType().getName().equals(eventName)
+                && beanName.equals(event.getString("beanName"))
+                && scope.equals(event.getString("scope"))
+                && !event.getDuration().isNegative());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        System.clearProperty("environment");
+    }
+}
@@ -0,0 +1,129 @@
+package tests;
+
+import model.lazy.EagerService;
+import model.lazy.LazyRepository;
+import model.lazy.LazyService;
+import model.threads.MySingletonService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка ленивых синглетон бинов: они не создаются при старте, а при одновременном первом запросе
+ * из многих потоков создаются ровно один раз и без deadlock между зависимыми бинами.
+ */
+public class LazySingletonTest {
+
+    private static final int THREADS = 16;
+
+    @BeforeEach
+    public void resetCounters() {
+        LazyRepository.CREATED.set(0);
+        LazyRepository.POST_CONSTRUCTED.set(0);
+        LazyService.POST_CONSTRUCTED.set(0);
+    }
+
+    @Test
+    public void testLazyBeanIsCreatedOnFirstRequest() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.lazy", "beansLazy.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        assertTrue(beanContainer.containsBean("eagerService"));
+        assertFalse(beanContainer.containsBean("lazyRepository"), "Ленивый бин не создаётся при старте");
+        assertFalse(beanContainer.containsBean("lazyService"), "Ленивый бин не создаётся при старте");
+
+        LazyRepository lazyRepository = beanInstanceService.getBean("lazyRepository");
+        assertEquals("lazyDataSource", lazyRepository.getDataSource());
+        assertSame(lazyRepository, beanInstanceService.getBean("lazyRepository"));
+        assertEquals(1, LazyRepository.CREATED.get());
+        EagerService eagerService = beanInstanceService.getBean("eagerService");
+        assertEquals("eager", eagerService.getName());
+    }
+
+    @Test
+    public void testConcurrentFirstRequestCreatesBeanOnce() throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.lazy", "beansLazy.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        // Половина потоков запрашивает зависимый бин, половина - его зависимость
+        List<Object> repositories = requestConcurrently(beanInstanceService,
+                i -> i % 2 == 0 ? "lazyService" : "lazyRepository");
+
+        LazyService lazyService = beanInstanceService.getBean("lazyService");
+        for (Object bean : repositories) {
+            Object repository = bean instanceof LazyService service ? service.getLazyRepository() : bean;
+            assertSame(lazyService.getLazyRepository(), repository, "Все потоки получают один и тот же инстанс");
+        }
+        assertEquals(1, LazyRepository.CREATED.get(), "Конструктор вызывается ровно один раз");
+        assertEquals(1, LazyRepository.POST_CONSTRUCTED.get(), "PostConstruct вызывается ровно один раз");
+        assertEquals(1, LazyService.POST_CONSTRUCTED.get(), "PostConstruct вызывается ровно один раз");
+    }
+
+    @Test
+    public void testContainerWideLazyInitialization() throws Exception {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanContainer.setLazyInitialization(true);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        assertTrue(beanContainer.getSingletonInstances().isEmpty(), "При ленивом контейнере синглетоны не создаются при старте");
+
+        List<Object> services = requestConcurrently(beanInstanceService,
+                i -> i % 2 == 0 ? "mySingletonService" : "mySingletonRepository");
+        MySingletonService singletonService = beanInstanceService.getBean("mySingletonService");
+        assertSame(singletonService.getMySingletonRepository(), beanInstanceService.getBean("mySingletonRepository"));
+        assertTrue(services.contains(singletonService));
+        assertEquals("singletonValue", singletonService.getSomeSingletonProperty());
+    }
+
+    private List<Object> requestConcurrently(BeanInstanceService beanInstanceService,
+                                             IntFunction<String> beanNames) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                String beanName = beanNames.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return beanInstanceService.getBean(beanName);
+                }));
+            }
+            start.countDown();
+            return assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                List<Object> beans = new ArrayList<>();
+                for (Future<Object> future : futures) {
+                    beans.add(future.get());
+                }
+                return beans;
+            }, "Одновременное создание зависимых ленивых бинов не должно приводить к deadlock");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package tests;
+
+import model.json.MyService;
+import model.threads.MySingletonService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка снимка метаданных: первый запуск сканирует бины и сохраняет снимок,
+ * а следующий запуск с тем же classpath и той же конфигурацией восстанавливает из него те же модели и тот же граф.
+ */
+public class MetadataSnapshotTest {
+
+    @TempDir
+    Path snapshotDirectory;
+
+    @Test
+    public void testAnnotatedBeansRestoredFromSnapshot() throws IOException {
+        DependencyScanningConfig scannedConfig = annotatedConfig();
+        BeanContainer scannedContainer = new BeanContainer(scannedConfig);
+        assertNull(scannedConfig.getRestoredSnapshot(), "При первом запуске снимка ещё нет");
+        assertEquals(1, snapshotFiles().size(), "После построения контейнера снимок сохранён");
+
+        DependencyScanningConfig restoredConfig = annotatedConfig();
+        assertNotNull(restoredConfig.getRestoredSnapshot(), "Второй запуск должен загрузить снимок");
+        BeanContainer restoredContainer = new BeanContainer(restoredConfig);
+
+        assertEquals(scannedContainer.getBeanDefinitions(), restoredContainer.getBeanDefinitions(),
+                "Модели бинов из снимка совпадают с просканированными");
+        assertEquals(scannedContainer.getOrderedByDependenciesBeans(), restoredContainer.getOrderedByDependenciesBeans());
+        assertEquals(scannedContainer.getDependencyLevels(), restoredContainer.getDependencyLevels());
+        assertEquals(scannedContainer.getBeanDependencies(), restoredContainer.getBeanDependencies());
+
+        BeanInstanceService beanInstanceService = new BeanInstanceService(restoredContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        MySingletonService mySingletonService = beanInstanceService.getBean("mySingletonService");
+        assertNotNull(mySingletonService, "Бины из снимка создаются как обычно");
+    }
+
+    @Test
+    public void testJsonOnlyBeansRestoredFromSnapshot() throws IOException, ClassNotFoundException {
+        DependencyScanningConfig scannedConfig = new DependencyScanningConfig();
+        scannedConfig.setSnapshotDirectory(snapshotDirectory);
+        scannedConfig.scanForJsonOnlyConfig("beansOnlyJson.json");
+        BeanContainer scannedContainer = new BeanContainer(scannedConfig);
+
+        DependencyScanningConfig restoredConfig = new DependencyScanningConfig();
+        restoredConfig.setSnapshotDirectory(snapshotDirectory);
+        restoredConfig.scanForJsonOnlyConfig("beansOnlyJson.json");
+        assertNotNull(restoredConfig.getRestoredSnapshot());
+        BeanContainer restoredContainer = new BeanContainer(restoredConfig);
+
+        assertEquals(scannedContainer.getBeanDefinitions(), restoredContainer.getBeanDefinitions());
+        BeanInstanceService beanInstanceService = new BeanInstanceService(restoredContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        MyService myService = beanInstanceService.getBean("myService");
+        assertNotNull(myService);
+    }
+
+    @Test
+    public void testDifferentConfigurationReplacesSnapshot() throws IOException, ClassNotFoundException {
+        new BeanContainer(annotatedConfig());
+        Path annotatedSnapshot = snapshotFiles().get(0);
+
+        DependencyScanningConfig jsonOnlyConfig = new DependencyScanningConfig();
+        jsonOnlyConfig.setSnapshotDirectory(snapshotDirectory);
+        jsonOnlyConfig.scanForJsonOnlyConfig("beansOnlyJson.json");
+        assertNull(jsonOnlyConfig.getRestoredSnapshot(), "Снимок другой конфигурации не подходит");
+        new BeanContainer(jsonOnlyConfig);
+
+        assertEquals(1, snapshotFiles().size(), "Снимок с другим отпечатком удаляется после сохранения нового");
+        assertNotEquals(annotatedSnapshot, snapshotFiles().get(0));
+
+        DependencyScanningConfig restoredConfig = new DependencyScanningConfig();
+        restoredConfig.setSnapshotDirectory(snapshotDirectory);
+        restoredConfig.scanForJsonOnlyConfig("beansOnlyJson.json");
+        assertNotNull(restoredConfig.getRestoredSnapshot(), "Новый снимок читается");
+    }
+
+    @Test
+    public void testCorruptedSnapshotIsRescanned() throws IOException {
+        new BeanContainer(annotatedConfig());
+        Path snapshotFile = snapshotFiles().get(0);
+        Files.write(snapshotFile, new byte[]{1, 2, 3});
+
+        DependencyScanningConfig rescannedConfig = annotatedConfig();
+        assertNull(rescannedConfig.getRestoredSnapshot(), "Повреждённый снимок считается отсутствующим");
+        new BeanContainer(rescannedConfig);
+
+        assertNotNull(annotatedConfig().getRestoredSnapshot(), "Снимок перезаписан после повторного сканирования");
+    }
+
+    private DependencyScanningConfig annotatedConfig() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.setSnapshotDirectory(snapshotDirectory);
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+        return dependencyScanningConfig;
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".snapshot")).toList();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package tests;
+
+import model.parallel.CacheWarmer;
+import model.parallel.ParallelService;
+import model.thread_lifecycle.WorkerSession;
+import model.threads.MySingletonService;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.exception.PostConstructException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка параллельного создания синглетон бинов по уровням зависимостей.
+ * Независимые бины должны создаваться одновременно, а зависимые - только после своих зависимостей.
+ */
+public class ParallelBootstrapTest {
+
+    @Test
+    public void testIndependentBeansAreCreatedConcurrently() throws IOException {
+        CacheWarmer.WARM_UP_BARRIER.reset();
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.parallel", "beansParallel.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            beanInstanceService.instantiateAndRegisterBeans(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(List.of(List.of("cacheWarmer", "connectionPool"), List.of("parallelService")),
+                beanContainer.getDependencyLevels().stream().map(level -> level.stream().sorted().toList()).toList(),
+                "Бины без зависимостей находятся на нулевом уровне");
+
+        ParallelService parallelService = beanInstanceService.getBean("parallelService");
+        assertTrue(parallelService.getCacheWarmer().isWarmedUp(), "PostConstruct должен завершиться до внедрения бина");
+        assertTrue(parallelService.getConnectionPool().isConnected(), "PostConstruct должен завершиться до внедрения бина");
+        assertSame(parallelService.getCacheWarmer(), beanInstanceService.getBean("cacheWarmer"));
+    }
+
+    @Test
+    public void testSameResultAsSequentialBootstrap() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.threads", "threadBeans.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            beanInstanceService.instantiateAndRegisterBeans(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        MySingletonService singletonService = beanInstanceService.getBean("mySingletonService");
+        assertSame(singletonService.getMySingletonRepository(), beanInstanceService.getBean("mySingletonRepository"));
+        assertEquals("singletonValue", singletonService.getSomeSingletonProperty());
+    }
+
+    @Test
+    public void testFirstFailureCancelsDependentBeans() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.parallel_failure", "beansParallelFailure.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertThrows(PostConstructException.class, () -> beanInstanceService.instantiateAndRegisterBeans(executor));
+        } finally {
+            executor.shutdown();
+        }
+        assertFalse(beanContainer.containsBean("dependentBean"), "Зависимый от упавшего бина бин не должен создаваться");
+    }
+
+    @Test
+    public void testThreadBeansCreatedOnCallingThread() throws IOException {
+        WorkerSession.CONSTRUCTED.set(0);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.thread_lifecycle", "beansThreadLifecycle.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            beanInstanceService.instantiateAndRegisterBeans(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, WorkerSession.CONSTRUCTED.get(), "Создан только инстанс вызывающего потока");
+        beanInstanceService.getBean("workerSession");
+        assertEquals(1, WorkerSession.CONSTRUCTED.get(), "Вызывающий поток получает инстанс, созданный при старте");
+        assertEquals(1, beanContainer.getLiveThreadInstances("workerSession"));
+    }
+
+    @Test
+    public void testMissingDependencyFuture() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.parallel", "beansParallel.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanContainer.getBeanDependencies().put("parallelService", Set.of("cacheWarmer", "missingBean"));
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        AtomicInteger submittedTasks = new AtomicInteger();
+        Executor executor = task -> submittedTasks.incrementAndGet();
+
+        assertThrows(NoDependencyException.class, () -> beanInstanceService.instantiateAndRegisterBeans(executor));
+        assertEquals(0, submittedTasks.get(), "Ошибка в графе находится до того, как создание бинов отправлено на executor");
+    }
+}
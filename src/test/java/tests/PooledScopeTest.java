@@ -0,0 +1,216 @@
+package tests;
+
+import model.pooled.PooledBuffer;
+import model.pooled.PooledParser;
+import model.pooled_injection.PooledFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.exception.PoolExhaustedException;
+import ru.nsu.exception.WrongJsonException;
+import ru.nsu.model.PoolSettings;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.BeanLease;
+import ru.nsu.services.BeanPool;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка scope pooled: инстансы выдаются из ограниченного пула и возвращаются в него,
+ * при возврате вызывается метод сброса, а при вытеснении и остановке контейнера - PreDestroy.
+ */
+public class PooledScopeTest {
+
+    private BeanContainer beanContainer;
+
+    private BeanInstanceService beanInstanceService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        PooledParser.CONSTRUCTED.set(0);
+        PooledParser.DESTROYED.set(0);
+        PooledParser.RESETS.set(0);
+        PooledBuffer.DESTROYED.set(0);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.pooled", "beansPooled.json");
+        beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        beanContainer.getPools().values().forEach(BeanPool::close);
+    }
+
+    @Test
+    public void testLeaseReusesResetInstance() {
+        assertEquals(1, PooledParser.CONSTRUCTED.get(), "При старте создаётся min инстансов");
+
+        PooledParser firstParser;
+        try (BeanLease<PooledParser> lease = beanInstanceService.leaseBean("pooledParser")) {
+            firstParser = lease.get();
+            firstParser.getBuffer().append("dirty");
+            assertEquals(4096, firstParser.getMaxLength());
+        }
+        try (BeanLease<PooledParser> lease = beanInstanceService.leaseBean("pooledParser")) {
+            assertSame(firstParser, lease.get(), "Возвращённый инстанс выдаётся снова");
+            assertEquals(0, lease.get().getBuffer().length(), "Состояние сброшено при возврате");
+        }
+        assertEquals(2, PooledParser.RESETS.get());
+        assertEquals(1, PooledParser.CONSTRUCTED.get(), "Новые инстансы не создавались");
+    }
+
+    @Test
+    public void testPoolIsBoundedByMax() {
+        BeanLease<PooledParser> first = beanInstanceService.leaseBean("pooledParser");
+        PooledParser second = beanInstanceService.getBean("pooledParser");
+        assertNotSame(first.get(), second);
+
+        assertThrows(PoolExhaustedException.class, () -> beanInstanceService.leaseBean("pooledParser"),
+                "Все max инстансов выданы");
+
+        beanInstanceService.releaseBean("pooledParser", second);
+        try (BeanLease<PooledParser> third = beanInstanceService.leaseBean("pooledParser")) {
+            assertSame(second, third.get());
+        }
+        first.close();
+        first.close();
+        assertEquals(0, beanContainer.getPools().get("pooledParser").getBorrowedInstances(), "Повторный возврат ничего не делает");
+        assertThrows(IllegalStateException.class, first::get);
+        assertThrows(NoDependencyException.class, () -> beanInstanceService.leaseBean("unknownBean"));
+    }
+
+    @Test
+    public void testConcurrentLeasesNeverExceedMax() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        try (BeanLease<PooledBuffer> lease = beanInstanceService.leaseBean("pooledBuffer")) {
+                            lease.get().getBytes()[0]++;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        BeanPool pool = beanContainer.getPools().get("pooledBuffer");
+        assertTrue(pool.getCreatedCount() <= 4, "Создано не больше max инстансов: " + pool.getCreatedCount());
+        assertEquals(4000, pool.getBorrowCount());
+        assertEquals(0, pool.getBorrowedInstances());
+    }
+
+    @Test
+    public void testIdleInstancesEvictedWithPreDestroy() throws InterruptedException {
+        List<BeanLease<PooledBuffer>> leases = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            leases.add(beanInstanceService.leaseBean("pooledBuffer"));
+        }
+        leases.forEach(BeanLease::close);
+        BeanPool pool = beanContainer.getPools().get("pooledBuffer");
+        assertEquals(3, pool.getIdleInstances());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getIdleInstances() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.getIdleInstances(), "Свободные инстансы сверх min вытеснены");
+        assertEquals(2, pool.getEvictedCount());
+        assertEquals(2, PooledBuffer.DESTROYED.get(), "У вытесненных инстансов вызван PreDestroy");
+    }
+
+    @Test
+    public void testShutdownDestroysPooledInstances() {
+        System.setProperty("environment", "test");
+        try {
+            BeanLease<PooledParser> lease = beanInstanceService.leaseBean("pooledParser");
+            beanInstanceService.leaseBean("pooledParser").close();
+
+            var report = beanContainer.testCleanup();
+            assertTrue(report.getFinishedBeans().contains("pooledParser"));
+            assertEquals(1, PooledParser.DESTROYED.get(), "Свободный инстанс уничтожен при остановке");
+
+            lease.close();
+            assertEquals(2, PooledParser.DESTROYED.get(), "Выданный инстанс уничтожен при возврате в закрытый пул");
+            assertThrows(PoolExhaustedException.class, () -> beanInstanceService.leaseBean("pooledParser"));
+        } finally {
+            System.clearProperty("environment");
+        }
+    }
+
+    @Test
+    public void testOnlyBorrowedInstanceCanBeReleasedOnce() {
+        BeanPool pool = beanContainer.getPools().get("pooledParser");
+        PooledParser parser = beanInstanceService.getBean("pooledParser");
+        beanInstanceService.releaseBean("pooledParser", parser);
+
+        assertThrows(IllegalArgumentException.class, () -> beanInstanceService.releaseBean("pooledParser", parser),
+                "Повторный возврат отклоняется");
+        assertThrows(IllegalArgumentException.class, () -> beanInstanceService.releaseBean("pooledParser", new PooledParser()),
+                "Инстанс не из пула отклоняется");
+        assertEquals(0, pool.getBorrowedInstances(), "Лишние возвраты не добавляют разрешений семафору");
+        assertEquals(1, pool.getIdleInstances(), "Инстанс лежит в пуле один раз");
+
+        BeanLease<PooledParser> first = beanInstanceService.leaseBean("pooledParser");
+        BeanLease<PooledParser> second = beanInstanceService.leaseBean("pooledParser");
+        assertNotSame(first.get(), second.get());
+        assertThrows(PoolExhaustedException.class, () -> beanInstanceService.leaseBean("pooledParser"), "Пул по-прежнему ограничен max");
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testTypeLookupDoesNotBorrowPooledBeans() {
+        assertTrue(beanInstanceService.getBeansOfType(Object.class).isEmpty(), "Бины pooled пропускаются");
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> beanInstanceService.getBean(PooledParser.class));
+        assertTrue(exception.getMessage().contains("leaseBean"), exception.getMessage());
+        beanContainer.getPools().values().forEach(pool -> assertEquals(0, pool.getBorrowedInstances(),
+                "Поиск по типу не забирает инстансы из пулов"));
+    }
+
+    @Test
+    public void testPoolSizeIsValidated() {
+        PoolSettings emptyPool = new PoolSettings();
+        emptyPool.setMax(0);
+        WrongJsonException exception = assertThrows(WrongJsonException.class,
+                () -> new BeanPool("emptyPool", emptyPool, Object::new, instance -> { }, instance -> { }));
+        assertTrue(exception.getMessage().contains("emptyPool"));
+
+        PoolSettings invertedPool = new PoolSettings();
+        invertedPool.setMin(4);
+        invertedPool.setMax(2);
+        assertThrows(WrongJsonException.class, () -> new BeanPool("invertedPool", invertedPool, Object::new, instance -> { }, instance -> { }),
+                "min не может быть больше max");
+    }
+
+    @Test
+    public void testPooledBeanCantBeInjected() throws IOException {
+        PooledFormatter.CONSTRUCTED.set(0);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.pooled_injection", "beansPooledInjection.json");
+
+        NoDependencyException exception = assertThrows(NoDependencyException.class, () -> new BeanContainer(dependencyScanningConfig),
+                "Иначе каждый новый prototype занимал бы инстанс пула навсегда, и max + 1 prototype исчерпал бы пул");
+        assertTrue(exception.getMessage().contains("pooledFormatter") && exception.getMessage().contains("reportBuilder"));
+        assertEquals(0, PooledFormatter.CONSTRUCTED.get(), "Ошибка находится до создания инстансов пула");
+    }
+}
@@ -0,0 +1,108 @@
+package tests;
+
+import model.thread_warmup.WarmConnection;
+import model.thread_warmup.WarmFailing;
+import model.thread_warmup.WarmSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+import ru.nsu.services.PrewarmingThreadFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка фабрики потоков, которая заранее создаёт потоковые бины в порядке зависимостей
+ * и уничтожает их в обратном порядке при завершении потока.
+ */
+public class PrewarmingThreadFactoryTest {
+
+    private BeanContainer beanContainer;
+
+    private BeanInstanceService beanInstanceService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.thread_warmup", "beansThreadWarmup.json");
+        beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        WarmSession.EVENTS.clear();
+        WarmFailing.fail = false;
+    }
+
+    @Test
+    public void testBeansCreatedInDependencyOrder() {
+        PrewarmingThreadFactory threadFactory = beanInstanceService.prewarmingThreadFactory("warmConnection");
+        assertEquals(List.of("warmSession", "warmConnection"), threadFactory.getBeanNames(),
+                "Потоковая зависимость добавлена и создаётся раньше, синглетон не добавлен");
+
+        assertThrows(IllegalArgumentException.class, () -> beanInstanceService.prewarmingThreadFactory("warmSettings"));
+        assertThrows(NoDependencyException.class, () -> beanInstanceService.prewarmingThreadFactory("unknownBean"));
+    }
+
+    @Test
+    public void testWorkersPrewarmAndTearDown() throws Exception {
+        ExecutorService executor = beanInstanceService.newPrewarmedThreadPool(2, "warmConnection");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (WarmSession.EVENTS.size() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, WarmSession.EVENTS.size(), "Оба потока создали бины до первой задачи");
+
+        WarmConnection connection = executor.submit(() -> beanInstanceService.<WarmConnection>getBean("warmConnection"))
+                .get(10, TimeUnit.SECONDS);
+        assertNotNull(connection.getWarmSession());
+        assertEquals(4, WarmSession.EVENTS.size(), "Задача получила заранее созданный инстанс");
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(8, WarmSession.EVENTS.size());
+
+        List<String> workers = WarmSession.EVENTS.stream()
+                .map(event -> event.substring(0, event.indexOf(':')))
+                .distinct()
+                .toList();
+        assertEquals(2, workers.size());
+        for (String worker : workers) {
+            List<String> workerEvents = WarmSession.EVENTS.stream()
+                    .filter(event -> event.startsWith(worker + ":"))
+                    .map(event -> event.substring(worker.length() + 1))
+                    .toList();
+            assertEquals(List.of("init:warmSession", "init:warmConnection", "destroy:warmConnection", "destroy:warmSession"),
+                    workerEvents, "Бины уничтожаются в обратном порядке в своём потоке");
+        }
+        assertEquals(1, beanContainer.getLiveThreadInstances("warmConnection"), "Остался только инстанс стартового потока");
+    }
+
+    @Test
+    public void testWorkerRunsTasksWhenPrewarmFails() throws Exception {
+        WarmFailing.fail = true;
+        ExecutorService executor = beanInstanceService.newPrewarmedThreadPool(1, "warmSession", "warmFailing");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (WarmSession.EVENTS.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        WarmFailing.fail = false;
+
+        WarmSession session = executor.submit(() -> beanInstanceService.<WarmSession>getBean("warmSession"))
+                .get(10, TimeUnit.SECONDS);
+        assertNotNull(session, "После ошибки поток выполняет задачи, а бины создаются лениво");
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "Рабочий поток не завис после ошибки");
+        List<String> events = WarmSession.EVENTS.stream()
+                .map(event -> event.substring(event.indexOf(':') + 1))
+                .toList();
+        assertEquals(List.of("init:warmSession", "destroy:warmSession", "init:warmSession", "destroy:warmSession"), events,
+                "Созданный заранее бин уничтожен после ошибки, лениво созданный - при завершении потока");
+    }
+}
@@ -0,0 +1,121 @@
+package tests;
+
+import model.shutdown.MetricsStore;
+import model.shutdown.SessionStore;
+import model.shutdown.SlowDestroyBean;
+import model.shutdown.StoreClient;
+import model.shutdown_stubborn.StubbornClient;
+import model.shutdown_stubborn.StubbornResource;
+import org.junit.jupiter.api.Test;
+import ru.nsu.model.ShutdownReport;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+import ru.nsu.services.ShutdownHookService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка параллельного уничтожения бинов с таймаутами.
+ * Независимые бины должны уничтожаться одновременно, медленный или падающий PreDestroy не должен
+ * мешать остальным бинам, а результат для каждого бина должен попадать в отчёт.
+ */
+public class ShutdownReportTest {
+
+    @Test
+    public void testParallelShutdownWithTimeouts() throws IOException {
+        System.setProperty("environment", "test");
+        SessionStore.FLUSH_BARRIER.reset();
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.shutdown", "beansShutdown.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+        ShutdownHookService shutdownHookService = beanContainer.getShutdownHookService();
+        shutdownHookService.setBeanTimeout(Duration.ofMillis(500));
+
+        long start = System.nanoTime();
+        ShutdownReport report = beanContainer.testCleanup();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        StoreClient storeClient = beanInstanceService.getBean("storeClient");
+        SlowDestroyBean slowDestroyBean = beanInstanceService.getBean("slowDestroyBean");
+        assertTrue(storeClient.isClosedBeforeStores(), "Зависимый бин уничтожается раньше своих зависимостей");
+        assertTrue(storeClient.getSessionStore().isFlushed() && storeClient.getMetricsStore().isFlushed(),
+                "Независимые бины уничтожаются одновременно");
+        assertEquals("storeClient", report.getFinishedBeans().get(0));
+        assertEquals(Set.of("storeClient", "metricsStore", "sessionStore"), Set.copyOf(report.getFinishedBeans()));
+        assertEquals(List.of("slowDestroyBean"), report.getTimedOutBeans(), "Медленный бин не должен задерживать остановку");
+        assertEquals(List.of("failingDestroyBean"), List.copyOf(report.getFailedBeans().keySet()));
+        assertFalse(report.isSuccessful());
+        assertTrue(elapsedMillis < 5_000, "Остановка ограничена таймаутом бина, а не временем его PreDestroy");
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            while (!slowDestroyBean.isInterrupted()) {
+                Thread.onSpinWait();
+            }
+        }, "Поток с не успевшим PreDestroy прерывается");
+    }
+
+    @Test
+    public void testExpiredDeadlineSkipsRemainingBeans() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.shutdown", "beansShutdown.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        ShutdownReport report = beanContainer.getShutdownHookService().cleanupBeans(Duration.ZERO, Duration.ofSeconds(1));
+
+        MetricsStore metricsStore = beanInstanceService.getBean("metricsStore");
+        assertEquals(5, report.getTimedOutBeans().size(), "После дедлайна PreDestroy новых бинов не запускается");
+        assertTrue(report.getFinishedBeans().isEmpty());
+        assertFalse(metricsStore.isFlushed());
+    }
+
+    @Test
+    public void testStillRunningPreDestroyHoldsBackDependencies() throws IOException {
+        StubbornClient.closeMillis = 1_500;
+        BeanInstanceService beanInstanceService = stubbornBeans();
+        BeanContainer beanContainer = beanInstanceService.getBeanContainer();
+
+        ShutdownReport report = beanContainer.getShutdownHookService().cleanupBeans(Duration.ofSeconds(5), Duration.ofMillis(200));
+
+        StubbornResource resource = beanInstanceService.getBean("stubbornResource");
+        assertEquals(List.of("stubbornClient"), report.getTimedOutBeans());
+        assertEquals(List.of("stubbornClient"), report.getStillRunningBeans(), "PreDestroy не реагирует на прерывание и ещё работает");
+        assertEquals(List.of("stubbornResource"), report.getHeldBackBeans());
+        assertFalse(resource.isDestroyed(), "Зависимость не уничтожается, пока её использует работающий PreDestroy");
+        assertFalse(report.isSuccessful());
+    }
+
+    @Test
+    public void testDependencyDestroyedAfterTimedOutPreDestroyFinishes() throws IOException {
+        StubbornClient.closeMillis = 300;
+        BeanInstanceService beanInstanceService = stubbornBeans();
+        BeanContainer beanContainer = beanInstanceService.getBeanContainer();
+
+        ShutdownReport report = beanContainer.getShutdownHookService().cleanupBeans(Duration.ofSeconds(5), Duration.ofMillis(200));
+
+        StubbornClient client = beanInstanceService.getBean("stubbornClient");
+        assertEquals(List.of("stubbornClient"), report.getTimedOutBeans());
+        assertTrue(report.getStillRunningBeans().isEmpty());
+        assertEquals(List.of("stubbornResource"), report.getFinishedBeans());
+        assertTrue(client.isClosed() && client.getStubbornResource().isDestroyed(),
+                "Зависимость уничтожена после того, как PreDestroy зависимого бина завершился");
+    }
+
+    private static BeanInstanceService stubbornBeans() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.shutdown_stubborn", "beansShutdownStubborn.json");
+        BeanInstanceService beanInstanceService = new BeanInstanceService(new BeanContainer(dependencyScanningConfig));
+        beanInstanceService.instantiateAndRegisterBeans();
+        return beanInstanceService;
+    }
+}
@@ -0,0 +1,134 @@
+package tests;
+
+import model.thread_lifecycle.WorkerSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+import ru.nsu.services.ThreadScopedInstances;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка жизненного цикла потоковых бинов: у инстанса каждого потока вызывается PostConstruct,
+ * после завершения потока вызывается PreDestroy, а при остановке контейнера уничтожаются инстансы всех живых потоков.
+ */
+public class ThreadScopeLifecycleTest {
+
+    private BeanContainer beanContainer;
+
+    private BeanInstanceService beanInstanceService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        WorkerSession.CONSTRUCTED.set(0);
+        WorkerSession.DESTROYED.set(0);
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.thread_lifecycle", "beansThreadLifecycle.json");
+        beanContainer = new BeanContainer(dependencyScanningConfig);
+        beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+    }
+
+    @Test
+    public void testInstancePerThreadWithPostConstruct() throws InterruptedException {
+        WorkerSession mainSession = beanInstanceService.getBean("workerSession");
+        assertTrue(mainSession.isInitialized());
+        assertEquals(1, WorkerSession.CONSTRUCTED.get(), "Инстанс стартового потока создаётся один раз");
+
+        AtomicReference<WorkerSession> workerSession = new AtomicReference<>();
+        Thread worker = new Thread(() -> workerSession.set(beanInstanceService.getBean("workerSession")));
+        worker.start();
+        worker.join();
+
+        assertNotSame(mainSession, workerSession.get());
+        assertTrue(workerSession.get().isInitialized(), "PostConstruct вызван и в новом потоке");
+        assertEquals(2, WorkerSession.CONSTRUCTED.get());
+    }
+
+    @Test
+    public void testTerminatedThreadInstancesDestroyed() throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        List<WorkerSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread worker = new Thread(() -> {
+                WorkerSession session = beanInstanceService.getBean("workerSession");
+                synchronized (sessions) {
+                    sessions.add(session);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(5, WorkerSession.CONSTRUCTED.get(), "По инстансу на каждый поток");
+
+        // Фоновый поток мог уже уничтожить часть инстансов сам, оставшиеся уничтожаем вручную
+        ThreadScopedInstances instances = beanContainer.getThreadInstances().get("workerSession");
+        instances.reapTerminatedThreads();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (WorkerSession.DESTROYED.get() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(4, WorkerSession.DESTROYED.get());
+        assertEquals(1, beanContainer.getLiveThreadInstances("workerSession"), "Остался только инстанс живого потока");
+        assertEquals(1, beanContainer.getMetrics().getLiveThreadInstances());
+        assertTrue(sessions.stream().allMatch(WorkerSession::isClosed));
+    }
+
+    @Test
+    public void testReaperDestroysWithoutExplicitCall() throws InterruptedException {
+        Thread worker = new Thread(() -> beanInstanceService.getBean("workerSession"));
+        worker.start();
+        worker.join();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (WorkerSession.DESTROYED.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, WorkerSession.DESTROYED.get(), "PreDestroy вызван после завершения потока");
+        assertEquals(1, beanContainer.getLiveThreadInstances("workerSession"));
+    }
+
+    @Test
+    public void testShutdownDestroysLiveThreadInstances() throws InterruptedException {
+        CountDownLatch created = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            beanInstanceService.getBean("workerSession");
+            created.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        worker.start();
+        created.await();
+
+        System.setProperty("environment", "test");
+        try {
+            var report = beanContainer.testCleanup();
+            assertTrue(report.getFinishedBeans().contains("workerSession"));
+            assertEquals(2, WorkerSession.CONSTRUCTED.get(), "При остановке новых инстансов не создаётся");
+            assertEquals(2, WorkerSession.DESTROYED.get(), "Уничтожены инстансы стартового и рабочего потоков");
+            assertEquals(0, beanContainer.getLiveThreadInstances("workerSession"));
+        } finally {
+            System.clearProperty("environment");
+            release.countDown();
+            worker.join();
+        }
+        beanContainer.getThreadInstances().get("workerSession").reapTerminatedThreads();
+        assertEquals(2, WorkerSession.DESTROYED.get(), "Инстанс не уничтожается второй раз");
+    }
+}
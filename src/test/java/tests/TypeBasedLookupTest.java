@@ -0,0 +1,85 @@
+package tests;
+
+import model.interfaces.EmailService;
+import model.interfaces.IMessageService;
+import model.interfaces.NotificationManager;
+import model.interfaces.SmsService;
+import model.typed.MailGateway;
+import model.typed.MailSender;
+import model.typed.ReportService;
+import model.typed.SmtpGateway;
+import org.junit.jupiter.api.Test;
+import ru.nsu.exception.NoDependencyException;
+import ru.nsu.exception.NoUniqueBeanException;
+import ru.nsu.services.BeanContainer;
+import ru.nsu.services.BeanInstanceService;
+import ru.nsu.services.DependencyScanningConfig;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка получения бинов по типу и внедрения зависимостей без Named по типу поля или параметра.
+ */
+public class TypeBasedLookupTest {
+
+    @Test
+    public void testGetBeanByType() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.interfaces", "beansInterface.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        NotificationManager notificationManager = beanInstanceService.getBean(NotificationManager.class);
+        assertSame(beanInstanceService.getBean(SmsService.class), notificationManager.getSmsManager());
+        assertSame(beanInstanceService.getBean(EmailService.class), notificationManager.getEmailManager());
+
+        Map<String, IMessageService> messageServices = beanInstanceService.getBeansOfType(IMessageService.class);
+        assertEquals(Set.of("SmsService", "EmailService"), messageServices.keySet());
+        assertSame(notificationManager.getSmsManager(), messageServices.get("SmsService"));
+
+        NoUniqueBeanException exception = assertThrows(NoUniqueBeanException.class,
+                () -> beanInstanceService.getBean(IMessageService.class));
+        assertTrue(exception.getMessage().contains("SmsService") && exception.getMessage().contains("EmailService"),
+                "В ошибке перечислены все подходящие бины");
+        assertThrows(NoDependencyException.class, () -> beanInstanceService.getBean(Runnable.class));
+        assertTrue(beanInstanceService.getBeansOfType(Runnable.class).isEmpty());
+    }
+
+    @Test
+    public void testInjectionByType() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.typed", "beansTyped.json");
+
+        BeanContainer beanContainer = new BeanContainer(dependencyScanningConfig);
+        BeanInstanceService beanInstanceService = new BeanInstanceService(beanContainer);
+        beanInstanceService.instantiateAndRegisterBeans();
+
+        assertEquals(Set.of("smtpGateway"), beanContainer.getBeanDependencies().get("mailSender"),
+                "Граф зависимостей строится по тем же именам, что и внедрение");
+        assertEquals(Set.of("mailSender"), beanContainer.getBeanDependencies().get("reportService"));
+        assertEquals(List.of("reportService", "mailSender", "smtpGateway"), beanContainer.getOrderedByDependenciesBeans());
+
+        MailSender mailSender = beanInstanceService.getBean(MailSender.class);
+        assertSame(beanInstanceService.getBean(MailGateway.class), mailSender.getGateway(),
+                "Параметр конструктора без Named внедряется по типу интерфейса");
+        assertInstanceOf(SmtpGateway.class, mailSender.getGateway());
+        ReportService reportService = beanInstanceService.getBean(ReportService.class);
+        assertSame(mailSender, reportService.getSender(), "Поле без Named внедряется по типу, а не по имени поля");
+    }
+
+    @Test
+    public void testAmbiguousInjectionFailsOnStart() throws IOException {
+        DependencyScanningConfig dependencyScanningConfig = new DependencyScanningConfig();
+        dependencyScanningConfig.scanForAnnotatedClasses("model.typed_ambiguous", "beansTypedAmbiguous.json");
+
+        NoUniqueBeanException exception = assertThrows(NoUniqueBeanException.class, () -> new BeanContainer(dependencyScanningConfig));
+        assertTrue(exception.getMessage().contains("alertService"));
+    }
+}